@@ -1,5 +1,6 @@
 package edu.kit.kastel;
 import edu.kit.kastel.monstergame.model.command.CommandHandler;
+import edu.kit.kastel.monstergame.model.util.ElementEffectiveness;
 import edu.kit.kastel.monstergame.model.util.FileParser;
 import edu.kit.kastel.monstergame.model.util.RandomUtil;
 
@@ -64,6 +65,7 @@ public final class MonsterGame {
             System.out.println("Error: Invalid or empty configuration file.");
             return;
         }
+        ElementEffectiveness.setTable(gameData.getElementTable());
 
         System.out.println();
         System.out.println("Loaded " + gameData.getActions().size() + " actions, "
@@ -49,6 +49,21 @@ public class Action {
     public List<Effect> getEffects() {
         return new ArrayList<>(effects);
     }
+    /**
+     * Gets the number of effects of this action.
+     * @return The number of effects
+     */
+    public int getEffectCount() {
+        return effects.size();
+    }
+    /**
+     * Gets an effect of this action without copying the effect list.
+     * @param index The position of the effect
+     * @return The effect
+     */
+    public Effect getEffect(int index) {
+        return effects.get(index);
+    }
     /**
      * Returns a string representation of the action.
      * @return A string containing the actions name, element, and effects
@@ -4,6 +4,7 @@ import edu.kit.kastel.monstergame.model.enums.Element;
 import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
 import edu.kit.kastel.monstergame.model.enums.StatType;
 import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+import edu.kit.kastel.monstergame.model.util.Zobrist;
 
 import java.util.ArrayList;
 import java.util.EnumMap;
@@ -25,6 +26,9 @@ public class Monster {
     private Map<ProtectionTarget, Integer> protection;
     private int contestantNumber; // Wettstreiter-Nummer
     private Action selectedAction; // For storing the selected action during combat
+    private int selectedActionIndex; // Position of the selected action in the actions, -1 if none
+    private Monster selectedTarget; // For storing the selected target during combat
+    private long stateHash; // Zobrist hash of HP, stages and status condition
 
     /**
      * Creates a new Monster with the specified attributes.
@@ -45,6 +49,7 @@ public class Monster {
         this.currentHp = baseStats.getOrDefault(StatType.HP, 0);
         this.actions = new ArrayList<>(actions);
         this.statusCondition = null;
+        this.selectedActionIndex = -1;
 
         this.statStages = new EnumMap<>(StatType.class);
         for (StatType stat : StatType.values()) {
@@ -57,6 +62,46 @@ public class Monster {
         for (ProtectionTarget target : ProtectionTarget.values()) {
             protection.put(target, 0);
         }
+        this.stateHash = computeStateHash();
+    }
+
+    /**
+     * Computes the Zobrist hash of the changing values of the monster from scratch.
+     * @return The hash
+     */
+    private long computeStateHash() {
+        long hash = Zobrist.key(contestantNumber, Zobrist.HP, currentHp)
+                ^ Zobrist.key(contestantNumber, Zobrist.CONDITION, Zobrist.conditionValue(statusCondition));
+        for (Map.Entry<StatType, Integer> entry : statStages.entrySet()) {
+            if (entry.getKey() != StatType.HP) {
+                hash ^= Zobrist.key(contestantNumber, Zobrist.stageField(entry.getKey()), entry.getValue());
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Replaces the key of a value in the state hash.
+     * @param field The Zobrist field
+     * @param oldValue The value before the change
+     * @param newValue The value after the change
+     */
+    private void rehash(int field, int oldValue, int newValue) {
+        if (oldValue != newValue) {
+            stateHash ^= Zobrist.key(contestantNumber, field, oldValue)
+                    ^ Zobrist.key(contestantNumber, field, newValue);
+        }
+    }
+
+    /**
+     * Gets the Zobrist hash of the HP, stat stages and status condition of the monster.
+     * It is updated in constant time on every change, and includes the contestant number,
+     * so the hashes of all monsters of a combat can be combined with XOR.
+     * Protections are not part of it, since only the combat knows how many rounds they have left.
+     * @return The state hash
+     */
+    public long getStateHash() {
+        return stateHash;
     }
 
 
@@ -66,9 +111,20 @@ public class Monster {
      * @return The effective stat value after applying stage modifiers
      */
     public double getEffectiveStat(StatType statType) {
-        int baseValue = baseStats.getOrDefault(statType, 0);
-        int stage = statStages.getOrDefault(statType, 0);
+        return effectiveStat(statType, baseStats.getOrDefault(statType, 0), statStages.getOrDefault(statType, 0),
+                statusCondition);
+    }
 
+    /**
+     * Calculate the effective value for a stat from its parts, without a monster instance.
+     * Used wherever stats are kept in compact form, e.g. during search.
+     * @param statType The type of stat to calculate
+     * @param baseValue The base value of the stat
+     * @param stage The stage modifier of the stat
+     * @param statusCondition The status condition of the monster, or null
+     * @return The effective stat value after applying stage modifiers
+     */
+    public static double effectiveStat(StatType statType, int baseValue, int stage, StatusCondition statusCondition) {
         // Base value for the formula depends on the stat type
         int b = (statType == StatType.PRC || statType == StatType.AGL) ? 3 : 2;
 
@@ -138,6 +194,9 @@ public class Monster {
         int currentStage = statStages.getOrDefault(statType, 0);
         int newStage = Math.max(-5, Math.min(5, currentStage + change));
         statStages.put(statType, newStage);
+        if (statType != StatType.HP) {
+            rehash(Zobrist.stageField(statType), currentStage, newStage);
+        }
     }
 
     /**
@@ -181,7 +240,9 @@ public class Monster {
      * @param hp The new HP value
      */
     public void setCurrentHp(int hp) {
-        this.currentHp = Math.max(0, Math.min(hp, baseStats.getOrDefault(StatType.HP, 0)));
+        int newHp = Math.max(0, Math.min(hp, baseStats.getOrDefault(StatType.HP, 0)));
+        rehash(Zobrist.HP, currentHp, newHp);
+        this.currentHp = newHp;
     }
     /**
      * Gets a copy of the monsters available actions.
@@ -190,6 +251,28 @@ public class Monster {
     public List<Action> getActions() {
         return new ArrayList<>(actions);
     }
+    /**
+     * Gets the number of actions of the monster.
+     * @return The number of actions
+     */
+    public int getActionCount() {
+        return actions.size();
+    }
+    /**
+     * Gets an action of the monster without copying the action list.
+     * @param index The position of the action
+     * @return The action
+     */
+    public Action getAction(int index) {
+        return actions.get(index);
+    }
+    /**
+     * Gets the max HP of the monster.
+     * @return The base HP value
+     */
+    public int getMaxHp() {
+        return baseStats.getOrDefault(StatType.HP, 0);
+    }
     /**
      * Gets the current status condition affecting the monster.
      * @return The status condition
@@ -202,6 +285,7 @@ public class Monster {
      * @param condition The new status condition, or null to clear it
      */
     public void setStatusCondition(StatusCondition condition) {
+        rehash(Zobrist.CONDITION, Zobrist.conditionValue(statusCondition), Zobrist.conditionValue(condition));
         this.statusCondition = condition;
     }
     /**
@@ -211,6 +295,14 @@ public class Monster {
     public Map<StatType, Integer> getStatStages() {
         return new EnumMap<>(statStages);
     }
+    /**
+     * Gets the stage of a single stat without copying the stage map.
+     * @param statType The stat
+     * @return The stage, 0 for HP
+     */
+    public int getStatStage(StatType statType) {
+        return statStages.getOrDefault(statType, 0);
+    }
     /**
      * Gets a copy of the monster's protection durations.
      * @return A map containing the protection durations
@@ -219,6 +311,25 @@ public class Monster {
         return new EnumMap<>(protection);
     }
 
+    /**
+     * Checks if the monster is currently protected against the given target.
+     * @param target The protection target
+     * @return true if the protection is active, false otherwise
+     */
+    public boolean isProtected(ProtectionTarget target) {
+        return protection.get(target) > 0;
+    }
+
+    /**
+     * Gets the number of rounds a protection of the monster lasts.
+     * In a combat, this is the number of rounds it has left, including the current one.
+     * @param target The protection target
+     * @return The number of rounds, 0 if the protection is not active
+     */
+    public int getProtectionRounds(ProtectionTarget target) {
+        return protection.get(target);
+    }
+
     /**
      * Sets protection for a specific target for a number of rounds.
      * @param target The protection target
@@ -233,6 +344,7 @@ public class Monster {
      */
     public void setContestantNumber(int number) {
         this.contestantNumber = number;
+        this.stateHash = computeStateHash();
     }
     /**
      * Gets the contestant number of the monster.
@@ -247,6 +359,7 @@ public class Monster {
      */
     public void setSelectedAction(Action action) {
         this.selectedAction = action;
+        this.selectedActionIndex = action == null ? -1 : actions.indexOf(action);
     }
     /**
      * Gets the currently selected action for the monster.
@@ -255,6 +368,68 @@ public class Monster {
     public Action getSelectedAction() {
         return selectedAction;
     }
+    /**
+     * Gets the position of the currently selected action in the actions of the monster.
+     * @return The index, or -1 if no action is selected
+     */
+    public int getSelectedActionIndex() {
+        return selectedActionIndex;
+    }
+    /**
+     * Sets the selected target for the monster in the current round.
+     * @param target The target to aim at, or null to let the combat system choose
+     */
+    public void setSelectedTarget(Monster target) {
+        this.selectedTarget = target;
+    }
+    /**
+     * Gets the currently selected target for the monster.
+     * @return The selected target, or null if none was chosen
+     */
+    public Monster getSelectedTarget() {
+        return selectedTarget;
+    }
+    /**
+     * Packs the HP, stat stages, status condition, selected action and protection rounds into MonsterState.WORDS
+     * longs.
+     * @param states The array to write the packed state to
+     * @param offset The position of the first long in the array
+     */
+    public void snapshot(long[] states, int offset) {
+        long state = MonsterState.withHp(0L, currentHp);
+        for (Map.Entry<StatType, Integer> entry : statStages.entrySet()) {
+            state = MonsterState.withStage(state, entry.getKey(), entry.getValue());
+        }
+        state = MonsterState.withCondition(state, statusCondition);
+        states[offset + MonsterState.STATE] = MonsterState.withAction(state, selectedActionIndex);
+        long protections = 0L;
+        for (Map.Entry<ProtectionTarget, Integer> entry : protection.entrySet()) {
+            protections = MonsterState.withRemaining(protections, entry.getKey(), entry.getValue());
+        }
+        states[offset + MonsterState.PROTECTIONS] = protections;
+    }
+    /**
+     * Restores the HP, stat stages, status condition, selected action and protection rounds from a snapshot.
+     * The combat the monster fights in is not notified, so a running combat has to be restored as a whole.
+     * @param states The array holding the packed state, see MonsterState
+     * @param offset The position of the first long in the array
+     */
+    public void restore(long[] states, int offset) {
+        long state = states[offset + MonsterState.STATE];
+        this.currentHp = MonsterState.hpOf(state);
+        for (StatType stat : StatType.values()) {
+            if (stat != StatType.HP) {
+                statStages.put(stat, MonsterState.stageOf(state, stat));
+            }
+        }
+        this.statusCondition = MonsterState.conditionOf(state);
+        this.selectedActionIndex = MonsterState.actionOf(state);
+        this.selectedAction = selectedActionIndex < 0 ? null : actions.get(selectedActionIndex);
+        for (ProtectionTarget target : ProtectionTarget.values()) {
+            protection.put(target, MonsterState.remainingOf(states[offset + MonsterState.PROTECTIONS], target));
+        }
+        this.stateHash = computeStateHash();
+    }
     /**
      * Checks if the monster is defeated.
      * @return true if the monster is defeated, false otherwise
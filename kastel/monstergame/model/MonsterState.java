@@ -0,0 +1,216 @@
+package edu.kit.kastel.monstergame.model;
+
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+
+import java.util.List;
+
+/**
+ * Packs everything about a monster that carries over from one round to the next into two longs.
+ * The first one holds the current HP (31 bits, so every HP a configuration can give), the stages of ATK to AGL
+ * (4 bits each, two's complement), the status condition (3 bits) and the index of the selected action plus one
+ * (10 bits, 0 if none is selected). The second one holds the rounds both protections have left (32 bits each).
+ * A packed state of 0 and 0 is a monster without HP, stages, status condition, selected action or protections.
+ * The states of all monsters of a combat form a small long array that can be copied, compared and stored
+ * without copying any maps, and restoring a monster from it needs nothing else.
+ * @author uuifx
+ */
+public final class MonsterState {
+    /**
+     * The number of longs the state of one monster takes.
+     */
+    public static final int WORDS = 2;
+    /**
+     * The position of the HP, stages, status condition and selected action in the state of a monster.
+     */
+    public static final int STATE = 0;
+    /**
+     * The position of the remaining protection rounds in the state of a monster.
+     */
+    public static final int PROTECTIONS = 1;
+    /**
+     * The most actions a monster can have, so the index of every action can be packed.
+     */
+    public static final int MAX_ACTIONS = (1 << 10) - 1;
+
+    private static final int HP_SHIFT = 0;
+    private static final int STAGES_SHIFT = 31;
+    private static final int STAGE_BITS = 4;
+    private static final int CONDITION_SHIFT = 51;
+    private static final int ACTION_SHIFT = 54;
+    private static final long HP_MASK = Integer.MAX_VALUE;
+    private static final long STAGE_MASK = (1L << STAGE_BITS) - 1;
+    private static final long CONDITION_MASK = 0x7L;
+    private static final long ACTION_MASK = MAX_ACTIONS;
+    private static final long REMAINING_MASK = 0xFFFFFFFFL;
+    private static final StatusCondition[] CONDITIONS = StatusCondition.values();
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private MonsterState() {
+    }
+
+    /**
+     * Takes a snapshot of several monsters.
+     * @param monsters The monsters
+     * @return The packed states of every monster, WORDS longs each in the order of the list
+     */
+    public static long[] snapshot(List<Monster> monsters) {
+        long[] states = new long[monsters.size() * WORDS];
+        for (int i = 0; i < monsters.size(); i++) {
+            monsters.get(i).snapshot(states, i * WORDS);
+        }
+        return states;
+    }
+
+    /**
+     * Restores several monsters from a snapshot.
+     * @param states The packed states, WORDS longs each in the order of the list
+     * @param monsters The monsters
+     */
+    public static void restore(long[] states, List<Monster> monsters) {
+        for (int i = 0; i < monsters.size(); i++) {
+            monsters.get(i).restore(states, i * WORDS);
+        }
+    }
+
+    /**
+     * Gets the current HP of a packed state.
+     * @param state The packed state
+     * @return The current HP
+     */
+    public static int hpOf(long state) {
+        return (int) (state >>> HP_SHIFT & HP_MASK);
+    }
+
+    /**
+     * Sets the current HP of a packed state.
+     * @param state The packed state
+     * @param hp The current HP, not negative
+     * @return The changed state
+     */
+    public static long withHp(long state, int hp) {
+        if (hp < 0) {
+            throw new IllegalArgumentException("HP " + hp + " cannot be packed");
+        }
+        return state & ~(HP_MASK << HP_SHIFT) | (long) hp << HP_SHIFT;
+    }
+
+    /**
+     * Gets the stage of a stat of a packed state.
+     * @param state The packed state
+     * @param statType The stat, HP has no stage
+     * @return The stage
+     */
+    public static int stageOf(long state, StatType statType) {
+        if (statType == StatType.HP) {
+            return 0;
+        }
+        int bits = (int) (state >>> stageShift(statType) & STAGE_MASK);
+        return bits << (Integer.SIZE - STAGE_BITS) >> (Integer.SIZE - STAGE_BITS);
+    }
+
+    /**
+     * Sets the stage of a stat of a packed state.
+     * @param state The packed state
+     * @param statType The stat, changes of HP are ignored
+     * @param stage The stage (-5 to 5)
+     * @return The changed state
+     */
+    public static long withStage(long state, StatType statType, int stage) {
+        if (statType == StatType.HP) {
+            return state;
+        }
+        int shift = stageShift(statType);
+        return state & ~(STAGE_MASK << shift) | (stage & STAGE_MASK) << shift;
+    }
+
+    /**
+     * Gets the status condition of a packed state.
+     * @param state The packed state
+     * @return The status condition, or null
+     */
+    public static StatusCondition conditionOf(long state) {
+        int condition = (int) (state >>> CONDITION_SHIFT & CONDITION_MASK);
+        return condition == 0 ? null : CONDITIONS[condition - 1];
+    }
+
+    /**
+     * Sets the status condition of a packed state.
+     * @param state The packed state
+     * @param condition The status condition, or null
+     * @return The changed state
+     */
+    public static long withCondition(long state, StatusCondition condition) {
+        long value = condition == null ? 0 : condition.ordinal() + 1;
+        return state & ~(CONDITION_MASK << CONDITION_SHIFT) | value << CONDITION_SHIFT;
+    }
+
+    /**
+     * Gets the index of the selected action of a packed state.
+     * @param state The packed state
+     * @return The index in the actions of the monster, or -1 if no action is selected
+     */
+    public static int actionOf(long state) {
+        return (int) (state >>> ACTION_SHIFT & ACTION_MASK) - 1;
+    }
+
+    /**
+     * Sets the index of the selected action of a packed state.
+     * @param state The packed state
+     * @param index The index in the actions of the monster (below MAX_ACTIONS), or -1 if no action is selected
+     * @return The changed state
+     */
+    public static long withAction(long state, int index) {
+        if (index < -1 || index >= MAX_ACTIONS) {
+            throw new IllegalArgumentException("Action index " + index + " cannot be packed");
+        }
+        return state & ~(ACTION_MASK << ACTION_SHIFT) | (long) (index + 1) << ACTION_SHIFT;
+    }
+
+    /**
+     * Gets the remaining rounds of a protection from the packed remaining rounds of a monster.
+     * @param protections The packed remaining rounds of both protections
+     * @param target The protection target
+     * @return The number of rounds, 0 if the protection is not active
+     */
+    public static int remainingOf(long protections, ProtectionTarget target) {
+        return (int) (protections >>> remainingShift(target) & REMAINING_MASK);
+    }
+
+    /**
+     * Sets the remaining rounds of a protection in the packed remaining rounds of a monster.
+     * Each protection takes 32 bits, so any number of rounds is kept.
+     * @param protections The packed remaining rounds of both protections
+     * @param target The protection target
+     * @param rounds The number of rounds, not negative
+     * @return The changed remaining rounds
+     */
+    public static long withRemaining(long protections, ProtectionTarget target, int rounds) {
+        if (rounds < 0) {
+            throw new IllegalArgumentException("Protection of " + rounds + " rounds cannot be packed");
+        }
+        int shift = remainingShift(target);
+        return protections & ~(REMAINING_MASK << shift) | (long) rounds << shift;
+    }
+
+    /**
+     * Gets the position of the stage of a stat.
+     * @param statType The stat, not HP
+     * @return The shift
+     */
+    private static int stageShift(StatType statType) {
+        return STAGES_SHIFT + (statType.ordinal() - 1) * STAGE_BITS;
+    }
+
+    /**
+     * Gets the position of the remaining rounds of a protection.
+     * @param target The protection target
+     * @return The shift
+     */
+    private static int remainingShift(ProtectionTarget target) {
+        return target.ordinal() * Integer.SIZE;
+    }
+}
@@ -0,0 +1,332 @@
+package edu.kit.kastel.monstergame.model.ai;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.combat.ActionExecutor;
+import edu.kit.kastel.monstergame.model.combat.CriticalHitCache;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.HealingEffect;
+import edu.kit.kastel.monstergame.model.effect.ProtectionEffect;
+import edu.kit.kastel.monstergame.model.effect.StatChangeEffect;
+import edu.kit.kastel.monstergame.model.effect.StatusConditionEffect;
+import edu.kit.kastel.monstergame.model.enums.EffectTarget;
+import edu.kit.kastel.monstergame.model.enums.Element;
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.util.ElementEffectiveness;
+
+import java.util.List;
+
+/**
+ * The rules of a combat applied to compact combat states.
+ * Holds everything about the monsters that does not change during a combat, like base stats
+ * and element factors, and applies the parts of effects that do not depend on chance.
+ * The formulas are the same as the ones of the EffectProcessor and the DamageCalculator.
+ * A model only reads its monsters, so it can be shared by any number of threads.
+ * @author uuifx
+ */
+public final class CombatModel {
+    private static final double NORMALIZATION_FACTOR = 1.0 / 3.0;
+    private static final double BURN_DAMAGE_FACTOR = 0.1;
+    private static final int[] PROTECTIONS = {CombatState.HEALTH_PROTECTION, CombatState.STATS_PROTECTION};
+
+    private final Monster[] monsters;
+    private final int[][] baseStats;
+    private final int[] maxHp;
+    private final int[] burnDamage;
+    private final int[] contestantNumbers;
+    private final double[][][] elementFactors;
+    private final double[][] sameElementFactors;
+
+    /**
+     * Creates the model of a combat between monsters, one side per monster.
+     * @param monsters The monsters, the one the search decides for first
+     */
+    public CombatModel(List<Monster> monsters) {
+        int sides = monsters.size();
+        this.monsters = monsters.toArray(new Monster[0]);
+        this.baseStats = new int[sides][StatType.values().length];
+        this.maxHp = new int[sides];
+        this.burnDamage = new int[sides];
+        this.contestantNumbers = new int[sides];
+        this.elementFactors = new double[sides][][];
+        this.sameElementFactors = new double[sides][];
+        for (int side = 0; side < sides; side++) {
+            Monster monster = this.monsters[side];
+            for (StatType statType : StatType.values()) {
+                baseStats[side][statType.ordinal()] = monster.getBaseStats().getOrDefault(statType, 0);
+            }
+            maxHp[side] = monster.getMaxHp();
+            burnDamage[side] = (int) Math.ceil(maxHp[side] * BURN_DAMAGE_FACTOR);
+            contestantNumbers[side] = monster.getContestantNumber();
+            elementFactors[side] = new double[monster.getActionCount()][sides];
+            sameElementFactors[side] = new double[monster.getActionCount()];
+            for (int action = 0; action < monster.getActionCount(); action++) {
+                Element element = monster.getAction(action).getElement();
+                sameElementFactors[side][action] = ElementEffectiveness.getTable()
+                        .getSameElementFactor(element, monster.getElement());
+                for (int target = 0; target < sides; target++) {
+                    elementFactors[side][action][target] = ElementEffectiveness.getTable()
+                            .getElementFactor(element, this.monsters[target].getElement());
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of sides.
+     * @return The number of monsters
+     */
+    public int getSideCount() {
+        return monsters.length;
+    }
+
+    /**
+     * Gets the monster of a side.
+     * @param side The side
+     * @return The monster
+     */
+    public Monster getMonster(int side) {
+        return monsters[side];
+    }
+
+    /**
+     * Gets the max HP of a side.
+     * @param side The side
+     * @return The max HP
+     */
+    int getMaxHp(int side) {
+        return maxHp[side];
+    }
+
+    /**
+     * Gets the damage a side takes from burning.
+     * @param side The side
+     * @return The burn damage
+     */
+    int getBurnDamage(int side) {
+        return burnDamage[side];
+    }
+
+    /**
+     * Gets the effective value of a stat of a side.
+     * @param state The state
+     * @param side The side
+     * @param statType The stat
+     * @return The effective value
+     */
+    double stat(CombatState state, int side, StatType statType) {
+        return Monster.effectiveStat(statType, baseStats[side][statType.ordinal()], state.getStage(side, statType),
+                state.getCondition(side));
+    }
+
+    /**
+     * Checks whether a side moves before another one.
+     * The faster monster moves first, ties go to the lower contestant number.
+     * @param state The state
+     * @param side The side to check
+     * @param other The other side
+     * @return True if side moves first
+     */
+    boolean movesBefore(CombatState state, int side, int other) {
+        int speed = (int) stat(state, side, StatType.SPD);
+        int otherSpeed = (int) stat(state, other, StatType.SPD);
+        return speed > otherSpeed || speed == otherSpeed && contestantNumbers[side] < contestantNumbers[other];
+    }
+
+    /**
+     * Gets the side an effect is applied to.
+     * @param mover The side using the effect
+     * @param target The side the action is aimed at
+     * @param effect The effect
+     * @return The mover for effects on the user, the target otherwise
+     */
+    static int targetOf(int mover, int target, Effect effect) {
+        return effect.getTarget() == EffectTarget.SELF ? mover : target;
+    }
+
+    /**
+     * Gets the probability that an effect hits.
+     * @param state The state
+     * @param mover The side using the effect
+     * @param target The side the effect is applied to
+     * @param effect The effect
+     * @return The hit probability (0.0-1.0)
+     */
+    double hitProbability(CombatState state, int mover, int target, Effect effect) {
+        return ActionExecutor.getHitProbability(effect, stat(state, mover, StatType.PRC),
+                stat(state, target, StatType.AGL));
+    }
+
+    /**
+     * Gets the probability of a critical hit.
+     * @param state The state
+     * @param mover The side using the effect
+     * @param target The side the effect is applied to
+     * @return The critical hit probability (0.0-1.0)
+     */
+    double criticalProbability(CombatState state, int mover, int target) {
+        return Math.min(1.0, CriticalHitCache.calculateChance(stat(state, mover, StatType.SPD),
+                stat(state, target, StatType.SPD)) / 100);
+    }
+
+    /**
+     * Checks whether a side is protected from the damage of another one.
+     * @param state The state
+     * @param mover The side using the effect
+     * @param target The side the effect is applied to
+     * @return True if the damage is blocked
+     */
+    static boolean isProtectedFromDamage(CombatState state, int mover, int target) {
+        return mover != target && state.get(target, CombatState.HEALTH_PROTECTION) > 0;
+    }
+
+    /**
+     * Calculates base damage before the critical hit and random factors.
+     * @param state The state
+     * @param mover The side using the effect
+     * @param target The side the effect is applied to
+     * @param action The index of the action of the mover
+     * @param effect The damage effect
+     * @return The damage without rounding
+     */
+    double baseDamage(CombatState state, int mover, int target, int action, DamageEffect effect) {
+        return damageScale(state, mover, target, action, effect) * sameElementFactors[mover][action]
+                * NORMALIZATION_FACTOR;
+    }
+
+    /**
+     * Gets the same element factor of an action.
+     * @param mover The side using the action
+     * @param action The index of the action of the mover
+     * @return The same element factor
+     */
+    double sameElementFactor(int mover, int action) {
+        return sameElementFactors[mover][action];
+    }
+
+    /**
+     * Calculates the scale of base damage, the power multiplied with the element factor and the ratio
+     * of ATK to DEF in this order, as used by the DamageDistribution.
+     * @param state The state
+     * @param mover The side using the effect
+     * @param target The side the effect is applied to
+     * @param action The index of the action of the mover
+     * @param effect The damage effect
+     * @return The damage scale
+     */
+    double damageScale(CombatState state, int mover, int target, int action, DamageEffect effect) {
+        double statusFactor = stat(state, mover, StatType.ATK) / stat(state, target, StatType.DEF);
+        return effect.getPower() * elementFactors[mover][action][target] * statusFactor;
+    }
+
+    /**
+     * Calculates the damage of an effect that does not deal base damage.
+     * @param target The side the effect is applied to
+     * @param effect The damage effect
+     * @return The damage
+     */
+    int fixedDamage(int target, DamageEffect effect) {
+        switch (effect.getDamageType()) {
+            case ABSOLUTE:
+                return effect.getPower();
+            case RELATIVE:
+                return (int) Math.ceil(maxHp[target] * (effect.getPower() / 100.0));
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Calculates how much HP a healing effect restores, like EffectProcessor.calculateHealAmount.
+     * @param state The state
+     * @param mover The side using the effect
+     * @param target The side being healed
+     * @param effect The healing effect
+     * @return The amount of HP healed
+     */
+    int healAmount(CombatState state, int mover, int target, HealingEffect effect) {
+        switch (effect.getHealType()) {
+            case ABSOLUTE:
+                return effect.getPower();
+            case RELATIVE:
+                return (int) Math.ceil(maxHp[target] * (effect.getPower() / 100.0));
+            case BASE:
+                return (int) Math.ceil(effect.getPower() * (stat(state, mover, StatType.ATK) / 100.0));
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Deals damage to a side.
+     * @param state The state to change
+     * @param target The side taking the damage
+     * @param damage The damage
+     */
+    static void dealDamage(CombatState state, int target, int damage) {
+        state.set(target, CombatState.HP, state.get(target, CombatState.HP) - damage);
+    }
+
+    /**
+     * Applies a burn tick to a side.
+     * @param state The state to change
+     * @param side The burning side
+     */
+    void applyBurn(CombatState state, int side) {
+        dealDamage(state, side, burnDamage[side]);
+    }
+
+    /**
+     * Applies an effect that hit, except for base damage, which depends on chance.
+     * @param state The state to change
+     * @param mover The side using the effect
+     * @param target The side the effect is applied to
+     * @param effect The effect
+     * @param protectionRounds The number of rounds a protection effect lasts
+     */
+    void applyHit(CombatState state, int mover, int target, Effect effect, int protectionRounds) {
+        switch (effect.getEffectType()) {
+            case DAMAGE:
+                if (!isProtectedFromDamage(state, mover, target)) {
+                    dealDamage(state, target, fixedDamage(target, (DamageEffect) effect));
+                }
+                break;
+            case STATUS_CONDITION:
+                if (state.getCondition(target) == null) {
+                    state.setCondition(target, ((StatusConditionEffect) effect).getCondition());
+                }
+                break;
+            case STAT_CHANGE:
+                StatChangeEffect statChange = (StatChangeEffect) effect;
+                if (statChange.getStages() >= 0 || mover == target
+                        || state.get(target, CombatState.STATS_PROTECTION) == 0) {
+                    state.changeStage(target, statChange.getStat(), statChange.getStages());
+                }
+                break;
+            case PROTECTION:
+                state.set(target, ((ProtectionEffect) effect).getProtectionTarget() == ProtectionTarget.HEALTH
+                        ? CombatState.HEALTH_PROTECTION : CombatState.STATS_PROTECTION, protectionRounds);
+                break;
+            case HEALING:
+                int healed = state.get(target, CombatState.HP)
+                        + healAmount(state, mover, target, (HealingEffect) effect);
+                state.set(target, CombatState.HP, Math.min(maxHp[target], healed));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Counts down the protections of all sides at the end of a round.
+     * @param state The state to change
+     */
+    static void countDownProtections(CombatState state) {
+        for (int side = 0; side < state.getSideCount(); side++) {
+            for (int protection : PROTECTIONS) {
+                state.set(side, protection, Math.max(0, state.get(side, protection) - 1));
+            }
+        }
+    }
+}
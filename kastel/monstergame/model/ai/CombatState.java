@@ -0,0 +1,258 @@
+package edu.kit.kastel.monstergame.model.ai;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+import edu.kit.kastel.monstergame.model.util.Zobrist;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact state of a combat, used during search.
+ * Everything that changes during a combat is stored in one int array, so a state is copied with a single clone
+ * or copied into another state without allocating: a cursor telling the search where in the round the state is,
+ * followed per side by the HP, the stages of ATK to AGL, the status condition and the remaining rounds
+ * of both protections. Everything that does not change, like base stats and actions, is kept by the CombatModel.
+ * A Zobrist hash of the side values is updated with every change, so equal positions reached by different
+ * paths are found in a transposition table. The cursor is not part of the hash.
+ * @author uuifx
+ */
+public final class CombatState {
+    /**
+     * The side of the monster the search decides for.
+     */
+    public static final int OWN = 0;
+    /**
+     * The side of the opponent in a combat between two monsters.
+     */
+    public static final int OPPONENT = 1;
+
+    static final int PHASE = 0;
+    static final int DEPTH = 1;
+    static final int TURN = 2;
+    static final int FIRST = 3;
+    static final int OWN_ACTION = 4;
+    static final int OPPONENT_ACTION = 5;
+    static final int SEQUENCE = 6;
+    static final int EFFECT = 7;
+    private static final int CURSOR_SIZE = 8;
+
+    static final int HP = 0;
+    static final int CONDITION = 6;
+    static final int HEALTH_PROTECTION = 7;
+    static final int STATS_PROTECTION = 8;
+    private static final int STAGES = 1;
+    private static final int SIDE_SIZE = 9;
+
+    private static final int MIN_STAGE = -5;
+    private static final int MAX_STAGE = 5;
+    private static final StatusCondition[] CONDITIONS = StatusCondition.values();
+
+    private final int[] values;
+    private long hash;
+
+    /**
+     * Creates a state from its values.
+     * @param values The values
+     * @param hash The Zobrist hash of the side values
+     */
+    private CombatState(int[] values, long hash) {
+        this.values = values;
+        this.hash = hash;
+    }
+
+    /**
+     * Creates the state of two monsters as they are now.
+     * The remaining rounds of a protection are not known to a monster, so an active protection
+     * is assumed to end with the current round.
+     * @param own The monster the search decides for
+     * @param opponent The opponent
+     * @return The state
+     */
+    public static CombatState of(Monster own, Monster opponent) {
+        return of(List.of(own, opponent));
+    }
+
+    /**
+     * Creates the state of any number of monsters as they are now, one side per monster.
+     * @param monsters The monsters, the one the search decides for first
+     * @return The state
+     */
+    public static CombatState of(List<Monster> monsters) {
+        CombatState state = new CombatState(new int[CURSOR_SIZE + monsters.size() * SIDE_SIZE], 0L);
+        for (int side = 0; side < monsters.size(); side++) {
+            for (int field = 0; field < SIDE_SIZE; field++) {
+                state.hash ^= Zobrist.key(side, field, 0);
+            }
+            state.read(side, monsters.get(side));
+        }
+        return state;
+    }
+
+    /**
+     * Reads the changing values of a monster into one side.
+     * @param side The side
+     * @param monster The monster
+     */
+    private void read(int side, Monster monster) {
+        set(side, HP, Math.max(0, monster.getCurrentHp()));
+        for (StatType statType : StatType.values()) {
+            if (statType != StatType.HP) {
+                set(side, STAGES + statType.ordinal() - 1, monster.getStatStage(statType));
+            }
+        }
+        setCondition(side, monster.getStatusCondition());
+        set(side, HEALTH_PROTECTION, monster.isProtected(ProtectionTarget.HEALTH) ? 1 : 0);
+        set(side, STATS_PROTECTION, monster.isProtected(ProtectionTarget.STATS) ? 1 : 0);
+    }
+
+    /**
+     * Creates a copy of this state.
+     * @return The copy
+     */
+    public CombatState copy() {
+        return new CombatState(values.clone(), hash);
+    }
+
+    /**
+     * Overwrites this state with another one of the same size, without allocating.
+     * @param other The state to copy
+     */
+    public void copyFrom(CombatState other) {
+        System.arraycopy(other.values, 0, values, 0, values.length);
+        hash = other.hash;
+    }
+
+    /**
+     * Gets the Zobrist hash of the side values, without the cursor.
+     * @return The hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Gets the number of sides.
+     * @return The number of monsters in this state
+     */
+    public int getSideCount() {
+        return (values.length - CURSOR_SIZE) / SIDE_SIZE;
+    }
+
+    /**
+     * Gets the current HP of a side.
+     * @param side The side
+     * @return The current HP, at least 0
+     */
+    public int getHp(int side) {
+        return Math.max(0, get(side, HP));
+    }
+
+    /**
+     * Gets a cursor value.
+     * @param index The index of the cursor value, e.g. PHASE
+     * @return The value
+     */
+    int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Sets a cursor value.
+     * @param index The index of the cursor value, e.g. PHASE
+     * @param value The value
+     */
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    /**
+     * Gets a value of a side.
+     * @param side The side
+     * @param field The field, e.g. HP
+     * @return The value
+     */
+    int get(int side, int field) {
+        return values[CURSOR_SIZE + side * SIDE_SIZE + field];
+    }
+
+    /**
+     * Sets a value of a side.
+     * @param side The side
+     * @param field The field, e.g. HP
+     * @param value The value
+     */
+    void set(int side, int field, int value) {
+        int index = CURSOR_SIZE + side * SIDE_SIZE + field;
+        if (values[index] != value) {
+            hash ^= Zobrist.key(side, field, values[index]) ^ Zobrist.key(side, field, value);
+            values[index] = value;
+        }
+    }
+
+    /**
+     * Gets the stage of a stat of a side.
+     * @param side The side
+     * @param statType The stat, HP has no stage
+     * @return The stage
+     */
+    int getStage(int side, StatType statType) {
+        return statType == StatType.HP ? 0 : get(side, STAGES + statType.ordinal() - 1);
+    }
+
+    /**
+     * Sets the stage of a stat of a side.
+     * @param side The side
+     * @param statType The stat, HP has no stage
+     * @param stage The stage
+     */
+    void setStage(int side, StatType statType, int stage) {
+        if (statType != StatType.HP) {
+            set(side, STAGES + statType.ordinal() - 1, stage);
+        }
+    }
+
+    /**
+     * Changes the stage of a stat of a side, limited like the stages of a monster.
+     * @param side The side
+     * @param statType The stat, changes of HP are ignored
+     * @param change The change in stages
+     */
+    void changeStage(int side, StatType statType, int change) {
+        if (statType != StatType.HP) {
+            int stage = getStage(side, statType) + change;
+            set(side, STAGES + statType.ordinal() - 1, Math.max(MIN_STAGE, Math.min(MAX_STAGE, stage)));
+        }
+    }
+
+    /**
+     * Gets the status condition of a side.
+     * @param side The side
+     * @return The status condition, or null
+     */
+    StatusCondition getCondition(int side) {
+        int condition = get(side, CONDITION);
+        return condition == 0 ? null : CONDITIONS[condition - 1];
+    }
+
+    /**
+     * Sets the status condition of a side.
+     * @param side The side
+     * @param condition The status condition, or null
+     */
+    void setCondition(int side, StatusCondition condition) {
+        set(side, CONDITION, condition == null ? 0 : condition.ordinal() + 1);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof CombatState && Arrays.equals(values, ((CombatState) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+}
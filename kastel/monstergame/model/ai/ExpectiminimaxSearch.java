@@ -0,0 +1,777 @@
+package edu.kit.kastel.monstergame.model.ai;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.analysis.EffectSequence;
+import edu.kit.kastel.monstergame.model.combat.StatusConditionHandler;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.ProtectionEffect;
+import edu.kit.kastel.monstergame.model.enums.DamageType;
+import edu.kit.kastel.monstergame.model.enums.EffectType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+import edu.kit.kastel.monstergame.model.util.Zobrist;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Expectiminimax search for the best action of a monster against one opponent.
+ * Every round is a max node over the own actions, followed by a min node over the actions of the opponent,
+ * which is assumed to know the own choice. The round is then resolved through chance nodes in the order
+ * of the combat: the end of a status condition at the start of a turn, random repeat counts, hits,
+ * critical hits, the random damage factor, BURN ticks and the end of status conditions at the end of the round.
+ * The random damage factor is split into three equally likely buckets.
+ * Chance nodes are pruned with Star1, and chance nodes before the next round first probe every outcome
+ * with the best ordered move to find cutoffs early (Star2). Moves are ordered by expected damage.
+ * The search deepens one round at a time until its time budget is used up.
+ * Results at the start of every round are kept in a transposition table, so positions reached again,
+ * e.g. after both monsters missed, are not searched twice, and the best move of an earlier iteration
+ * is searched first in the next one.
+ * If a tablebase of the two monsters was loaded, positions at the search horizon that it covers are rated
+ * by their win probability instead. It is only used there, so every value inside the tree is a searched one
+ * and the Star1 and Star2 bounds stay consistent.
+ * Values range from -1 (own monster fainted) to 1 (opponent fainted); positions that are not decided
+ * are rated by the difference of the HP fractions.
+ * @author uuifx
+ */
+public final class ExpectiminimaxSearch {
+    private static final int DECISION = 0;
+    private static final int TURN_START = 1;
+    private static final int ACTION = 2;
+    private static final int EFFECT = 3;
+    private static final int TURN_END = 4;
+    private static final int END_OF_ROUND = 5;
+
+    private static final double MIN_VALUE = -1.0;
+    private static final double MAX_VALUE = 1.0;
+    private static final int MAX_DEPTH = 16;
+    private static final int CHECK_INTERVAL = 1024;
+    private static final int NO_ACTION = -1;
+    private static final double[] RANDOM_FACTORS = {0.875, 0.925, 0.975};
+    private static final double MEAN_RANDOM_FACTOR = 0.925;
+    private static final double CRITICAL_FACTOR = 2.0;
+    private static final int MAX_OUTCOMES = 1 + 2 * RANDOM_FACTORS.length;
+    private static final int DEFAULT_TABLE_SIZE = 1 << 16;
+    private static final int MATCHUP_FIELD = -1;
+
+    private final CombatModel model;
+    private final Effect[][][][] sequences;
+    private final double[][][] weights;
+    private final double statusEndChance;
+    private final TranspositionTable table;
+    private final long matchupKey;
+    private final Tablebase tablebase;
+
+    private long deadline;
+    private long nodes;
+    private boolean aborted;
+    private int completedDepth;
+    private double value;
+
+    /**
+     * Creates a new search for the current state of two monsters.
+     * @param own The monster the search decides for
+     * @param opponent The opponent
+     */
+    public ExpectiminimaxSearch(Monster own, Monster opponent) {
+        this(own, opponent, new TranspositionTable(DEFAULT_TABLE_SIZE));
+    }
+
+    /**
+     * Creates a new search for the current state of two monsters that uses a given transposition table.
+     * The table can be shared by the searches of one combat, since positions are told apart by contestant numbers.
+     * @param own The monster the search decides for
+     * @param opponent The opponent
+     * @param table The transposition table
+     */
+    public ExpectiminimaxSearch(Monster own, Monster opponent, TranspositionTable table) {
+        this.model = new CombatModel(List.of(own, opponent));
+        this.table = table;
+        this.matchupKey = Zobrist.key(own.getContestantNumber(), MATCHUP_FIELD, opponent.getContestantNumber());
+        this.tablebase = Tablebase.find(own, opponent);
+        this.sequences = new Effect[2][][][];
+        this.weights = new double[2][][];
+        this.statusEndChance = StatusConditionHandler.STATUS_END_CHANCE / 100;
+        for (int side = 0; side < 2; side++) {
+            Monster monster = model.getMonster(side);
+            int actionCount = monster.getActionCount();
+            sequences[side] = new Effect[actionCount][][];
+            weights[side] = new double[actionCount][];
+            for (int action = 0; action < actionCount; action++) {
+                List<EffectSequence> expanded = EffectSequence.of(monster.getAction(action));
+                sequences[side][action] = new Effect[expanded.size()][];
+                weights[side][action] = new double[expanded.size()];
+                for (int s = 0; s < expanded.size(); s++) {
+                    sequences[side][action][s] = expanded.get(s).getEffects();
+                    weights[side][action][s] = expanded.get(s).getWeight();
+                }
+            }
+        }
+    }
+
+    /**
+     * Searches the best action within a time budget.
+     * @param budgetNanos The time budget in nanoseconds
+     * @return The best action, or null if the monster has no actions
+     */
+    public Action search(long budgetNanos) {
+        this.deadline = System.nanoTime() + budgetNanos;
+        this.nodes = 0;
+        this.aborted = false;
+        this.completedDepth = 0;
+        table.newSearch();
+        CombatState root = CombatState.of(model.getMonster(CombatState.OWN), model.getMonster(CombatState.OPPONENT));
+        int[] order = orderMoves(root, CombatState.OWN);
+        if (order[0] == NO_ACTION) {
+            return null;
+        }
+        int best = order[0];
+        this.value = evaluate(root);
+
+        for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+            root.set(CombatState.DEPTH, depth);
+            double alpha = MIN_VALUE;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            int bestOfDepth = order[0];
+            for (int move : order) {
+                double moveValue = minNode(root, move, alpha, MAX_VALUE);
+                if (aborted) {
+                    break;
+                }
+                if (moveValue > bestValue) {
+                    bestValue = moveValue;
+                    bestOfDepth = move;
+                    alpha = Math.max(alpha, moveValue);
+                }
+            }
+            if (aborted) {
+                break;
+            }
+            best = bestOfDepth;
+            value = bestValue;
+            completedDepth = depth;
+            moveToFront(order, best);
+            if (value <= MIN_VALUE || value >= MAX_VALUE) {
+                break;
+            }
+        }
+        return model.getMonster(CombatState.OWN).getAction(best);
+    }
+
+    /**
+     * Gets the value of the best action of the last search.
+     * @return The value (-1.0 to 1.0)
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the number of rounds the last search looked ahead completely.
+     * @return The depth in rounds
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Gets the number of nodes visited by the last search.
+     * @return The number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Calculates the value of a state.
+     * @param state The state
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The value, or a bound of it outside the window
+     */
+    private double value(CombatState state, double alpha, double beta) {
+        if (++nodes % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0.0;
+        }
+        if (state.get(CombatState.OWN, CombatState.HP) <= 0 || state.get(CombatState.OPPONENT, CombatState.HP) <= 0) {
+            return evaluate(state);
+        }
+        switch (state.get(CombatState.PHASE)) {
+            case DECISION:
+                return maxNode(state, alpha, beta);
+            case TURN_START:
+                return turnStart(state, alpha, beta);
+            case ACTION:
+                return action(state, alpha, beta);
+            case EFFECT:
+                return effect(state, alpha, beta);
+            case TURN_END:
+                return turnEnd(state, alpha, beta);
+            case END_OF_ROUND:
+                return endOfRound(state, alpha, beta);
+            default:
+                return evaluate(state);
+        }
+    }
+
+    /**
+     * Looks up the value of a state at the start of a round in the tablebase of the two monsters.
+     * @param state The state
+     * @return The value, 2 times the win probability minus 1, or NaN if the state is not covered
+     */
+    private double tablebaseValue(CombatState state) {
+        if (tablebase == null) {
+            return Double.NaN;
+        }
+        double probability = tablebase.winProbability(state);
+        return probability == Tablebase.NOT_COVERED ? Double.NaN : 2 * probability - 1;
+    }
+
+    /**
+     * Rates a state at the search horizon by the tablebase if it covers the state, otherwise by the HP.
+     * @param state The state at the start of a round
+     * @return The value
+     */
+    private double leafValue(CombatState state) {
+        double known = tablebaseValue(state);
+        return Double.isNaN(known) ? evaluate(state) : known;
+    }
+
+    /**
+     * Rates a state by the HP of both monsters.
+     * @param state The state
+     * @return 1 if only the opponent fainted, -1 if only the own monster fainted,
+     *         otherwise the difference of the HP fractions
+     */
+    private double evaluate(CombatState state) {
+        int ownHp = state.getHp(CombatState.OWN);
+        int opponentHp = state.getHp(CombatState.OPPONENT);
+        if (ownHp == 0 || opponentHp == 0) {
+            return ownHp == opponentHp ? 0.0 : (ownHp == 0 ? MIN_VALUE : MAX_VALUE);
+        }
+        return (double) ownHp / Math.max(1, model.getMaxHp(CombatState.OWN))
+                - (double) opponentHp / Math.max(1, model.getMaxHp(CombatState.OPPONENT));
+    }
+
+    /**
+     * Searches the own actions at the start of a round.
+     * @param state The state
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The value of the best action, or a bound of it outside the window
+     */
+    private double maxNode(CombatState state, double alpha, double beta) {
+        long key = state.getHash() ^ matchupKey;
+        int depth = state.get(CombatState.DEPTH);
+        int[] order = orderMoves(state, CombatState.OWN);
+        long entry = table.probe(key);
+        if (entry != TranspositionTable.NONE) {
+            double stored = TranspositionTable.valueOf(entry);
+            int bound = TranspositionTable.boundOf(entry);
+            if (TranspositionTable.depthOf(entry) >= depth && (bound == TranspositionTable.EXACT
+                    || bound == TranspositionTable.LOWER && stored >= beta
+                    || bound == TranspositionTable.UPPER && stored <= alpha)) {
+                return stored;
+            }
+            int move = TranspositionTable.moveOf(entry);
+            if (move != TranspositionTable.NO_MOVE && move < order.length) {
+                moveToFront(order, move);
+            }
+        }
+        double originalAlpha = alpha;
+        double best = Double.NEGATIVE_INFINITY;
+        int bestMove = order[0];
+        for (int move : order) {
+            double moveValue = minNode(state, move, alpha, beta);
+            if (aborted) {
+                return 0.0;
+            }
+            if (moveValue > best) {
+                best = moveValue;
+                bestMove = move;
+                alpha = Math.max(alpha, moveValue);
+                if (best >= beta) {
+                    break;
+                }
+            }
+        }
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, best, depth, bound, bestMove);
+        return best;
+    }
+
+    /**
+     * Searches the actions of the opponent after the own action was chosen.
+     * @param state The state at the start of the round
+     * @param ownMove The index of the own action
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The value of the best answer of the opponent, or a bound of it outside the window
+     */
+    private double minNode(CombatState state, int ownMove, double alpha, double beta) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int move : orderMoves(state, CombatState.OPPONENT)) {
+            double moveValue = value(startRound(state, ownMove, move), alpha, beta);
+            if (aborted) {
+                return 0.0;
+            }
+            if (moveValue < best) {
+                best = moveValue;
+                beta = Math.min(beta, moveValue);
+                if (best <= alpha) {
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Creates the state at the start of the first turn of a round.
+     * The faster monster moves first, ties go to the lower contestant number.
+     * @param state The state at the start of the round
+     * @param ownMove The index of the own action
+     * @param opponentMove The index of the action of the opponent
+     * @return The new state
+     */
+    private CombatState startRound(CombatState state, int ownMove, int opponentMove) {
+        CombatState child = state.copy();
+        child.set(CombatState.OWN_ACTION, ownMove);
+        child.set(CombatState.OPPONENT_ACTION, opponentMove);
+        boolean opponentFirst = model.movesBefore(state, CombatState.OPPONENT, CombatState.OWN);
+        child.set(CombatState.FIRST, opponentFirst ? CombatState.OPPONENT : CombatState.OWN);
+        child.set(CombatState.TURN, 0);
+        child.set(CombatState.PHASE, TURN_START);
+        return child;
+    }
+
+    /**
+     * Resolves the start of a turn, where a status condition may end and a SLEEPing monster skips its turn.
+     * @param state The state
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The value
+     */
+    private double turnStart(CombatState state, double alpha, double beta) {
+        int mover = mover(state);
+        StatusCondition condition = state.getCondition(mover);
+        CombatState persists = state.copy();
+        persists.set(CombatState.PHASE, condition == StatusCondition.SLEEP ? TURN_END : ACTION);
+        if (condition == null) {
+            return value(persists, alpha, beta);
+        }
+        CombatState ends = state.copy();
+        ends.setCondition(mover, null);
+        ends.set(CombatState.PHASE, ACTION);
+        return chance(new CombatState[] {ends, persists}, new double[] {statusEndChance, 1.0 - statusEndChance}, 2,
+                alpha, beta);
+    }
+
+    /**
+     * Resolves the random repeat counts of the action of the moving monster.
+     * @param state The state
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The value
+     */
+    private double action(CombatState state, double alpha, double beta) {
+        int mover = mover(state);
+        int move = state.get(mover == CombatState.OWN ? CombatState.OWN_ACTION : CombatState.OPPONENT_ACTION);
+        if (move == NO_ACTION) {
+            CombatState child = state.copy();
+            child.set(CombatState.PHASE, TURN_END);
+            return value(child, alpha, beta);
+        }
+        double[] sequenceWeights = weights[mover][move];
+        CombatState[] children = new CombatState[sequenceWeights.length];
+        for (int s = 0; s < children.length; s++) {
+            children[s] = state.copy();
+            children[s].set(CombatState.SEQUENCE, s);
+            children[s].set(CombatState.EFFECT, 0);
+            children[s].set(CombatState.PHASE, EFFECT);
+        }
+        if (children.length == 1) {
+            return value(children[0], alpha, beta);
+        }
+        return chance(children, sequenceWeights, children.length, alpha, beta);
+    }
+
+    /**
+     * Resolves the next effect of the action of the moving monster.
+     * If the first effect misses, the whole action fails, later effects that miss are skipped.
+     * @param state The state
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The value
+     */
+    private double effect(CombatState state, double alpha, double beta) {
+        int mover = mover(state);
+        int move = state.get(mover == CombatState.OWN ? CombatState.OWN_ACTION : CombatState.OPPONENT_ACTION);
+        Effect[] effects = sequences[mover][move][state.get(CombatState.SEQUENCE)];
+        int index = state.get(CombatState.EFFECT);
+        if (index >= effects.length) {
+            CombatState child = state.copy();
+            child.set(CombatState.PHASE, TURN_END);
+            return value(child, alpha, beta);
+        }
+        Effect effect = effects[index];
+        int target = CombatModel.targetOf(mover, 1 - mover, effect);
+        double hitChance = model.hitProbability(state, mover, target, effect);
+
+        CombatState[] children = new CombatState[MAX_OUTCOMES];
+        double[] probabilities = new double[MAX_OUTCOMES];
+        int count = 0;
+        if (hitChance < 1.0) {
+            children[count] = state.copy();
+            if (index == 0) {
+                children[count].set(CombatState.PHASE, TURN_END);
+            } else {
+                children[count].set(CombatState.EFFECT, index + 1);
+            }
+            probabilities[count++] = 1.0 - hitChance;
+        }
+        if (hitChance > 0.0) {
+            if (effect.getEffectType() == EffectType.DAMAGE && isRandomDamage(state, mover, target, effect)) {
+                double criticalChance = model.criticalProbability(state, mover, target);
+                double damage = model.baseDamage(state, mover, target, move, (DamageEffect) effect);
+                for (int critical = 0; critical < 2; critical++) {
+                    double criticalProbability = critical == 1 ? criticalChance : 1.0 - criticalChance;
+                    if (criticalProbability <= 0.0) {
+                        continue;
+                    }
+                    for (double randomFactor : RANDOM_FACTORS) {
+                        CombatState child = state.copy();
+                        int dealt = (int) Math.ceil(damage * (critical == 1 ? CRITICAL_FACTOR : 1.0) * randomFactor);
+                        CombatModel.dealDamage(child, target, dealt);
+                        child.set(CombatState.EFFECT, index + 1);
+                        count = addOutcome(children, probabilities, count, child,
+                                hitChance * criticalProbability / RANDOM_FACTORS.length);
+                    }
+                }
+            } else {
+                CombatState child = state.copy();
+                model.applyHit(child, mover, target, effect, protectionRounds(effect));
+                child.set(CombatState.EFFECT, index + 1);
+                children[count] = child;
+                probabilities[count++] = hitChance;
+            }
+        }
+        if (count == 1) {
+            return value(children[0], alpha, beta);
+        }
+        return chance(children, probabilities, count, alpha, beta);
+    }
+
+    /**
+     * Adds an outcome to a chance node, merging it with an earlier outcome that led to the same state,
+     * e.g. random factors that round to the same damage.
+     * @param children The states after each outcome
+     * @param probabilities The probabilities of the outcomes
+     * @param count The number of outcomes so far
+     * @param child The state after the new outcome
+     * @param probability The probability of the new outcome
+     * @return The new number of outcomes
+     */
+    private static int addOutcome(CombatState[] children, double[] probabilities, int count,
+                                  CombatState child, double probability) {
+        for (int i = 0; i < count; i++) {
+            if (children[i].equals(child)) {
+                probabilities[i] += probability;
+                return count;
+            }
+        }
+        children[count] = child;
+        probabilities[count] = probability;
+        return count + 1;
+    }
+
+    /**
+     * Checks whether a damage effect deals base damage, which depends on critical hits and the random factor.
+     * @param state The state
+     * @param mover The side using the effect
+     * @param target The side the effect is applied to
+     * @param effect The damage effect
+     * @return True if the damage is random
+     */
+    private boolean isRandomDamage(CombatState state, int mover, int target, Effect effect) {
+        return ((DamageEffect) effect).getDamageType() == DamageType.BASE
+                && !CombatModel.isProtectedFromDamage(state, mover, target);
+    }
+
+    /**
+     * Resolves the end of a turn, where a BURNing monster takes damage, and moves on to the next turn.
+     * @param state The state
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The value
+     */
+    private double turnEnd(CombatState state, double alpha, double beta) {
+        int mover = mover(state);
+        CombatState child = state.copy();
+        if (state.getCondition(mover) == StatusCondition.BURN) {
+            model.applyBurn(child, mover);
+        }
+        int turn = state.get(CombatState.TURN) + 1;
+        child.set(CombatState.TURN, turn);
+        child.set(CombatState.PHASE, turn < 2 ? TURN_START : END_OF_ROUND);
+        return value(child, alpha, beta);
+    }
+
+    /**
+     * Resolves the end of a round, where status conditions may end and protections count down.
+     * @param state The state
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The value
+     */
+    private double endOfRound(CombatState state, double alpha, double beta) {
+        int depth = state.get(CombatState.DEPTH) - 1;
+        if (depth <= 0 && tablebase == null) {
+            // Nothing that happens at the end of the round changes the HP
+            return evaluate(state);
+        }
+        CombatState next = state.copy();
+        next.set(CombatState.DEPTH, depth);
+        next.set(CombatState.PHASE, DECISION);
+        CombatModel.countDownProtections(next);
+
+        CombatState[] children = new CombatState[4];
+        double[] probabilities = new double[4];
+        children[0] = next;
+        probabilities[0] = 1.0;
+        int count = 1;
+        for (int side = 0; side < 2; side++) {
+            if (next.getCondition(side) == null) {
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                children[count + i] = children[i].copy();
+                children[count + i].setCondition(side, null);
+                probabilities[count + i] = probabilities[i] * statusEndChance;
+                probabilities[i] *= 1.0 - statusEndChance;
+            }
+            count *= 2;
+        }
+        if (depth <= 0) {
+            double expected = 0.0;
+            for (int i = 0; i < count; i++) {
+                expected += probabilities[i] * leafValue(children[i]);
+            }
+            return expected;
+        }
+        if (count == 1) {
+            return value(next, alpha, beta);
+        }
+        return probingChance(children, probabilities, count, alpha, beta);
+    }
+
+    /**
+     * Calculates the expected value of a chance node with Star1 pruning.
+     * The window of every outcome is narrowed by the values of the outcomes before it
+     * and the bounds of the outcomes after it, so the node can stop as soon as it is outside its window.
+     * @param children The states after each outcome
+     * @param probabilities The probabilities of the outcomes
+     * @param count The number of outcomes
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The expected value, or a bound of it outside the window
+     */
+    private double chance(CombatState[] children, double[] probabilities, int count, double alpha, double beta) {
+        double[] lowerBounds = new double[count];
+        Arrays.fill(lowerBounds, MIN_VALUE);
+        return star1(children, probabilities, lowerBounds, count, alpha, beta);
+    }
+
+    /**
+     * Calculates the expected value of a chance node before a new round with Star2 pruning.
+     * Every outcome is probed with the first ordered own action first, which gives a lower bound of its value.
+     * If the lower bounds alone reach beta, the node fails high without a full search,
+     * otherwise they tighten the windows of the Star1 search that follows.
+     * @param children The states after each outcome, all at the start of a round
+     * @param probabilities The probabilities of the outcomes
+     * @param count The number of outcomes
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The expected value, or a bound of it outside the window
+     */
+    private double probingChance(CombatState[] children, double[] probabilities, int count,
+                                 double alpha, double beta) {
+        double[] lowerBounds = new double[count];
+        double lowerSum = 0.0;
+        double remaining = 1.0;
+        for (int i = 0; i < count; i++) {
+            remaining -= probabilities[i];
+            double childBeta = (beta - lowerSum - MIN_VALUE * remaining) / probabilities[i];
+            double childAlpha = (alpha - lowerSum - MAX_VALUE * remaining) / probabilities[i];
+            int firstMove = orderMoves(children[i], CombatState.OWN)[0];
+            double probe = minNode(children[i], firstMove, Math.max(childAlpha, MIN_VALUE),
+                    Math.min(childBeta, MAX_VALUE));
+            if (aborted) {
+                return 0.0;
+            }
+            if (probe >= childBeta) {
+                return lowerSum + probabilities[i] * probe + MIN_VALUE * remaining;
+            }
+            // A probe that failed low is only an upper bound of the probed action
+            lowerBounds[i] = probe > childAlpha ? probe : MIN_VALUE;
+            lowerSum += probabilities[i] * lowerBounds[i];
+        }
+        return star1(children, probabilities, lowerBounds, count, alpha, beta);
+    }
+
+    /**
+     * Calculates the expected value of a chance node with Star1 pruning, using known lower bounds of the outcomes.
+     * @param children The states after each outcome
+     * @param probabilities The probabilities of the outcomes
+     * @param lowerBounds Lower bounds of the values of the outcomes
+     * @param count The number of outcomes
+     * @param alpha The lower bound of the search window
+     * @param beta The upper bound of the search window
+     * @return The expected value, or a bound of it outside the window
+     */
+    private double star1(CombatState[] children, double[] probabilities, double[] lowerBounds, int count,
+                         double alpha, double beta) {
+        double lowerRemaining = 0.0;
+        double remaining = 0.0;
+        for (int i = 0; i < count; i++) {
+            lowerRemaining += probabilities[i] * lowerBounds[i];
+            remaining += probabilities[i];
+        }
+        double sum = 0.0;
+        for (int i = 0; i < count; i++) {
+            double probability = probabilities[i];
+            remaining -= probability;
+            lowerRemaining -= probability * lowerBounds[i];
+            double childAlpha = (alpha - sum - MAX_VALUE * remaining) / probability;
+            double childBeta = (beta - sum - lowerRemaining) / probability;
+            if (childAlpha >= MAX_VALUE) {
+                return sum + probability * MAX_VALUE + MAX_VALUE * remaining;
+            }
+            if (childBeta <= lowerBounds[i]) {
+                return sum + probability * lowerBounds[i] + lowerRemaining;
+            }
+            double childValue = value(children[i], Math.max(childAlpha, MIN_VALUE), Math.min(childBeta, MAX_VALUE));
+            if (aborted) {
+                return 0.0;
+            }
+            if (childValue <= childAlpha) {
+                return sum + probability * childValue + MAX_VALUE * remaining;
+            }
+            if (childValue >= childBeta) {
+                return sum + probability * childValue + lowerRemaining;
+            }
+            sum += probability * childValue;
+        }
+        return sum;
+    }
+
+    /**
+     * Orders the actions of a side by their expected damage against the other side, highest first.
+     * @param state The state
+     * @param side The side choosing an action
+     * @return The action indices in search order, or only NO_ACTION if the monster has no actions
+     */
+    private int[] orderMoves(CombatState state, int side) {
+        int count = model.getMonster(side).getActionCount();
+        if (count == 0) {
+            return new int[] {NO_ACTION};
+        }
+        int[] order = new int[count];
+        double[] damages = new double[count];
+        for (int move = 0; move < count; move++) {
+            double damage = expectedDamage(state, side, move);
+            int position = move;
+            while (position > 0 && damages[position - 1] < damage) {
+                order[position] = order[position - 1];
+                damages[position] = damages[position - 1];
+                position--;
+            }
+            order[position] = move;
+            damages[position] = damage;
+        }
+        return order;
+    }
+
+    /**
+     * Moves an action to the front of an order, keeping the order of the others.
+     * @param order The action indices in search order
+     * @param move The action to search first
+     */
+    private static void moveToFront(int[] order, int move) {
+        int position = 0;
+        while (order[position] != move) {
+            position++;
+        }
+        System.arraycopy(order, 0, order, 1, position);
+        order[0] = move;
+    }
+
+    /**
+     * Estimates the damage an action deals to the other side, ignoring rounding.
+     * @param state The state
+     * @param side The side using the action
+     * @param move The index of the action
+     * @return The expected damage
+     */
+    private double expectedDamage(CombatState state, int side, int move) {
+        int other = 1 - side;
+        double expected = 0.0;
+        for (int s = 0; s < sequences[side][move].length; s++) {
+            Effect[] effects = sequences[side][move][s];
+            double firstHit = 0.0;
+            double damage = 0.0;
+            for (int i = 0; i < effects.length; i++) {
+                int target = CombatModel.targetOf(side, other, effects[i]);
+                double hitChance = model.hitProbability(state, side, target, effects[i]);
+                if (i == 0) {
+                    firstHit = hitChance;
+                }
+                if (effects[i].getEffectType() != EffectType.DAMAGE || target == side
+                        || CombatModel.isProtectedFromDamage(state, side, target)) {
+                    continue;
+                }
+                DamageEffect damageEffect = (DamageEffect) effects[i];
+                double effectDamage;
+                if (damageEffect.getDamageType() == DamageType.BASE) {
+                    double criticalChance = model.criticalProbability(state, side, target);
+                    effectDamage = model.baseDamage(state, side, target, move, damageEffect)
+                            * (1.0 + (CRITICAL_FACTOR - 1.0) * criticalChance) * MEAN_RANDOM_FACTOR;
+                } else {
+                    effectDamage = model.fixedDamage(target, damageEffect);
+                }
+                damage += (i == 0 ? hitChance : firstHit * hitChance) * effectDamage;
+            }
+            expected += weights[side][move][s] * damage;
+        }
+        return expected;
+    }
+
+    /**
+     * Gets the number of rounds a protection lasts, the midpoint for a random number of rounds.
+     * @param effect The effect that hit
+     * @return The number of rounds, only used for protection effects
+     */
+    private static int protectionRounds(Effect effect) {
+        if (effect.getEffectType() != EffectType.PROTECTION) {
+            return 0;
+        }
+        ProtectionEffect protection = (ProtectionEffect) effect;
+        return protection.isRandomRounds()
+                ? (protection.getMinRounds() + protection.getMaxRounds() + 1) / 2 : protection.getRounds();
+    }
+
+    /**
+     * Gets the side whose turn it is.
+     * @param state The state
+     * @return OWN or OPPONENT
+     */
+    private static int mover(CombatState state) {
+        int first = state.get(CombatState.FIRST);
+        return state.get(CombatState.TURN) == 0 ? first : 1 - first;
+    }
+}
@@ -0,0 +1,353 @@
+package edu.kit.kastel.monstergame.model.ai;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.analysis.DamageDistribution;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Parallel Monte Carlo tree search for the best move of a monster in a combat with any number of monsters.
+ * The tree is open loop: a node stands for a sequence of own moves, and the moves of the opponents as well as
+ * all random outcomes are drawn anew in every iteration, so nodes hold the average over all of them.
+ * A move is an action together with a target. In big combats only the opponents the monster can hurt most
+ * are considered as targets.
+ * Several threads search the same tree. Every node on the path of an iteration gets a virtual loss until the
+ * iteration is backed up, so threads spread over the tree instead of following each other.
+ * Rollouts use the RolloutSimulator with the default policy until the combat is decided or a round limit is reached.
+ * The subtree of the chosen move is kept for the next round as long as the same monsters are fighting.
+ * @author uuifx
+ */
+public final class MonteCarloTreeSearch {
+    private static final double EXPLORATION = 0.7;
+    private static final int MAX_TREE_DEPTH = 32;
+    private static final int MAX_ROLLOUT_ROUNDS = 50;
+    private static final int MAX_TARGETS = 4;
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "monte-carlo-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<Monster> monsters;
+    private final CombatModel model;
+    private final int[] targetSides;
+    private final int moveCount;
+    private final AtomicLong iterations;
+    private final SplittableRandom seeds;
+    private Node root;
+
+    /**
+     * Creates a new search.
+     * @param monster The monster the search decides for
+     * @param opponents The opponents that are still standing
+     */
+    public MonteCarloTreeSearch(Monster monster, List<Monster> opponents) {
+        this.monsters = new ArrayList<>(opponents.size() + 1);
+        monsters.add(monster);
+        monsters.addAll(opponents);
+        this.model = new CombatModel(monsters);
+        this.targetSides = chooseTargets(monster, opponents);
+        this.moveCount = monster.getActionCount() * targetSides.length;
+        this.iterations = new AtomicLong();
+        this.seeds = new SplittableRandom();
+        this.root = new Node(moveCount);
+    }
+
+    /**
+     * Chooses the opponents that are considered as targets, the ones the monster can deal the most damage to.
+     * @param monster The monster the search decides for
+     * @param opponents The opponents
+     * @return The sides of the targets
+     */
+    private static int[] chooseTargets(Monster monster, List<Monster> opponents) {
+        int count = Math.min(MAX_TARGETS, opponents.size());
+        int[] sides = new int[count];
+        double[] damages = new double[count];
+        int chosen = 0;
+        for (int i = 0; i < opponents.size(); i++) {
+            double damage = 0;
+            for (int action = 0; action < monster.getActionCount(); action++) {
+                damage = Math.max(damage, DamageDistribution.expectedActionDamage(monster, opponents.get(i),
+                        monster.getAction(action)));
+            }
+            if (chosen == count && damage <= damages[count - 1]) {
+                continue;
+            }
+            int position = chosen < count ? chosen++ : count - 1;
+            while (position > 0 && damages[position - 1] < damage) {
+                sides[position] = sides[position - 1];
+                damages[position] = damages[position - 1];
+                position--;
+            }
+            sides[position] = i + 1;
+            damages[position] = damage;
+        }
+        return sides;
+    }
+
+    /**
+     * Checks whether this search belongs to a monster fighting the given opponents, so its tree can be reused.
+     * @param monster The monster
+     * @param opponents The opponents that are still standing
+     * @return True if the monster and the opponents are the same and in the same order
+     */
+    public boolean isFor(Monster monster, List<Monster> opponents) {
+        if (monsters.get(0) != monster || monsters.size() != opponents.size() + 1) {
+            return false;
+        }
+        for (int i = 0; i < opponents.size(); i++) {
+            if (monsters.get(i + 1) != opponents.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches the best move from the current state of the monsters.
+     * @param budgetNanos The time budget in nanoseconds
+     * @param threads The number of threads searching in parallel, including the calling one
+     * @return The best move, or -1 if the monster has no moves
+     */
+    public int search(long budgetNanos, int threads) {
+        if (moveCount == 0) {
+            return -1;
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        CombatState rootState = CombatState.of(monsters);
+        List<Future<?>> workers = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            SplittableRandom random = seeds.split();
+            workers.add(WORKERS.submit(() -> run(rootState, deadline, random)));
+        }
+        run(rootState, deadline, seeds.split());
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Monte Carlo worker failed", e.getCause());
+            }
+        }
+        return bestMove();
+    }
+
+    /**
+     * Runs iterations until the deadline.
+     * @param rootState The state at the root, which is only read
+     * @param deadline The deadline as System.nanoTime value
+     * @param random The random number generator of this thread
+     */
+    private void run(CombatState rootState, long deadline, SplittableRandom random) {
+        CombatState state = rootState.copy();
+        RolloutSimulator simulator = new RolloutSimulator(model);
+        Node[] path = new Node[MAX_TREE_DEPTH + 1];
+        long done = 0;
+        // Always do one iteration, so there is a move even with a tiny budget
+        do {
+            iterate(rootState, state, simulator, path, random);
+            done++;
+        } while (System.nanoTime() < deadline);
+        iterations.addAndGet(done);
+    }
+
+    /**
+     * Runs one iteration: selects a path through the tree, expands one node, plays a rollout and backs it up.
+     * @param rootState The state at the root
+     * @param state The scratch state of this thread
+     * @param simulator The simulator of this thread
+     * @param path The scratch path of this thread
+     * @param random The random number generator of this thread
+     */
+    private void iterate(CombatState rootState, CombatState state, RolloutSimulator simulator, Node[] path,
+                         SplittableRandom random) {
+        state.copyFrom(rootState);
+        Node node = root;
+        node.addVirtualLoss();
+        path[0] = node;
+        int length = 1;
+        boolean leaf = false;
+        while (!leaf && length <= MAX_TREE_DEPTH && !simulator.isOver(state, CombatState.OWN)) {
+            int move = select(node);
+            Node child = node.children.get(move);
+            if (child == null) {
+                node.children.compareAndSet(move, null, new Node(moveCount));
+                child = node.children.get(move);
+            }
+            leaf = child.visits.get() == 0;
+            child.addVirtualLoss();
+            path[length++] = child;
+            simulator.chooseDefaultMoves(state, random);
+            simulator.setMove(CombatState.OWN, actionOf(move), targetSides[move % targetSides.length]);
+            simulator.playRound(state, random);
+            node = child;
+        }
+        for (int round = 0; round < MAX_ROLLOUT_ROUNDS && !simulator.isOver(state, CombatState.OWN); round++) {
+            simulator.chooseDefaultMoves(state, random);
+            simulator.playRound(state, random);
+        }
+        double reward = simulator.reward(state, CombatState.OWN);
+        for (int i = 0; i < length; i++) {
+            path[i].update(reward);
+        }
+    }
+
+    /**
+     * Selects the move to follow from a node by UCT, counting virtual losses as visits without reward.
+     * Moves that were never tried are selected first.
+     * @param node The node
+     * @return The move
+     */
+    private int select(Node node) {
+        double logVisits = Math.log(Math.max(1, node.visits.get() + node.virtualLosses.get()));
+        int best = 0;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int move = 0; move < moveCount; move++) {
+            Node child = node.children.get(move);
+            int visits = child == null ? 0 : child.visits.get() + child.virtualLosses.get();
+            if (visits == 0) {
+                return move;
+            }
+            double score = child.getValueSum() / visits + EXPLORATION * Math.sqrt(logVisits / visits);
+            if (score > bestScore) {
+                bestScore = score;
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the move of the root that was visited most.
+     * @return The best move
+     */
+    private int bestMove() {
+        int best = 0;
+        int bestVisits = -1;
+        for (int move = 0; move < moveCount; move++) {
+            Node child = root.children.get(move);
+            int visits = child == null ? 0 : child.visits.get();
+            if (visits > bestVisits) {
+                bestVisits = visits;
+                best = move;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Makes the subtree of a move the new root, after the move was played.
+     * @param move The move that was played
+     */
+    public void advance(int move) {
+        Node child = move < 0 ? null : root.children.get(move);
+        root = child != null ? child : new Node(moveCount);
+    }
+
+    /**
+     * Gets the action of a move.
+     * @param move The move
+     * @return The action
+     */
+    public Action getAction(int move) {
+        return monsters.get(0).getAction(actionOf(move));
+    }
+
+    /**
+     * Gets the target of a move.
+     * @param move The move
+     * @return The opponent the action is aimed at
+     */
+    public Monster getTarget(int move) {
+        return monsters.get(targetSides[move % targetSides.length]);
+    }
+
+    /**
+     * Gets the expected reward of a move from the statistics of the root.
+     * @param move The move
+     * @return The average reward (0.0-1.0), or 0 if the move was not visited
+     */
+    public double getValue(int move) {
+        Node child = root.children.get(move);
+        return child == null || child.visits.get() == 0 ? 0.0 : child.getValueSum() / child.visits.get();
+    }
+
+    /**
+     * Gets the number of iterations of all searches so far.
+     * @return The number of iterations
+     */
+    public long getIterations() {
+        return iterations.get();
+    }
+
+    /**
+     * Gets the index of the action of a move.
+     * @param move The move
+     * @return The action index
+     */
+    private int actionOf(int move) {
+        return move / targetSides.length;
+    }
+
+    /**
+     * A node of the tree, updated by all threads without locks.
+     */
+    private static final class Node {
+        private final AtomicReferenceArray<Node> children;
+        private final AtomicInteger visits;
+        private final AtomicInteger virtualLosses;
+        private final AtomicLong valueSumBits;
+
+        /**
+         * Creates a node without visits.
+         * @param moveCount The number of moves
+         */
+        private Node(int moveCount) {
+            this.children = new AtomicReferenceArray<>(moveCount);
+            this.visits = new AtomicInteger();
+            this.virtualLosses = new AtomicInteger();
+            this.valueSumBits = new AtomicLong(Double.doubleToLongBits(0.0));
+        }
+
+        /**
+         * Adds a virtual loss while an iteration passes through this node.
+         */
+        private void addVirtualLoss() {
+            virtualLosses.incrementAndGet();
+        }
+
+        /**
+         * Backs up the reward of an iteration and removes its virtual loss.
+         * @param reward The reward
+         */
+        private void update(double reward) {
+            long bits;
+            long updated;
+            do {
+                bits = valueSumBits.get();
+                updated = Double.doubleToLongBits(Double.longBitsToDouble(bits) + reward);
+            } while (!valueSumBits.compareAndSet(bits, updated));
+            visits.incrementAndGet();
+            virtualLosses.decrementAndGet();
+        }
+
+        /**
+         * Gets the sum of all rewards backed up through this node.
+         * @return The reward sum
+         */
+        private double getValueSum() {
+            return Double.longBitsToDouble(valueSumBits.get());
+        }
+    }
+}
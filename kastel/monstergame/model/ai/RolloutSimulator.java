@@ -0,0 +1,287 @@
+package edu.kit.kastel.monstergame.model.ai;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.combat.StatusConditionHandler;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.ProtectionEffect;
+import edu.kit.kastel.monstergame.model.effect.RepeatEffect;
+import edu.kit.kastel.monstergame.model.enums.DamageType;
+import edu.kit.kastel.monstergame.model.enums.EffectType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+
+import java.util.SplittableRandom;
+
+/**
+ * Plays rounds of a combat on a compact combat state, drawing every random outcome like the combat system does.
+ * Rounds are stepped in place and all scratch space is allocated once, so rollouts do not allocate.
+ * The moves of a round are first chosen with the default policy, which picks a random action against
+ * a random opponent that is still standing, and can then be replaced per side.
+ * A simulator keeps scratch space, so every thread needs its own.
+ * @author uuifx
+ */
+final class RolloutSimulator {
+    /**
+     * Marks a side that passes.
+     */
+    static final int NO_ACTION = -1;
+
+    private static final double MIN_RANDOM_FACTOR = 0.85;
+    private static final double MAX_RANDOM_FACTOR = 1.0;
+    private static final double CRITICAL_FACTOR = 2.0;
+
+    private final CombatModel model;
+    private final double statusEndChance;
+    private final int[] order;
+    private final int[] actions;
+    private final int[] targets;
+
+    /**
+     * Creates a new simulator.
+     * @param model The model of the combat
+     */
+    RolloutSimulator(CombatModel model) {
+        this.model = model;
+        this.statusEndChance = StatusConditionHandler.STATUS_END_CHANCE / 100;
+        this.order = new int[model.getSideCount()];
+        this.actions = new int[model.getSideCount()];
+        this.targets = new int[model.getSideCount()];
+    }
+
+    /**
+     * Chooses the moves of all sides with the default policy.
+     * @param state The state
+     * @param random The random number generator
+     */
+    void chooseDefaultMoves(CombatState state, SplittableRandom random) {
+        for (int side = 0; side < actions.length; side++) {
+            int actionCount = model.getMonster(side).getActionCount();
+            actions[side] = actionCount == 0 ? NO_ACTION : random.nextInt(actionCount);
+            targets[side] = randomOpponent(state, side, random);
+        }
+    }
+
+    /**
+     * Sets the move of a side for the next round.
+     * @param side The side
+     * @param action The index of the action, or NO_ACTION
+     * @param target The side the action is aimed at
+     */
+    void setMove(int side, int action, int target) {
+        actions[side] = action;
+        targets[side] = target;
+    }
+
+    /**
+     * Plays one round with the chosen moves: every standing monster takes its turn in speed order,
+     * then the end of the round is applied.
+     * @param state The state to change
+     * @param random The random number generator
+     */
+    void playRound(CombatState state, SplittableRandom random) {
+        int count = 0;
+        for (int side = 0; side < order.length; side++) {
+            if (state.getHp(side) == 0) {
+                continue;
+            }
+            int position = count++;
+            while (position > 0 && model.movesBefore(state, side, order[position - 1])) {
+                order[position] = order[position - 1];
+                position--;
+            }
+            order[position] = side;
+        }
+        for (int i = 0; i < count; i++) {
+            if (state.getHp(order[i]) > 0) {
+                turn(state, order[i], random);
+            }
+        }
+        for (int side = 0; side < order.length; side++) {
+            if (state.getHp(side) > 0 && state.getCondition(side) != null && random.nextDouble() < statusEndChance) {
+                state.setCondition(side, null);
+            }
+        }
+        CombatModel.countDownProtections(state);
+    }
+
+    /**
+     * Plays the turn of one side.
+     * @param state The state to change
+     * @param side The side whose turn it is
+     * @param random The random number generator
+     */
+    private void turn(CombatState state, int side, SplittableRandom random) {
+        StatusCondition condition = state.getCondition(side);
+        if (condition != null) {
+            if (random.nextDouble() < statusEndChance) {
+                state.setCondition(side, null);
+            } else if (condition == StatusCondition.SLEEP) {
+                return;
+            }
+        }
+        if (actions[side] != NO_ACTION) {
+            executeAction(state, side, actions[side], targets[side], random);
+        }
+        if (state.getCondition(side) == StatusCondition.BURN) {
+            model.applyBurn(state, side);
+        }
+    }
+
+    /**
+     * Executes an action, expanding its repeat effects.
+     * A target that already fainted is replaced by a random opponent.
+     * @param state The state to change
+     * @param side The side using the action
+     * @param action The index of the action
+     * @param target The side the action is aimed at
+     * @param random The random number generator
+     */
+    private void executeAction(CombatState state, int side, int action, int target, SplittableRandom random) {
+        if (target < 0 || state.getHp(target) == 0) {
+            target = randomOpponent(state, side, random);
+            if (target < 0) {
+                return;
+            }
+        }
+        Action used = model.getMonster(side).getAction(action);
+        boolean first = true;
+        for (int i = 0; i < used.getEffectCount(); i++) {
+            Effect effect = used.getEffect(i);
+            if (effect.getEffectType() != EffectType.REPEAT) {
+                if (!applyEffect(state, side, action, target, effect, first, random)) {
+                    return;
+                }
+                first = false;
+                continue;
+            }
+            RepeatEffect repeatEffect = (RepeatEffect) effect;
+            int repeats = repeatEffect.isRandomCount()
+                    ? repeatEffect.getMinCount() + random.nextInt(repeatEffect.getMaxCount()
+                    - repeatEffect.getMinCount() + 1)
+                    : repeatEffect.getCount();
+            for (int r = 0; r < repeats; r++) {
+                for (int j = 0; j < repeatEffect.getEffectCount(); j++) {
+                    if (!applyEffect(state, side, action, target, repeatEffect.getEffect(j), first, random)) {
+                        return;
+                    }
+                    first = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Rolls the hit of an effect and applies it.
+     * @param state The state to change
+     * @param side The side using the effect
+     * @param action The index of the action
+     * @param target The side the action is aimed at
+     * @param effect The effect
+     * @param first Whether this is the first effect of the action
+     * @param random The random number generator
+     * @return False if the action fails because its first effect missed
+     */
+    private boolean applyEffect(CombatState state, int side, int action, int target, Effect effect, boolean first,
+                                SplittableRandom random) {
+        int affected = CombatModel.targetOf(side, target, effect);
+        boolean hit = state.getHp(affected) > 0 && state.getHp(side) > 0
+                && random.nextDouble() < model.hitProbability(state, side, affected, effect);
+        if (!hit) {
+            return !first;
+        }
+        if (effect.getEffectType() == EffectType.DAMAGE
+                && ((DamageEffect) effect).getDamageType() == DamageType.BASE
+                && !CombatModel.isProtectedFromDamage(state, side, affected)) {
+            double damage = model.baseDamage(state, side, affected, action, (DamageEffect) effect)
+                    * random.nextDouble(MIN_RANDOM_FACTOR, MAX_RANDOM_FACTOR);
+            if (random.nextDouble() < model.criticalProbability(state, side, affected)) {
+                damage *= CRITICAL_FACTOR;
+            }
+            CombatModel.dealDamage(state, affected, (int) Math.ceil(damage));
+            return true;
+        }
+        int protectionRounds = 0;
+        if (effect.getEffectType() == EffectType.PROTECTION) {
+            ProtectionEffect protection = (ProtectionEffect) effect;
+            protectionRounds = protection.isRandomRounds()
+                    ? protection.getMinRounds() + random.nextInt(protection.getMaxRounds()
+                    - protection.getMinRounds() + 1)
+                    : protection.getRounds();
+        }
+        model.applyHit(state, side, affected, effect, protectionRounds);
+        return true;
+    }
+
+    /**
+     * Picks a random opponent of a side that is still standing.
+     * @param state The state
+     * @param side The side looking for an opponent
+     * @param random The random number generator
+     * @return The opponent, or -1 if there is none
+     */
+    private int randomOpponent(CombatState state, int side, SplittableRandom random) {
+        int standing = 0;
+        for (int other = 0; other < order.length; other++) {
+            if (other != side && state.getHp(other) > 0) {
+                standing++;
+            }
+        }
+        if (standing == 0) {
+            return -1;
+        }
+        int pick = random.nextInt(standing);
+        for (int other = 0; other < order.length; other++) {
+            if (other != side && state.getHp(other) > 0 && pick-- == 0) {
+                return other;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether a rollout is over for a side, because it fainted or all of its opponents did.
+     * @param state The state
+     * @param side The side the rollout is played for
+     * @return True if the rollout is over
+     */
+    boolean isOver(CombatState state, int side) {
+        if (state.getHp(side) == 0) {
+            return true;
+        }
+        for (int other = 0; other < order.length; other++) {
+            if (other != side && state.getHp(other) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rates a state for a side.
+     * @param state The state
+     * @param side The side
+     * @return 0 if the side fainted, 1 if it is the last one standing,
+     *         otherwise its share of the HP fractions of all standing monsters
+     */
+    double reward(CombatState state, int side) {
+        if (state.getHp(side) == 0) {
+            return 0.0;
+        }
+        double own = hpFraction(state, side);
+        double total = 0.0;
+        for (int other = 0; other < order.length; other++) {
+            total += hpFraction(state, other);
+        }
+        return own / total;
+    }
+
+    /**
+     * Gets the HP fraction of a side.
+     * @param state The state
+     * @param side The side
+     * @return The current HP divided by the max HP
+     */
+    private double hpFraction(CombatState state, int side) {
+        return (double) state.getHp(side) / Math.max(1, model.getMaxHp(side));
+    }
+}
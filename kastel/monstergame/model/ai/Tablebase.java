@@ -0,0 +1,295 @@
+package edu.kit.kastel.monstergame.model.ai;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.RepeatEffect;
+import edu.kit.kastel.monstergame.model.util.ElementEffectiveness;
+import edu.kit.kastel.monstergame.model.util.Fingerprint;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Endgame tablebase with the win probabilities of all one-on-one states in which both monsters are low on HP.
+ * The values are calculated once by the TablebaseBuilder and stored in a file, which is memory-mapped
+ * when the tablebase is loaded, so a lookup is a single read from the page cache.
+ * A tablebase belongs to an ordered pair of monsters: it holds the win probabilities of the first one,
+ * and which of them moves first on equal speed. It is identified by a fingerprint of the stats and actions
+ * of both monsters, the element table and FORMAT_VERSION, so a file calculated for other monsters with the same
+ * names or with other element factors is not used.
+ * Loaded tablebases are kept until another configuration is loaded and found by the monsters they belong to.
+ * @author uuifx
+ */
+public final class Tablebase {
+    /**
+     * Returned by lookups of states the tablebase does not cover.
+     */
+    public static final double NOT_COVERED = -1.0;
+    /**
+     * The HP threshold used when none is given.
+     */
+    public static final int DEFAULT_THRESHOLD = 20;
+    /**
+     * The most states a tablebase can have.
+     */
+    public static final long MAX_STATES = 1L << 24;
+
+    /**
+     * The version of the layout of the states and of the combat rules the values are calculated with.
+     * It is part of every fingerprint, so it has to be raised whenever a change makes stored tablebases outdated.
+     */
+    static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x4D544231;
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int WRITE_CHUNK = 1 << 16;
+    private static final Map<Long, Tablebase> LOADED = new ConcurrentHashMap<>();
+
+    private final TablebaseLayout layout;
+    private final MappedByteBuffer values;
+    private final Path path;
+    private final boolean built;
+
+    /**
+     * Creates a tablebase from a mapped file.
+     * @param layout The layout of the states
+     * @param values The mapped file
+     * @param path The path of the file
+     * @param built Whether the values were calculated instead of read from an existing file
+     */
+    private Tablebase(TablebaseLayout layout, MappedByteBuffer values, Path path, boolean built) {
+        this.layout = layout;
+        this.values = values;
+        this.path = path;
+        this.built = built;
+    }
+
+    /**
+     * Loads the tablebase of two monsters from a directory, calculating and storing it first if there is none.
+     * The tablebase is then found by find for monsters with the same stats and actions.
+     * @param own The monster whose win probabilities are stored
+     * @param opponent The opponent
+     * @param threshold The highest HP of the states that are covered
+     * @param directory The directory of the tablebase files
+     * @return The tablebase
+     * @throws IOException If the file cannot be read or written
+     * @throws IllegalArgumentException If the tablebase would have more than MAX_STATES states,
+     *                                  or a monster has a damage effect with negative power
+     */
+    public static Tablebase load(Monster own, Monster opponent, int threshold, Path directory) throws IOException {
+        if (healsByDamage(own) || healsByDamage(opponent)) {
+            // The states only cover damage, a negative one would heal above the HP the layout expects
+            throw new IllegalArgumentException("the tablebase does not cover damage effects with negative power");
+        }
+        TablebaseLayout layout = new TablebaseLayout(new CombatModel(List.of(own, opponent)), threshold);
+        if (layout.getSize() > MAX_STATES) {
+            throw new IllegalArgumentException("the tablebase would have " + layout.getSize()
+                    + " states, more than " + MAX_STATES);
+        }
+        long fingerprint = fingerprint(own, opponent);
+        Path path = directory.resolve(String.format("%s-%s-%d-%016x.tb", own.getName(), opponent.getName(),
+                threshold, fingerprint));
+        boolean built = !matches(path, fingerprint, layout);
+        if (built) {
+            write(path, fingerprint, layout, new TablebaseBuilder(new CombatModel(List.of(own, opponent)), layout)
+                    .build());
+        }
+        MappedByteBuffer values;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            values = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        Tablebase tablebase = new Tablebase(layout, values, path, built);
+        LOADED.put(fingerprint, tablebase);
+        return tablebase;
+    }
+
+    /**
+     * Finds a loaded tablebase of two monsters.
+     * @param own The monster whose win probabilities are looked up
+     * @param opponent The opponent
+     * @return The tablebase, or null if none was loaded
+     */
+    public static Tablebase find(Monster own, Monster opponent) {
+        return LOADED.isEmpty() ? null : LOADED.get(fingerprint(own, opponent));
+    }
+
+    /**
+     * Forgets all loaded tablebases, e.g. because another configuration with other element factors was loaded.
+     * Their files are kept and loaded again if they still match.
+     */
+    public static void clearLoaded() {
+        LOADED.clear();
+    }
+
+    /**
+     * Checks whether a monster has a damage effect with negative power, which heals its target.
+     * @param monster The monster
+     * @return True if one of its damage effects has negative power
+     */
+    private static boolean healsByDamage(Monster monster) {
+        for (Action action : monster.getActions()) {
+            for (Effect effect : action.getEffects()) {
+                List<Effect> effects = effect instanceof RepeatEffect
+                        ? ((RepeatEffect) effect).getEffects() : List.of(effect);
+                for (Effect single : effects) {
+                    if (single instanceof DamageEffect && ((DamageEffect) single).getPower() < 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a file holds the tablebase with the given fingerprint and layout.
+     * @param path The path of the file
+     * @param fingerprint The fingerprint of the monsters
+     * @param layout The layout
+     * @return True if the file can be used
+     * @throws IOException If the file cannot be read
+     */
+    private static boolean matches(Path path, long fingerprint, TablebaseLayout layout) throws IOException {
+        if (!Files.isRegularFile(path) || Files.size(path) != HEADER_SIZE + layout.getSize() * Float.BYTES) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            int read;
+            do {
+                read = channel.read(header);
+            } while (read >= 0 && header.hasRemaining());
+        }
+        header.flip();
+        return header.remaining() == HEADER_SIZE && header.getInt() == MAGIC && header.getLong() == fingerprint
+                && header.getInt() == layout.getThreshold() && header.getLong() == layout.getSize();
+    }
+
+    /**
+     * Writes a tablebase file.
+     * @param path The path of the file
+     * @param fingerprint The fingerprint of the monsters
+     * @param layout The layout
+     * @param probabilities The win probabilities
+     * @throws IOException If the file cannot be written
+     */
+    private static void write(Path path, long fingerprint, TablebaseLayout layout, double[] probabilities)
+            throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_CHUNK);
+            buffer.putInt(MAGIC).putLong(fingerprint).putInt(layout.getThreshold()).putLong(layout.getSize());
+            for (double probability : probabilities) {
+                if (buffer.remaining() < Float.BYTES) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putFloat((float) probability);
+            }
+            writeFully(channel, buffer);
+        }
+    }
+
+    /**
+     * Writes the content of a buffer to a channel and clears the buffer.
+     * @param channel The channel
+     * @param buffer The buffer
+     * @throws IOException If writing fails
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Calculates the fingerprint of an ordered pair of monsters from their elements, stats and actions,
+     * which of them moves first on equal speed, the current element table and FORMAT_VERSION.
+     * @param own The first monster
+     * @param opponent The second monster
+     * @return The fingerprint
+     */
+    static long fingerprint(Monster own, Monster opponent) {
+        StringBuilder description = new StringBuilder();
+        Fingerprint.describe(own, description);
+        Fingerprint.describe(opponent, description);
+        description.append(own.getContestantNumber() < opponent.getContestantNumber());
+        Fingerprint.describe(ElementEffectiveness.getTable(), description).append(FORMAT_VERSION);
+        return Fingerprint.hash(description);
+    }
+
+    /**
+     * Looks up the win probability of the own monster in a state.
+     * @param state The state at the start of a round, side 0 is the own monster
+     * @return The win probability (0.0-1.0), or NOT_COVERED
+     */
+    public double winProbability(CombatState state) {
+        return read(layout.index(state));
+    }
+
+    /**
+     * Looks up the win probability of the own monster in the state of two packed monster states.
+     * @param own The packed state of the own monster, MonsterState.WORDS words
+     * @param opponent The packed state of the opponent, MonsterState.WORDS words
+     * @return The win probability (0.0-1.0), or NOT_COVERED
+     */
+    public double winProbability(long[] own, long[] opponent) {
+        return read(layout.index(own, opponent));
+    }
+
+    /**
+     * Reads a value from the mapped file.
+     * @param index The index of the state, or NOT_COVERED
+     * @return The win probability, or NOT_COVERED
+     */
+    private double read(long index) {
+        return index == TablebaseLayout.NOT_COVERED ? NOT_COVERED
+                : values.getFloat(HEADER_SIZE + (int) index * Float.BYTES);
+    }
+
+    /**
+     * Gets the highest HP of the states that are covered.
+     * @return The HP threshold
+     */
+    public int getThreshold() {
+        return layout.getThreshold();
+    }
+
+    /**
+     * Gets the number of states.
+     * @return The number of states
+     */
+    public long getStateCount() {
+        return layout.getSize();
+    }
+
+    /**
+     * Gets the path of the file.
+     * @return The path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Checks whether the values were calculated when the tablebase was loaded.
+     * @return True if the file was written, false if an existing file was used
+     */
+    public boolean wasBuilt() {
+        return built;
+    }
+}
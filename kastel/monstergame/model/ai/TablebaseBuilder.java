@@ -0,0 +1,539 @@
+package edu.kit.kastel.monstergame.model.ai;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.analysis.DamageDistribution;
+import edu.kit.kastel.monstergame.model.analysis.EffectSequence;
+import edu.kit.kastel.monstergame.model.combat.StatusConditionHandler;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.ProtectionEffect;
+import edu.kit.kastel.monstergame.model.enums.DamageType;
+import edu.kit.kastel.monstergame.model.enums.EffectType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates the win probabilities of a tablebase by retrograde analysis.
+ * Every round both monsters choose an action, the own monster first and the opponent knowing its choice,
+ * like in the expectiminimax search, so the values are the win probabilities the own monster can guarantee.
+ * All random outcomes of a round are expanded exactly, including every damage value.
+ * Damage only lowers HP, so the blocks of states with the same HP are solved from the lowest HP sum upwards:
+ * outcomes in other blocks are already known, and within a block, where misses, stat changes and status
+ * conditions lead around in circles, the values are iterated until they settle.
+ * Healing can lead to a block that is not solved yet, in which case the whole table is swept again until
+ * nothing changes. Healing above the threshold leaves the table; such outcomes are rated by the share of the
+ * HP fractions, the only estimate in the table.
+ * @author uuifx
+ */
+final class TablebaseBuilder {
+    private static final double BLOCK_EPSILON = 1e-9;
+    private static final double SWEEP_EPSILON = 1e-6;
+    private static final int MAX_BLOCK_ITERATIONS = 100_000;
+    private static final int MAX_SWEEPS = 200;
+    private static final int NO_ACTION = -1;
+    private static final int OUTSIDE = -1;
+
+    private final CombatModel model;
+    private final TablebaseLayout layout;
+    private final Effect[][][][] sequences;
+    private final double[][][] weights;
+    private final int[][] moves;
+    private final double statusEndChance;
+    private final double[] values;
+    private boolean[] solved;
+    private boolean sweepAgain;
+
+    /**
+     * Creates a builder.
+     * @param model The model of the combat, side 0 is the own monster
+     * @param layout The layout of the table
+     */
+    TablebaseBuilder(CombatModel model, TablebaseLayout layout) {
+        this.model = model;
+        this.layout = layout;
+        this.sequences = new Effect[2][][][];
+        this.weights = new double[2][][];
+        this.moves = new int[2][];
+        this.statusEndChance = StatusConditionHandler.STATUS_END_CHANCE / 100;
+        this.values = new double[(int) layout.getSize()];
+        for (int side = 0; side < 2; side++) {
+            Monster monster = model.getMonster(side);
+            int actionCount = monster.getActionCount();
+            sequences[side] = new Effect[actionCount][][];
+            weights[side] = new double[actionCount][];
+            for (int action = 0; action < actionCount; action++) {
+                List<EffectSequence> expanded = EffectSequence.of(monster.getAction(action));
+                sequences[side][action] = new Effect[expanded.size()][];
+                weights[side][action] = new double[expanded.size()];
+                for (int s = 0; s < expanded.size(); s++) {
+                    sequences[side][action][s] = expanded.get(s).getEffects();
+                    weights[side][action][s] = expanded.get(s).getWeight();
+                }
+            }
+            moves[side] = new int[Math.max(1, actionCount)];
+            for (int move = 0; move < moves[side].length; move++) {
+                moves[side][move] = actionCount == 0 ? NO_ACTION : move;
+            }
+        }
+    }
+
+    /**
+     * Calculates the win probabilities of all states.
+     * @return The win probabilities, indexed like the layout
+     */
+    double[] build() {
+        int threshold = layout.getThreshold();
+        double previousSum = -1;
+        for (int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+            solved = new boolean[threshold * threshold];
+            sweepAgain = false;
+            for (int hpSum = 2; hpSum <= 2 * threshold; hpSum++) {
+                for (int ownHp = Math.max(1, hpSum - threshold); ownHp <= Math.min(threshold, hpSum - 1); ownHp++) {
+                    solveBlock(ownHp, hpSum - ownHp);
+                    solved[layout.block(ownHp, hpSum - ownHp)] = true;
+                }
+            }
+            double sum = 0;
+            for (double value : values) {
+                sum += value;
+            }
+            // Values only grow from sweep to sweep, so an unchanged sum means nothing changed
+            if (!sweepAgain || Math.abs(sum - previousSum) < SWEEP_EPSILON) {
+                break;
+            }
+            previousSum = sum;
+        }
+        return values;
+    }
+
+    /**
+     * Solves the block of the states with the given HP.
+     * @param ownHp The HP of the own monster
+     * @param opponentHp The HP of the opponent
+     */
+    private void solveBlock(int ownHp, int opponentHp) {
+        int blockSize = layout.getBlockSize();
+        int cells = moves[0].length * moves[1].length;
+        long offset = (long) layout.block(ownHp, opponentHp) * blockSize;
+        double[] constants = new double[blockSize * cells];
+        int[] starts = new int[blockSize * cells + 1];
+        IntList targets = new IntList();
+        DoubleList probabilities = new DoubleList();
+
+        CombatState start = CombatState.of(List.of(model.getMonster(0), model.getMonster(1)));
+        start.set(CombatState.OWN, CombatState.HP, ownHp);
+        start.set(CombatState.OPPONENT, CombatState.HP, opponentHp);
+        Outcomes outcomes = new Outcomes();
+        for (int local = 0; local < blockSize; local++) {
+            layout.decode(local, start);
+            for (int own = 0; own < moves[0].length; own++) {
+                for (int opponent = 0; opponent < moves[1].length; opponent++) {
+                    int cell = local * cells + own * moves[1].length + opponent;
+                    starts[cell] = targets.size();
+                    playRound(start, moves[0][own], moves[1][opponent], outcomes);
+                    for (int i = 0; i < outcomes.size(); i++) {
+                        CombatState outcome = outcomes.getState(i);
+                        double probability = outcomes.getProbability(i);
+                        int target = outcome.get(CombatState.OWN, CombatState.HP) == ownHp
+                                && outcome.get(CombatState.OPPONENT, CombatState.HP) == opponentHp
+                                ? layout.localIndex(outcome) : OUTSIDE;
+                        if (target == OUTSIDE) {
+                            constants[cell] += probability * valueOf(outcome);
+                        } else {
+                            targets.add(target);
+                            probabilities.add(probability);
+                        }
+                    }
+                }
+            }
+        }
+        starts[blockSize * cells] = targets.size();
+
+        double[] block = new double[blockSize];
+        for (int local = 0; local < blockSize; local++) {
+            block[local] = values[(int) (offset + local)];
+        }
+        double change = Double.POSITIVE_INFINITY;
+        for (int iteration = 0; iteration < MAX_BLOCK_ITERATIONS && change > BLOCK_EPSILON; iteration++) {
+            change = 0;
+            for (int local = 0; local < blockSize; local++) {
+                double best = 0.0;
+                for (int own = 0; own < moves[0].length; own++) {
+                    double worst = 1.0;
+                    for (int opponent = 0; opponent < moves[1].length; opponent++) {
+                        int cell = local * cells + own * moves[1].length + opponent;
+                        double value = constants[cell];
+                        for (int t = starts[cell]; t < starts[cell + 1]; t++) {
+                            value += probabilities.get(t) * block[targets.get(t)];
+                        }
+                        worst = Math.min(worst, value);
+                    }
+                    best = Math.max(best, worst);
+                }
+                change = Math.max(change, Math.abs(best - block[local]));
+                block[local] = best;
+            }
+        }
+        for (int local = 0; local < blockSize; local++) {
+            values[(int) (offset + local)] = block[local];
+        }
+    }
+
+    /**
+     * Gets the value of an outcome outside the block that is solved.
+     * @param state The state after the round
+     * @return The win probability of the own monster
+     */
+    private double valueOf(CombatState state) {
+        int ownHp = state.get(CombatState.OWN, CombatState.HP);
+        int opponentHp = state.get(CombatState.OPPONENT, CombatState.HP);
+        if (ownHp <= 0) {
+            return 0.0;
+        }
+        if (opponentHp <= 0) {
+            return 1.0;
+        }
+        long index = layout.index(state);
+        if (index == TablebaseLayout.NOT_COVERED) {
+            double own = (double) ownHp / Math.max(1, model.getMaxHp(CombatState.OWN));
+            double opponent = (double) opponentHp / Math.max(1, model.getMaxHp(CombatState.OPPONENT));
+            return own / (own + opponent);
+        }
+        if (!solved[layout.block(ownHp, opponentHp)]) {
+            sweepAgain = true;
+        }
+        return values[(int) index];
+    }
+
+    /**
+     * Plays a round with all its random outcomes.
+     * @param start The state at the start of the round
+     * @param ownMove The action of the own monster
+     * @param opponentMove The action of the opponent
+     * @param outcomes Receives the states at the start of the next round with their probabilities
+     */
+    private void playRound(CombatState start, int ownMove, int opponentMove, Outcomes outcomes) {
+        int first = model.movesBefore(start, CombatState.OPPONENT, CombatState.OWN)
+                ? CombatState.OPPONENT : CombatState.OWN;
+        Outcomes current = new Outcomes();
+        current.add(start.copy(), 1.0);
+        for (int turn = 0; turn < 2; turn++) {
+            int mover = turn == 0 ? first : 1 - first;
+            Outcomes next = new Outcomes();
+            for (int i = 0; i < current.size(); i++) {
+                CombatState state = current.getState(i);
+                if (isOver(state)) {
+                    next.add(state, current.getProbability(i));
+                } else {
+                    turn(state, mover, mover == CombatState.OWN ? ownMove : opponentMove,
+                            current.getProbability(i), next);
+                }
+            }
+            current = next;
+        }
+        outcomes.clear();
+        for (int i = 0; i < current.size(); i++) {
+            endOfRound(current.getState(i), current.getProbability(i), outcomes);
+        }
+    }
+
+    /**
+     * Plays the turn of one side.
+     * @param state The state, which is not changed
+     * @param mover The side whose turn it is
+     * @param move The action of the side
+     * @param probability The probability of the state
+     * @param outcomes Receives the states after the turn
+     */
+    private void turn(CombatState state, int mover, int move, double probability, Outcomes outcomes) {
+        StatusCondition condition = state.getCondition(mover);
+        if (condition == null) {
+            action(state, mover, move, probability, outcomes);
+            return;
+        }
+        CombatState ends = state.copy();
+        ends.setCondition(mover, null);
+        action(ends, mover, move, probability * statusEndChance, outcomes);
+        if (condition == StatusCondition.SLEEP) {
+            outcomes.add(state, probability * (1.0 - statusEndChance));
+        } else {
+            action(state, mover, move, probability * (1.0 - statusEndChance), outcomes);
+        }
+    }
+
+    /**
+     * Plays the action of a side with all its effect sequences, then applies a BURN tick.
+     * @param state The state, which is not changed
+     * @param mover The side using the action
+     * @param move The action
+     * @param probability The probability of the state
+     * @param outcomes Receives the states after the turn
+     */
+    private void action(CombatState state, int mover, int move, double probability, Outcomes outcomes) {
+        if (move == NO_ACTION) {
+            turnEnd(state.copy(), mover, probability, outcomes);
+            return;
+        }
+        for (int s = 0; s < sequences[mover][move].length; s++) {
+            effect(state, mover, move, sequences[mover][move][s], 0, probability * weights[mover][move][s], outcomes);
+        }
+    }
+
+    /**
+     * Applies the next effect of an effect sequence with all its outcomes.
+     * If the first effect misses, the whole action fails, later effects that miss are skipped.
+     * @param state The state, which is not changed
+     * @param mover The side using the action
+     * @param move The action
+     * @param effects The effect sequence
+     * @param index The position of the next effect
+     * @param probability The probability of the state
+     * @param outcomes Receives the states after the turn
+     */
+    private void effect(CombatState state, int mover, int move, Effect[] effects, int index, double probability,
+                        Outcomes outcomes) {
+        if (index >= effects.length || isOver(state)) {
+            turnEnd(state.copy(), mover, probability, outcomes);
+            return;
+        }
+        Effect effect = effects[index];
+        int target = CombatModel.targetOf(mover, 1 - mover, effect);
+        double hitChance = model.hitProbability(state, mover, target, effect);
+        if (hitChance < 1.0) {
+            if (index == 0) {
+                turnEnd(state.copy(), mover, probability * (1.0 - hitChance), outcomes);
+            } else {
+                effect(state, mover, move, effects, index + 1, probability * (1.0 - hitChance), outcomes);
+            }
+        }
+        if (hitChance <= 0.0) {
+            return;
+        }
+        double hit = probability * hitChance;
+        if (effect.getEffectType() == EffectType.DAMAGE && ((DamageEffect) effect).getDamageType() == DamageType.BASE
+                && !CombatModel.isProtectedFromDamage(state, mover, target)) {
+            double[] damages = DamageDistribution.hitProbabilities(
+                    model.damageScale(state, mover, target, move, (DamageEffect) effect),
+                    model.sameElementFactor(mover, move), model.criticalProbability(state, mover, target));
+            for (int damage = 0; damage < damages.length; damage++) {
+                if (damages[damage] > 0.0) {
+                    CombatState child = state.copy();
+                    CombatModel.dealDamage(child, target, damage);
+                    effect(child, mover, move, effects, index + 1, hit * damages[damage], outcomes);
+                }
+            }
+        } else if (effect.getEffectType() == EffectType.PROTECTION && ((ProtectionEffect) effect).isRandomRounds()) {
+            ProtectionEffect protection = (ProtectionEffect) effect;
+            int durations = protection.getMaxRounds() - protection.getMinRounds() + 1;
+            for (int rounds = protection.getMinRounds(); rounds <= protection.getMaxRounds(); rounds++) {
+                CombatState child = state.copy();
+                model.applyHit(child, mover, target, effect, rounds);
+                effect(child, mover, move, effects, index + 1, hit / durations, outcomes);
+            }
+        } else {
+            CombatState child = state.copy();
+            int rounds = effect instanceof ProtectionEffect ? ((ProtectionEffect) effect).getRounds() : 0;
+            model.applyHit(child, mover, target, effect, rounds);
+            effect(child, mover, move, effects, index + 1, hit, outcomes);
+        }
+    }
+
+    /**
+     * Applies the end of a turn, where a BURNing monster takes damage.
+     * @param state The state to change
+     * @param mover The side whose turn ends
+     * @param probability The probability of the state
+     * @param outcomes Receives the state
+     */
+    private void turnEnd(CombatState state, int mover, double probability, Outcomes outcomes) {
+        if (!isOver(state) && state.getCondition(mover) == StatusCondition.BURN) {
+            model.applyBurn(state, mover);
+        }
+        outcomes.add(state, probability);
+    }
+
+    /**
+     * Applies the end of a round, where status conditions may end and protections count down.
+     * @param state The state after both turns
+     * @param probability The probability of the state
+     * @param outcomes Receives the states at the start of the next round
+     */
+    private void endOfRound(CombatState state, double probability, Outcomes outcomes) {
+        if (isOver(state)) {
+            outcomes.add(state, probability);
+            return;
+        }
+        CombatState next = state.copy();
+        CombatModel.countDownProtections(next);
+        List<CombatState> branches = new ArrayList<>(List.of(next));
+        List<Double> chances = new ArrayList<>(List.of(probability));
+        for (int side = 0; side < 2; side++) {
+            if (next.getCondition(side) == null) {
+                continue;
+            }
+            for (int i = branches.size() - 1; i >= 0; i--) {
+                CombatState ends = branches.get(i).copy();
+                ends.setCondition(side, null);
+                branches.add(ends);
+                chances.add(chances.get(i) * statusEndChance);
+                chances.set(i, chances.get(i) * (1.0 - statusEndChance));
+            }
+        }
+        for (int i = 0; i < branches.size(); i++) {
+            outcomes.add(branches.get(i), chances.get(i));
+        }
+    }
+
+    /**
+     * Checks whether the combat is over because a monster fainted.
+     * @param state The state
+     * @return True if a monster fainted
+     */
+    private static boolean isOver(CombatState state) {
+        return state.get(CombatState.OWN, CombatState.HP) <= 0 || state.get(CombatState.OPPONENT, CombatState.HP) <= 0;
+    }
+
+    /**
+     * States with their probabilities, where equal states are merged.
+     */
+    private static final class Outcomes {
+        private final List<CombatState> states = new ArrayList<>();
+        private final DoubleList probabilities = new DoubleList();
+        private final Map<CombatState, Integer> positions = new HashMap<>();
+
+        /**
+         * Adds a state, or adds to its probability if it was added before.
+         * @param state The state, which must not be changed afterwards
+         * @param probability The probability
+         */
+        private void add(CombatState state, double probability) {
+            Integer position = positions.putIfAbsent(state, states.size());
+            if (position == null) {
+                states.add(state);
+                probabilities.add(probability);
+            } else {
+                probabilities.set(position, probabilities.get(position) + probability);
+            }
+        }
+
+        /**
+         * Removes all states.
+         */
+        private void clear() {
+            states.clear();
+            probabilities.clear();
+            positions.clear();
+        }
+
+        /**
+         * Gets the number of different states.
+         * @return The number of states
+         */
+        private int size() {
+            return states.size();
+        }
+
+        /**
+         * Gets a state.
+         * @param i The position of the state
+         * @return The state
+         */
+        private CombatState getState(int i) {
+            return states.get(i);
+        }
+
+        /**
+         * Gets the probability of a state.
+         * @param i The position of the state
+         * @return The probability
+         */
+        private double getProbability(int i) {
+            return probabilities.get(i);
+        }
+    }
+
+    /**
+     * A growing list of ints without boxing.
+     */
+    private static final class IntList {
+        private int[] items = new int[64];
+        private int size;
+
+        /**
+         * Appends a value.
+         * @param value The value
+         */
+        private void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        /**
+         * Gets a value.
+         * @param i The position
+         * @return The value
+         */
+        private int get(int i) {
+            return items[i];
+        }
+
+        /**
+         * Gets the number of values.
+         * @return The size
+         */
+        private int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A growing list of doubles without boxing.
+     */
+    private static final class DoubleList {
+        private double[] items = new double[64];
+        private int size;
+
+        /**
+         * Appends a value.
+         * @param value The value
+         */
+        private void add(double value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        /**
+         * Gets a value.
+         * @param i The position
+         * @return The value
+         */
+        private double get(int i) {
+            return items[i];
+        }
+
+        /**
+         * Replaces a value.
+         * @param i The position
+         * @param value The new value
+         */
+        private void set(int i, double value) {
+            items[i] = value;
+        }
+
+        /**
+         * Removes all values.
+         */
+        private void clear() {
+            size = 0;
+        }
+    }
+}
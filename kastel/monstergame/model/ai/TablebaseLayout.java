@@ -0,0 +1,310 @@
+package edu.kit.kastel.monstergame.model.ai;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.MonsterState;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.ProtectionEffect;
+import edu.kit.kastel.monstergame.model.effect.RepeatEffect;
+import edu.kit.kastel.monstergame.model.effect.StatChangeEffect;
+import edu.kit.kastel.monstergame.model.effect.StatusConditionEffect;
+import edu.kit.kastel.monstergame.model.enums.EffectTarget;
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Numbers the states of a one-on-one combat that a tablebase covers.
+ * A state is covered if both monsters have between 1 and the HP threshold and every other value of a side
+ * is one that the actions of both monsters can reach: only stages that stat changes lead to,
+ * only status conditions that can be inflicted and only protection durations that can be set.
+ * The index of a state is a mixed radix number of the HP of both sides followed by the codes of the reachable
+ * values, so all states with the same HP form one block.
+ * @author uuifx
+ */
+final class TablebaseLayout {
+    /**
+     * The number of fields per side besides the HP: the stages of ATK to AGL, the status condition
+     * and both protections, in the order of the side fields of a combat state.
+     */
+    static final int FIELDS = 8;
+    /**
+     * Marks a state that is not covered.
+     */
+    static final int NOT_COVERED = -1;
+
+    private static final int FIRST_FIELD = 1;
+    private static final int MIN_VALUE = -5;
+    private static final int MAX_STAGE = 5;
+    /**
+     * The longest protection that is covered, states with longer protections are not covered.
+     */
+    private static final int MAX_VALUE = 30;
+    private static final StatType[] STAT_TYPES = StatType.values();
+
+    private final int threshold;
+    private final int[][] codes;
+    private final int[][] values;
+    private final int blockSize;
+
+    /**
+     * Creates the layout of the combat between two monsters.
+     * @param model The model of the combat, side 0 is the own monster
+     * @param threshold The highest HP that is covered
+     */
+    TablebaseLayout(CombatModel model, int threshold) {
+        this.threshold = threshold;
+        this.codes = new int[2 * FIELDS][];
+        this.values = new int[2 * FIELDS][];
+        long size = 1;
+        for (int side = 0; side < 2; side++) {
+            List<Effect> effects = effectsOn(model, side);
+            for (int field = 0; field < FIELDS; field++) {
+                int dimension = side * FIELDS + field;
+                values[dimension] = reachableValues(effects, FIRST_FIELD + field);
+                codes[dimension] = new int[MAX_VALUE - MIN_VALUE + 1];
+                Arrays.fill(codes[dimension], NOT_COVERED);
+                for (int code = 0; code < values[dimension].length; code++) {
+                    codes[dimension][values[dimension][code] - MIN_VALUE] = code;
+                }
+                size *= values[dimension].length;
+            }
+        }
+        this.blockSize = (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    /**
+     * Collects the effects of both monsters that can change a side, with repeat effects expanded.
+     * @param model The model of the combat
+     * @param side The side
+     * @return The effects
+     */
+    private static List<Effect> effectsOn(CombatModel model, int side) {
+        List<Effect> effects = new ArrayList<>();
+        for (int mover = 0; mover < 2; mover++) {
+            for (Action action : model.getMonster(mover).getActions()) {
+                for (Effect effect : action.getEffects()) {
+                    addEffectOn(effects, effect, mover, side);
+                }
+            }
+        }
+        return effects;
+    }
+
+    /**
+     * Adds an effect if it is applied to a side, or the effects it repeats.
+     * @param effects The effects to add to
+     * @param effect The effect
+     * @param mover The side using the effect
+     * @param side The side
+     */
+    private static void addEffectOn(List<Effect> effects, Effect effect, int mover, int side) {
+        if (effect instanceof RepeatEffect) {
+            for (Effect repeated : ((RepeatEffect) effect).getEffects()) {
+                addEffectOn(effects, repeated, mover, side);
+            }
+        } else if ((effect.getTarget() == EffectTarget.SELF) == (mover == side)) {
+            effects.add(effect);
+        }
+    }
+
+    /**
+     * Finds the values a field of a side can reach from its start value 0.
+     * @param effects The effects that can change the side
+     * @param field The side field of the combat state
+     * @return The reachable values in ascending order
+     */
+    private static int[] reachableValues(List<Effect> effects, int field) {
+        TreeSet<Integer> reachable = new TreeSet<>();
+        reachable.add(0);
+        for (Effect effect : effects) {
+            if (field == CombatState.CONDITION && effect instanceof StatusConditionEffect) {
+                reachable.add(((StatusConditionEffect) effect).getCondition().ordinal() + 1);
+            } else if (field >= CombatState.HEALTH_PROTECTION && effect instanceof ProtectionEffect
+                    && protectionField(((ProtectionEffect) effect).getProtectionTarget()) == field) {
+                ProtectionEffect protection = (ProtectionEffect) effect;
+                int longest = protection.isRandomRounds() ? protection.getMaxRounds() : protection.getRounds();
+                for (int rounds = 1; rounds <= Math.min(MAX_VALUE, longest); rounds++) {
+                    reachable.add(rounds);
+                }
+            }
+        }
+        if (field < CombatState.CONDITION) {
+            // The stages reachable with the stat changes of this stat, limited like the stages of a monster
+            List<Integer> open = new ArrayList<>(reachable);
+            while (!open.isEmpty()) {
+                int stage = open.remove(open.size() - 1);
+                for (Effect effect : effects) {
+                    if (!(effect instanceof StatChangeEffect)
+                            || ((StatChangeEffect) effect).getStat() != STAT_TYPES[field]) {
+                        continue;
+                    }
+                    int next = stage + ((StatChangeEffect) effect).getStages();
+                    next = Math.max(MIN_VALUE, Math.min(MAX_STAGE, next));
+                    if (reachable.add(next)) {
+                        open.add(next);
+                    }
+                }
+            }
+        }
+        return reachable.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Gets the side field of a protection.
+     * @param target The protection target
+     * @return The side field
+     */
+    static int protectionField(ProtectionTarget target) {
+        return target == ProtectionTarget.HEALTH ? CombatState.HEALTH_PROTECTION : CombatState.STATS_PROTECTION;
+    }
+
+    /**
+     * Gets the highest HP that is covered.
+     * @return The HP threshold
+     */
+    int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Gets the number of states with the same HP of both sides.
+     * @return The size of a block
+     */
+    int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Gets the number of covered states.
+     * @return The number of states
+     */
+    long getSize() {
+        return (long) threshold * threshold * blockSize;
+    }
+
+    /**
+     * Gets the block of the states with the given HP.
+     * @param ownHp The HP of side 0 (1 to the threshold)
+     * @param opponentHp The HP of side 1 (1 to the threshold)
+     * @return The number of the block
+     */
+    int block(int ownHp, int opponentHp) {
+        return (ownHp - 1) * threshold + opponentHp - 1;
+    }
+
+    /**
+     * Gets the index of a state.
+     * @param state The state
+     * @return The index, or NOT_COVERED
+     */
+    long index(CombatState state) {
+        int ownHp = state.get(CombatState.OWN, CombatState.HP);
+        int opponentHp = state.get(CombatState.OPPONENT, CombatState.HP);
+        int local = localIndex(state);
+        if (!isCovered(ownHp) || !isCovered(opponentHp) || local == NOT_COVERED) {
+            return NOT_COVERED;
+        }
+        return (long) block(ownHp, opponentHp) * blockSize + local;
+    }
+
+    /**
+     * Gets the index of the state of two packed monster states.
+     * @param own The packed state of side 0, MonsterState.WORDS words
+     * @param opponent The packed state of side 1, MonsterState.WORDS words
+     * @return The index, or NOT_COVERED
+     */
+    long index(long[] own, long[] opponent) {
+        int ownHp = MonsterState.hpOf(own[MonsterState.STATE]);
+        int opponentHp = MonsterState.hpOf(opponent[MonsterState.STATE]);
+        if (!isCovered(ownHp) || !isCovered(opponentHp)) {
+            return NOT_COVERED;
+        }
+        int local = 0;
+        for (int side = 0; side < 2; side++) {
+            long[] packed = side == 0 ? own : opponent;
+            for (int field = 0; field < FIELDS; field++) {
+                int code = code(side * FIELDS + field, packedValue(packed, FIRST_FIELD + field));
+                if (code == NOT_COVERED) {
+                    return NOT_COVERED;
+                }
+                local = local * values[side * FIELDS + field].length + code;
+            }
+        }
+        return (long) block(ownHp, opponentHp) * blockSize + local;
+    }
+
+    /**
+     * Gets the position of a state within its block.
+     * @param state The state
+     * @return The local index, or NOT_COVERED
+     */
+    int localIndex(CombatState state) {
+        int local = 0;
+        for (int side = 0; side < 2; side++) {
+            for (int field = 0; field < FIELDS; field++) {
+                int code = code(side * FIELDS + field, state.get(side, FIRST_FIELD + field));
+                if (code == NOT_COVERED) {
+                    return NOT_COVERED;
+                }
+                local = local * values[side * FIELDS + field].length + code;
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Sets the fields of a state besides the HP from a position within a block.
+     * @param local The local index
+     * @param state The state to change
+     */
+    void decode(int local, CombatState state) {
+        int rest = local;
+        for (int dimension = 2 * FIELDS - 1; dimension >= 0; dimension--) {
+            int radix = values[dimension].length;
+            state.set(dimension / FIELDS, FIRST_FIELD + dimension % FIELDS, values[dimension][rest % radix]);
+            rest /= radix;
+        }
+    }
+
+    /**
+     * Checks whether an HP value is covered.
+     * @param hp The HP
+     * @return True if the HP is between 1 and the threshold
+     */
+    private boolean isCovered(int hp) {
+        return hp >= 1 && hp <= threshold;
+    }
+
+    /**
+     * Gets the code of a value.
+     * @param dimension The side and field
+     * @param value The value
+     * @return The code, or NOT_COVERED if the value cannot be reached
+     */
+    private int code(int dimension, int value) {
+        return value < MIN_VALUE || value > MAX_VALUE ? NOT_COVERED : codes[dimension][value - MIN_VALUE];
+    }
+
+    /**
+     * Gets the value of a side field from a packed monster state.
+     * @param packed The packed state, MonsterState.WORDS words
+     * @param field The side field of the combat state
+     * @return The value
+     */
+    private static int packedValue(long[] packed, int field) {
+        if (field < CombatState.CONDITION) {
+            return MonsterState.stageOf(packed[MonsterState.STATE], STAT_TYPES[field]);
+        }
+        if (field == CombatState.CONDITION) {
+            StatusCondition condition = MonsterState.conditionOf(packed[MonsterState.STATE]);
+            return condition == null ? 0 : condition.ordinal() + 1;
+        }
+        return MonsterState.remainingOf(packed[MonsterState.PROTECTIONS], field == CombatState.HEALTH_PROTECTION
+                ? ProtectionTarget.HEALTH : ProtectionTarget.STATS);
+    }
+}
@@ -0,0 +1,178 @@
+package edu.kit.kastel.monstergame.model.ai;
+
+/**
+ * Fixed-size transposition table for search results, keyed by Zobrist hashes.
+ * Every entry packs the value, the searched depth, the kind of bound, the best move and the age into one long.
+ * The table is shared without locks: the key is stored XORed with the data, so an entry that was torn by
+ * two threads writing at the same time no longer matches its hash and is simply treated as missing.
+ * Entries are kept in buckets of two. A new entry replaces the one of the same position,
+ * else one left over from an older search, else the one that was searched less deep.
+ * Clearing the table starts a new generation, whose keys are salted differently, so old entries stop matching
+ * without touching the arrays.
+ * @author uuifx
+ */
+public final class TranspositionTable {
+    /**
+     * Returned by a probe that found nothing.
+     */
+    public static final long NONE = 0L;
+    /**
+     * The value is exact.
+     */
+    public static final int EXACT = 1;
+    /**
+     * The value is a lower bound, the search failed high.
+     */
+    public static final int LOWER = 2;
+    /**
+     * The value is an upper bound, the search failed low.
+     */
+    public static final int UPPER = 3;
+    /**
+     * Stored as best move when there is none.
+     */
+    public static final int NO_MOVE = -1;
+
+    private static final int BUCKET_SIZE = 2;
+    private static final int VALUE_BITS = 32;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int MOVE_SHIFT = 42;
+    private static final int AGE_SHIFT = 50;
+    private static final long BYTE_MASK = 0xFFL;
+    private static final long BOUND_MASK = 0x3L;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private int age;
+    private long generation;
+    private long salt;
+
+    /**
+     * Creates a new empty table.
+     * @param capacity The minimum number of entries, rounded up to a power of two
+     */
+    public TranspositionTable(int capacity) {
+        int size = Integer.highestOneBit(Math.max(BUCKET_SIZE, capacity - 1) << 1);
+        this.keys = new long[size];
+        this.data = new long[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Starts a new search, so entries of earlier searches are replaced first.
+     */
+    public void newSearch() {
+        age = (age + 1) & (int) BYTE_MASK;
+    }
+
+    /**
+     * Looks up an entry.
+     * @param hash The Zobrist hash of the position
+     * @return The packed entry, or NONE
+     */
+    public long probe(long hash) {
+        long key = hash ^ salt;
+        int bucket = (int) hash & mask & -BUCKET_SIZE;
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            long entry = data[i];
+            if (entry != NONE && (keys[i] ^ entry) == key) {
+                return entry;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Stores an entry.
+     * @param hash The Zobrist hash of the position
+     * @param value The value
+     * @param depth The depth the value was searched to (0-255)
+     * @param bound The kind of bound, EXACT, LOWER or UPPER
+     * @param move The best move (0-254), or NO_MOVE
+     */
+    public void store(long hash, double value, int depth, int bound, int move) {
+        long entry = (Float.floatToIntBits((float) value) & VALUE_MASK)
+                | (depth & BYTE_MASK) << DEPTH_SHIFT
+                | (bound & BOUND_MASK) << BOUND_SHIFT
+                | (move + 1 & BYTE_MASK) << MOVE_SHIFT
+                | (long) age << AGE_SHIFT;
+        long key = hash ^ salt;
+        int bucket = (int) hash & mask & -BUCKET_SIZE;
+        int replaced = bucket;
+        int replacedScore = Integer.MAX_VALUE;
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            long old = data[i];
+            if (old == NONE || (keys[i] ^ old) == key) {
+                replaced = i;
+                break;
+            }
+            // Entries of older searches go first, then the shallower ones
+            int score = (ageOf(old) == age ? 1 << Byte.SIZE : 0) + depthOf(old);
+            if (score < replacedScore) {
+                replacedScore = score;
+                replaced = i;
+            }
+        }
+        keys[replaced] = key ^ entry;
+        data[replaced] = entry;
+    }
+
+    /**
+     * Removes all entries by starting a new generation.
+     * Entries of earlier generations are no longer found and count as left over from an older search.
+     */
+    public void clear() {
+        generation++;
+        salt = generation * GOLDEN_GAMMA;
+        newSearch();
+    }
+
+    /**
+     * Gets the value of an entry.
+     * @param entry The packed entry
+     * @return The value
+     */
+    public static double valueOf(long entry) {
+        return Float.intBitsToFloat((int) entry);
+    }
+
+    /**
+     * Gets the searched depth of an entry.
+     * @param entry The packed entry
+     * @return The depth
+     */
+    public static int depthOf(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT & BYTE_MASK);
+    }
+
+    /**
+     * Gets the kind of bound of an entry.
+     * @param entry The packed entry
+     * @return EXACT, LOWER or UPPER
+     */
+    public static int boundOf(long entry) {
+        return (int) (entry >>> BOUND_SHIFT & BOUND_MASK);
+    }
+
+    /**
+     * Gets the best move of an entry.
+     * @param entry The packed entry
+     * @return The move, or NO_MOVE
+     */
+    public static int moveOf(long entry) {
+        return (int) (entry >>> MOVE_SHIFT & BYTE_MASK) - 1;
+    }
+
+    /**
+     * Gets the age of an entry.
+     * @param entry The packed entry
+     * @return The age of the search that stored it
+     */
+    private static int ageOf(long entry) {
+        return (int) (entry >>> AGE_SHIFT & BYTE_MASK);
+    }
+}
@@ -0,0 +1,123 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.combat.ActionExecutor;
+import edu.kit.kastel.monstergame.model.combat.CombatSystem;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.enums.DamageType;
+import edu.kit.kastel.monstergame.model.enums.EffectTarget;
+import edu.kit.kastel.monstergame.model.enums.EffectType;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates the outcome of every action of a monster against every opponent.
+ * The estimates are analytical and independent of each other, so they are calculated in parallel.
+ * They only read the monsters, which must not change while the preview is calculated.
+ * @author uuifx
+ */
+public final class ActionPreview {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private ActionPreview() {
+    }
+
+    /**
+     * Estimates the outcome of every action of a monster against every opponent.
+     * The critical hit chances are the ones of the current round of the combat.
+     * @param combatSystem The combat the monsters fight in
+     * @param attacker The monster whose actions are previewed
+     * @param opponents The opponents
+     * @return The estimates, ordered by action and then by opponent
+     */
+    public static List<OutcomeEstimate> estimate(CombatSystem combatSystem, Monster attacker,
+                                                 List<Monster> opponents) {
+        return estimate(combatSystem, attacker, attacker.getActions(), opponents);
+    }
+
+    /**
+     * Estimates the outcome of some actions of a monster against every opponent.
+     * The critical hit chances are the ones of the current round of the combat.
+     * @param combatSystem The combat the monsters fight in
+     * @param attacker The monster whose actions are previewed
+     * @param actions The actions
+     * @param opponents The opponents
+     * @return The estimates, ordered by action and then by opponent
+     */
+    public static List<OutcomeEstimate> estimate(CombatSystem combatSystem, Monster attacker, List<Action> actions,
+                                                 List<Monster> opponents) {
+        int opponentCount = opponents.size();
+        if (opponentCount == 0) {
+            return List.of();
+        }
+        // The chance cache of the combat is not thread safe, so it is read before the parallel part
+        double[] criticalChances = new double[opponentCount];
+        for (int i = 0; i < opponentCount; i++) {
+            criticalChances[i] = combatSystem.getCriticalHitChance(attacker, opponents.get(i));
+        }
+        return IntStream.range(0, actions.size() * opponentCount)
+                .parallel()
+                .mapToObj(i -> estimate(attacker, opponents.get(i % opponentCount), actions.get(i / opponentCount),
+                        criticalChances[i % opponentCount]))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Estimates the outcome of one action against one opponent.
+     * @param attacker The monster using the action
+     * @param opponent The opponent
+     * @param action The action
+     * @param criticalChance The critical hit chance of the attacker against the opponent in percent (0-100)
+     * @return The estimate
+     */
+    public static OutcomeEstimate estimate(Monster attacker, Monster opponent, Action action, double criticalChance) {
+        List<EffectSequence> sequences = EffectSequence.of(action);
+        double expectedDamage = 0;
+        double hitChance = 0;
+        boolean canBeCritical = false;
+        for (EffectSequence sequence : sequences) {
+            Effect[] effects = sequence.getEffects();
+            if (effects.length == 0) {
+                continue;
+            }
+            // Later effects only happen if the first one hits
+            double firstHit = ActionExecutor.getHitProbability(attacker, targetOf(attacker, opponent, effects[0]),
+                    effects[0]);
+            hitChance += sequence.getWeight() * firstHit;
+            double damage = 0;
+            for (int i = 0; i < effects.length; i++) {
+                if (effects[i].getEffectType() != EffectType.DAMAGE || effects[i].getTarget() == EffectTarget.SELF) {
+                    continue;
+                }
+                canBeCritical |= ((DamageEffect) effects[i]).getDamageType() == DamageType.BASE;
+                double effectDamage = DamageDistribution.of(attacker, opponent, action, (DamageEffect) effects[i],
+                        criticalChance).getExpectedDamage();
+                damage += i == 0 ? effectDamage : firstHit * effectDamage;
+            }
+            expectedDamage += sequence.getWeight() * damage;
+        }
+
+        // Only base damage can be critical
+        double criticalProbability = canBeCritical ? Math.min(1.0, criticalChance / 100) : 0.0;
+        double knockOutChance = new KillProbabilitySolver(attacker, opponent).getKillProbability(List.of(action), 1);
+        return new OutcomeEstimate(action, opponent, expectedDamage, hitChance, criticalProbability,
+                knockOutChance);
+    }
+
+    /**
+     * Gets the monster an effect is applied to.
+     * @param attacker The monster using the action
+     * @param opponent The opponent
+     * @param effect The effect
+     * @return The attacker for effects on the user, the opponent otherwise
+     */
+    private static Monster targetOf(Monster attacker, Monster opponent, Effect effect) {
+        return effect.getTarget() == EffectTarget.SELF ? attacker : opponent;
+    }
+}
@@ -0,0 +1,301 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.combat.CombatResult;
+import edu.kit.kastel.monstergame.model.combat.CombatStatistics;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Streams the results of automated combats to a compressed columnar file, one row per monster and combat.
+ * The rows are written in groups. Every group stores each column on its own: the values are written as variable
+ * length integers and compressed with deflate, so a reader can skip the columns it does not need.
+ * Monster names are dictionary encoded. Every group starts with the names that are new in it, so the dictionary
+ * can be built while reading the groups in order.
+ * <p>
+ * The file starts with MAGIC. A group consists of the number of rows, the number of new names and the names
+ * (each a length and UTF-8 bytes), the compressed length of every column and the compressed columns.
+ * The footer lists the number of groups, the offset of every group as a long, the number of columns and their
+ * names, and ends with the offset of the footer as a long and MAGIC. All other numbers are variable length
+ * integers with seven bits per byte, the lowest first.
+ * @author uuifx
+ */
+public final class ColumnarResultWriter implements AutoCloseable {
+    /**
+     * The first and last bytes of a result file.
+     */
+    public static final int MAGIC = 0x4D525331;
+    /**
+     * The number of rows in a group.
+     */
+    public static final int ROWS_PER_GROUP = 8192;
+    /**
+     * The names of the columns in the order they are stored in a group.
+     */
+    public static final List<String> COLUMNS = List.of("battle", "monster", "winner", "reason", "rounds",
+            "damage_dealt", "damage_taken", "critical_hits");
+    /**
+     * The battle column holds the difference to the battle of the row before, which is mostly 0 or 1.
+     */
+    private static final int BATTLE = 0;
+    /**
+     * The monster column holds the dictionary index of the monster.
+     */
+    private static final int MONSTER = 1;
+    /**
+     * The winner column holds the dictionary index of the winner plus one, 0 for a draw.
+     */
+    private static final int WINNER = 2;
+    /**
+     * The reason column holds the ordinal of the end reason.
+     */
+    private static final int REASON = 3;
+    private static final int ROUNDS = 4;
+    private static final int DAMAGE_DEALT = 5;
+    private static final int DAMAGE_TAKEN = 6;
+    private static final int CRITICAL_HITS = 7;
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MORE = 0x80;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream output;
+    private final int[][] columns;
+    private final Map<String, Integer> dictionary;
+    private final List<String> newNames;
+    private final List<Long> groupOffsets;
+    private final ByteArrayOutputStream raw;
+    private final ByteArrayOutputStream compressed;
+    private final Deflater deflater;
+    private final byte[] chunk;
+    private long position;
+    private int rowsInGroup;
+    private int battleCount;
+    private long rowCount;
+    private int lastBattle;
+
+    /**
+     * Creates a result file. An existing file is replaced.
+     * @param path The path of the file
+     * @throws IOException If the file cannot be created
+     */
+    public ColumnarResultWriter(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.output = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+        this.columns = new int[COLUMNS.size()][ROWS_PER_GROUP];
+        this.dictionary = new HashMap<>();
+        this.newNames = new ArrayList<>();
+        this.groupOffsets = new ArrayList<>();
+        this.raw = new ByteArrayOutputStream();
+        this.compressed = new ByteArrayOutputStream();
+        this.deflater = new Deflater();
+        this.chunk = new byte[BUFFER_SIZE];
+        writeInt(MAGIC);
+    }
+
+    /**
+     * Writes the rows of a finished combat, one for every monster.
+     * @param result The result of the combat
+     * @param monsters The monsters of the combat in contestant order
+     * @throws IOException If the file cannot be written
+     */
+    public void write(CombatResult result, List<Monster> monsters) throws IOException {
+        CombatStatistics statistics = result.getStatistics();
+        int winner = result.isDraw() ? 0 : idOf(result.getWinner().getName()) + 1;
+        for (int i = 0; i < monsters.size(); i++) {
+            columns[BATTLE][rowsInGroup] = battleCount - lastBattle;
+            columns[MONSTER][rowsInGroup] = idOf(monsters.get(i).getName());
+            columns[WINNER][rowsInGroup] = winner;
+            columns[REASON][rowsInGroup] = result.getReason().ordinal();
+            columns[ROUNDS][rowsInGroup] = result.getRounds();
+            columns[DAMAGE_DEALT][rowsInGroup] = statistics.getDamageDealt(i);
+            columns[DAMAGE_TAKEN][rowsInGroup] = statistics.getDamageTaken(i);
+            columns[CRITICAL_HITS][rowsInGroup] = statistics.getCriticalHits(i);
+            lastBattle = battleCount;
+            rowsInGroup++;
+            rowCount++;
+            if (rowsInGroup == ROWS_PER_GROUP) {
+                writeGroup();
+            }
+        }
+        battleCount++;
+    }
+
+    /**
+     * Gets the number of combats written.
+     * @return The number of combats
+     */
+    public int getBattleCount() {
+        return battleCount;
+    }
+
+    /**
+     * Gets the number of rows written.
+     * @return The number of rows
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets the number of bytes written, including the footer once the file is closed.
+     * @return The number of bytes
+     */
+    public long getSize() {
+        return position;
+    }
+
+    /**
+     * Writes the last group and the footer and closes the file.
+     * @throws IOException If the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsInGroup > 0) {
+                writeGroup();
+            }
+            long footer = position;
+            writeVarint(groupOffsets.size());
+            for (long offset : groupOffsets) {
+                writeLong(offset);
+            }
+            writeVarint(COLUMNS.size());
+            for (String column : COLUMNS) {
+                writeString(column);
+            }
+            writeLong(footer);
+            writeInt(MAGIC);
+        } finally {
+            deflater.end();
+            output.close();
+        }
+    }
+
+    /**
+     * Writes the buffered rows as a group and starts a new one.
+     * @throws IOException If the file cannot be written
+     */
+    private void writeGroup() throws IOException {
+        groupOffsets.add(position);
+        writeVarint(rowsInGroup);
+        writeVarint(newNames.size());
+        for (String name : newNames) {
+            writeString(name);
+        }
+        newNames.clear();
+        byte[][] chunks = new byte[columns.length][];
+        for (int column = 0; column < columns.length; column++) {
+            chunks[column] = compress(columns[column], rowsInGroup);
+            writeVarint(chunks[column].length);
+        }
+        for (byte[] compressedColumn : chunks) {
+            output.write(compressedColumn);
+            position += compressedColumn.length;
+        }
+        rowsInGroup = 0;
+    }
+
+    /**
+     * Compresses the values of a column.
+     * @param values The values
+     * @param count The number of values
+     * @return The compressed variable length integers
+     */
+    private byte[] compress(int[] values, int count) {
+        raw.reset();
+        for (int i = 0; i < count; i++) {
+            long rest = values[i] & 0xFFFFFFFFL;
+            while ((rest & ~0x7FL) != 0) {
+                raw.write((int) (rest & 0x7F | VARINT_MORE));
+                rest >>>= VARINT_BITS;
+            }
+            raw.write((int) rest);
+        }
+        deflater.reset();
+        deflater.setInput(raw.toByteArray());
+        deflater.finish();
+        compressed.reset();
+        while (!deflater.finished()) {
+            compressed.write(chunk, 0, deflater.deflate(chunk));
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Gets the dictionary index of a name, adding it to the names of the current group if it is new.
+     * @param name The name
+     * @return The index
+     */
+    private int idOf(String name) {
+        Integer id = dictionary.get(name);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(name, id);
+            newNames.add(name);
+        }
+        return id;
+    }
+
+    /**
+     * Writes a string as its length and UTF-8 bytes.
+     * @param value The string
+     * @throws IOException If the file cannot be written
+     */
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        output.write(bytes);
+        position += bytes.length;
+    }
+
+    /**
+     * Writes a non-negative integer in groups of seven bits, the lowest first.
+     * @param value The value
+     * @throws IOException If the file cannot be written
+     */
+    private void writeVarint(int value) throws IOException {
+        int rest = value;
+        while ((rest & ~0x7F) != 0) {
+            output.write(rest & 0x7F | VARINT_MORE);
+            rest >>>= VARINT_BITS;
+            position++;
+        }
+        output.write(rest);
+        position++;
+    }
+
+    /**
+     * Writes an int, the highest byte first.
+     * @param value The value
+     * @throws IOException If the file cannot be written
+     */
+    private void writeInt(int value) throws IOException {
+        for (int shift = Integer.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            output.write(value >>> shift);
+        }
+        position += Integer.BYTES;
+    }
+
+    /**
+     * Writes a long, the highest byte first.
+     * @param value The value
+     * @throws IOException If the file cannot be written
+     */
+    private void writeLong(long value) throws IOException {
+        writeInt((int) (value >>> Integer.SIZE));
+        writeInt((int) value);
+    }
+}
@@ -0,0 +1,499 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.combat.ActionExecutor;
+import edu.kit.kastel.monstergame.model.combat.CriticalHitCache;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.RepeatEffect;
+import edu.kit.kastel.monstergame.model.enums.EffectTarget;
+import edu.kit.kastel.monstergame.model.enums.EffectType;
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.util.ElementEffectiveness;
+
+import java.util.Arrays;
+
+/**
+ * Exact probability distribution of the damage a single damage effect deals.
+ * The distribution is calculated from the current stats, stages and status conditions without sampling.
+ * It covers the hit roll, the critical hit roll and the random factor between 0.85 and 1.0,
+ * which is uniform, so the probability of every damage value after rounding up is the length
+ * of the random factor interval that rounds to it.
+ * The factors are multiplied in the order of DamageCalculator, so the bounds round like the damage in combat.
+ * A miss, or a hit on a monster protected against damage, counts as zero damage.
+ * An effect with negative power heals its target like in combat, which counts as negative damage.
+ * @author uuifx
+ */
+public final class DamageDistribution {
+    private static final double MIN_RANDOM_FACTOR = 0.85;
+    private static final double MAX_RANDOM_FACTOR = 1.0;
+    private static final double NORMALIZATION_FACTOR = 1.0 / 3.0;
+    private static final double CRITICAL_FACTOR = 2.0;
+
+    private final double[] hitProbabilities;
+    private final int lowestDamage;
+    private final double hitChance;
+    private final double criticalChance;
+
+    /**
+     * Creates a new damage distribution.
+     * @param hitProbabilities The probability of each damage value if the effect hits,
+     *                         indexed by damage minus the lowest damage
+     * @param lowestDamage The damage of the first hit probability
+     * @param hitChance The probability that the effect hits
+     * @param criticalChance The probability of a critical hit when the effect hits
+     */
+    private DamageDistribution(double[] hitProbabilities, int lowestDamage, double hitChance,
+                               double criticalChance) {
+        this.hitProbabilities = hitProbabilities;
+        this.lowestDamage = lowestDamage;
+        this.hitChance = hitChance;
+        this.criticalChance = criticalChance;
+    }
+
+    /**
+     * Calculates the damage distribution of the first damage effect of an action.
+     * Damage effects inside a repeat effect count as well.
+     * @param attacker The monster using the action
+     * @param defender The monster the action is used against
+     * @param action The action
+     * @return The damage distribution, always zero damage if the action deals no damage
+     */
+    public static DamageDistribution of(Monster attacker, Monster defender, Action action) {
+        DamageEffect effect = findDamageEffect(action);
+        if (effect == null) {
+            return new DamageDistribution(new double[] {1.0}, 0, 0.0, 0.0);
+        }
+        return of(attacker, defender, action, effect);
+    }
+
+    /**
+     * Calculates the damage distribution of a damage effect of an action.
+     * @param attacker The monster using the action
+     * @param defender The monster the action is used against
+     * @param action The action the effect belongs to
+     * @param effect The damage effect
+     * @return The damage distribution
+     */
+    public static DamageDistribution of(Monster attacker, Monster defender, Action action, DamageEffect effect) {
+        return of(attacker, defender, action, effect, criticalChanceOf(attacker, defender, effect));
+    }
+
+    /**
+     * Calculates the damage distribution of a damage effect of an action with a given critical hit chance,
+     * e.g. the one of the current round from CombatSystem.getCriticalHitChance.
+     * @param attacker The monster using the action
+     * @param defender The monster the action is used against
+     * @param action The action the effect belongs to
+     * @param effect The damage effect
+     * @param criticalChance The critical hit chance against the target of the effect in percent (0-100)
+     * @return The damage distribution
+     */
+    public static DamageDistribution of(Monster attacker, Monster defender, Action action, DamageEffect effect,
+                                        double criticalChance) {
+        Monster target = effect.getTarget() == EffectTarget.SELF ? attacker : defender;
+        double hitChance = ActionExecutor.getHitProbability(attacker, target, effect);
+        if (target.isProtected(ProtectionTarget.HEALTH) && attacker != target) {
+            return new DamageDistribution(new double[] {1.0}, 0, hitChance, 0.0);
+        }
+
+        switch (effect.getDamageType()) {
+            case ABSOLUTE:
+                return fixed(effect.getPower(), hitChance);
+            case RELATIVE:
+                int maxHp = target.getBaseStats().get(StatType.HP);
+                return fixed((int) Math.ceil(maxHp * (effect.getPower() / 100.0)), hitChance);
+            case BASE:
+                return uniform(scaleOf(attacker, target, action, effect), sameElementFactorOf(attacker, action),
+                        Math.min(1.0, criticalChance / 100), hitChance);
+            default:
+                return new DamageDistribution(new double[] {1.0}, 0, hitChance, 0.0);
+        }
+    }
+
+    /**
+     * Calculates the expected damage of a damage effect without creating the distribution.
+     * This does not allocate, so it can be used for many decisions, e.g. by action selection policies.
+     * @param attacker The monster using the action
+     * @param defender The monster the action is used against
+     * @param action The action the effect belongs to
+     * @param effect The damage effect
+     * @return The expected damage, including misses
+     */
+    public static double expectedDamage(Monster attacker, Monster defender, Action action, DamageEffect effect) {
+        Monster target = effect.getTarget() == EffectTarget.SELF ? attacker : defender;
+        double hitChance = ActionExecutor.getHitProbability(attacker, target, effect);
+        if (hitChance <= 0 || target.isProtected(ProtectionTarget.HEALTH) && attacker != target) {
+            return 0.0;
+        }
+        switch (effect.getDamageType()) {
+            case ABSOLUTE:
+                return hitChance * effect.getPower();
+            case RELATIVE:
+                return hitChance * Math.ceil(target.getMaxHp() * (effect.getPower() / 100.0));
+            case BASE:
+                double scale = scaleOf(attacker, target, action, effect);
+                double sameElementFactor = sameElementFactorOf(attacker, action);
+                double criticalProbability = Math.min(1.0, criticalChanceOf(attacker, defender, effect) / 100);
+                return hitChance * ((1.0 - criticalProbability) * expectedUniform(scale * 1.0 * sameElementFactor)
+                        + criticalProbability * expectedUniform(scale * CRITICAL_FACTOR * sameElementFactor));
+            default:
+                return 0.0;
+        }
+    }
+
+    /**
+     * Calculates the expected damage an action deals to the defender without allocating.
+     * Random repeat counts use their average, and effects after the first one only count
+     * when the first one hits, since the action fails otherwise.
+     * @param attacker The monster using the action
+     * @param defender The monster the action is used against
+     * @param action The action
+     * @return The expected damage to the defender
+     */
+    public static double expectedActionDamage(Monster attacker, Monster defender, Action action) {
+        double total = 0;
+        double firstHit = -1;
+        for (int i = 0; i < action.getEffectCount(); i++) {
+            Effect effect = action.getEffect(i);
+            if (effect.getEffectType() != EffectType.REPEAT) {
+                firstHit = firstHit < 0 ? hitChanceOf(attacker, defender, effect) : firstHit;
+                total += (i == 0 ? 1.0 : firstHit) * expectedDefenderDamage(attacker, defender, action, effect);
+                continue;
+            }
+            RepeatEffect repeatEffect = (RepeatEffect) effect;
+            double repetitions = repeatEffect.getAverageCount();
+            for (int j = 0; j < repeatEffect.getEffectCount(); j++) {
+                Effect repeated = repeatEffect.getEffect(j);
+                double damage = expectedDefenderDamage(attacker, defender, action, repeated);
+                if (firstHit < 0) {
+                    // The first repetition of the first effect does not depend on an earlier hit
+                    firstHit = hitChanceOf(attacker, defender, repeated);
+                    total += damage + Math.max(0, repetitions - 1) * firstHit * damage;
+                } else {
+                    total += repetitions * firstHit * damage;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gets the expected damage an effect deals to the defender.
+     * @param attacker The monster using the action
+     * @param defender The defender
+     * @param action The action the effect belongs to
+     * @param effect The effect
+     * @return The expected damage, 0 for effects that do not damage the defender
+     */
+    private static double expectedDefenderDamage(Monster attacker, Monster defender, Action action, Effect effect) {
+        if (effect.getEffectType() != EffectType.DAMAGE || effect.getTarget() == EffectTarget.SELF) {
+            return 0.0;
+        }
+        return expectedDamage(attacker, defender, action, (DamageEffect) effect);
+    }
+
+    /**
+     * Gets the hit probability of an effect against its target.
+     * @param attacker The monster using the action
+     * @param defender The defender
+     * @param effect The effect
+     * @return The hit probability (0.0-1.0)
+     */
+    private static double hitChanceOf(Monster attacker, Monster defender, Effect effect) {
+        return ActionExecutor.getHitProbability(attacker,
+                effect.getTarget() == EffectTarget.SELF ? attacker : defender, effect);
+    }
+
+    /**
+     * Calculates the critical hit chance of an attacker against the target of an effect from the current speeds,
+     * for estimates that are not made for a running combat.
+     * @param attacker The monster using the action
+     * @param defender The defender
+     * @param effect The effect
+     * @return The critical hit chance in percent (0-100)
+     */
+    private static double criticalChanceOf(Monster attacker, Monster defender, Effect effect) {
+        Monster target = effect.getTarget() == EffectTarget.SELF ? attacker : defender;
+        return CriticalHitCache.calculateChance(attacker, target);
+    }
+
+    /**
+     * Calculates the power multiplied with the element factor and the ratio of ATK to DEF,
+     * in the order of DamageCalculator.
+     * @param attacker The monster using the action
+     * @param target The target of the effect
+     * @param action The action the effect belongs to
+     * @param effect The damage effect
+     * @return The damage scale
+     */
+    private static double scaleOf(Monster attacker, Monster target, Action action, DamageEffect effect) {
+        double elementFactor = ElementEffectiveness.getTable().getElementFactor(action.getElement(),
+                target.getElement());
+        double statusFactor = attacker.getEffectiveStat(StatType.ATK) / target.getEffectiveStat(StatType.DEF);
+        return effect.getPower() * elementFactor * statusFactor;
+    }
+
+    /**
+     * Gets the same element factor of an action used by an attacker.
+     * @param attacker The monster using the action
+     * @param action The action
+     * @return The same element factor
+     */
+    private static double sameElementFactorOf(Monster attacker, Action action) {
+        return ElementEffectiveness.getTable().getSameElementFactor(action.getElement(), attacker.getElement());
+    }
+
+    /**
+     * Calculates the expected rounded up damage for a uniformly random factor.
+     * @param damage The damage before the random factor and normalization
+     * @return The expected damage
+     */
+    private static double expectedUniform(double damage) {
+        double low = Math.min(randomEnd(damage, MIN_RANDOM_FACTOR), randomEnd(damage, MAX_RANDOM_FACTOR));
+        double high = Math.max(randomEnd(damage, MIN_RANDOM_FACTOR), randomEnd(damage, MAX_RANDOM_FACTOR));
+        double width = high - low;
+        if (width <= 0) {
+            return Math.ceil(low);
+        }
+        double expected = 0;
+        for (int value = (int) Math.ceil(low); value <= (int) Math.ceil(high); value++) {
+            double covered = Math.min(high, value) - Math.max(low, value - 1);
+            if (covered > 0) {
+                expected += value * covered / width;
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Finds the first damage effect of an action.
+     * @param action The action
+     * @return The damage effect, or null if the action deals no damage
+     */
+    private static DamageEffect findDamageEffect(Action action) {
+        for (Effect effect : action.getEffects()) {
+            if (effect.getEffectType() == EffectType.DAMAGE) {
+                return (DamageEffect) effect;
+            }
+            if (effect.getEffectType() == EffectType.REPEAT) {
+                for (Effect repeated : ((RepeatEffect) effect).getEffects()) {
+                    if (repeated.getEffectType() == EffectType.DAMAGE) {
+                        return (DamageEffect) repeated;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates the distribution of a fixed damage value.
+     * @param damage The damage on a hit
+     * @param hitChance The probability that the effect hits
+     * @return The damage distribution
+     */
+    private static DamageDistribution fixed(int damage, double hitChance) {
+        return new DamageDistribution(new double[] {1.0}, damage, hitChance, 0.0);
+    }
+
+    /**
+     * Calculates the probability of every damage value of a base damage hit.
+     * @param scale The power multiplied with the element factor and the ratio of ATK to DEF, in this order
+     * @param sameElementFactor The same element factor of the action
+     * @param criticalChance The probability of a critical hit (0.0-1.0)
+     * @return The probability of each damage value, indexed by damage
+     * @throws IllegalArgumentException If the scale is negative, since the hit then heals
+     */
+    public static double[] hitProbabilities(double scale, double sameElementFactor, double criticalChance) {
+        if (scale < 0) {
+            throw new IllegalArgumentException("base damage with negative power heals and is not indexed by damage");
+        }
+        return uniform(scale, sameElementFactor, criticalChance, 1.0).hitProbabilities;
+    }
+
+    /**
+     * Creates the distribution of base damage, following DamageCalculator.
+     * @param scale The power multiplied with the element factor and the ratio of ATK to DEF, in this order
+     * @param sameElementFactor The same element factor of the action
+     * @param criticalChance The probability of a critical hit (0.0-1.0)
+     * @param hitChance The probability that the effect hits
+     * @return The damage distribution, starting at 0 damage unless a hit heals
+     */
+    private static DamageDistribution uniform(double scale, double sameElementFactor, double criticalChance,
+                                              double hitChance) {
+        double normal = scale * 1.0 * sameElementFactor;
+        double critical = scale * CRITICAL_FACTOR * sameElementFactor;
+        int lowest = 0;
+        int highest = 0;
+        for (double damage : new double[] {normal, critical}) {
+            for (double randomFactor : new double[] {MIN_RANDOM_FACTOR, MAX_RANDOM_FACTOR}) {
+                lowest = Math.min(lowest, (int) Math.ceil(randomEnd(damage, randomFactor)));
+                highest = Math.max(highest, (int) Math.ceil(randomEnd(damage, randomFactor)));
+            }
+        }
+        double[] hitProbabilities = new double[highest - lowest + 1];
+        addUniform(hitProbabilities, lowest, normal, 1.0 - criticalChance);
+        addUniform(hitProbabilities, lowest, critical, criticalChance);
+        return new DamageDistribution(hitProbabilities, lowest, hitChance, criticalChance);
+    }
+
+    /**
+     * Calculates the damage before rounding for a random factor, in the order of DamageCalculator.
+     * @param damage The damage before the random factor and normalization
+     * @param randomFactor The random factor
+     * @return The damage before rounding
+     */
+    private static double randomEnd(double damage, double randomFactor) {
+        return damage * randomFactor * NORMALIZATION_FACTOR;
+    }
+
+    /**
+     * Adds the rounded up damage of a uniformly random factor to a distribution.
+     * The damage before rounding is uniform between low and high, so the probability of damage d
+     * is the length of the part of that interval in (d - 1, d].
+     * @param probabilities The distribution to add to, indexed by damage minus the lowest damage
+     * @param lowest The damage of the first probability
+     * @param damage The damage before the random factor and normalization
+     * @param weight The probability of this case
+     */
+    private static void addUniform(double[] probabilities, int lowest, double damage, double weight) {
+        if (weight <= 0) {
+            return;
+        }
+        double low = Math.min(randomEnd(damage, MIN_RANDOM_FACTOR), randomEnd(damage, MAX_RANDOM_FACTOR));
+        double high = Math.max(randomEnd(damage, MIN_RANDOM_FACTOR), randomEnd(damage, MAX_RANDOM_FACTOR));
+        int first = (int) Math.ceil(low);
+        int last = Math.min(probabilities.length - 1 + lowest, (int) Math.ceil(high));
+        double width = high - low;
+        if (width <= 0) {
+            probabilities[first - lowest] += weight;
+            return;
+        }
+        for (int value = first; value <= last; value++) {
+            double covered = Math.min(high, value) - Math.max(low, value - 1);
+            if (covered > 0) {
+                probabilities[value - lowest] += weight * covered / width;
+            }
+        }
+    }
+
+    /**
+     * Gets the probability that the effect hits.
+     * @return The hit probability (0.0-1.0)
+     */
+    public double getHitChance() {
+        return hitChance;
+    }
+
+    /**
+     * Gets the probability of a critical hit when the effect hits.
+     * @return The critical hit probability (0.0-1.0)
+     */
+    public double getCriticalChance() {
+        return criticalChance;
+    }
+
+    /**
+     * Gets the probability of dealing exactly the given damage.
+     * @param damage The damage
+     * @return The probability (0.0-1.0)
+     */
+    public double getProbability(int damage) {
+        return hitChance * getHitProbability(damage) + (damage == 0 ? 1.0 - hitChance : 0.0);
+    }
+
+    /**
+     * Gets the probability of dealing exactly the given damage if the effect hits.
+     * @param damage The damage
+     * @return The probability (0.0-1.0)
+     */
+    public double getHitProbability(int damage) {
+        int index = damage - lowestDamage;
+        return index >= 0 && index < hitProbabilities.length ? hitProbabilities[index] : 0.0;
+    }
+
+    /**
+     * Gets the probability of dealing at least the given damage, e.g. the HP of the target.
+     * @param damage The damage
+     * @return The probability (0.0-1.0)
+     */
+    public double getProbabilityAtLeast(int damage) {
+        if (damage <= Math.min(0, lowestDamage)) {
+            return 1.0;
+        }
+        double sum = 0;
+        for (int i = Math.max(0, damage - lowestDamage); i < hitProbabilities.length; i++) {
+            sum += hitProbabilities[i];
+        }
+        return hitChance * sum + (damage <= 0 ? 1.0 - hitChance : 0.0);
+    }
+
+    /**
+     * Gets the lowest damage with a positive probability.
+     * @return The minimum damage
+     */
+    public int getMinDamage() {
+        if (hitChance <= 0) {
+            return 0;
+        }
+        for (int i = 0; i < hitProbabilities.length; i++) {
+            if (hitProbabilities[i] > 0) {
+                return hitChance < 1.0 ? Math.min(0, i + lowestDamage) : i + lowestDamage;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the highest damage with a positive probability.
+     * @return The maximum damage
+     */
+    public int getMaxDamage() {
+        if (hitChance <= 0) {
+            return 0;
+        }
+        for (int i = hitProbabilities.length - 1; i >= 0; i--) {
+            if (hitProbabilities[i] > 0) {
+                return hitChance < 1.0 ? Math.max(0, i + lowestDamage) : i + lowestDamage;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the expected damage.
+     * @return The expected damage
+     */
+    public double getExpectedDamage() {
+        double sum = 0;
+        for (int i = 0; i < hitProbabilities.length; i++) {
+            sum += (i + lowestDamage) * hitProbabilities[i];
+        }
+        return hitChance * sum;
+    }
+
+    /**
+     * Gets the lowest damage a hit can deal, which is below 0 if the effect heals.
+     * @return The damage of the first hit probability
+     */
+    public int getLowestHitDamage() {
+        return lowestDamage;
+    }
+
+    /**
+     * Gets the probability of every damage value if the effect hits.
+     * @return A copy of the probabilities, indexed by damage minus the lowest hit damage
+     */
+    public double[] getHitProbabilities() {
+        return Arrays.copyOf(hitProbabilities, hitProbabilities.length);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("damage %d-%d, expected %.2f, hit %.1f%%, crit %.1f%%",
+                getMinDamage(), getMaxDamage(), getExpectedDamage(), hitChance * 100, criticalChance * 100);
+    }
+}
@@ -0,0 +1,98 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.RepeatEffect;
+import edu.kit.kastel.monstergame.model.enums.EffectType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One possible sequence of effects of an action after expanding its repeat effects,
+ * in the order they are queued by the ActionExecutor, together with its probability.
+ * @author uuifx
+ */
+public final class EffectSequence {
+    private final Effect[] effects;
+    private final double weight;
+
+    /**
+     * Creates a new effect sequence.
+     * @param effects The effects in order
+     * @param weight The probability of this sequence
+     */
+    private EffectSequence(Effect[] effects, double weight) {
+        this.effects = effects;
+        this.weight = weight;
+    }
+
+    /**
+     * Expands the repeat effects of an action into all possible effect sequences.
+     * Every count of a random repeat count is equally likely.
+     * @param action The action
+     * @return The effect sequences with their probabilities
+     */
+    public static List<EffectSequence> of(Action action) {
+        List<EffectSequence> sequences = new ArrayList<>();
+        sequences.add(new EffectSequence(new Effect[0], 1.0));
+        for (Effect effect : action.getEffects()) {
+            if (effect.getEffectType() != EffectType.REPEAT) {
+                sequences = append(sequences, new Effect[] {effect}, 1, 1.0);
+                continue;
+            }
+            RepeatEffect repeatEffect = (RepeatEffect) effect;
+            Effect[] repeated = repeatEffect.getEffects().toArray(new Effect[0]);
+            if (!repeatEffect.isRandomCount()) {
+                sequences = append(sequences, repeated, repeatEffect.getCount(), 1.0);
+                continue;
+            }
+            int counts = repeatEffect.getMaxCount() - repeatEffect.getMinCount() + 1;
+            List<EffectSequence> mixed = new ArrayList<>();
+            for (int count = repeatEffect.getMinCount(); count <= repeatEffect.getMaxCount(); count++) {
+                mixed.addAll(append(sequences, repeated, count, 1.0 / counts));
+            }
+            sequences = mixed;
+        }
+        return sequences;
+    }
+
+    /**
+     * Appends effects a number of times to every effect sequence.
+     * @param sequences The effect sequences
+     * @param effects The effects to append
+     * @param count How often the effects are appended
+     * @param weight The factor for the probability of every sequence
+     * @return The new effect sequences
+     */
+    private static List<EffectSequence> append(List<EffectSequence> sequences, Effect[] effects,
+                                               int count, double weight) {
+        List<EffectSequence> result = new ArrayList<>(sequences.size());
+        for (EffectSequence sequence : sequences) {
+            int length = sequence.effects.length;
+            Effect[] appended = new Effect[length + effects.length * Math.max(0, count)];
+            System.arraycopy(sequence.effects, 0, appended, 0, length);
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(effects, 0, appended, length + i * effects.length, effects.length);
+            }
+            result.add(new EffectSequence(appended, sequence.weight * weight));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the effects in order.
+     * @return The effects
+     */
+    public Effect[] getEffects() {
+        return effects;
+    }
+
+    /**
+     * Gets the probability of this sequence.
+     * @return The probability (0.0-1.0)
+     */
+    public double getWeight() {
+        return weight;
+    }
+}
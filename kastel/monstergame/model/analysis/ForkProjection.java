@@ -0,0 +1,168 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.combat.CombatResult;
+import edu.kit.kastel.monstergame.model.combat.CombatSystem;
+import edu.kit.kastel.monstergame.model.command.CommandInterface;
+import edu.kit.kastel.monstergame.model.enums.EndReason;
+import edu.kit.kastel.monstergame.model.util.RandomUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * The outcome distribution of several continuations of a running combat.
+ * Every continuation is a fork of the combat with its own random numbers and command interface,
+ * and the forks are fought in parallel until they are decided or the round limit is reached.
+ * The running combat is only read while the forks are taken, so it is not disturbed.
+ * The random numbers are derived from the state of the combat, so a projection of the same state
+ * with the same policy has the same outcome unless the policy depends on time.
+ * @author uuifx
+ */
+public final class ForkProjection {
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "fork-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int forkCount;
+    private final Map<String, Integer> wins;
+    private final int draws;
+    private final int undecided;
+    private final long totalRounds;
+
+    /**
+     * Creates a projection from the results of the forks.
+     * @param monsters The monsters of the combat in contestant order
+     * @param results The results of the forks
+     */
+    private ForkProjection(List<Monster> monsters, List<CombatResult> results) {
+        this.forkCount = results.size();
+        this.wins = new LinkedHashMap<>();
+        for (Monster monster : monsters) {
+            wins.put(monster.getName(), 0);
+        }
+        int drawCount = 0;
+        int undecidedCount = 0;
+        long rounds = 0;
+        for (CombatResult result : results) {
+            rounds += result.getRounds();
+            if (result.getReason() == EndReason.ROUND_LIMIT) {
+                undecidedCount++;
+            } else if (result.isDraw()) {
+                drawCount++;
+            } else {
+                wins.merge(result.getWinner().getName(), 1, Integer::sum);
+            }
+        }
+        wins.values().removeIf(count -> count == 0);
+        this.draws = drawCount;
+        this.undecided = undecidedCount;
+        this.totalRounds = rounds;
+    }
+
+    /**
+     * Forks a combat several times and fights every fork on.
+     * @param combatSystem The running combat, which is not changed
+     * @param forks The number of forks
+     * @param rounds The number of rounds every fork is fought at most
+     * @param policies Creates the command interface of a fork from its random utility
+     * @param threads The number of threads fighting in parallel, including the calling one
+     * @return The projection
+     */
+    public static ForkProjection run(CombatSystem combatSystem, int forks, int rounds,
+                                     Function<RandomUtil, CommandInterface> policies, int threads) {
+        SplittableRandom seeds = new SplittableRandom(combatSystem.getStateHash());
+        List<CombatSystem> continuations = new ArrayList<>(forks);
+        for (int i = 0; i < forks; i++) {
+            RandomUtil randomUtil = new RandomUtil(seeds.nextLong(), false);
+            CombatSystem fork = combatSystem.fork(policies.apply(randomUtil), randomUtil);
+            fork.setRoundLimit(combatSystem.getRoundNumber() + rounds - 1);
+            continuations.add(fork);
+        }
+
+        CombatResult[] results = new CombatResult[forks];
+        int workerCount = Math.max(1, Math.min(threads, forks));
+        List<Future<?>> workers = new ArrayList<>(workerCount - 1);
+        for (int worker = 1; worker < workerCount; worker++) {
+            int first = worker;
+            workers.add(WORKERS.submit(() -> fight(continuations, results, first, workerCount)));
+        }
+        fight(continuations, results, 0, workerCount);
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Fork worker failed", e.getCause());
+            }
+        }
+        List<CombatResult> finished = new ArrayList<>(forks);
+        Collections.addAll(finished, results);
+        return new ForkProjection(combatSystem.getMonsters(), finished);
+    }
+
+    /**
+     * Fights every stride-th fork, starting at the given one.
+     * @param continuations The forks
+     * @param results The array the results are written to
+     * @param first The first fork
+     * @param stride The distance between the forks
+     */
+    private static void fight(List<CombatSystem> continuations, CombatResult[] results, int first, int stride) {
+        for (int i = first; i < continuations.size(); i += stride) {
+            results[i] = continuations.get(i).startCombat();
+        }
+    }
+
+    /**
+     * Gets the number of forks.
+     * @return The number of forks
+     */
+    public int getForkCount() {
+        return forkCount;
+    }
+
+    /**
+     * Gets the number of wins of every monster that won at least one fork, in contestant order.
+     * @return The wins by monster name
+     */
+    public Map<String, Integer> getWins() {
+        return Collections.unmodifiableMap(wins);
+    }
+
+    /**
+     * Gets the number of forks that ended in a draw before the round limit.
+     * @return The number of draws
+     */
+    public int getDraws() {
+        return draws;
+    }
+
+    /**
+     * Gets the number of forks that were not decided within the round limit.
+     * @return The number of undecided forks
+     */
+    public int getUndecided() {
+        return undecided;
+    }
+
+    /**
+     * Gets the average number of rounds the forks were fought.
+     * @return The average number of rounds
+     */
+    public double getAverageRounds() {
+        return forkCount == 0 ? 0.0 : (double) totalRounds / forkCount;
+    }
+}
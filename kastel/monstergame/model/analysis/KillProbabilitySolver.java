@@ -0,0 +1,424 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.combat.ActionExecutor;
+import edu.kit.kastel.monstergame.model.combat.EffectProcessor;
+import edu.kit.kastel.monstergame.model.combat.StatusConditionHandler;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.HealingEffect;
+import edu.kit.kastel.monstergame.model.effect.StatusConditionEffect;
+import edu.kit.kastel.monstergame.model.enums.EffectTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates the probability that a monster defeats another one within a number of turns
+ * when it uses a fixed sequence of actions, by dynamic programming over the HP of the defender.
+ * The state of the defender is its HP and its status condition, stored as one probability array
+ * indexed by HP per status condition, where HP 0 collects the probability of having fainted.
+ * Damage is applied by a sparse convolution with the nonzero entries of the damage distribution.
+ * Repeat effects, BURN ticks of the defender, status conditions and healing applied to the defender
+ * are included. The defender is assumed to pass every turn, and the stats, stages and status condition
+ * of the attacker stay as they are at the start. Protections and the attacker fainting are not modeled.
+ * @author uuifx
+ */
+public final class KillProbabilitySolver {
+    private static final StatusCondition[] CONDITIONS = StatusCondition.values();
+    private static final int NO_CONDITION = 0;
+    private static final double BURN_DAMAGE_FACTOR = 0.1;
+
+    private final Monster attacker;
+    private final Monster[] defenderVariants;
+    private final int maxHp;
+    private final int startHp;
+    private final int startCondition;
+    private final int burnDamage;
+    private final boolean defenderFirst;
+    private final double statusEndChance;
+    private final Map<Effect, SparseDamage[]> damageCache;
+    private final Map<Action, List<EffectSequence>> sequenceCache;
+
+    /**
+     * Creates a new solver for the current state of two monsters.
+     * @param attacker The monster using the actions
+     * @param defender The monster that should be defeated
+     */
+    public KillProbabilitySolver(Monster attacker, Monster defender) {
+        this.attacker = attacker;
+        this.maxHp = defender.getBaseStats().get(StatType.HP);
+        this.startHp = Math.max(0, Math.min(maxHp, defender.getCurrentHp()));
+        this.startCondition = conditionIndex(defender.getStatusCondition());
+        this.burnDamage = (int) Math.ceil(maxHp * BURN_DAMAGE_FACTOR);
+        this.statusEndChance = StatusConditionHandler.STATUS_END_CHANCE / 100;
+        this.defenderFirst = defender.getEffectiveSpeed() > attacker.getEffectiveSpeed()
+                || defender.getEffectiveSpeed() == attacker.getEffectiveSpeed()
+                && defender.getContestantNumber() < attacker.getContestantNumber();
+
+        // The damage the defender takes depends on its status condition, e.g. WET lowers its DEF
+        this.defenderVariants = new Monster[CONDITIONS.length + 1];
+        for (int condition = 0; condition < defenderVariants.length; condition++) {
+            defenderVariants[condition] = copyWithCondition(defender,
+                    condition == NO_CONDITION ? null : CONDITIONS[condition - 1]);
+        }
+        this.damageCache = new IdentityHashMap<>();
+        this.sequenceCache = new IdentityHashMap<>();
+    }
+
+    /**
+     * Calculates the probability that the defender is defeated within each of the given turns.
+     * If there are more turns than actions, the action sequence starts over.
+     * @param actions The actions the attacker uses, one per turn
+     * @param turns The number of turns
+     * @return The cumulative probability of defeating the defender after each turn, indexed by turn minus one
+     */
+    public double[] solve(List<Action> actions, int turns) {
+        double[] killProbabilities = new double[turns];
+        if (actions.isEmpty() || turns <= 0) {
+            return killProbabilities;
+        }
+        double[][] states = new double[defenderVariants.length][maxHp + 1];
+        states[startCondition][startHp] = 1.0;
+
+        for (int turn = 0; turn < turns; turn++) {
+            Action action = actions.get(turn % actions.size());
+            if (defenderFirst) {
+                states = defenderTurn(states);
+                states = attackerTurn(states, action);
+            } else {
+                states = attackerTurn(states, action);
+                states = defenderTurn(states);
+            }
+            states = endOfRound(states);
+            killProbabilities[turn] = faintedProbability(states);
+        }
+        return killProbabilities;
+    }
+
+    /**
+     * Calculates the probability that the defender is defeated within the given turns.
+     * @param actions The actions the attacker uses, one per turn
+     * @param turns The number of turns
+     * @return The probability of defeating the defender
+     */
+    public double getKillProbability(List<Action> actions, int turns) {
+        if (turns <= 0) {
+            return startHp == 0 ? 1.0 : 0.0;
+        }
+        return solve(actions, turns)[turns - 1];
+    }
+
+    /**
+     * Applies the turn of the attacker.
+     * Random repeat counts are a mixture of all counts with equal weight.
+     * @param states The state probabilities before the turn
+     * @param action The action of the attacker
+     * @return The state probabilities after the turn
+     */
+    private double[][] attackerTurn(double[][] states, Action action) {
+        List<EffectSequence> sequences = sequenceCache.computeIfAbsent(action, EffectSequence::of);
+        if (sequences.size() == 1) {
+            return applyAction(states, action, sequences.get(0).getEffects());
+        }
+        double[][] result = new double[states.length][maxHp + 1];
+        for (EffectSequence sequence : sequences) {
+            addScaled(result, applyAction(states, action, sequence.getEffects()), sequence.getWeight());
+        }
+        return result;
+    }
+
+    /**
+     * Applies the effects of an action in order.
+     * If the first effect misses, the whole action fails, later effects that miss are skipped.
+     * @param states The state probabilities before the action
+     * @param action The action
+     * @param effects The effects of the action with repeats expanded
+     * @return The state probabilities after the action
+     */
+    private double[][] applyAction(double[][] states, Action action, Effect[] effects) {
+        if (effects.length == 0) {
+            return states;
+        }
+        Effect first = effects[0];
+        double hitChance = hitProbability(first);
+        double[][] failed = new double[states.length][maxHp + 1];
+        addScaled(failed, states, 1.0 - hitChance);
+        double[][] current = new double[states.length][maxHp + 1];
+        addScaled(current, applyEffect(states, action, first), hitChance);
+
+        for (int i = 1; i < effects.length; i++) {
+            hitChance = hitProbability(effects[i]);
+            double[][] hit = applyEffect(current, action, effects[i]);
+            if (hit == current) {
+                continue;
+            }
+            double[][] mixed = new double[states.length][maxHp + 1];
+            addScaled(mixed, hit, hitChance);
+            addScaled(mixed, current, 1.0 - hitChance);
+            current = mixed;
+        }
+        addScaled(current, failed, 1.0);
+        return current;
+    }
+
+    /**
+     * Applies an effect that hit.
+     * @param states The state probabilities before the effect
+     * @param action The action the effect belongs to
+     * @param effect The effect
+     * @return The state probabilities after the effect, the same array if the defender is not affected
+     */
+    private double[][] applyEffect(double[][] states, Action action, Effect effect) {
+        if (effect.getTarget() == EffectTarget.SELF) {
+            return states;
+        }
+        switch (effect.getEffectType()) {
+            case DAMAGE:
+                return applyDamage(states, damageOf(action, (DamageEffect) effect));
+            case HEALING:
+                int healAmount = EffectProcessor.calculateHealAmount(attacker, defenderVariants[NO_CONDITION],
+                        (HealingEffect) effect);
+                return applyHealing(states, healAmount);
+            case STATUS_CONDITION:
+                return applyCondition(states, ((StatusConditionEffect) effect).getCondition());
+            default:
+                return states;
+        }
+    }
+
+    /**
+     * Applies damage by a sparse convolution.
+     * @param states The state probabilities before the damage
+     * @param damage The damage distribution for every status condition of the defender
+     * @return The state probabilities after the damage
+     */
+    private double[][] applyDamage(double[][] states, SparseDamage[] damage) {
+        double[][] result = new double[states.length][maxHp + 1];
+        for (int condition = 0; condition < states.length; condition++) {
+            double[] row = states[condition];
+            double[] resultRow = result[condition];
+            resultRow[0] += row[0];
+            SparseDamage sparse = damage[condition];
+            for (int hp = 1; hp <= maxHp; hp++) {
+                double probability = row[hp];
+                if (probability == 0) {
+                    continue;
+                }
+                for (int i = 0; i < sparse.damages.length; i++) {
+                    // Negative damage heals, limited by the max HP
+                    resultRow[Math.max(0, Math.min(maxHp, hp - sparse.damages[i]))]
+                            += probability * sparse.probabilities[i];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies healing to the defender, limited by its max HP.
+     * @param states The state probabilities before the healing
+     * @param amount The amount of HP healed
+     * @return The state probabilities after the healing
+     */
+    private double[][] applyHealing(double[][] states, int amount) {
+        double[][] result = new double[states.length][maxHp + 1];
+        for (int condition = 0; condition < states.length; condition++) {
+            result[condition][0] = states[condition][0];
+            for (int hp = 1; hp <= maxHp; hp++) {
+                result[condition][Math.min(maxHp, hp + amount)] += states[condition][hp];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies a status condition to the defender if it has none yet.
+     * @param states The state probabilities before the effect
+     * @param condition The status condition
+     * @return The state probabilities after the effect
+     */
+    private double[][] applyCondition(double[][] states, StatusCondition condition) {
+        double[][] result = copy(states);
+        int target = conditionIndex(condition);
+        for (int hp = 1; hp <= maxHp; hp++) {
+            result[target][hp] += result[NO_CONDITION][hp];
+            result[NO_CONDITION][hp] = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Applies the turn of the passing defender.
+     * Its status condition may end, otherwise a BURN deals damage.
+     * @param states The state probabilities before the turn
+     * @return The state probabilities after the turn
+     */
+    private double[][] defenderTurn(double[][] states) {
+        double[][] result = copy(states);
+        int burn = conditionIndex(StatusCondition.BURN);
+        for (int condition = 1; condition < states.length; condition++) {
+            for (int hp = 1; hp <= maxHp; hp++) {
+                double probability = states[condition][hp];
+                if (probability == 0) {
+                    continue;
+                }
+                result[condition][hp] -= probability;
+                result[NO_CONDITION][hp] += probability * statusEndChance;
+                int newHp = condition == burn ? Math.max(0, hp - burnDamage) : hp;
+                result[condition][newHp] += probability * (1.0 - statusEndChance);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies the end of the round, where status conditions may end.
+     * @param states The state probabilities before the end of the round
+     * @return The state probabilities after the end of the round
+     */
+    private double[][] endOfRound(double[][] states) {
+        for (int condition = 1; condition < states.length; condition++) {
+            for (int hp = 1; hp <= maxHp; hp++) {
+                double ended = states[condition][hp] * statusEndChance;
+                states[condition][hp] -= ended;
+                states[NO_CONDITION][hp] += ended;
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Sums the probability of all states in which the defender fainted.
+     * @param states The state probabilities
+     * @return The probability that the defender fainted
+     */
+    private static double faintedProbability(double[][] states) {
+        double sum = 0;
+        for (double[] row : states) {
+            sum += row[0];
+        }
+        return Math.min(1.0, sum);
+    }
+
+    /**
+     * Gets the probability that an effect hits.
+     * Only the AGL of the defender matters, which no status condition changes.
+     * @param effect The effect
+     * @return The hit probability (0.0-1.0)
+     */
+    private double hitProbability(Effect effect) {
+        Monster target = effect.getTarget() == EffectTarget.SELF ? attacker : defenderVariants[NO_CONDITION];
+        return ActionExecutor.getHitProbability(attacker, target, effect);
+    }
+
+    /**
+     * Gets the damage distribution of an effect for every status condition of the defender.
+     * @param action The action the effect belongs to
+     * @param effect The damage effect
+     * @return The sparse damage distributions, indexed by condition
+     */
+    private SparseDamage[] damageOf(Action action, DamageEffect effect) {
+        SparseDamage[] damage = damageCache.get(effect);
+        if (damage == null) {
+            damage = new SparseDamage[defenderVariants.length];
+            for (int condition = 0; condition < damage.length; condition++) {
+                damage[condition] = new SparseDamage(DamageDistribution
+                        .of(attacker, defenderVariants[condition], action, effect));
+            }
+            damageCache.put(effect, damage);
+        }
+        return damage;
+    }
+
+    /**
+     * Adds scaled state probabilities to others.
+     * @param target The state probabilities to add to
+     * @param source The state probabilities to add
+     * @param factor The factor
+     */
+    private static void addScaled(double[][] target, double[][] source, double factor) {
+        if (factor == 0) {
+            return;
+        }
+        for (int condition = 0; condition < target.length; condition++) {
+            for (int hp = 0; hp < target[condition].length; hp++) {
+                target[condition][hp] += source[condition][hp] * factor;
+            }
+        }
+    }
+
+    /**
+     * Copies state probabilities.
+     * @param states The state probabilities
+     * @return The copy
+     */
+    private static double[][] copy(double[][] states) {
+        double[][] result = new double[states.length][];
+        for (int condition = 0; condition < states.length; condition++) {
+            result[condition] = states[condition].clone();
+        }
+        return result;
+    }
+
+    /**
+     * Gets the state index of a status condition.
+     * @param condition The status condition, or null
+     * @return The index, 0 for no condition
+     */
+    private static int conditionIndex(StatusCondition condition) {
+        return condition == null ? NO_CONDITION : condition.ordinal() + 1;
+    }
+
+    /**
+     * Creates a copy of a monster with the same stages but another status condition.
+     * @param monster The monster to copy
+     * @param condition The status condition of the copy
+     * @return The copy
+     */
+    private static Monster copyWithCondition(Monster monster, StatusCondition condition) {
+        Monster copy = new Monster(monster.getName(), monster.getElement(), monster.getBaseStats(),
+                monster.getActions());
+        for (Map.Entry<StatType, Integer> stage : monster.getStatStages().entrySet()) {
+            copy.modifyStat(stage.getKey(), stage.getValue());
+        }
+        copy.setStatusCondition(condition);
+        copy.setContestantNumber(monster.getContestantNumber());
+        return copy;
+    }
+
+    /**
+     * The nonzero entries of a damage distribution.
+     */
+    private static final class SparseDamage {
+        private final int[] damages;
+        private final double[] probabilities;
+
+        /**
+         * Creates the sparse form of a damage distribution.
+         * @param damageDistribution The damage distribution
+         */
+        private SparseDamage(DamageDistribution damageDistribution) {
+            double[] distribution = damageDistribution.getHitProbabilities();
+            int count = 0;
+            for (double probability : distribution) {
+                if (probability > 0) {
+                    count++;
+                }
+            }
+            this.damages = new int[count];
+            this.probabilities = new double[count];
+            int next = 0;
+            for (int index = 0; index < distribution.length; index++) {
+                if (distribution[index] > 0) {
+                    damages[next] = index + damageDistribution.getLowestHitDamage();
+                    probabilities[next++] = distribution[index];
+                }
+            }
+        }
+    }
+}
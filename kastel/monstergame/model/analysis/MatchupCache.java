@@ -0,0 +1,279 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.util.ElementEffectiveness;
+import edu.kit.kastel.monstergame.model.util.Fingerprint;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A file of matchup statistics, so simulations of two monsters that were simulated before are not fought again.
+ * A matchup is identified by a content hash of both monster definitions, including their resolved actions
+ * and effects, the element table, the action policy, the limits, the number of combats, the precision at which
+ * they stop and ENGINE_VERSION, so changing any of them simulates the matchup again while renaming a monster
+ * does not.
+ * <p>
+ * The file is a fixed number of slots of fixed size and is memory-mapped. The index from keys to slots is kept
+ * in memory in least recently used order and is rebuilt from the slots when the file is opened, using the time
+ * each slot was used last. When all slots are taken, the least recently used matchup makes room for a new one.
+ * @author uuifx
+ */
+public final class MatchupCache implements AutoCloseable {
+    /**
+     * The number of slots of a new cache file, unless given otherwise.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    /**
+     * The most slots a cache file can have.
+     */
+    public static final int MAX_CAPACITY = 1 << 24;
+    /**
+     * The version of the combat rules. It is part of every key, so it has to be raised whenever a change
+     * of the rules changes the outcome of combats, which makes all stored matchups outdated.
+     */
+    static final int ENGINE_VERSION = 1;
+
+    private static final int MAGIC = 0x4D4D4331;
+    /**
+     * The header: MAGIC, the capacity and the clock.
+     */
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    private static final int CLOCK = Integer.BYTES + Integer.BYTES;
+    /**
+     * A slot: the key (0 for an empty slot), the time it was used last, the number of combats, the draws,
+     * the rounds and for both monsters the wins, the critical hits, the damage dealt and the damage taken.
+     */
+    private static final int SIDE_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES;
+    private static final int SLOT_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES + Integer.BYTES + Long.BYTES
+            + MatchupStatistics.SIDES * SIDE_SIZE;
+    private static final int LAST_USED = Long.BYTES;
+    private static final int BATTLES = LAST_USED + Long.BYTES;
+    private static final int DRAWS = BATTLES + Integer.BYTES;
+    private static final int ROUNDS = DRAWS + Integer.BYTES;
+    private static final int SIDES = ROUNDS + Long.BYTES;
+    private static final long EMPTY = 0L;
+
+    private final Path path;
+    private final MappedByteBuffer slots;
+    private final int capacity;
+    private final LinkedHashMap<Long, Integer> index;
+    private final Deque<Integer> freeSlots;
+    private long clock;
+
+    /**
+     * Creates a cache from a mapped file and rebuilds the index.
+     * @param path The path of the file
+     * @param slots The mapped file
+     * @param capacity The number of slots
+     */
+    private MatchupCache(Path path, MappedByteBuffer slots, int capacity) {
+        this.path = path;
+        this.slots = slots;
+        this.capacity = capacity;
+        this.index = new LinkedHashMap<>(capacity, 0.75f, true);
+        this.freeSlots = new ArrayDeque<>();
+        this.clock = slots.getLong(CLOCK);
+        List<long[]> used = new ArrayList<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            long key = slots.getLong(offset(slot));
+            if (key == EMPTY) {
+                freeSlots.add(slot);
+            } else {
+                used.add(new long[] {slots.getLong(offset(slot) + LAST_USED), key, slot});
+            }
+        }
+        used.sort((first, second) -> Long.compare(first[0], second[0]));
+        for (long[] entry : used) {
+            index.put(entry[1], (int) entry[2]);
+        }
+    }
+
+    /**
+     * Opens a cache file, creating it with the given capacity if it does not exist.
+     * An existing file keeps its capacity.
+     * @param path The path of the file
+     * @param capacity The number of slots of a new file
+     * @return The cache
+     * @throws IOException If the file cannot be read or created
+     * @throws IllegalArgumentException If the file is no matchup cache
+     */
+    public static MatchupCache open(Path path, int capacity) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        boolean exists = Files.exists(path) && Files.size(path) > 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            int slotCount = capacity;
+            if (exists) {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        Math.min(channel.size(), HEADER_SIZE));
+                if (header.limit() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+                    throw new IllegalArgumentException(path + " is no matchup cache");
+                }
+                slotCount = header.getInt(Integer.BYTES);
+                if (channel.size() != HEADER_SIZE + (long) slotCount * SLOT_SIZE) {
+                    throw new IllegalArgumentException(path + " is damaged");
+                }
+            }
+            MappedByteBuffer slots = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) slotCount * SLOT_SIZE);
+            if (!exists) {
+                slots.putInt(0, MAGIC).putInt(Integer.BYTES, slotCount).putLong(CLOCK, 0L);
+            }
+            return new MatchupCache(path, slots, slotCount);
+        }
+    }
+
+    /**
+     * Calculates the key of a matchup.
+     * @param first The first monster
+     * @param second The second monster
+     * @param policy The name of the action policy
+     * @param roundLimit The round limit of the combats
+     * @param repetitionLimit The repetition limit of the combats
+     * @param battles The most combats
+     * @param precision The precision at which the combats stop, or SequentialTest.FIXED
+     * @return The key
+     */
+    public static long key(Monster first, Monster second, String policy, int roundLimit, int repetitionLimit,
+                           int battles, double precision) {
+        StringBuilder description = new StringBuilder();
+        Fingerprint.describe(first, description);
+        Fingerprint.describe(second, description);
+        Fingerprint.describe(ElementEffectiveness.getTable(), description);
+        description.append(policy).append(';').append(roundLimit).append(';').append(repetitionLimit).append(';')
+                .append(battles).append(';').append(ENGINE_VERSION);
+        if (precision != SequentialTest.FIXED) {
+            description.append(';').append(precision);
+        }
+        long key = Fingerprint.hash(description);
+        return key == EMPTY ? 1L : key;
+    }
+
+    /**
+     * Looks up the statistics of a matchup, which makes it the most recently used one.
+     * @param key The key of the matchup
+     * @return The statistics, or null if the matchup is not stored
+     */
+    public MatchupStatistics get(long key) {
+        Integer slot = index.get(key);
+        if (slot == null) {
+            return null;
+        }
+        int offset = offset(slot);
+        slots.putLong(offset + LAST_USED, tick());
+        int[] wins = new int[MatchupStatistics.SIDES];
+        int[] criticalHits = new int[MatchupStatistics.SIDES];
+        long[] damageDealt = new long[MatchupStatistics.SIDES];
+        long[] damageTaken = new long[MatchupStatistics.SIDES];
+        for (int side = 0; side < MatchupStatistics.SIDES; side++) {
+            int sideOffset = offset + SIDES + side * SIDE_SIZE;
+            wins[side] = slots.getInt(sideOffset);
+            criticalHits[side] = slots.getInt(sideOffset + Integer.BYTES);
+            damageDealt[side] = slots.getLong(sideOffset + 2 * Integer.BYTES);
+            damageTaken[side] = slots.getLong(sideOffset + 2 * Integer.BYTES + Long.BYTES);
+        }
+        return new MatchupStatistics(slots.getInt(offset + BATTLES), slots.getInt(offset + DRAWS),
+                slots.getLong(offset + ROUNDS), wins, criticalHits, damageDealt, damageTaken);
+    }
+
+    /**
+     * Stores the statistics of a matchup. If all slots are taken, the least recently used matchup is dropped.
+     * @param key The key of the matchup
+     * @param statistics The statistics
+     */
+    public void put(long key, MatchupStatistics statistics) {
+        Integer slot = index.get(key);
+        if (slot == null) {
+            slot = freeSlots.poll();
+        }
+        if (slot == null) {
+            Iterator<Map.Entry<Long, Integer>> eldest = index.entrySet().iterator();
+            slot = eldest.next().getValue();
+            eldest.remove();
+        }
+        int offset = offset(slot);
+        slots.putLong(offset, key).putLong(offset + LAST_USED, tick())
+                .putInt(offset + BATTLES, statistics.getBattles()).putInt(offset + DRAWS, statistics.getDraws())
+                .putLong(offset + ROUNDS, statistics.getRounds());
+        for (int side = 0; side < MatchupStatistics.SIDES; side++) {
+            int sideOffset = offset + SIDES + side * SIDE_SIZE;
+            slots.putInt(sideOffset, statistics.getWins(side))
+                    .putInt(sideOffset + Integer.BYTES, statistics.getCriticalHits(side))
+                    .putLong(sideOffset + 2 * Integer.BYTES, statistics.getDamageDealt(side))
+                    .putLong(sideOffset + 2 * Integer.BYTES + Long.BYTES, statistics.getDamageTaken(side));
+        }
+        index.put(key, slot);
+    }
+
+    /**
+     * Gets the number of stored matchups.
+     * @return The number of matchups
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Gets the number of matchups that can be stored.
+     * @return The number of slots
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the path of the file.
+     * @return The path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Writes the changed slots to the file.
+     */
+    public void flush() {
+        slots.force();
+    }
+
+    /**
+     * Writes the changed slots to the file. The file stays mapped until the mapping is garbage collected.
+     */
+    @Override
+    public void close() {
+        flush();
+    }
+
+    /**
+     * Advances the clock used to order the matchups by their last use.
+     * @return The new time
+     */
+    private long tick() {
+        clock++;
+        slots.putLong(CLOCK, clock);
+        return clock;
+    }
+
+    /**
+     * Gets the position of a slot in the file.
+     * @param slot The slot
+     * @return The offset in bytes
+     */
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
@@ -0,0 +1,135 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.combat.CombatResult;
+import edu.kit.kastel.monstergame.model.combat.CombatStatistics;
+
+/**
+ * The summed results of several combats of the same two monsters: how often each of them won,
+ * the draws, the rounds, and the damage and critical hits of each of them.
+ * @author uuifx
+ */
+public final class MatchupStatistics {
+    /**
+     * The number of monsters of a matchup.
+     */
+    public static final int SIDES = 2;
+
+    private int battles;
+    private int draws;
+    private long rounds;
+    private final int[] wins;
+    private final int[] criticalHits;
+    private final long[] damageDealt;
+    private final long[] damageTaken;
+
+    /**
+     * Creates statistics without combats.
+     */
+    public MatchupStatistics() {
+        this.wins = new int[SIDES];
+        this.criticalHits = new int[SIDES];
+        this.damageDealt = new long[SIDES];
+        this.damageTaken = new long[SIDES];
+    }
+
+    /**
+     * Creates statistics from stored sums.
+     * @param battles The number of combats
+     * @param draws The number of draws
+     * @param rounds The number of rounds of all combats
+     * @param wins The wins of both monsters
+     * @param criticalHits The critical hits of both monsters
+     * @param damageDealt The damage both monsters dealt
+     * @param damageTaken The damage both monsters took
+     */
+    MatchupStatistics(int battles, int draws, long rounds, int[] wins, int[] criticalHits, long[] damageDealt,
+                      long[] damageTaken) {
+        this.battles = battles;
+        this.draws = draws;
+        this.rounds = rounds;
+        this.wins = wins;
+        this.criticalHits = criticalHits;
+        this.damageDealt = damageDealt;
+        this.damageTaken = damageTaken;
+    }
+
+    /**
+     * Adds the result of a combat of the two monsters.
+     * @param result The result
+     */
+    public void add(CombatResult result) {
+        CombatStatistics statistics = result.getStatistics();
+        battles++;
+        rounds += result.getRounds();
+        if (result.isDraw()) {
+            draws++;
+        } else {
+            wins[result.getWinner().getContestantNumber() - 1]++;
+        }
+        for (int side = 0; side < SIDES; side++) {
+            criticalHits[side] += statistics.getCriticalHits(side);
+            damageDealt[side] += statistics.getDamageDealt(side);
+            damageTaken[side] += statistics.getDamageTaken(side);
+        }
+    }
+
+    /**
+     * Gets the number of combats.
+     * @return The number of combats
+     */
+    public int getBattles() {
+        return battles;
+    }
+
+    /**
+     * Gets the number of combats that ended in a draw.
+     * @return The number of draws
+     */
+    public int getDraws() {
+        return draws;
+    }
+
+    /**
+     * Gets the number of rounds of all combats.
+     * @return The number of rounds
+     */
+    public long getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Gets how often a monster won.
+     * @param side The monster, 0 for the first one
+     * @return The number of wins
+     */
+    public int getWins(int side) {
+        return wins[side];
+    }
+
+    /**
+     * Gets the number of critical hits of a monster.
+     * @param side The monster, 0 for the first one
+     * @return The number of critical hits
+     */
+    public int getCriticalHits(int side) {
+        return criticalHits[side];
+    }
+
+    /**
+     * Gets the damage a monster dealt.
+     * @param side The monster, 0 for the first one
+     * @return The damage dealt
+     */
+    public long getDamageDealt(int side) {
+        return damageDealt[side];
+    }
+
+    /**
+     * Gets the damage a monster took.
+     * @param side The monster, 0 for the first one
+     * @return The damage taken
+     */
+    public long getDamageTaken(int side) {
+        return damageTaken[side];
+    }
+}
@@ -0,0 +1,91 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+
+/**
+ * The estimated outcome of using an action against one opponent.
+ * @author uuifx
+ */
+public final class OutcomeEstimate {
+    private final Action action;
+    private final Monster opponent;
+    private final double expectedDamage;
+    private final double hitChance;
+    private final double criticalChance;
+    private final double knockOutChance;
+
+    /**
+     * Creates a new outcome estimate.
+     * @param action The action
+     * @param opponent The opponent the action is used against
+     * @param expectedDamage The expected damage dealt to the opponent
+     * @param hitChance The probability that the action does not fail (0.0-1.0)
+     * @param criticalChance The probability of a critical hit (0.0-1.0)
+     * @param knockOutChance The probability that the opponent faints this round (0.0-1.0)
+     */
+    public OutcomeEstimate(Action action, Monster opponent, double expectedDamage, double hitChance,
+                           double criticalChance, double knockOutChance) {
+        this.action = action;
+        this.opponent = opponent;
+        this.expectedDamage = expectedDamage;
+        this.hitChance = hitChance;
+        this.criticalChance = criticalChance;
+        this.knockOutChance = knockOutChance;
+    }
+
+    /**
+     * Gets the action.
+     * @return The action
+     */
+    public Action getAction() {
+        return action;
+    }
+
+    /**
+     * Gets the opponent the action is used against.
+     * @return The opponent
+     */
+    public Monster getOpponent() {
+        return opponent;
+    }
+
+    /**
+     * Gets the expected damage dealt to the opponent.
+     * @return The expected damage
+     */
+    public double getExpectedDamage() {
+        return expectedDamage;
+    }
+
+    /**
+     * Gets the probability that the action does not fail.
+     * @return The hit probability (0.0-1.0)
+     */
+    public double getHitChance() {
+        return hitChance;
+    }
+
+    /**
+     * Gets the probability of a critical hit.
+     * @return The critical hit probability (0.0-1.0)
+     */
+    public double getCriticalChance() {
+        return criticalChance;
+    }
+
+    /**
+     * Gets the probability that the opponent faints this round.
+     * @return The knock out probability (0.0-1.0)
+     */
+    public double getKnockOutChance() {
+        return knockOutChance;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s on %s: Damage %.1f, HitRate %.0f, Crit %.1f%%, KO %.1f%%",
+                action.getName(), opponent.getName(), expectedDamage, hitChance * 100,
+                criticalChance * 100, knockOutChance * 100);
+    }
+}
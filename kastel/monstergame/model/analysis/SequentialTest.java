@@ -0,0 +1,194 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+/**
+ * Decides when the combats of a matchup can stop because more combats would not change the answer.
+ * <p>
+ * Sampling stops as soon as one of three things happens: a sequential probability ratio test between
+ * "the first monster wins 0.5 + MARGIN of the combats that are not drawn" and "it wins 0.5 - MARGIN of them"
+ * accepts one of them, the 95% Wilson score interval of the win rate of the first monster over all combats
+ * is narrower than the given precision on both sides, or the most combats were fought. Draws only count
+ * for the interval. Lopsided matchups are decided after a few dozen combats, while close ones are fought
+ * until the interval is narrow enough.
+ * @author uuifx
+ */
+public final class SequentialTest {
+    /**
+     * The precision that never stops early, so every matchup is fought the most combats.
+     */
+    public static final double FIXED = 0.0;
+    /**
+     * The distance of both hypotheses of the ratio test from an even matchup.
+     */
+    private static final double MARGIN = 0.05;
+    /**
+     * The probability of the ratio test accepting the wrong hypothesis, for both of them.
+     */
+    private static final double ERROR = 0.01;
+    /**
+     * The quantile of the standard normal distribution of the 95% interval.
+     */
+    private static final double Z = 1.959963984540054;
+    private static final double EVEN = 0.5;
+    private static final double WIN_STEP = Math.log((EVEN + MARGIN) / (EVEN - MARGIN));
+    private static final double LOSS_STEP = Math.log((EVEN - MARGIN) / (EVEN + MARGIN));
+    private static final double UPPER_THRESHOLD = Math.log((1 - ERROR) / ERROR);
+    private static final double LOWER_THRESHOLD = Math.log(ERROR / (1 - ERROR));
+
+    /**
+     * Why the combats of a matchup stopped.
+     */
+    public enum Outcome {
+        /**
+         * More combats are needed.
+         */
+        UNDECIDED,
+        /**
+         * The ratio test decided that the first monster is favored.
+         */
+        FIRST_FAVORED,
+        /**
+         * The ratio test decided that the second monster is favored.
+         */
+        SECOND_FAVORED,
+        /**
+         * The interval of the win rate is narrower than the precision.
+         */
+        PRECISE,
+        /**
+         * The most combats were fought.
+         */
+        LIMIT_REACHED
+    }
+
+    private final double precision;
+    private final int maxBattles;
+    private int battles;
+    private int wins;
+    private double logLikelihoodRatio;
+    private Outcome outcome;
+
+    /**
+     * Creates a test without combats.
+     * @param precision The half width of the interval at which to stop, or FIXED to always fight the most combats
+     * @param maxBattles The most combats
+     */
+    public SequentialTest(double precision, int maxBattles) {
+        this.precision = precision;
+        this.maxBattles = maxBattles;
+        this.outcome = maxBattles > 0 ? Outcome.UNDECIDED : Outcome.LIMIT_REACHED;
+    }
+
+    /**
+     * Adds a combat the first monster won and decides whether more combats are needed.
+     */
+    public void addWin() {
+        wins++;
+        logLikelihoodRatio += WIN_STEP;
+        decide();
+    }
+
+    /**
+     * Adds a combat the second monster won and decides whether more combats are needed.
+     */
+    public void addLoss() {
+        logLikelihoodRatio += LOSS_STEP;
+        decide();
+    }
+
+    /**
+     * Adds a drawn combat and decides whether more combats are needed.
+     */
+    public void addDraw() {
+        decide();
+    }
+
+    /**
+     * Counts a combat and decides whether more combats are needed.
+     */
+    private void decide() {
+        battles++;
+        if (precision != FIXED && logLikelihoodRatio >= UPPER_THRESHOLD) {
+            outcome = Outcome.FIRST_FAVORED;
+        } else if (precision != FIXED && logLikelihoodRatio <= LOWER_THRESHOLD) {
+            outcome = Outcome.SECOND_FAVORED;
+        } else if (precision != FIXED && getUpperBound() - getLowerBound() < 2 * precision) {
+            outcome = Outcome.PRECISE;
+        } else if (battles >= maxBattles) {
+            outcome = Outcome.LIMIT_REACHED;
+        }
+    }
+
+    /**
+     * Checks whether the combats can stop.
+     * @return True if no more combats are needed
+     */
+    public boolean isFinished() {
+        return outcome != Outcome.UNDECIDED;
+    }
+
+    /**
+     * Gets why the combats stopped.
+     * @return The outcome, UNDECIDED while more combats are needed
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Gets the number of combats.
+     * @return The number of combats
+     */
+    public int getBattles() {
+        return battles;
+    }
+
+    /**
+     * Gets the number of combats the first monster won.
+     * @return The number of wins
+     */
+    public int getWins() {
+        return wins;
+    }
+
+    /**
+     * Gets the win rate of the first monster.
+     * @return The win rate (0.0-1.0), 0.0 without combats
+     */
+    public double getWinRate() {
+        return battles == 0 ? 0.0 : (double) wins / battles;
+    }
+
+    /**
+     * Gets the lower bound of the 95% Wilson score interval of the win rate.
+     * @return The lower bound (0.0-1.0)
+     */
+    public double getLowerBound() {
+        return battles == 0 ? 0.0 : Math.max(0.0, center() - halfWidth());
+    }
+
+    /**
+     * Gets the upper bound of the 95% Wilson score interval of the win rate.
+     * @return The upper bound (0.0-1.0)
+     */
+    public double getUpperBound() {
+        return battles == 0 ? 1.0 : Math.min(1.0, center() + halfWidth());
+    }
+
+    /**
+     * Calculates the center of the Wilson score interval.
+     * @return The center
+     */
+    private double center() {
+        return (getWinRate() + Z * Z / (2.0 * battles)) / (1 + Z * Z / battles);
+    }
+
+    /**
+     * Calculates the half width of the Wilson score interval.
+     * @return The half width
+     */
+    private double halfWidth() {
+        double rate = getWinRate();
+        return Z / (1 + Z * Z / battles)
+                * Math.sqrt(rate * (1 - rate) / battles + Z * Z / (4.0 * battles * battles));
+    }
+}
@@ -0,0 +1,198 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.combat.StatusConditionHandler;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+
+/**
+ * Markov chain model of how long a status condition lasts.
+ * A condition may end at the start of every turn of its monster and at the end of every round,
+ * each time with the same chance. The chain has the states "before the turn", "before the end of
+ * the round" and the absorbing state "ended". Every time the condition survives the start of a turn,
+ * the turn is affected: a SLEEPing monster skips it and a BURNing monster takes damage.
+ * Expected values are calculated from the fundamental matrix of the chain, distributions by
+ * propagating the chain until the remaining probability is negligible.
+ * @author uuifx
+ */
+public final class StatusConditionModel {
+    /**
+     * State before the turn of the monster.
+     */
+    public static final int TURN_START = 0;
+    /**
+     * State before the end of the round.
+     */
+    public static final int END_OF_ROUND = 1;
+    /**
+     * Absorbing state after the condition ended.
+     */
+    public static final int ENDED = 2;
+
+    private static final int STATES = 3;
+    private static final double BURN_DAMAGE_FACTOR = 0.1;
+    private static final double NEGLIGIBLE = 1e-12;
+
+    private final StatusCondition condition;
+    private final boolean appliedBeforeTurn;
+    private final double endChance;
+    private final double[][] transitions;
+    private final double[][] fundamental;
+
+    /**
+     * Creates the model of a status condition.
+     * @param condition The status condition
+     * @param appliedBeforeTurn Whether the condition was applied before the monster's turn in that round,
+     *                          i.e. whether the first check happens at the start of its turn
+     */
+    public StatusConditionModel(StatusCondition condition, boolean appliedBeforeTurn) {
+        this.condition = condition;
+        this.appliedBeforeTurn = appliedBeforeTurn;
+        this.endChance = StatusConditionHandler.STATUS_END_CHANCE / 100;
+        this.transitions = new double[STATES][STATES];
+        transitions[TURN_START][ENDED] = endChance;
+        transitions[TURN_START][END_OF_ROUND] = 1.0 - endChance;
+        transitions[END_OF_ROUND][ENDED] = endChance;
+        transitions[END_OF_ROUND][TURN_START] = 1.0 - endChance;
+        transitions[ENDED][ENDED] = 1.0;
+        this.fundamental = invertTransient(transitions);
+    }
+
+    /**
+     * Inverts I - Q, where Q are the transitions between the two transient states.
+     * @param transitions The transition matrix
+     * @return The fundamental matrix, the expected visits of each transient state from each start state
+     */
+    private static double[][] invertTransient(double[][] transitions) {
+        double a = 1.0 - transitions[TURN_START][TURN_START];
+        double b = -transitions[TURN_START][END_OF_ROUND];
+        double c = -transitions[END_OF_ROUND][TURN_START];
+        double d = 1.0 - transitions[END_OF_ROUND][END_OF_ROUND];
+        double determinant = a * d - b * c;
+        return new double[][] {
+            {d / determinant, -b / determinant},
+            {-c / determinant, a / determinant}
+        };
+    }
+
+    /**
+     * Gets the state the chain starts in.
+     * @return TURN_START or END_OF_ROUND
+     */
+    private int startState() {
+        return appliedBeforeTurn ? TURN_START : END_OF_ROUND;
+    }
+
+    /**
+     * Gets the status condition of this model.
+     * @return The status condition
+     */
+    public StatusCondition getCondition() {
+        return condition;
+    }
+
+    /**
+     * Gets a copy of the transition matrix, indexed by TURN_START, END_OF_ROUND and ENDED.
+     * @return The transition probabilities from row state to column state
+     */
+    public double[][] getTransitionMatrix() {
+        double[][] copy = new double[STATES][];
+        for (int i = 0; i < STATES; i++) {
+            copy[i] = transitions[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Gets the expected number of rounds the condition lasts, counting every end of round it is still active at.
+     * A condition that ends at the start of a turn does not count that round.
+     * @return The expected duration in rounds
+     */
+    public double getExpectedDuration() {
+        return fundamental[startState()][END_OF_ROUND];
+    }
+
+    /**
+     * Gets the expected number of turns of the monster that are affected by the condition.
+     * @return The expected number of affected turns
+     */
+    public double getExpectedAffectedTurns() {
+        return fundamental[startState()][TURN_START] * transitions[TURN_START][END_OF_ROUND];
+    }
+
+    /**
+     * Gets the expected number of turns the monster skips, which is only nonzero for SLEEP.
+     * @return The expected number of skipped turns
+     */
+    public double getExpectedSkippedTurns() {
+        return condition == StatusCondition.SLEEP ? getExpectedAffectedTurns() : 0.0;
+    }
+
+    /**
+     * Gets the distribution of the number of affected turns.
+     * The last entry also holds the probability of more affected turns.
+     * @param maxTurns The highest number of affected turns to report separately
+     * @return The probability of each number of affected turns, indexed by the number
+     */
+    public double[] getAffectedTurnDistribution(int maxTurns) {
+        double[] probabilities = new double[Math.max(0, maxTurns) + 1];
+        double turnStart = startState() == TURN_START ? 1.0 : 0.0;
+        double endOfRound = 1.0 - turnStart;
+        double remaining = 1.0;
+        for (int turns = 0; turns < probabilities.length && remaining > NEGLIGIBLE; turns++) {
+            // End of the round with this many affected turns
+            probabilities[turns] += endOfRound * transitions[END_OF_ROUND][ENDED];
+            turnStart += endOfRound * transitions[END_OF_ROUND][TURN_START];
+            // Start of the next turn, surviving it affects one more turn
+            probabilities[turns] += turnStart * transitions[TURN_START][ENDED];
+            remaining -= probabilities[turns];
+            endOfRound = turnStart * transitions[TURN_START][END_OF_ROUND];
+            turnStart = 0.0;
+        }
+        probabilities[probabilities.length - 1] += Math.max(0.0, remaining);
+        return probabilities;
+    }
+
+    /**
+     * Gets the distribution of the number of skipped turns, which is only nonzero for SLEEP.
+     * The last entry also holds the probability of more skipped turns.
+     * @param maxTurns The highest number of skipped turns to report separately
+     * @return The probability of each number of skipped turns, indexed by the number
+     */
+    public double[] getSkippedTurnDistribution(int maxTurns) {
+        if (condition == StatusCondition.SLEEP) {
+            return getAffectedTurnDistribution(maxTurns);
+        }
+        double[] probabilities = new double[Math.max(0, maxTurns) + 1];
+        probabilities[0] = 1.0;
+        return probabilities;
+    }
+
+    /**
+     * Gets the expected total burn damage, which is only nonzero for BURN.
+     * The damage stops once the monster faints, so it is at most its current HP.
+     * @param maxHp The max HP of the monster, which the damage per turn is based on
+     * @param currentHp The current HP of the monster
+     * @return The expected total burn damage
+     */
+    public double getExpectedBurnDamage(int maxHp, int currentHp) {
+        if (condition != StatusCondition.BURN || currentHp <= 0) {
+            return 0.0;
+        }
+        int burnDamage = (int) Math.ceil(maxHp * BURN_DAMAGE_FACTOR);
+        if (burnDamage <= 0) {
+            return 0.0;
+        }
+        int ticksToFaint = (currentHp + burnDamage - 1) / burnDamage;
+        double[] ticks = getAffectedTurnDistribution(ticksToFaint);
+        double expected = 0;
+        for (int count = 0; count < ticks.length; count++) {
+            expected += ticks[count] * Math.min(currentHp, count * burnDamage);
+        }
+        return expected;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %.2f rounds, %.2f affected turns", condition,
+                getExpectedDuration(), getExpectedAffectedTurns());
+    }
+}
@@ -0,0 +1,313 @@
+package edu.kit.kastel.monstergame.model.analysis;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.combat.CombatResult;
+import edu.kit.kastel.monstergame.model.combat.CombatSystem;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.util.Fingerprint;
+import edu.kit.kastel.monstergame.model.util.FileParser.GameData;
+import edu.kit.kastel.monstergame.model.util.RandomUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+/**
+ * The pairwise win probabilities of all monsters of a configuration, estimated by simulating combats of every
+ * ordered pair of monsters. The random numbers of a pair are derived from the definitions of both monsters,
+ * so simulating an unchanged pair again gives the same probability.
+ * <p>
+ * When the matrix of a newly loaded configuration is requested, only the rows and columns of monsters that
+ * changed since the previous matrix are simulated again:
+ * monsters whose element, stats or list of actions changed, monsters that are new, and through the dependency
+ * graph of the configuration every monster using an action whose effects changed. All other probabilities are
+ * carried over. A change of the element table or of the simulation settings simulates every pair again.
+ * <p>
+ * With a precision, the combats of a pair stop early as decided by a SequentialTest, so lopsided pairs take
+ * far fewer combats than close ones.
+ * @author uuifx
+ */
+public final class WinMatrix {
+    /**
+     * The probability of a monster against itself, which is not simulated.
+     */
+    public static final double NOT_SIMULATED = -1.0;
+
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "matrix-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<String> names;
+    private final Map<String, Integer> indices;
+    private final Map<String, String> monsterDefinitions;
+    private final Map<String, String> actionDefinitions;
+    private final String elementTable;
+    private final String settings;
+    private final int battles;
+    private final double precision;
+    private final double[] probabilities;
+    private final int[] samples;
+    private int simulatedPairs;
+    private long simulatedBattles;
+
+    /**
+     * Creates an empty matrix of the monsters of a configuration.
+     * @param data The configuration
+     * @param settings The description of the simulation settings
+     * @param battles The most combats of every pair
+     * @param precision The precision at which the combats of a pair stop, or SequentialTest.FIXED
+     */
+    private WinMatrix(GameData data, String settings, int battles, double precision) {
+        this.names = new ArrayList<>();
+        this.indices = new HashMap<>();
+        this.monsterDefinitions = new HashMap<>();
+        for (Monster monster : data.getMonsters()) {
+            indices.put(monster.getName(), names.size());
+            names.add(monster.getName());
+            monsterDefinitions.put(monster.getName(), describe(monster));
+        }
+        this.actionDefinitions = new HashMap<>();
+        for (Action action : data.getActions()) {
+            actionDefinitions.put(action.getName(), Fingerprint.describe(action, new StringBuilder()).toString());
+        }
+        this.elementTable = Fingerprint.describe(data.getElementTable(), new StringBuilder()).toString();
+        this.settings = settings;
+        this.battles = battles;
+        this.precision = precision;
+        this.probabilities = new double[names.size() * names.size()];
+        this.samples = new int[names.size() * names.size()];
+    }
+
+    /**
+     * Calculates the matrix of a configuration, carrying over the probabilities of all pairs of unchanged monsters
+     * from a previous matrix.
+     * @param data The configuration
+     * @param previous The matrix of the previous configuration, or null to simulate every pair
+     * @param settings The description of the settings the combats are created with, e.g. the action policy
+     * @param battles The most combats of every pair
+     * @param precision The half width of the interval of a win probability at which the combats of a pair stop,
+     *                  or SequentialTest.FIXED to fight every pair the most combats
+     * @param combats Creates a combat of two monsters that runs without human input with the given random numbers
+     * @param threads The number of threads simulating in parallel, including the calling one
+     * @return The matrix
+     */
+    public static WinMatrix calculate(GameData data, WinMatrix previous, String settings, int battles,
+                                      double precision, BiFunction<List<Monster>, RandomUtil, CombatSystem> combats,
+                                      int threads) {
+        WinMatrix matrix = new WinMatrix(data, settings, battles, precision);
+        Set<String> changed = matrix.findChanged(data, previous);
+        int size = matrix.names.size();
+        List<int[]> pairs = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                String first = matrix.names.get(row);
+                String second = matrix.names.get(column);
+                if (row == column) {
+                    matrix.probabilities[row * size + column] = NOT_SIMULATED;
+                } else if (changed.contains(first) || changed.contains(second)) {
+                    pairs.add(new int[] {row, column});
+                } else {
+                    matrix.probabilities[row * size + column] = previous.get(first, second);
+                }
+            }
+        }
+        matrix.simulatedPairs = pairs.size();
+
+        List<Monster> monsters = data.getMonsters();
+        int workerCount = Math.max(1, Math.min(threads, pairs.size()));
+        List<Future<?>> workers = new ArrayList<>(workerCount - 1);
+        for (int worker = 1; worker < workerCount; worker++) {
+            int first = worker;
+            workers.add(WORKERS.submit(() -> matrix.simulate(monsters, pairs, first, workerCount, combats)));
+        }
+        matrix.simulate(monsters, pairs, 0, workerCount, combats);
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Matrix worker failed", e.getCause());
+            }
+        }
+        for (int[] pair : pairs) {
+            matrix.simulatedBattles += matrix.samples[pair[0] * size + pair[1]];
+        }
+        return matrix;
+    }
+
+    /**
+     * Finds the monsters whose pairs have to be simulated again.
+     * @param data The configuration
+     * @param previous The previous matrix, or null
+     * @return The names of the monsters
+     */
+    private Set<String> findChanged(GameData data, WinMatrix previous) {
+        if (previous == null || !previous.settings.equals(settings) || previous.battles != battles
+                || previous.precision != precision || !previous.elementTable.equals(elementTable)) {
+            return new HashSet<>(names);
+        }
+        Set<String> changed = new HashSet<>();
+        for (String name : names) {
+            if (!monsterDefinitions.get(name).equals(previous.monsterDefinitions.get(name))) {
+                changed.add(name);
+            }
+        }
+        for (Map.Entry<String, String> action : actionDefinitions.entrySet()) {
+            if (!action.getValue().equals(previous.actionDefinitions.get(action.getKey()))) {
+                changed.addAll(data.getActionDependencies().getMonsters(action.getKey()));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Simulates every stride-th pair, starting at the given one.
+     * @param monsters The monsters of the configuration
+     * @param pairs The pairs as row and column
+     * @param first The first pair
+     * @param stride The distance between the pairs
+     * @param combats Creates the combats
+     */
+    private void simulate(List<Monster> monsters, List<int[]> pairs, int first, int stride,
+                          BiFunction<List<Monster>, RandomUtil, CombatSystem> combats) {
+        for (int i = first; i < pairs.size(); i += stride) {
+            int row = pairs.get(i)[0];
+            int column = pairs.get(i)[1];
+            Monster own = monsters.get(row);
+            Monster opponent = monsters.get(column);
+            StringBuilder description = new StringBuilder();
+            Fingerprint.describe(own, description);
+            Fingerprint.describe(opponent, description);
+            RandomUtil randomUtil = new RandomUtil(Fingerprint.hash(description.append(battles)), false);
+            SequentialTest test = new SequentialTest(precision, battles);
+            while (!test.isFinished()) {
+                Monster ownCopy = copy(own);
+                CombatResult result = combats.apply(List.of(ownCopy, copy(opponent)), randomUtil).startCombat();
+                if (result.isDraw()) {
+                    test.addDraw();
+                } else if (result.getWinner() == ownCopy) {
+                    test.addWin();
+                } else {
+                    test.addLoss();
+                }
+            }
+            probabilities[row * names.size() + column] = test.getWinRate();
+            samples[row * names.size() + column] = test.getBattles();
+        }
+    }
+
+    /**
+     * Gets the probability of a monster winning against another one.
+     * @param first The name of the monster
+     * @param second The name of the opponent
+     * @return The win probability (0.0-1.0), or NOT_SIMULATED for a monster against itself
+     */
+    public double get(String first, String second) {
+        return probabilities[indices.get(first) * names.size() + indices.get(second)];
+    }
+
+    /**
+     * Gets the average probability of a monster winning against all other monsters.
+     * @param name The name of the monster
+     * @return The average win probability (0.0-1.0)
+     */
+    public double getAverage(String name) {
+        if (names.size() < 2) {
+            return 0.0;
+        }
+        int row = indices.get(name);
+        double sum = 0.0;
+        for (int column = 0; column < names.size(); column++) {
+            if (column != row) {
+                sum += probabilities[row * names.size() + column];
+            }
+        }
+        return sum / (names.size() - 1);
+    }
+
+    /**
+     * Gets the names of the monsters in the order of the configuration.
+     * @return The names
+     */
+    public List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Gets the most combats of every pair.
+     * @return The number of combats
+     */
+    public int getBattles() {
+        return battles;
+    }
+
+    /**
+     * Gets the precision at which the combats of a pair stop.
+     * @return The half width of the interval, or SequentialTest.FIXED
+     */
+    public double getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Gets the number of ordered pairs that were simulated when the matrix was calculated.
+     * @return The number of simulated pairs
+     */
+    public int getSimulatedPairs() {
+        return simulatedPairs;
+    }
+
+    /**
+     * Gets the number of combats that were fought when the matrix was calculated.
+     * @return The number of combats
+     */
+    public long getSimulatedBattles() {
+        return simulatedBattles;
+    }
+
+    /**
+     * Gets the number of ordered pairs of different monsters.
+     * @return The number of pairs
+     */
+    public int getPairCount() {
+        return names.size() * (names.size() - 1);
+    }
+
+    /**
+     * Creates a fresh copy of a monster for a combat.
+     * @param monster The monster
+     * @return The copy
+     */
+    private static Monster copy(Monster monster) {
+        return new Monster(monster.getName(), monster.getElement(), monster.getBaseStats(), monster.getActions());
+    }
+
+    /**
+     * Describes the definition of a monster without the contents of its actions, which are compared on their own.
+     * @param monster The monster
+     * @return The description
+     */
+    private static String describe(Monster monster) {
+        StringBuilder description = new StringBuilder().append(monster.getElement().name()).append(';');
+        for (StatType statType : StatType.values()) {
+            description.append(monster.getBaseStats().getOrDefault(statType, 0)).append(',');
+        }
+        for (Action action : monster.getActions()) {
+            description.append(action.getName()).append(';');
+        }
+        return description.toString();
+    }
+}
@@ -9,6 +9,7 @@ import edu.kit.kastel.monstergame.model.enums.EffectTarget;
 import edu.kit.kastel.monstergame.model.enums.EffectType;
 import edu.kit.kastel.monstergame.model.enums.StatType;
 import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+import edu.kit.kastel.monstergame.model.enums.TargetPolicy;
 import edu.kit.kastel.monstergame.model.util.RandomUtil;
 import java.util.LinkedList;
 import java.util.List;
@@ -23,6 +24,9 @@ public class ActionExecutor {
     private boolean inDebugMode;
     private StatusConditionHandler statusHandler;
     private EffectProcessor effectProcessor;
+    private AliveSet aliveSet;
+    private TargetPolicy targetPolicy;
+    private CombatLog combatLog;
 
     private boolean currentActionHasDamage;
     private boolean firstDamageCalculation;
@@ -40,6 +44,8 @@ public class ActionExecutor {
         this.inDebugMode = debugMode;
         this.statusHandler = statusHandler;
         this.effectProcessor = new EffectProcessor(randomUtil, debugMode);
+        this.targetPolicy = TargetPolicy.FIRST_ALIVE;
+        this.combatLog = new CombatLog();
     }
 
     /**
@@ -52,6 +58,55 @@ public class ActionExecutor {
         this.effectProcessor.setRandomUtil(randomUtil);
     }
 
+    /**
+     * Sets the log that combat events are printed to.
+     * @param combatLog The combat log
+     */
+    public void setCombatLog(CombatLog combatLog) {
+        this.combatLog = combatLog;
+        this.effectProcessor.setCombatLog(combatLog);
+    }
+
+    /**
+     * Sets the alive set used to resolve opponents without scanning the monster list.
+     * @param aliveSet The alive set of the current combat
+     */
+    public void setAliveSet(AliveSet aliveSet) {
+        this.aliveSet = aliveSet;
+    }
+
+    /**
+     * Sets the policy for choosing an opponent when no valid target was selected.
+     * @param targetPolicy The target policy
+     */
+    public void setTargetPolicy(TargetPolicy targetPolicy) {
+        this.targetPolicy = targetPolicy;
+    }
+
+    /**
+     * Gets the policy for choosing an opponent when no valid target was selected.
+     * @return The target policy
+     */
+    public TargetPolicy getTargetPolicy() {
+        return targetPolicy;
+    }
+
+    /**
+     * Sets the listener that is notified about state changes.
+     * @param combatListener The combat listener
+     */
+    public void setCombatListener(CombatListener combatListener) {
+        this.effectProcessor.setCombatListener(combatListener);
+    }
+
+    /**
+     * Sets the cache that critical hit chances are looked up in.
+     * @param criticalHitCache The critical hit cache
+     */
+    public void setCriticalHitCache(CriticalHitCache criticalHitCache) {
+        this.effectProcessor.setCriticalHitCache(criticalHitCache);
+    }
+
     /**
      * Executes an action for a monster.
      *
@@ -143,6 +198,15 @@ public class ActionExecutor {
         while (!effectQueue.isEmpty()) {
             Effect effect = effectQueue.poll();
 
+            if (effect.getTarget() == EffectTarget.ALL) {
+                boolean hitsAny = executeAreaEffect(attacker, effect, monsters);
+                if (!hitsAny && firstEffect) {
+                    return false;
+                }
+                firstEffect = false;
+                continue;
+            }
+
             // Choose target monster based on effect target
             Monster target = determineTarget(attacker, effect, monsters);
             if (target == null) {
@@ -159,13 +223,7 @@ public class ActionExecutor {
                 }
             }
 
-            // Apply the effect
-            boolean isFirstDamage = effect.getEffectType() == EffectType.DAMAGE && firstDamageCalculation;
-            if (isFirstDamage) {
-                firstDamageCalculation = false;
-            }
-
-            effectProcessor.applyEffect(attacker, target, effect, isFirstDamage);
+            applyEffect(attacker, target, effect);
 
             firstEffect = false;
         }
@@ -173,6 +231,53 @@ public class ActionExecutor {
         return true;
     }
 
+    /**
+     * Execute an effect against every opponent that is still in the fight.
+     * The hit is calculated separately for each opponent.
+     *
+     * @param attacker The monster performing the action
+     * @param effect The area effect to execute
+     * @param monsters List of all monsters in combat
+     * @return True if the effect hit at least one opponent, false otherwise
+     */
+    private boolean executeAreaEffect(Monster attacker, Effect effect, List<Monster> monsters) {
+        boolean hitsAny = false;
+        if (aliveSet == null) {
+            for (Monster monster : monsters) {
+                if (monster != attacker && calculateHit(attacker, monster, effect)) {
+                    applyEffect(attacker, monster, effect);
+                    hitsAny = true;
+                }
+            }
+            return hitsAny;
+        }
+        int attackerIndex = attacker.getContestantNumber() - 1;
+        for (int i = aliveSet.nextAlive(0); i >= 0; i = aliveSet.nextAlive(i + 1)) {
+            Monster target = monsters.get(i);
+            if (i != attackerIndex && calculateHit(attacker, target, effect)) {
+                applyEffect(attacker, target, effect);
+                hitsAny = true;
+            }
+        }
+        return hitsAny;
+    }
+
+    /**
+     * Apply an effect that hit its target.
+     *
+     * @param attacker The monster performing the action
+     * @param target The target monster
+     * @param effect The effect to apply
+     */
+    private void applyEffect(Monster attacker, Monster target, Effect effect) {
+        boolean isFirstDamage = effect.getEffectType() == EffectType.DAMAGE && firstDamageCalculation;
+        if (isFirstDamage) {
+            firstDamageCalculation = false;
+        }
+
+        effectProcessor.applyEffect(attacker, target, effect, isFirstDamage);
+    }
+
     /**
      * Determine the target for an effect.
      *
@@ -182,18 +287,77 @@ public class ActionExecutor {
      * @return The target monster or null if no target can be found
      */
     private Monster determineTarget(Monster attacker, Effect effect, List<Monster> monsters) {
-        // fixed
         if (effect.getTarget() == EffectTarget.SELF) {
             return attacker; // Effect targets the user
-        } else {
-            // Effect targets an opponent
+        }
+        // Honor the target chosen with the action command while it is still in the fight
+        Monster selectedTarget = attacker.getSelectedTarget();
+        if (selectedTarget != null && selectedTarget != attacker && !selectedTarget.isDefeated()) {
+            return selectedTarget;
+        }
+        if (aliveSet == null) {
             for (Monster monster : monsters) {
                 if (monster != attacker && !monster.isDefeated()) {
                     return monster;
                 }
             }
+            return null;
+        }
+        int opponentIndex = aliveSet.findOpponent(attacker.getContestantNumber() - 1, targetPolicy);
+        return opponentIndex >= 0 ? monsters.get(opponentIndex) : null;
+    }
+
+    /**
+     * Calculates the hit chance of an effect as shown in debug mode.
+     *
+     * @param attacker The monster performing the action
+     * @param target The target monster
+     * @param effect The effect to calculate the hit chance for
+     * @return The hit chance in percent
+     */
+    public static double calculateHitChance(Monster attacker, Monster target, Effect effect) {
+        double baseHitRate = effect.getHitRate() * 100; // Convert to percentage
+        if (effect.getTarget() == EffectTarget.SELF) {
+            // Self-targeting effects
+            return baseHitRate * attacker.getEffectiveStat(StatType.PRC);
+        }
+        double attackerPrc = attacker.getEffectiveStat(StatType.PRC);
+        double targetAgl = target.getEffectiveStat(StatType.AGL);
+        return baseHitRate * (attackerPrc / targetAgl);
+    }
+
+    /**
+     * Gets the probability that an effect hits its target, exactly as it is rolled in calculateHit.
+     * The hit chance is passed to the roll multiplied by 100.
+     *
+     * @param attacker The monster performing the action
+     * @param target The target monster
+     * @param effect The effect to calculate the probability for
+     * @return The hit probability (0.0-1.0)
+     */
+    public static double getHitProbability(Monster attacker, Monster target, Effect effect) {
+        if (attacker.isDefeated() || target.isDefeated()) {
+            return 0.0;
         }
-        return null;
+        return getHitProbability(effect, attacker.getEffectiveStat(StatType.PRC),
+                target.getEffectiveStat(StatType.AGL));
+    }
+
+    /**
+     * Gets the probability that an effect hits its target from the effective stats involved.
+     *
+     * @param effect The effect to calculate the probability for
+     * @param attackerPrc The effective PRC of the attacker
+     * @param targetAgl The effective AGL of the target, not used for effects on the user
+     * @return The hit probability (0.0-1.0)
+     */
+    public static double getHitProbability(Effect effect, double attackerPrc, double targetAgl) {
+        double baseHitRate = effect.getHitRate() * 100; // Convert to percentage
+        double hitChance = effect.getTarget() == EffectTarget.SELF
+                ? baseHitRate * attackerPrc
+                : baseHitRate * (attackerPrc / targetAgl);
+        double rolledChance = hitChance * 100;
+        return Math.max(0.0, Math.min(1.0, rolledChance / 100));
     }
 
     /**
@@ -210,16 +374,7 @@ public class ActionExecutor {
         }
 
         double baseHitRate = effect.getHitRate() * 100; // Convert to percentage
-        double hitChance;
-
-        if (effect.getTarget() == EffectTarget.SELF) {
-            // Self-targeting effects
-            hitChance = baseHitRate * attacker.getEffectiveStat(StatType.PRC);
-        } else {
-            double attackerPrc = attacker.getEffectiveStat(StatType.PRC);
-            double targetAgl = target.getEffectiveStat(StatType.AGL);
-            hitChance = baseHitRate * (attackerPrc / targetAgl);
-        }
+        double hitChance = calculateHitChance(attacker, target, effect);
 
         // Output hit calculation when in debug mode
         if (inDebugMode) {
@@ -0,0 +1,132 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.enums.TargetPolicy;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Keeps track of which contestants of a competition are still able to fight.
+ * Contestants are identified by their position in the combat's monster list,
+ * which is their contestant number minus one.
+ * The set is updated whenever a monster faints, so alive counts are available
+ * in constant time and the next alive contestant is found without walking the roster.
+ * @author uuifx
+ */
+public class AliveSet {
+    private final BitSet alive;
+    private final int size;
+    private int aliveCount;
+
+    /**
+     * Creates a new alive set for the given monsters.
+     * @param monsters The monsters in contestant order
+     */
+    public AliveSet(List<Monster> monsters) {
+        this.size = monsters.size();
+        this.alive = new BitSet(size);
+        refresh(monsters);
+    }
+
+    /**
+     * Rebuilds the set from the current HP of the given monsters.
+     * @param monsters The monsters in contestant order
+     */
+    public void refresh(List<Monster> monsters) {
+        alive.clear();
+        for (int i = 0; i < size; i++) {
+            if (!monsters.get(i).isDefeated()) {
+                alive.set(i);
+            }
+        }
+        aliveCount = alive.cardinality();
+    }
+
+    /**
+     * Checks if the contestant at the given index is still alive.
+     * @param index The contestant index
+     * @return true if the contestant is alive, false otherwise
+     */
+    public boolean isAlive(int index) {
+        return index >= 0 && alive.get(index);
+    }
+
+    /**
+     * Marks the contestant at the given index as defeated.
+     * @param index The contestant index
+     */
+    public void markDefeated(int index) {
+        if (isAlive(index)) {
+            alive.clear(index);
+            aliveCount--;
+        }
+    }
+
+    /**
+     * Gets the number of contestants that are still alive.
+     * @return The alive count
+     */
+    public int getAliveCount() {
+        return aliveCount;
+    }
+
+    /**
+     * Gets the number of contestants tracked by this set.
+     * @return The total number of contestants
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the first alive contestant at or after the given index.
+     * @param fromIndex The index to start searching from
+     * @return The index of the next alive contestant, or -1 if there is none
+     */
+    public int nextAlive(int fromIndex) {
+        if (fromIndex >= size) {
+            return -1;
+        }
+        int next = alive.nextSetBit(Math.max(0, fromIndex));
+        return next < size ? next : -1;
+    }
+
+    /**
+     * Finds the last alive contestant at or before the given index.
+     * @param fromIndex The index to start searching from
+     * @return The index of the previous alive contestant, or -1 if there is none
+     */
+    public int previousAlive(int fromIndex) {
+        return fromIndex < 0 ? -1 : alive.previousSetBit(Math.min(fromIndex, size - 1));
+    }
+
+    /**
+     * Finds the first alive contestant at or after the given index, continuing from the start if needed.
+     * @param fromIndex The index to start searching from
+     * @return The index of the next alive contestant, or -1 if there is none
+     */
+    public int nextAliveWrapping(int fromIndex) {
+        int next = nextAlive(fromIndex);
+        return next >= 0 ? next : nextAlive(0);
+    }
+
+    /**
+     * Finds an alive opponent of the contestant at the given index.
+     * @param attackerIndex The index of the attacking contestant
+     * @param policy The policy deciding which opponent is chosen
+     * @return The index of the opponent, or -1 if no opponent is left
+     */
+    public int findOpponent(int attackerIndex, TargetPolicy policy) {
+        int opponent;
+        if (policy == TargetPolicy.NEXT_ALIVE) {
+            opponent = nextAliveWrapping(attackerIndex + 1);
+        } else {
+            opponent = nextAlive(0);
+            if (opponent == attackerIndex) {
+                opponent = nextAlive(attackerIndex + 1);
+            }
+        }
+        return opponent == attackerIndex ? -1 : opponent;
+    }
+}
@@ -0,0 +1,431 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.MonsterState;
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+import edu.kit.kastel.monstergame.model.util.RandomOutcomeListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Records a combat as a stream of compact binary events, written through a buffered file channel.
+ * Every event starts with a tag byte: the event type in the low four bits and a small value in the high four bits,
+ * e.g. the outcome of a chance, the stat of a stage change or whether the event is about the same monster
+ * as the event before. Numbers follow as variable length integers, HP and stages as differences to the last
+ * recorded value, so most events take one to three bytes and two chances share one byte.
+ * The file starts with the names of the monsters and a keyframe with their packed states, and a new keyframe
+ * is written whenever the combat is set back. BattleLogReader rebuilds the start of any round from the events.
+ * Writing errors do not interrupt the combat, they stop the recording and are reported when it is closed.
+ * @author uuifx
+ */
+public final class BattleLog implements RandomOutcomeListener, AutoCloseable {
+    /**
+     * The first bytes of a battle log file, ending with the version of the format, which changes with the layout
+     * of a packed monster state in a keyframe.
+     */
+    static final int MAGIC = 0x4D424C33;
+    /**
+     * A new round starts, followed by the difference to the round before.
+     */
+    static final int ROUND = 0;
+    /**
+     * A monster takes its turn, the action index plus one (0 to pass) is the value of the tag if it is small,
+     * followed by the monster and, if the highest bit of the value is set, the target.
+     */
+    static final int ACTION = 1;
+    /**
+     * One or two chances were decided, the outcomes are the lowest bits of the value of the tag,
+     * and the highest bit is set if there are two.
+     */
+    static final int CHANCE = 2;
+    /**
+     * A random integer was decided, which is the value of the tag if it is small.
+     */
+    static final int RANDOM_INT = 3;
+    /**
+     * A random double was decided, followed by its position in its range in two bytes.
+     */
+    static final int RANDOM_DOUBLE = 4;
+    /**
+     * The HP of a monster changed, followed by the monster and the difference.
+     */
+    static final int HP = 5;
+    /**
+     * A stage of a monster changed, the stat ordinal is the value of the tag,
+     * followed by the monster and the difference.
+     */
+    static final int STAGE = 6;
+    /**
+     * The status condition of a monster changed, the condition ordinal plus one is the value of the tag
+     * (0 for none), followed by the monster.
+     */
+    static final int STATUS = 7;
+    /**
+     * A protection of a monster was set, the target ordinal is the value of the tag,
+     * followed by the monster and the number of rounds.
+     */
+    static final int PROTECTION = 8;
+    /**
+     * A monster fainted, followed by the monster.
+     */
+    static final int FAINT = 9;
+    /**
+     * The state of all monsters, followed by the round and the packed state and remaining protection rounds
+     * of every monster.
+     */
+    static final int KEYFRAME = 10;
+    /**
+     * The number of bits of the tag holding the event type.
+     */
+    static final int TYPE_BITS = 4;
+    /**
+     * The mask of the event type in the tag.
+     */
+    static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+    /**
+     * The value of a tag meaning that the number does not fit and follows the tag.
+     */
+    static final int ESCAPE = TYPE_MASK;
+    /**
+     * The bit of the value of a tag meaning that the event is about the same monster as the event before,
+     * so the monster does not follow.
+     */
+    static final int SAME_MONSTER = 1 << (TYPE_BITS - 1);
+    /**
+     * The bit of the value of a chance tag meaning that it holds two outcomes.
+     */
+    static final int SECOND_CHANCE = 1 << (TYPE_BITS - 1);
+    /**
+     * The bit of the value of an action tag meaning that the target follows.
+     */
+    static final int WITH_TARGET = 1 << (TYPE_BITS - 1);
+    /**
+     * The value of an action tag meaning that the action index does not fit and follows the tag.
+     */
+    static final int ACTION_ESCAPE = WITH_TARGET - 1;
+    /**
+     * The number of steps of the position of a random double in its range.
+     */
+    static final int DOUBLE_STEPS = (1 << Short.SIZE) - 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_EVENT_SIZE = 32;
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MORE = 0x80;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final List<Monster> monsters;
+    private final int[] hp;
+    private final int[][] stages;
+    private int round;
+    private int lastMonster;
+    private int pendingChance;
+    private long eventCount;
+    private IOException error;
+
+    /**
+     * Creates a battle log for the monsters of a combat and writes the header.
+     * An existing file is replaced.
+     * @param path The path of the file
+     * @param monsters The monsters in contestant order
+     * @throws IOException If the file cannot be created
+     */
+    public BattleLog(Path path, List<Monster> monsters) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.monsters = List.copyOf(monsters);
+        this.hp = new int[monsters.size()];
+        this.stages = new int[monsters.size()][StatType.values().length];
+        this.lastMonster = -1;
+        this.pendingChance = -1;
+        buffer.putInt(MAGIC);
+        writeVarint(monsters.size());
+        for (Monster monster : monsters) {
+            byte[] name = monster.getName().getBytes(StandardCharsets.UTF_8);
+            ensureSpace(name.length + MAX_EVENT_SIZE);
+            writeVarint(name.length);
+            buffer.put(name);
+        }
+    }
+
+    /**
+     * Records the state of all monsters, e.g. when recording starts or the combat was set back.
+     * @param combatSystem The combat
+     */
+    void keyframe(CombatSystem combatSystem) {
+        round = combatSystem.getRoundNumber();
+        begin(KEYFRAME, 0);
+        writeVarint(round);
+        long[] state = new long[MonsterState.WORDS];
+        for (int i = 0; i < monsters.size(); i++) {
+            Monster monster = monsters.get(i);
+            ensureSpace(MAX_EVENT_SIZE);
+            monster.snapshot(state, 0);
+            writeVarlong(state[MonsterState.STATE]);
+            writeVarlong(state[MonsterState.PROTECTIONS]);
+            hp[i] = monster.getCurrentHp();
+            for (StatType stat : StatType.values()) {
+                stages[i][stat.ordinal()] = monster.getStatStage(stat);
+            }
+        }
+    }
+
+    /**
+     * Records the start of a round.
+     * @param roundNumber The number of the round
+     */
+    void round(int roundNumber) {
+        begin(ROUND, 0);
+        writeVarint(roundNumber - round);
+        round = roundNumber;
+    }
+
+    /**
+     * Records a monster taking its turn.
+     * @param monster The monster
+     * @param actionIndex The index of the selected action in the actions of the monster, -1 if it passes
+     * @param target The selected target, or null
+     */
+    void action(Monster monster, int actionIndex, Monster target) {
+        int code = actionIndex + 1;
+        begin(ACTION, Math.min(code, ACTION_ESCAPE) | (target == null ? 0 : WITH_TARGET));
+        if (code >= ACTION_ESCAPE) {
+            writeVarint(code);
+        }
+        writeVarint(indexOf(monster));
+        if (target != null) {
+            writeVarint(indexOf(target));
+        }
+        // Most of the following events are about the target
+        lastMonster = target == null ? indexOf(monster) : indexOf(target);
+    }
+
+    /**
+     * Records a change of the HP of a monster.
+     * @param monster The monster
+     */
+    void hpChanged(Monster monster) {
+        int index = indexOf(monster);
+        beginAbout(HP, 0, index);
+        writeVarint(zigzag(monster.getCurrentHp() - hp[index]));
+        hp[index] = monster.getCurrentHp();
+    }
+
+    /**
+     * Records a change of a stage of a monster.
+     * @param monster The monster
+     * @param stat The stat
+     */
+    void stageChanged(Monster monster, StatType stat) {
+        int index = indexOf(monster);
+        int stage = monster.getStatStage(stat);
+        beginAbout(STAGE, stat.ordinal(), index);
+        writeVarint(zigzag(stage - stages[index][stat.ordinal()]));
+        stages[index][stat.ordinal()] = stage;
+    }
+
+    /**
+     * Records a change of the status condition of a monster.
+     * @param monster The monster
+     */
+    void statusChanged(Monster monster) {
+        StatusCondition condition = monster.getStatusCondition();
+        beginAbout(STATUS, condition == null ? 0 : condition.ordinal() + 1, indexOf(monster));
+    }
+
+    /**
+     * Records a protection being set.
+     * @param monster The monster
+     * @param target The protection target
+     * @param rounds The number of rounds, 0 if the protection was removed
+     */
+    void protectionChanged(Monster monster, ProtectionTarget target, int rounds) {
+        beginAbout(PROTECTION, target.ordinal(), indexOf(monster));
+        writeVarint(rounds);
+    }
+
+    /**
+     * Records a monster fainting.
+     * @param monster The monster
+     */
+    void fainted(Monster monster) {
+        beginAbout(FAINT, 0, indexOf(monster));
+    }
+
+    @Override
+    public void onChance(boolean outcome) {
+        if (pendingChance >= 0) {
+            // Add the outcome to the chance event before
+            int value = SECOND_CHANCE | (outcome ? 2 : 0);
+            buffer.put(pendingChance, (byte) (buffer.get(pendingChance) | value << TYPE_BITS));
+            pendingChance = -1;
+            eventCount++;
+            return;
+        }
+        begin(CHANCE, outcome ? 1 : 0);
+        pendingChance = buffer.position() - 1;
+    }
+
+    @Override
+    public void onInt(int outcome) {
+        boolean small = outcome >= 0 && outcome < ESCAPE;
+        begin(RANDOM_INT, small ? outcome : ESCAPE);
+        if (!small) {
+            writeVarint(zigzag(outcome));
+        }
+    }
+
+    @Override
+    public void onDouble(double min, double max, double outcome) {
+        begin(RANDOM_DOUBLE, 0);
+        double position = max > min ? (outcome - min) / (max - min) : 0.0;
+        buffer.putShort((short) Math.round(Math.max(0.0, Math.min(1.0, position)) * DOUBLE_STEPS));
+    }
+
+    /**
+     * Gets the number of events recorded so far.
+     * @return The number of events
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Gets the path of the file.
+     * @return The path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the monsters of the recorded combat.
+     * @return The monsters in contestant order
+     */
+    List<Monster> getMonsters() {
+        return monsters;
+    }
+
+    /**
+     * Writes the events recorded so far to the file, so it can be read while the recording goes on.
+     * After a writing error the events are dropped.
+     */
+    public void flush() {
+        buffer.flip();
+        try {
+            while (error == null && buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+        buffer.clear();
+        pendingChance = -1;
+    }
+
+    /**
+     * Writes the remaining events and closes the file.
+     * @throws IOException If writing failed at any time during the recording
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Starts an event, making sure the buffer has room for it.
+     * @param type The event type
+     * @param value The value stored in the tag (0-15)
+     */
+    private void begin(int type, int value) {
+        ensureSpace(MAX_EVENT_SIZE);
+        buffer.put((byte) (value << TYPE_BITS | type));
+        pendingChance = -1;
+        eventCount++;
+    }
+
+    /**
+     * Starts an event about a monster, which is only written if the event before was about another monster.
+     * @param type The event type
+     * @param value The value stored in the tag (0-7)
+     * @param monster The contestant index of the monster
+     */
+    private void beginAbout(int type, int value, int monster) {
+        if (monster == lastMonster) {
+            begin(type, value | SAME_MONSTER);
+        } else {
+            begin(type, value);
+            writeVarint(monster);
+            lastMonster = monster;
+        }
+    }
+
+    /**
+     * Gets the contestant index of a monster.
+     * @param monster The monster
+     * @return The index
+     */
+    private int indexOf(Monster monster) {
+        return monster.getContestantNumber() - 1;
+    }
+
+    /**
+     * Writes the buffer to the file if it has less room than needed.
+     * @param bytes The number of bytes needed
+     */
+    private void ensureSpace(int bytes) {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes a non-negative integer in groups of seven bits, the lowest first.
+     * @param value The value
+     */
+    private void writeVarint(int value) {
+        writeVarlong(value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Writes a long as unsigned value in groups of seven bits, the lowest first.
+     * @param value The value
+     */
+    private void writeVarlong(long value) {
+        long rest = value;
+        while ((rest & ~0x7FL) != 0) {
+            buffer.put((byte) (rest & 0x7F | VARINT_MORE));
+            rest >>>= VARINT_BITS;
+        }
+        buffer.put((byte) rest);
+    }
+
+    /**
+     * Maps a signed integer to an unsigned one, so small negative values also have short encodings.
+     * @param value The value
+     * @return The zigzag encoded value
+     */
+    static int zigzag(int value) {
+        return value << 1 ^ value >> (Integer.SIZE - 1);
+    }
+}
@@ -0,0 +1,471 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.MonsterState;
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds the start of a round of a combat from a battle log written by BattleLog.
+ * The events are applied to the packed states of the monsters up to the start of the round,
+ * and the combat is then set to these states. Protections that ended in between are removed
+ * the same way the end of a round removes them. If the combat was set back while it was recorded,
+ * the round is rebuilt as it was played last. The monsters that fainted are collected the same way, for BattleLogStore.
+ * @author uuifx
+ */
+public final class BattleLogReader {
+    private static final StatType[] STAT_TYPES = StatType.values();
+    private static final StatusCondition[] CONDITIONS = StatusCondition.values();
+    private static final ProtectionTarget[] TARGETS = ProtectionTarget.values();
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MORE = 0x80;
+    private static final int MAX_VARINT_SHIFT = 63;
+    /**
+     * The round to rebuild when the log is only scanned.
+     */
+    private static final int NO_ROUND = -1;
+
+    private final ByteBuffer data;
+    private final long[] states;
+    private final int[][] lastRounds;
+    private final List<Faint> faints;
+    private long[] foundStates;
+    private int[][] foundLastRounds;
+    private int round;
+    private int firstRound;
+    private int lastMonster;
+    private int actor;
+    private int actionCode;
+    private long eventCount;
+    /**
+     * The descriptions of the events read so far, only kept by describe.
+     */
+    private List<String> trace;
+
+    /**
+     * Creates a reader of a battle log.
+     * @param data The content of the file, positioned after the header
+     * @param monsters The number of monsters
+     */
+    private BattleLogReader(ByteBuffer data, int monsters) {
+        this.data = data;
+        this.states = new long[monsters];
+        this.lastRounds = new int[monsters][TARGETS.length];
+        this.faints = new ArrayList<>();
+        this.firstRound = NO_ROUND;
+        this.lastMonster = -1;
+        this.actor = -1;
+    }
+
+    /**
+     * Sets a combat to the start of a round recorded in a battle log.
+     * The log has to be recorded from a combat with monsters of the same names in the same order.
+     * @param path The path of the battle log
+     * @param combatSystem The combat to set
+     * @param roundNumber The number of the round
+     * @return The number of events read
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If the file is no battle log of these monsters or does not reach the round
+     */
+    public static long replay(Path path, CombatSystem combatSystem, int roundNumber) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        List<String> names = new ArrayList<>();
+        for (Monster monster : combatSystem.getMonsters()) {
+            names.add(monster.getName());
+        }
+        BattleLogReader reader = read(data, path.toString(), names, roundNumber, null);
+        if (reader.foundStates == null) {
+            throw new IllegalArgumentException("the battle log does not reach round " + roundNumber);
+        }
+        long[] states = new long[names.size() * MonsterState.WORDS];
+        for (int i = 0; i < names.size(); i++) {
+            long protections = 0L;
+            for (ProtectionTarget target : TARGETS) {
+                int remaining = Math.max(0, reader.foundLastRounds[i][target.ordinal()] - roundNumber + 1);
+                protections = MonsterState.withRemaining(protections, target, remaining);
+            }
+            states[i * MonsterState.WORDS + MonsterState.STATE] = reader.foundStates[i];
+            states[i * MonsterState.WORDS + MonsterState.PROTECTIONS] = protections;
+        }
+        combatSystem.restoreRound(roundNumber, states);
+        return reader.eventCount;
+    }
+
+    /**
+     * Reads a whole battle log without rebuilding a round, e.g. to find the monsters that fainted.
+     * @param data The content of the file
+     * @param source The name of the file for error messages
+     * @param names The names of the monsters the log has to be recorded with, in contestant order
+     * @return The reader after reading all events
+     * @throws IllegalArgumentException If the data is no battle log of these monsters
+     */
+    static BattleLogReader scan(ByteBuffer data, String source, List<String> names) {
+        return read(data, source, names, NO_ROUND, null);
+    }
+
+    /**
+     * Reads a whole battle log and describes every event with its decoded values, e.g. "HP 1 -12" for monster 1
+     * losing 12 HP, so a recording can be compared with the events that were written.
+     * @param data The content of the file
+     * @param source The name of the file for error messages
+     * @param names The names of the monsters the log has to be recorded with, in contestant order
+     * @return The descriptions of the events in the order they were recorded
+     * @throws IllegalArgumentException If the data is no battle log of these monsters
+     */
+    static List<String> describe(ByteBuffer data, String source, List<String> names) {
+        List<String> trace = new ArrayList<>();
+        read(data, source, names, NO_ROUND, trace);
+        return trace;
+    }
+
+    /**
+     * Checks the header of a battle log and reads its events.
+     * @param data The content of the file
+     * @param source The name of the file for error messages
+     * @param names The names of the monsters the log has to be recorded with, in contestant order
+     * @param roundNumber The round whose start is kept
+     * @param trace The list the descriptions of the events are added to, or null
+     * @return The reader after reading all events
+     * @throws IllegalArgumentException If the data is no battle log of these monsters
+     */
+    private static BattleLogReader read(ByteBuffer data, String source, List<String> names, int roundNumber,
+                                        List<String> trace) {
+        try {
+            if (data.getInt() != BattleLog.MAGIC) {
+                throw new IllegalArgumentException(source + " is no battle log");
+            }
+            int count = (int) readVarlong(data);
+            if (count != names.size()) {
+                throw new IllegalArgumentException("the battle log was recorded with " + count + " monsters");
+            }
+            for (String expected : names) {
+                byte[] name = new byte[(int) readVarlong(data)];
+                data.get(name);
+                if (!expected.equals(new String(name, StandardCharsets.UTF_8))) {
+                    throw new IllegalArgumentException("the battle log was recorded with other monsters");
+                }
+            }
+            BattleLogReader reader = new BattleLogReader(data, count);
+            reader.trace = trace;
+            reader.read(roundNumber);
+            return reader;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IllegalArgumentException(source + " is damaged");
+        }
+    }
+
+    /**
+     * Applies all events, keeping the states whenever the given round starts.
+     * @param target The number of the round
+     */
+    private void read(int target) {
+        while (data.hasRemaining()) {
+            int tag = data.get() & 0xFF;
+            int value = tag >>> BattleLog.TYPE_BITS;
+            eventCount++;
+            switch (tag & BattleLog.TYPE_MASK) {
+                case BattleLog.KEYFRAME:
+                    round = (int) readVarlong(data);
+                    if (firstRound == NO_ROUND) {
+                        firstRound = round;
+                    }
+                    // The rounds from here on are played again
+                    faints.removeIf(faint -> faint.round >= round);
+                    for (int i = 0; i < states.length; i++) {
+                        states[i] = readVarlong(data);
+                        long remaining = readVarlong(data);
+                        for (ProtectionTarget protection : TARGETS) {
+                            int rounds = MonsterState.remainingOf(remaining, protection);
+                            lastRounds[i][protection.ordinal()] = rounds > 0 ? round + rounds - 1 : 0;
+                        }
+                    }
+                    if (trace != null) {
+                        trace.add("KEYFRAME " + round);
+                    }
+                    if (round == target) {
+                        keepFound();
+                    }
+                    break;
+                case BattleLog.ROUND:
+                    round += (int) readVarlong(data);
+                    endProtections();
+                    if (trace != null) {
+                        trace.add("ROUND " + round);
+                    }
+                    if (round == target) {
+                        keepFound();
+                    }
+                    break;
+                case BattleLog.ACTION:
+                    actionCode = value & BattleLog.ACTION_ESCAPE;
+                    if (actionCode == BattleLog.ACTION_ESCAPE) {
+                        actionCode = (int) readVarlong(data);
+                    }
+                    actor = (int) readVarlong(data);
+                    lastMonster = actor;
+                    if ((value & BattleLog.WITH_TARGET) != 0) {
+                        lastMonster = (int) readVarlong(data);
+                    }
+                    if (trace != null) {
+                        trace.add("ACTION " + actor + " " + (actionCode - 1) + " "
+                                + ((value & BattleLog.WITH_TARGET) != 0 ? lastMonster : -1));
+                    }
+                    break;
+                case BattleLog.CHANCE:
+                    if (trace != null) {
+                        trace.add("CHANCE " + ((value & 1) != 0));
+                    }
+                    if ((value & BattleLog.SECOND_CHANCE) != 0) {
+                        eventCount++;
+                        if (trace != null) {
+                            trace.add("CHANCE " + ((value & 2) != 0));
+                        }
+                    }
+                    break;
+                case BattleLog.RANDOM_INT:
+                    int outcome = value;
+                    if (value == BattleLog.ESCAPE) {
+                        outcome = unzigzag((int) readVarlong(data));
+                    }
+                    if (trace != null) {
+                        trace.add("INT " + outcome);
+                    }
+                    break;
+                case BattleLog.RANDOM_DOUBLE:
+                    int position = data.getShort() & BattleLog.DOUBLE_STEPS;
+                    if (trace != null) {
+                        trace.add("DOUBLE " + position);
+                    }
+                    break;
+                case BattleLog.FAINT:
+                    faints.add(new Faint(round, readMonster(value), actor, actionCode));
+                    if (trace != null) {
+                        trace.add("FAINT " + lastMonster);
+                    }
+                    break;
+                case BattleLog.HP:
+                    int hpMonster = readMonster(value);
+                    int hpDifference = unzigzag((int) readVarlong(data));
+                    applyHpChange(hpMonster, hpDifference);
+                    if (trace != null) {
+                        trace.add("HP " + hpMonster + " " + hpDifference);
+                    }
+                    break;
+                case BattleLog.STAGE:
+                    StatType stat = STAT_TYPES[value & ~BattleLog.SAME_MONSTER];
+                    int stageMonster = readMonster(value);
+                    int stageDifference = unzigzag((int) readVarlong(data));
+                    applyStageChange(stageMonster, stat, stageDifference);
+                    if (trace != null) {
+                        trace.add("STAGE " + stageMonster + " " + stat + " " + stageDifference);
+                    }
+                    break;
+                case BattleLog.STATUS:
+                    int monster = readMonster(value);
+                    int condition = value & ~BattleLog.SAME_MONSTER;
+                    states[monster] = MonsterState.withCondition(states[monster],
+                            condition == 0 ? null : CONDITIONS[condition - 1]);
+                    if (trace != null) {
+                        trace.add("STATUS " + monster + " " + (condition == 0 ? "NONE" : CONDITIONS[condition - 1]));
+                    }
+                    break;
+                case BattleLog.PROTECTION:
+                    ProtectionTarget protectionTarget = TARGETS[value & ~BattleLog.SAME_MONSTER];
+                    int protectedMonster = readMonster(value);
+                    int protectionRounds = (int) readVarlong(data);
+                    applyProtection(protectedMonster, protectionTarget, protectionRounds);
+                    if (trace != null) {
+                        trace.add("PROTECTION " + protectedMonster + " " + protectionTarget + " " + protectionRounds);
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("the battle log holds an unknown event");
+            }
+        }
+    }
+
+    /**
+     * Gets the round the log starts with.
+     * @return The number of the round
+     */
+    int getFirstRound() {
+        return firstRound;
+    }
+
+    /**
+     * Gets the round the log ends in.
+     * @return The number of the round
+     */
+    int getLastRound() {
+        return round;
+    }
+
+    /**
+     * Gets the monsters that fainted in the rounds as they were played last, in the order they fainted.
+     * @return The faints
+     */
+    List<Faint> getFaints() {
+        return faints;
+    }
+
+    /**
+     * Reads the monster an event is about.
+     * @param value The value of the tag of the event
+     * @return The contestant index of the monster
+     */
+    private int readMonster(int value) {
+        if ((value & BattleLog.SAME_MONSTER) == 0) {
+            lastMonster = (int) readVarlong(data);
+        }
+        return lastMonster;
+    }
+
+    /**
+     * Keeps a copy of the states at the start of the round to rebuild.
+     */
+    private void keepFound() {
+        foundStates = states.clone();
+        foundLastRounds = new int[lastRounds.length][];
+        for (int i = 0; i < lastRounds.length; i++) {
+            foundLastRounds[i] = lastRounds[i].clone();
+        }
+    }
+
+    /**
+     * Applies a change of the HP of a monster.
+     * @param monster The contestant index
+     * @param difference The difference of the HP
+     */
+    private void applyHpChange(int monster, int difference) {
+        states[monster] = MonsterState.withHp(states[monster], MonsterState.hpOf(states[monster]) + difference);
+    }
+
+    /**
+     * Applies a change of a stage of a monster.
+     * @param monster The contestant index
+     * @param stat The stat
+     * @param difference The difference of the stage
+     */
+    private void applyStageChange(int monster, StatType stat, int difference) {
+        states[monster] = MonsterState.withStage(states[monster], stat,
+                MonsterState.stageOf(states[monster], stat) + difference);
+    }
+
+    /**
+     * Applies a protection being set in the current round.
+     * @param monster The contestant index
+     * @param target The protection target
+     * @param rounds The number of rounds, 0 if the protection was removed
+     */
+    private void applyProtection(int monster, ProtectionTarget target, int rounds) {
+        lastRounds[monster][target.ordinal()] = rounds > 0 ? round + rounds - 1 : 0;
+    }
+
+    /**
+     * Removes the protections that ended before the current round.
+     */
+    private void endProtections() {
+        for (int i = 0; i < states.length; i++) {
+            for (ProtectionTarget target : TARGETS) {
+                if (lastRounds[i][target.ordinal()] < round) {
+                    lastRounds[i][target.ordinal()] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an unsigned value written in groups of seven bits, the lowest first.
+     * @param data The data
+     * @return The value
+     */
+    private static long readVarlong(ByteBuffer data) {
+        long value = 0;
+        int shift = 0;
+        int next;
+        do {
+            if (shift > MAX_VARINT_SHIFT) {
+                throw new IllegalArgumentException("the battle log holds an invalid number");
+            }
+            next = data.get() & 0xFF;
+            value |= (long) (next & ~VARINT_MORE) << shift;
+            shift += VARINT_BITS;
+        } while ((next & VARINT_MORE) != 0);
+        return value;
+    }
+
+    /**
+     * Reverses the zigzag encoding of BattleLog.
+     * @param value The encoded value
+     * @return The signed value
+     */
+    private static int unzigzag(int value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    /**
+     * A monster fainting in a battle log.
+     */
+    static final class Faint {
+        private final int round;
+        private final int monster;
+        private final int actor;
+        private final int actionCode;
+
+        /**
+         * Creates a faint.
+         * @param round The round the monster fainted in
+         * @param monster The contestant index of the monster
+         * @param actor The contestant index of the monster whose turn it was, -1 if none took a turn yet
+         * @param actionCode The index of the action used in that turn plus one, 0 if it passed
+         */
+        private Faint(int round, int monster, int actor, int actionCode) {
+            this.round = round;
+            this.monster = monster;
+            this.actor = actor;
+            this.actionCode = actionCode;
+        }
+
+        /**
+         * Gets the round the monster fainted in.
+         * @return The number of the round
+         */
+        int getRound() {
+            return round;
+        }
+
+        /**
+         * Gets the monster that fainted.
+         * @return The contestant index
+         */
+        int getMonster() {
+            return monster;
+        }
+
+        /**
+         * Gets the monster whose turn it was, which is the monster itself if it fainted from its status condition.
+         * @return The contestant index, -1 if no monster took a turn yet
+         */
+        int getActor() {
+            return actor;
+        }
+
+        /**
+         * Gets the action used in the turn the monster fainted in.
+         * @return The index of the action in the actions of the actor plus one, 0 if the actor passed
+         */
+        int getActionCode() {
+            return actionCode;
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An append-only store of battle logs, split into segment files of limited size.
+ * Every segment has a sidecar index of fixed size records: one per battle with its position in the segment and
+ * its number of rounds, and one per fainted monster with the monster whose turn it was, its action and the round.
+ * Monster and action names are numbered in a dictionary file shared by all segments.
+ * Queries only read the indexes, which are memory-mapped and searched in parallel, one segment per task,
+ * so the battle logs themselves are never scanned. A battle is written to its segment before its index records,
+ * so an index never points to data that is missing.
+ * @author uuifx
+ */
+public final class BattleLogStore {
+    /**
+     * The size a segment may reach before the next battle starts a new one.
+     */
+    public static final long SEGMENT_SIZE = 64L << 20;
+    /**
+     * The size of an index record: the offset of the battle, its length, its number, the fainted monster,
+     * the monster whose turn it was, its action and the round.
+     */
+    private static final int RECORD_SIZE = Long.BYTES + 6 * Integer.BYTES;
+    /**
+     * The id of a missing name, e.g. the fainted monster of the record of a battle.
+     */
+    private static final int NONE = -1;
+    private static final String DICTIONARY = "names.txt";
+    private static final String PENDING = "pending.mbl";
+    private static final String SEGMENT_FORMAT = "segment-%05d%s";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "store-query");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path directory;
+    private final List<String> names;
+    private final Map<String, Integer> ids;
+    private int segmentCount;
+    private int battleCount;
+
+    /**
+     * Creates a store in a directory.
+     * @param directory The directory
+     * @param names The names of the dictionary
+     */
+    private BattleLogStore(Path directory, List<String> names) {
+        this.directory = directory;
+        this.names = names;
+        this.ids = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            ids.put(names.get(i), i);
+        }
+    }
+
+    /**
+     * Opens the store in a directory, which is created if it does not exist.
+     * @param directory The directory
+     * @return The store
+     * @throws IOException If the directory or its files cannot be read
+     */
+    public static BattleLogStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path dictionary = directory.resolve(DICTIONARY);
+        List<String> names = Files.exists(dictionary)
+                ? new ArrayList<>(Files.readAllLines(dictionary, StandardCharsets.UTF_8))
+                : new ArrayList<>();
+        BattleLogStore store = new BattleLogStore(directory, names);
+        while (Files.exists(store.segment(store.segmentCount, LOG_SUFFIX))) {
+            store.segmentCount++;
+        }
+        for (int segment = store.segmentCount - 1; segment >= 0 && store.battleCount == 0; segment--) {
+            store.battleCount = store.readLastBattle(segment) + 1;
+        }
+        return store;
+    }
+
+    /**
+     * Appends a finished battle log. Its monsters fainting are read from the log and indexed.
+     * @param log The closed battle log
+     * @return The number of the battle in the store
+     * @throws IOException If the log cannot be read or the store cannot be written
+     * @throws IllegalArgumentException If the file is no battle log of its monsters
+     */
+    public int append(BattleLog log) throws IOException {
+        byte[] data = Files.readAllBytes(log.getPath());
+        List<Monster> monsters = log.getMonsters();
+        List<String> monsterNames = new ArrayList<>();
+        for (Monster monster : monsters) {
+            monsterNames.add(monster.getName());
+        }
+        BattleLogReader reader = BattleLogReader.scan(ByteBuffer.wrap(data), log.getPath().toString(), monsterNames);
+
+        int segment = segmentCount - 1;
+        long offset = segment < 0 ? 0 : Files.size(segment(segment, LOG_SUFFIX));
+        if (segment < 0 || offset > 0 && offset + data.length > SEGMENT_SIZE) {
+            segment = segmentCount;
+            offset = 0;
+        }
+        int battle = battleCount;
+        List<BattleLogReader.Faint> faints = reader.getFaints();
+        ByteBuffer records = ByteBuffer.allocate(RECORD_SIZE * (faints.size() + 1));
+        putRecord(records, offset, data.length, battle, NONE, NONE, NONE,
+                reader.getLastRound() - reader.getFirstRound() + 1);
+        for (BattleLogReader.Faint faint : faints) {
+            int actor = NONE;
+            int action = NONE;
+            if (faint.getActor() >= 0) {
+                Monster monster = monsters.get(faint.getActor());
+                actor = idOf(monster.getName());
+                if (faint.getActionCode() > 0) {
+                    Action used = monster.getActions().get(faint.getActionCode() - 1);
+                    action = idOf(used.getName());
+                }
+            }
+            putRecord(records, offset, data.length, battle, idOf(monsters.get(faint.getMonster()).getName()),
+                    actor, action, faint.getRound() - reader.getFirstRound() + 1);
+        }
+
+        Files.write(segment(segment, LOG_SUFFIX), data, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Files.write(segment(segment, INDEX_SUFFIX), records.array(), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        segmentCount = Math.max(segmentCount, segment + 1);
+        battleCount++;
+        return battle;
+    }
+
+    /**
+     * Finds all battles in which a monster fainted. Names that are null match any monster or action.
+     * @param fainted The name of the fainted monster
+     * @param actor The name of the monster whose turn it was, or null
+     * @param action The name of the action used in that turn, or null
+     * @param withinRounds The number of rounds from the start of the battle the monster fainted within
+     * @return The faints found, ordered by battle
+     * @throws IOException If an index cannot be read
+     */
+    public List<Match> query(String fainted, String actor, String action, int withinRounds) throws IOException {
+        Integer faintedId = ids.get(fainted);
+        Integer actorId = actor == null ? Integer.valueOf(NONE) : ids.get(actor);
+        Integer actionId = action == null ? Integer.valueOf(NONE) : ids.get(action);
+        List<Match> matches = new ArrayList<>();
+        if (faintedId == null || actorId == null || actionId == null) {
+            return matches;
+        }
+        List<Future<List<Match>>> tasks = new ArrayList<>(segmentCount);
+        for (int segment = 0; segment < segmentCount; segment++) {
+            int searched = segment;
+            Callable<List<Match>> task = () -> search(searched, faintedId, actorId, actionId, withinRounds);
+            tasks.add(WORKERS.submit(task));
+        }
+        for (Future<List<Match>> task : tasks) {
+            matches.addAll(await(task));
+        }
+        matches.sort(Comparator.comparingInt(Match::getBattle));
+        return matches;
+    }
+
+    /**
+     * Copies a battle into a file of its own, e.g. to replay it.
+     * @param battle The number of the battle
+     * @param target The path of the file, an existing file is replaced
+     * @return True if the battle was found
+     * @throws IOException If the store cannot be read or the file cannot be written
+     */
+    public boolean extract(int battle, Path target) throws IOException {
+        for (int segment = 0; segment < segmentCount; segment++) {
+            try (FileChannel index = FileChannel.open(segment(segment, INDEX_SUFFIX), StandardOpenOption.READ)) {
+                MappedByteBuffer records = map(index);
+                for (int position = 0; position < records.limit(); position += RECORD_SIZE) {
+                    if (records.getInt(position + Long.BYTES + Integer.BYTES) == battle) {
+                        ByteBuffer data = ByteBuffer.allocate(records.getInt(position + Long.BYTES));
+                        try (FileChannel log = FileChannel.open(segment(segment, LOG_SUFFIX),
+                                StandardOpenOption.READ)) {
+                            long offset = records.getLong(position);
+                            while (data.hasRemaining()) {
+                                if (log.read(data, offset + data.position()) < 0) {
+                                    throw new IOException("segment " + segment + " is truncated");
+                                }
+                            }
+                        }
+                        Files.write(target, data.array());
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the file a battle is recorded in before it is appended, if no other file was given.
+     * @return The path
+     */
+    public Path getPendingPath() {
+        return directory.resolve(PENDING);
+    }
+
+    /**
+     * Gets the directory of the store.
+     * @return The directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the number of battles in the store.
+     * @return The number of battles
+     */
+    public int getBattleCount() {
+        return battleCount;
+    }
+
+    /**
+     * Gets the number of segments of the store.
+     * @return The number of segments
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Searches the index of a segment for faints.
+     * @param segment The segment
+     * @param fainted The id of the fainted monster
+     * @param actor The id of the monster whose turn it was, NONE for any
+     * @param action The id of the action, NONE for any
+     * @param withinRounds The number of rounds from the start of the battle the monster fainted within
+     * @return The faints found
+     * @throws IOException If the index cannot be read
+     */
+    private List<Match> search(int segment, int fainted, int actor, int action, int withinRounds)
+            throws IOException {
+        List<Match> matches = new ArrayList<>();
+        try (FileChannel index = FileChannel.open(segment(segment, INDEX_SUFFIX), StandardOpenOption.READ)) {
+            MappedByteBuffer records = map(index);
+            for (int position = 0; position < records.limit(); position += RECORD_SIZE) {
+                records.position(position + Long.BYTES + 2 * Integer.BYTES);
+                int monster = records.getInt();
+                int recordActor = records.getInt();
+                int recordAction = records.getInt();
+                int round = records.getInt();
+                if (monster == fainted && (actor == NONE || recordActor == actor)
+                        && (action == NONE || recordAction == action) && round <= withinRounds) {
+                    matches.add(new Match(records.getInt(position + Long.BYTES + Integer.BYTES), segment,
+                            records.getLong(position), round, nameOf(recordActor), nameOf(recordAction)));
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Maps the complete records of an index into memory.
+     * @param index The channel of the index
+     * @return The mapped records
+     * @throws IOException If the index cannot be mapped
+     */
+    private static MappedByteBuffer map(FileChannel index) throws IOException {
+        long size = index.size();
+        return index.map(FileChannel.MapMode.READ_ONLY, 0, size - size % RECORD_SIZE);
+    }
+
+    /**
+     * Reads the number of the last battle indexed in a segment.
+     * @param segment The segment
+     * @return The number of the battle, -1 if the index is empty
+     * @throws IOException If the index cannot be read
+     */
+    private int readLastBattle(int segment) throws IOException {
+        Path path = segment(segment, INDEX_SUFFIX);
+        if (!Files.exists(path)) {
+            return NONE;
+        }
+        try (FileChannel index = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer records = map(index);
+            return records.limit() == 0 ? NONE : records.getInt(records.limit() - RECORD_SIZE + Long.BYTES
+                    + Integer.BYTES);
+        }
+    }
+
+    /**
+     * Waits for a search task.
+     * @param task The task
+     * @return The faints it found
+     * @throws IOException If the task could not read its index
+     */
+    private static List<Match> await(Future<List<Match>> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Query interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Query worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Writes an index record.
+     * @param records The buffer
+     * @param offset The offset of the battle in its segment
+     * @param length The length of the battle
+     * @param battle The number of the battle
+     * @param monster The id of the fainted monster, NONE for the record of the battle
+     * @param actor The id of the monster whose turn it was
+     * @param action The id of the action used in that turn
+     * @param round The round the monster fainted in, or the number of rounds of the battle
+     */
+    private static void putRecord(ByteBuffer records, long offset, int length, int battle, int monster, int actor,
+                                  int action, int round) {
+        records.putLong(offset).putInt(length).putInt(battle).putInt(monster).putInt(actor).putInt(action)
+                .putInt(round);
+    }
+
+    /**
+     * Gets the id of a name, adding it to the dictionary if it is new.
+     * @param name The name
+     * @return The id
+     * @throws IOException If the dictionary cannot be written
+     */
+    private int idOf(String name) throws IOException {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        Files.writeString(directory.resolve(DICTIONARY), name + System.lineSeparator(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        names.add(name);
+        ids.put(name, names.size() - 1);
+        return names.size() - 1;
+    }
+
+    /**
+     * Gets the name of an id.
+     * @param id The id
+     * @return The name, or null for NONE
+     */
+    private String nameOf(int id) {
+        return id == NONE ? null : names.get(id);
+    }
+
+    /**
+     * Gets the path of a file of a segment.
+     * @param segment The segment
+     * @param suffix The suffix of the file
+     * @return The path
+     */
+    private Path segment(int segment, String suffix) {
+        return directory.resolve(String.format(SEGMENT_FORMAT, segment, suffix));
+    }
+
+    /**
+     * A monster fainting in a stored battle.
+     */
+    public static final class Match {
+        private final int battle;
+        private final int segment;
+        private final long offset;
+        private final int round;
+        private final String actor;
+        private final String action;
+
+        /**
+         * Creates a match.
+         * @param battle The number of the battle
+         * @param segment The segment of the battle
+         * @param offset The offset of the battle in its segment
+         * @param round The round of the battle the monster fainted in
+         * @param actor The monster whose turn it was, or null
+         * @param action The action used in that turn, or null if the monster passed
+         */
+        private Match(int battle, int segment, long offset, int round, String actor, String action) {
+            this.battle = battle;
+            this.segment = segment;
+            this.offset = offset;
+            this.round = round;
+            this.actor = actor;
+            this.action = action;
+        }
+
+        /**
+         * Gets the number of the battle.
+         * @return The number of the battle
+         */
+        public int getBattle() {
+            return battle;
+        }
+
+        /**
+         * Gets the segment of the battle.
+         * @return The segment
+         */
+        public int getSegment() {
+            return segment;
+        }
+
+        /**
+         * Gets the offset of the battle in its segment.
+         * @return The offset in bytes
+         */
+        public long getOffset() {
+            return offset;
+        }
+
+        /**
+         * Gets the round of the battle the monster fainted in, counted from 1.
+         * @return The round
+         */
+        public int getRound() {
+            return round;
+        }
+
+        /**
+         * Gets the monster whose turn it was when the monster fainted.
+         * @return The name of the monster, or null
+         */
+        public String getActor() {
+            return actor;
+        }
+
+        /**
+         * Gets the action used in the turn the monster fainted in.
+         * @return The name of the action, or null if the monster passed
+         */
+        public String getAction() {
+            return action;
+        }
+    }
+}
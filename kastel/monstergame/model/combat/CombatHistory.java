@@ -0,0 +1,169 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.MonsterState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the state of a competition at the start of every round, so it can be set back to any earlier round.
+ * A round is stored as the packed states of all monsters, with their remaining protection rounds, split into chunks
+ * of a few monsters each. A chunk in which no monster changed since the round before is shared with that round
+ * instead of being copied, so a round in which only a few monsters changed only stores the chunks holding them.
+ * The actions selected in a round are recorded as well, so the last selection of a finished round can be undone.
+ * @author uuifx
+ */
+public final class CombatHistory {
+    /**
+     * The number of monsters whose state is stored in one chunk.
+     */
+    private static final int CHUNK_MONSTERS = 8;
+    private static final int CHUNK_SIZE = CHUNK_MONSTERS * MonsterState.WORDS;
+
+    private final List<Round> rounds;
+    private final long[] scratch;
+
+    /**
+     * Creates an empty history.
+     */
+    public CombatHistory() {
+        this.rounds = new ArrayList<>();
+        this.scratch = new long[CHUNK_SIZE];
+    }
+
+    /**
+     * Records the start of the current round of a combat.
+     * Rounds recorded for this round or later ones before, e.g. before a rewind, are forgotten.
+     * @param combatSystem The combat at the start of a round
+     */
+    public void record(CombatSystem combatSystem) {
+        truncate(combatSystem.getRoundNumber());
+        List<Monster> monsters = combatSystem.getMonsters();
+        Round previous = rounds.isEmpty() ? null : rounds.get(rounds.size() - 1);
+        long[][] chunks = new long[(monsters.size() + CHUNK_MONSTERS - 1) / CHUNK_MONSTERS][];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            int first = chunk * CHUNK_MONSTERS;
+            int count = Math.min(CHUNK_MONSTERS, monsters.size() - first);
+            for (int i = 0; i < count; i++) {
+                monsters.get(first + i).snapshot(scratch, i * MonsterState.WORDS);
+            }
+            int length = count * MonsterState.WORDS;
+            if (previous != null && Arrays.equals(previous.chunks[chunk], 0, length, scratch, 0, length)) {
+                chunks[chunk] = previous.chunks[chunk];
+            } else {
+                chunks[chunk] = Arrays.copyOf(scratch, length);
+            }
+        }
+        rounds.add(new Round(combatSystem.getRoundNumber(), chunks));
+    }
+
+    /**
+     * Records the actions and targets selected in the current round, once every monster has selected.
+     * @param combatSystem The combat at the start of the action execution phase
+     */
+    public void recordSelections(CombatSystem combatSystem) {
+        Round round = find(combatSystem.getRoundNumber());
+        if (round == null) {
+            return;
+        }
+        List<Monster> monsters = combatSystem.getMonsters();
+        round.actions = new Action[monsters.size()];
+        round.targets = new Monster[monsters.size()];
+        for (int i = 0; i < monsters.size(); i++) {
+            round.actions[i] = monsters.get(i).getSelectedAction();
+            round.targets[i] = monsters.get(i).getSelectedTarget();
+        }
+    }
+
+    /**
+     * Sets a combat back to the start of a recorded round. Later rounds are forgotten.
+     * @param combatSystem The combat the history was recorded from
+     * @param roundNumber The number of the round
+     * @return True if the round was recorded and the combat was set back
+     */
+    public boolean rewind(CombatSystem combatSystem, int roundNumber) {
+        Round round = find(roundNumber);
+        if (round == null) {
+            return false;
+        }
+        long[] states = new long[combatSystem.getMonsters().size() * MonsterState.WORDS];
+        for (int chunk = 0; chunk < round.chunks.length; chunk++) {
+            System.arraycopy(round.chunks[chunk], 0, states, chunk * CHUNK_SIZE, round.chunks[chunk].length);
+        }
+        combatSystem.restoreRound(roundNumber, states);
+        truncate(roundNumber + 1);
+        return true;
+    }
+
+    /**
+     * Selects the recorded actions of a round again for every monster but the last one that selected,
+     * which is left to select again. The combat has to be set back to the start of that round before.
+     * @param combatSystem The combat the history was recorded from
+     * @return The monster that selects next, or null if no selections were recorded for the round
+     */
+    public Monster replayAllButLastSelection(CombatSystem combatSystem) {
+        Round round = find(combatSystem.getRoundNumber());
+        if (round == null || round.actions == null) {
+            return null;
+        }
+        int replayed = combatSystem.getActiveCount() - 1;
+        for (int i = 0; i < replayed; i++) {
+            Monster monster = combatSystem.getNextMonsterForActionSelection();
+            int index = monster.getContestantNumber() - 1;
+            monster.setSelectedAction(round.actions[index]);
+            monster.setSelectedTarget(round.targets[index]);
+        }
+        return combatSystem.getNextMonsterForActionSelection();
+    }
+
+    /**
+     * Gets the earliest round that can be rewound to.
+     * @return The round number, or 0 if nothing was recorded
+     */
+    public int getFirstRound() {
+        return rounds.isEmpty() ? 0 : rounds.get(0).number;
+    }
+
+    /**
+     * Finds a recorded round.
+     * @param roundNumber The number of the round
+     * @return The round, or null if it was not recorded
+     */
+    private Round find(int roundNumber) {
+        int index = roundNumber - getFirstRound();
+        return rounds.isEmpty() || index < 0 || index >= rounds.size() ? null : rounds.get(index);
+    }
+
+    /**
+     * Forgets the given round and all later ones.
+     * @param roundNumber The first round to forget
+     */
+    private void truncate(int roundNumber) {
+        while (!rounds.isEmpty() && rounds.get(rounds.size() - 1).number >= roundNumber) {
+            rounds.remove(rounds.size() - 1);
+        }
+    }
+
+    /**
+     * The recorded state of a round.
+     */
+    private static final class Round {
+        private final int number;
+        private final long[][] chunks;
+        private Action[] actions;
+        private Monster[] targets;
+
+        /**
+         * Creates a recorded round.
+         * @param number The number of the round
+         * @param chunks The chunks of the states of the monsters
+         */
+        private Round(int number, long[][] chunks) {
+            this.number = number;
+            this.chunks = chunks;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+
+/**
+ * Receives notifications about state changes during combat.
+ * All methods do nothing by default, so implementations only override the events they need.
+ * @author uuifx
+ */
+public interface CombatListener {
+    /**
+     * Called when a monster faints.
+     * @param monster The monster that fainted
+     */
+    default void onMonsterFainted(Monster monster) {
+    }
+
+    /**
+     * Called when the HP of a monster changed through damage or healing.
+     * @param monster The monster whose HP changed
+     */
+    default void onHpChanged(Monster monster) {
+    }
+
+    /**
+     * Called when a monster took damage, after its HP changed.
+     * @param attacker The monster that caused the damage, the target itself for damage from its status condition
+     * @param target The monster that took the damage
+     * @param damage The amount of damage
+     * @param critical Whether the damage was a critical hit
+     */
+    default void onDamageTaken(Monster attacker, Monster target, int damage, boolean critical) {
+    }
+
+    /**
+     * Called when the status condition of a monster was set or cleared.
+     * @param monster The monster whose status condition changed
+     */
+    default void onStatusChanged(Monster monster) {
+    }
+
+    /**
+     * Called when a stat stage of a monster changed.
+     * @param monster The monster whose stat changed
+     * @param statType The stat that changed
+     */
+    default void onStatStageChanged(Monster monster, StatType statType) {
+    }
+
+    /**
+     * Called when a monster receives protection.
+     * @param monster The protected monster
+     * @param target What the monster is protected against
+     * @param rounds The number of rounds the protection lasts
+     */
+    default void onProtectionChanged(Monster monster, ProtectionTarget target, int rounds) {
+    }
+}
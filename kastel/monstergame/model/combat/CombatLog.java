@@ -0,0 +1,83 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+/**
+ * Collects the event messages printed during combat.
+ * By default every message is printed. With an event limit, only the first messages
+ * of each round are printed and the rest are counted and summarized at the end of the round,
+ * which keeps the output of large competitions bounded. A limit of zero silences the log completely.
+ * @author uuifx
+ */
+public class CombatLog {
+    /**
+     * Event limit that disables bounding.
+     */
+    public static final int UNLIMITED = -1;
+
+    private int eventLimit;
+    private int eventsThisRound;
+    private int suppressedThisRound;
+
+    /**
+     * Creates a new combat log that prints every event.
+     */
+    public CombatLog() {
+        this(UNLIMITED);
+    }
+
+    /**
+     * Creates a new combat log with the given event limit.
+     * @param eventLimit The maximum number of events printed per round, or UNLIMITED
+     */
+    public CombatLog(int eventLimit) {
+        this.eventLimit = eventLimit;
+    }
+
+    /**
+     * Sets the maximum number of events printed per round.
+     * @param eventLimit The event limit, or UNLIMITED
+     */
+    public void setEventLimit(int eventLimit) {
+        this.eventLimit = eventLimit;
+    }
+
+    /**
+     * Gets the maximum number of events printed per round.
+     * @return The event limit, or UNLIMITED
+     */
+    public int getEventLimit() {
+        return eventLimit;
+    }
+
+    /**
+     * Checks if a message would currently be printed.
+     * Callers can use this to skip building messages that are suppressed anyway.
+     * @return true if the next event is printed, false if it would be suppressed
+     */
+    public boolean isPrinting() {
+        return eventLimit == UNLIMITED || eventsThisRound < eventLimit;
+    }
+
+    /**
+     * Prints an event message, or counts it if the limit of the round is reached.
+     * @param message The message to print
+     */
+    public void println(String message) {
+        if (isPrinting()) {
+            System.out.println(message);
+        } else {
+            suppressedThisRound++;
+        }
+        eventsThisRound++;
+    }
+
+    /**
+     * Ends the current round, printing how many events were suppressed.
+     */
+    public void endRound() {
+        if (suppressedThisRound > 0 && eventLimit > 0) {
+            System.out.println("... " + suppressedThisRound + " more events this round.");
+        }
+        eventsThisRound = 0;
+        suppressedThisRound = 0;
+    }
+}
@@ -0,0 +1,70 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.enums.EndReason;
+
+/**
+ * The outcome of a combat without human input: the winner, why the combat ended, how many rounds it took
+ * and the damage statistics of the monsters.
+ * @author uuifx
+ */
+public final class CombatResult {
+    private final Monster winner;
+    private final EndReason reason;
+    private final int rounds;
+    private final CombatStatistics statistics;
+
+    /**
+     * Creates a new combat result.
+     * @param winner The winning monster, or null if the combat is a draw
+     * @param reason The reason the combat ended
+     * @param rounds The number of rounds that were fought
+     * @param statistics The damage statistics of the monsters
+     */
+    public CombatResult(Monster winner, EndReason reason, int rounds, CombatStatistics statistics) {
+        this.winner = winner;
+        this.reason = reason;
+        this.rounds = rounds;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Gets the winning monster.
+     * @return The winner, or null if the combat is a draw
+     */
+    public Monster getWinner() {
+        return winner;
+    }
+
+    /**
+     * Gets the reason the combat ended.
+     * @return The end reason
+     */
+    public EndReason getReason() {
+        return reason;
+    }
+
+    /**
+     * Gets the number of rounds that were fought.
+     * @return The number of rounds
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Gets the damage statistics of the monsters.
+     * @return The statistics
+     */
+    public CombatStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Checks if the combat ended without a winner.
+     * @return True if the combat is a draw
+     */
+    public boolean isDraw() {
+        return winner == null;
+    }
+}
@@ -0,0 +1,66 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+/**
+ * Counts the damage every monster dealt and took during a combat and how many of its hits were critical.
+ * Damage a monster takes from its own status condition counts as taken, but not as dealt.
+ * @author uuifx
+ */
+public final class CombatStatistics {
+    private final int[] damageDealt;
+    private final int[] damageTaken;
+    private final int[] criticalHits;
+
+    /**
+     * Creates empty statistics.
+     * @param monsters The number of monsters
+     */
+    CombatStatistics(int monsters) {
+        this.damageDealt = new int[monsters];
+        this.damageTaken = new int[monsters];
+        this.criticalHits = new int[monsters];
+    }
+
+    /**
+     * Records damage.
+     * @param attacker The contestant index of the monster that caused the damage
+     * @param target The contestant index of the monster that took the damage
+     * @param damage The amount of damage
+     * @param critical Whether the damage was a critical hit
+     */
+    void recordDamage(int attacker, int target, int damage, boolean critical) {
+        damageTaken[target] += damage;
+        if (attacker != target) {
+            damageDealt[attacker] += damage;
+        }
+        if (critical) {
+            criticalHits[attacker]++;
+        }
+    }
+
+    /**
+     * Gets the damage a monster dealt to other monsters.
+     * @param index The contestant index of the monster
+     * @return The damage dealt
+     */
+    public int getDamageDealt(int index) {
+        return damageDealt[index];
+    }
+
+    /**
+     * Gets the damage a monster took.
+     * @param index The contestant index of the monster
+     * @return The damage taken
+     */
+    public int getDamageTaken(int index) {
+        return damageTaken[index];
+    }
+
+    /**
+     * Gets the number of critical hits of a monster.
+     * @param index The contestant index of the monster
+     * @return The number of critical hits
+     */
+    public int getCriticalHits(int index) {
+        return criticalHits[index];
+    }
+}
@@ -3,15 +3,22 @@ package edu.kit.kastel.monstergame.model.combat;
 import edu.kit.kastel.monstergame.model.command.CommandInterface;
 import edu.kit.kastel.monstergame.model.Action;
 import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.MonsterState;
 import edu.kit.kastel.monstergame.model.effect.Effect;
 import edu.kit.kastel.monstergame.model.effect.RepeatEffect;
 import edu.kit.kastel.monstergame.model.enums.EffectType;
+import edu.kit.kastel.monstergame.model.enums.EndReason;
 import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
 import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+import edu.kit.kastel.monstergame.model.enums.TargetPolicy;
 import edu.kit.kastel.monstergame.model.util.RandomUtil;
+import edu.kit.kastel.monstergame.model.util.Zobrist;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -20,6 +27,15 @@ import java.util.Map;
  * @author uuifx
  */
 public class CombatSystem {
+    /**
+     * Round limit that lets a combat run until it is decided.
+     */
+    public static final int NO_ROUND_LIMIT = 0;
+    /**
+     * How often the same state may be reached without progress before a combat is a stalemate.
+     */
+    public static final int DEFAULT_REPETITION_LIMIT = 3;
+
     private List<Monster> monsters;
     private CommandInterface commandInterface;
     private RandomUtil randomUtil;
@@ -27,9 +43,27 @@ public class CombatSystem {
 
     private ActionExecutor actionExecutor;
     private StatusConditionHandler statusHandler;
+    private AliveSet aliveSet;
+    private BitSet afflicted;
+    private TimerWheel protectionTimers;
+    private BitSet protectedMonsters;
+    private CriticalHitCache criticalHitCache;
+    private Monster[] statusBatch;
+    private boolean[] statusEnds;
+    private Map<String, Monster> monstersByName;
+    private CombatListener combatListener;
+    private CombatLog combatLog;
+    private BattleLog battleLog;
+    private CombatStatistics statistics;
 
     private int currentMonsterIndex;
+    private int roundNumber;
+    private int stateVersion;
     private boolean allActionsSelected;
+    private int roundLimit;
+    private int repetitionLimit;
+    private Map<Long, Integer> repetitions;
+    private long lowestTotalHp;
 
     /**
      * Creates a new combat system with the given monsters and command interface.
@@ -50,13 +84,277 @@ public class CombatSystem {
         this.actionExecutor = new ActionExecutor(randomUtil, inDebugMode, statusHandler);
 
         // Assign contestant numbers
+        this.monstersByName = new HashMap<>();
         for (int i = 0; i < monsters.size(); i++) {
             monsters.get(i).setContestantNumber(i + 1);
+            monstersByName.put(monsters.get(i).getName(), monsters.get(i));
         }
 
+        // Track alive contestants, updated whenever a monster faints
+        this.aliveSet = new AliveSet(this.monsters);
+        // Track monsters with a status condition and when protections end, the only end of round work
+        this.afflicted = new BitSet(monsters.size());
+        this.protectionTimers = new TimerWheel(monsters.size());
+        this.protectedMonsters = new BitSet(monsters.size());
+        // Critical hit chances only change with the speed of attacker or target
+        this.criticalHitCache = new CriticalHitCache(monsters.size());
+        this.statusBatch = new Monster[0];
+        this.statusEnds = new boolean[0];
+        this.statistics = new CombatStatistics(monsters.size());
+        this.combatListener = new CombatListener() {
+            @Override
+            public void onMonsterFainted(Monster monster) {
+                stateVersion++;
+                if (battleLog != null) {
+                    battleLog.fainted(monster);
+                }
+                aliveSet.markDefeated(monster.getContestantNumber() - 1);
+                monster.setSelectedAction(null);
+                monster.setSelectedTarget(null);
+            }
+
+            @Override
+            public void onHpChanged(Monster monster) {
+                stateVersion++;
+                if (battleLog != null) {
+                    battleLog.hpChanged(monster);
+                }
+            }
+
+            @Override
+            public void onDamageTaken(Monster attacker, Monster target, int damage, boolean critical) {
+                statistics.recordDamage(attacker.getContestantNumber() - 1, target.getContestantNumber() - 1,
+                        damage, critical);
+            }
+
+            @Override
+            public void onStatusChanged(Monster monster) {
+                stateVersion++;
+                if (battleLog != null) {
+                    battleLog.statusChanged(monster);
+                }
+                afflicted.set(monster.getContestantNumber() - 1, monster.getStatusCondition() != null);
+                criticalHitCache.invalidate(monster);
+            }
+
+            @Override
+            public void onStatStageChanged(Monster monster, StatType statType) {
+                stateVersion++;
+                if (battleLog != null) {
+                    battleLog.stageChanged(monster, statType);
+                }
+                if (statType == StatType.SPD) {
+                    criticalHitCache.invalidate(monster);
+                }
+            }
+
+            @Override
+            public void onProtectionChanged(Monster monster, ProtectionTarget target, int rounds) {
+                stateVersion++;
+                if (battleLog != null) {
+                    battleLog.protectionChanged(monster, target, rounds);
+                }
+                if (rounds > 0) {
+                    protectionTimers.schedule(monster.getContestantNumber() - 1, target, roundNumber + rounds - 1);
+                    protectedMonsters.set(monster.getContestantNumber() - 1);
+                } else {
+                    protectionTimers.cancel(monster.getContestantNumber() - 1, target);
+                }
+            }
+        };
+        statusHandler.setCombatListener(combatListener);
+        actionExecutor.setCombatListener(combatListener);
+        actionExecutor.setAliveSet(aliveSet);
+        actionExecutor.setCriticalHitCache(criticalHitCache);
+        setCombatLog(new CombatLog());
+
         // Initialize phase tracking
         currentMonsterIndex = 0;
+        roundNumber = 1;
         allActionsSelected = false;
+
+        // Detect combats that cannot be decided, e.g. two healers or two monsters that only protect themselves
+        this.roundLimit = NO_ROUND_LIMIT;
+        this.repetitionLimit = DEFAULT_REPETITION_LIMIT;
+        this.repetitions = new HashMap<>();
+        this.lowestTotalHp = Long.MAX_VALUE;
+    }
+
+    /**
+     * Sets the number of rounds after which a combat without human input ends in a draw.
+     *
+     * @param roundLimit The round limit, or NO_ROUND_LIMIT
+     */
+    public void setRoundLimit(int roundLimit) {
+        this.roundLimit = roundLimit;
+    }
+
+    /**
+     * Sets how often the same state may be reached while no monster loses HP
+     * before a combat without human input ends in a draw.
+     *
+     * @param repetitionLimit The number of times the same state may be reached (at least 2)
+     */
+    public void setRepetitionLimit(int repetitionLimit) {
+        this.repetitionLimit = repetitionLimit;
+    }
+
+    /**
+     * Sets the log that combat events are printed to.
+     *
+     * @param combatLog The combat log
+     */
+    public void setCombatLog(CombatLog combatLog) {
+        this.combatLog = combatLog;
+        statusHandler.setCombatLog(combatLog);
+        actionExecutor.setCombatLog(combatLog);
+    }
+
+    /**
+     * Sets the binary log the combat is recorded in from now on, starting with the current state of all monsters.
+     * The random outcomes of the combat are recorded as well.
+     *
+     * @param battleLog The battle log, or null to stop recording
+     */
+    public void setBattleLog(BattleLog battleLog) {
+        this.battleLog = battleLog;
+        randomUtil.setOutcomeListener(battleLog);
+        if (battleLog != null) {
+            battleLog.keyframe(this);
+        }
+    }
+
+    /**
+     * Gets the log that combat events are printed to.
+     *
+     * @return The combat log
+     */
+    public CombatLog getCombatLog() {
+        return combatLog;
+    }
+
+    /**
+     * Gets the number of the current round, starting at 1.
+     *
+     * @return The current round number
+     */
+    public int getRoundNumber() {
+        return roundNumber;
+    }
+
+    /**
+     * Gets a counter that changes whenever the HP, stats, status conditions or protections
+     * of any monster change, so results derived from the combat state can be cached.
+     *
+     * @return The current state version
+     */
+    public int getStateVersion() {
+        return stateVersion;
+    }
+
+    /**
+     * Gets the Zobrist hash of the combat: the state hashes of all monsters combined with the rounds their
+     * protections have left and the parity of the round.
+     * Equal combat states have equal hashes, so the hash can be used to look up memoized results.
+     * A protection counts down every round, so a combat that only waits for a protection to run out
+     * does not reach the same state twice.
+     *
+     * @return The state hash
+     */
+    public long getStateHash() {
+        long hash = roundNumber % 2 == 1 ? Zobrist.ROUND_PARITY : 0L;
+        for (int i = 0; i < monsters.size(); i++) {
+            Monster monster = monsters.get(i);
+            hash ^= monster.getStateHash();
+            for (ProtectionTarget target : ProtectionTarget.values()) {
+                hash ^= Zobrist.key(monster.getContestantNumber(), Zobrist.protectionField(target),
+                        protectionTimers.getRemainingRounds(i, target, roundNumber));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Creates an independent copy of the combat at the start of the current round.
+     * The monsters are copied through their packed states, so the copy has the same HP, stages,
+     * status conditions, protections and round number, but fights on without changing this combat.
+     * Actions selected in the current round are not kept, the command interface of the copy selects them again.
+     * The copy prints nothing.
+     *
+     * @param commandInterface The command interface selecting the actions of the copy
+     * @param randomUtil The random utility of the copy
+     * @return The copy of the combat
+     */
+    public CombatSystem fork(CommandInterface commandInterface, RandomUtil randomUtil) {
+        List<Monster> copies = new ArrayList<>(monsters.size());
+        long[] state = new long[MonsterState.WORDS];
+        for (Monster monster : monsters) {
+            Monster copy = new Monster(monster.getName(), monster.getElement(), monster.getBaseStats(),
+                    monster.getActions());
+            monster.snapshot(state, 0);
+            copy.restore(state, 0);
+            copy.setSelectedAction(null);
+            copies.add(copy);
+        }
+        CombatSystem fork = new CombatSystem(copies, commandInterface, false, randomUtil);
+        fork.setCombatLog(new CombatLog(0));
+        fork.setTargetPolicy(actionExecutor.getTargetPolicy());
+        fork.setRepetitionLimit(repetitionLimit);
+        fork.roundNumber = roundNumber;
+        // Restoring does not notify the copy, so the end of round work is set up here
+        for (int i = 0; i < copies.size(); i++) {
+            fork.restoreEndOfRoundWork(i);
+        }
+        return fork;
+    }
+
+    /**
+     * Sets the combat back to the start of a round, as recorded by a combat history.
+     * Every monster gets its packed state back and the protection ends are scheduled again
+     * from the remaining rounds in it, everything else is derived from the monsters.
+     * Selected actions and targets are dropped, the random numbers are not set back.
+     *
+     * @param round The number of the round
+     * @param states The packed states of the monsters in contestant order, MonsterState.WORDS longs each
+     */
+    void restoreRound(int round, long[] states) {
+        roundNumber = round;
+        protectionTimers.clear();
+        protectedMonsters.clear();
+        afflicted.clear();
+        for (int i = 0; i < monsters.size(); i++) {
+            Monster monster = monsters.get(i);
+            monster.restore(states, i * MonsterState.WORDS);
+            monster.setSelectedAction(null);
+            monster.setSelectedTarget(null);
+            restoreEndOfRoundWork(i);
+        }
+        aliveSet.refresh(monsters);
+        criticalHitCache.clear();
+        currentMonsterIndex = 0;
+        repetitions.clear();
+        lowestTotalHp = Long.MAX_VALUE;
+        stateVersion++;
+        if (battleLog != null) {
+            battleLog.keyframe(this);
+        }
+    }
+
+    /**
+     * Sets up the end of round work of a restored monster, which restoring does not notify the combat about.
+     *
+     * @param index The contestant index of the monster
+     */
+    private void restoreEndOfRoundWork(int index) {
+        Monster monster = monsters.get(index);
+        afflicted.set(index, monster.getStatusCondition() != null);
+        for (ProtectionTarget target : ProtectionTarget.values()) {
+            int remaining = monster.getProtectionRounds(target);
+            if (remaining > 0) {
+                protectionTimers.schedule(index, target, roundNumber + remaining - 1);
+                protectedMonsters.set(index);
+            }
+        }
     }
 
     /**
@@ -74,34 +372,73 @@ public class CombatSystem {
      * @return List of non-defeated monsters
      */
     public List<Monster> getActiveFighters() {
-        List<Monster> active = new ArrayList<>();
-        for (Monster monster : monsters) {
-            if (!monster.isDefeated()) {
-                active.add(monster);
-            }
+        List<Monster> active = new ArrayList<>(aliveSet.getAliveCount());
+        for (int i = aliveSet.nextAlive(0); i >= 0; i = aliveSet.nextAlive(i + 1)) {
+            active.add(monsters.get(i));
         }
         return active;
     }
 
+    /**
+     * Gets the number of monsters that are still active in combat.
+     *
+     * @return The number of non-defeated monsters
+     */
+    public int getActiveCount() {
+        return aliveSet.getAliveCount();
+    }
+
+    /**
+     * Finds a monster of this combat by its competition name.
+     *
+     * @param name The name of the monster, including a #n suffix for duplicates
+     * @return The monster, or null if no monster with that name takes part
+     */
+    public Monster findMonster(String name) {
+        return monstersByName.get(name);
+    }
+
+    /**
+     * Sets the policy for choosing an opponent when no valid target was selected.
+     *
+     * @param targetPolicy The target policy
+     */
+    public void setTargetPolicy(TargetPolicy targetPolicy) {
+        actionExecutor.setTargetPolicy(targetPolicy);
+    }
+
     /**
      * Gets the next monster that needs to select an action.
+     * Monsters are asked in contestant order, each one once per round.
      *
      * @return The next monster or null if all have selected actions
      */
     public Monster getNextMonsterForActionSelection() {
-        List<Monster> sortedMonsters = new ArrayList<>(monsters);
-        Collections.sort(sortedMonsters, new Comparator<Monster>() {
-            @Override
-            public int compare(Monster m1, Monster m2) {
-                return Integer.compare(m1.getContestantNumber(), m2.getContestantNumber());
-            }
-        });
-        for (Monster monster : sortedMonsters) {
-            if (!monster.isDefeated() && monster.getSelectedAction() == null) {
-                return monster;
-            }
+        int next = aliveSet.nextAlive(currentMonsterIndex);
+        if (next < 0) {
+            currentMonsterIndex = monsters.size();
+            return null;
         }
-        return null;
+        currentMonsterIndex = next + 1;
+        return monsters.get(next);
+    }
+
+    /**
+     * Lets the monster that selected its action before the current one in this round select again.
+     * Its selected action and target are dropped.
+     *
+     * @return The previous monster, or null if the current monster is the first of the round
+     */
+    public Monster getPreviousMonsterForActionSelection() {
+        int previous = aliveSet.previousAlive(currentMonsterIndex - 2);
+        if (previous < 0) {
+            return null;
+        }
+        currentMonsterIndex = previous + 1;
+        Monster monster = monsters.get(previous);
+        monster.setSelectedAction(null);
+        monster.setSelectedTarget(null);
+        return monster;
     }
 
     /**
@@ -110,17 +447,47 @@ public class CombatSystem {
      * @return The winning monster, or null if there is no winner yet or it's a draw
      */
     public Monster checkForWinner() {
+        if (aliveSet.getAliveCount() == 1) {
+            return monsters.get(aliveSet.nextAlive(0));
+        }
+        return null;
+    }
+
+    /**
+     * Lets the command interface select an action and its target for every monster that is still active.
+     * Used when no human picks the actions, e.g. in battle royales.
+     */
+    public void selectActions() {
         List<Monster> activeFighters = getActiveFighters();
+        for (int i = 0; i < activeFighters.size(); i++) {
+            Monster monster = activeFighters.get(i);
+            List<Monster> opponents = opponentsOf(activeFighters, i);
+            Action action = commandInterface.selectAction(monster, opponents);
+            monster.setSelectedAction(action);
+            monster.setSelectedTarget(action == null ? null
+                    : commandInterface.selectTarget(monster, action, opponents));
+        }
+    }
 
-        if (activeFighters.size() < 2) {
-            if (activeFighters.size() == 1) {
-                return activeFighters.get(0);
-            } else {
-                return null; // Draw
+    /**
+     * Creates a view of the active fighters without the monster at the given position.
+     *
+     * @param activeFighters The active fighters
+     * @param ownIndex The position of the monster that is left out
+     * @return A read-only list of the opponents
+     */
+    private static List<Monster> opponentsOf(List<Monster> activeFighters, int ownIndex) {
+        return new AbstractList<Monster>() {
+            @Override
+            public Monster get(int index) {
+                return activeFighters.get(index < ownIndex ? index : index + 1);
             }
-        }
 
-        return null;
+            @Override
+            public int size() {
+                return activeFighters.size() - 1;
+            }
+        };
     }
 
     /**
@@ -128,32 +495,46 @@ public class CombatSystem {
      */
     public void executeActionsPhase() {
         // Sort monsters by their effective speed
-        List<Monster> sortedBySpeed = new ArrayList<>(getActiveFighters());
+        List<Monster> sortedBySpeed = getActiveFighters();
         Collections.sort(sortedBySpeed, (m1, m2) -> Integer.compare(m2.getEffectiveSpeed(), m1.getEffectiveSpeed()));
         for (Monster attacker : sortedBySpeed) {
             if (!attacker.isDefeated()) {
-                Action action = attacker.getSelectedAction();
-                System.out.println("\n" + "It's " + attacker.getName() + "'s turn.");
-                // Process status conditions before action
-                boolean skipAction = processStatusConditions(attacker);
-                if (skipAction) {
-                    // Apply burn damage even if action is skipped
-                    if (attacker.getStatusCondition() == StatusCondition.BURN) {
-                        statusHandler.applyBurnDamage(attacker);
-                    }
-                    continue;
-                }
-                // Handle passing
-                if (action == null) {
-                    handlePassingTurn(attacker);
-                    continue;
-                }
-                // Execute the action
-                executeMonsterAction(attacker, action);
+                executeTurn(attacker);
+                attacker.setSelectedAction(null);
+                attacker.setSelectedTarget(null);
             }
         }
     }
 
+    /**
+     * Execute the turn of a single monster.
+     *
+     * @param attacker The monster whose turn it is
+     */
+    private void executeTurn(Monster attacker) {
+        Action action = attacker.getSelectedAction();
+        if (battleLog != null) {
+            battleLog.action(attacker, attacker.getSelectedActionIndex(), attacker.getSelectedTarget());
+        }
+        combatLog.println("\n" + "It's " + attacker.getName() + "'s turn.");
+        // Process status conditions before action
+        boolean skipAction = processStatusConditions(attacker);
+        if (skipAction) {
+            // Apply burn damage even if action is skipped
+            if (attacker.getStatusCondition() == StatusCondition.BURN) {
+                statusHandler.applyBurnDamage(attacker);
+            }
+            return;
+        }
+        // Handle passing
+        if (action == null) {
+            handlePassingTurn(attacker);
+            return;
+        }
+        // Execute the action
+        executeMonsterAction(attacker, action);
+    }
+
     /**
      * Process a monsters status conditions at the start of its turn.
      *
@@ -168,7 +549,8 @@ public class CombatSystem {
         displayStatusCondition(monster, currentCondition);
 
         // Check if condition ends
-        boolean conditionEnds = randomUtil.rollChance(33.33, "status condition end for " + monster.getName());
+        boolean conditionEnds = randomUtil.rollChance(StatusConditionHandler.STATUS_END_CHANCE,
+                "status condition end for " + monster.getName());
         if (conditionEnds) {
             handleStatusConditionEnding(monster, currentCondition);
             return false;
@@ -183,13 +565,13 @@ public class CombatSystem {
      */
     private void displayStatusCondition(Monster monster, StatusCondition condition) {
         if (condition == StatusCondition.BURN) {
-            System.out.println(monster.getName() + " is burning!");
+            combatLog.println(monster.getName() + " is burning!");
         } else if (condition == StatusCondition.WET) {
-            System.out.println(monster.getName() + " is soaked!");
+            combatLog.println(monster.getName() + " is soaked!");
         } else if (condition == StatusCondition.QUICKSAND) {
-            System.out.println(monster.getName() + " is stuck in quicksand!");
+            combatLog.println(monster.getName() + " is stuck in quicksand!");
         } else if (condition == StatusCondition.SLEEP) {
-            System.out.println(monster.getName() + " is sleeping and cannot move!");
+            combatLog.println(monster.getName() + " is sleeping and cannot move!");
         }
     }
 
@@ -198,13 +580,14 @@ public class CombatSystem {
      */
     private void handleStatusConditionEnding(Monster monster, StatusCondition condition) {
         monster.setStatusCondition(null);
+        combatListener.onStatusChanged(monster);
     }
 
     /**
      * Handle a monster passing its turn.
      */
     private void handlePassingTurn(Monster monster) {
-        System.out.println(monster.getName() + " passes!");
+        combatLog.println(monster.getName() + " passes!");
         if (monster.getStatusCondition() == StatusCondition.BURN) {
             statusHandler.applyBurnDamage(monster);
         }
@@ -214,13 +597,13 @@ public class CombatSystem {
      * Execute a monsters action.
      */
     private void executeMonsterAction(Monster attacker, Action action) {
-        System.out.println(attacker.getName() + " uses " + action.getName() + "!");
+        combatLog.println(attacker.getName() + " uses " + action.getName() + "!");
 
         // Execute the action regardless of burn status
         boolean actionFailed = !actionExecutor.executeAction(attacker, action, monsters);
         // Report action failure
         if (actionFailed) {
-            System.out.println("The action failed...");
+            combatLog.println("The action failed...");
         }
         // Apply burn damage after action if monster is burning
         // This happens whether the action succeeded or failed
@@ -228,8 +611,6 @@ public class CombatSystem {
             statusHandler.applyBurnDamage(attacker);
         }
 
-        // Reset selected action
-        attacker.setSelectedAction(null);
     }
 
     /**
@@ -256,68 +637,196 @@ public class CombatSystem {
 
     /**
      * Process end of round effects.
+     * Only protections that end in this round and monsters with a status condition are visited.
+     * The status condition ends of all afflicted monsters are drawn in one batch,
+     * then all resulting messages are printed in contestant order.
      */
     public void endOfRoundPhase() {
-        List<Monster> sortedMonsters = new ArrayList<>(monsters);
-
-        Collections.sort(sortedMonsters, new Comparator<Monster>() {
-            @Override
-            public int compare(Monster m1, Monster m2) {
-                return Integer.compare(m1.getContestantNumber(), m2.getContestantNumber());
+        int[] expired = protectionTimers.expire(roundNumber);
+        int afflictedCount = collectAfflicted();
+        statusHandler.rollStatusConditionEnds(statusBatch, afflictedCount, statusEnds);
+
+        int next = 0;
+        int batchPosition = 0;
+        int monsterIndex = nextEndOfRoundIndex(expired, next, 0);
+        while (monsterIndex >= 0) {
+            Monster monster = monsters.get(monsterIndex);
+            while (next < expired.length && TimerWheel.contestantIndexOf(expired[next]) == monsterIndex) {
+                ProtectionTarget target = TimerWheel.targetOf(expired[next]);
+                monster.setProtection(target, 0);
+                if (!monster.isDefeated()) {
+                    combatLog.println(monster.getName() + "'s "
+                            + (target == ProtectionTarget.HEALTH ? "damage" : "stat reduction")
+                            + " protection has ended.");
+                }
+                next++;
             }
-        });
-
-        for (Monster monster : sortedMonsters) {
-            if (!monster.isDefeated()) {
-                Map<ProtectionTarget, Integer> protection = monster.getProtection();
-
-                for (ProtectionTarget target : protection.keySet()) {
-                    int rounds = protection.get(target);
-                    if (rounds > 0) {
-                        protection.put(target, rounds - 1);
-                        if (protection.get(target) == 0) {
-                            System.out.println(monster.getName() + "'s "
-                                    + (target == ProtectionTarget.HEALTH ? "damage" : "stat reduction")
-                                    + " protection has ended.");
-                        }
-                    }
+            if (batchPosition < afflictedCount && statusBatch[batchPosition] == monster) {
+                if (statusEnds[batchPosition]) {
+                    statusHandler.endStatusCondition(monster);
                 }
+                statusBatch[batchPosition] = null;
+                batchPosition++;
+            }
+            monsterIndex = nextEndOfRoundIndex(expired, next, monsterIndex + 1);
+        }
+        criticalHitCache.clear();
+        currentMonsterIndex = 0;
+        roundNumber++;
+        countDownProtections();
+        stateVersion++;
+        if (battleLog != null) {
+            battleLog.round(roundNumber);
+        }
+    }
 
-                statusHandler.evaluateStatusCondition(monster);
+    /**
+     * Sets the protections of all protected monsters to the rounds they have left in the new round,
+     * so the state of a monster is complete without the timer wheel.
+     * Monsters without an active protection are left out of the set of protected monsters on the way.
+     */
+    private void countDownProtections() {
+        for (int i = protectedMonsters.nextSetBit(0); i >= 0; i = protectedMonsters.nextSetBit(i + 1)) {
+            Monster monster = monsters.get(i);
+            boolean active = false;
+            for (ProtectionTarget target : ProtectionTarget.values()) {
+                int remaining = protectionTimers.getRemainingRounds(i, target, roundNumber);
+                monster.setProtection(target, remaining);
+                active |= remaining > 0;
             }
+            protectedMonsters.set(i, active);
         }
-        for (Monster monster : monsters) {
-            monster.setSelectedAction(null);
+    }
+
+    /**
+     * Collects the monsters that still fight with a status condition into the status batch.
+     * Fainted monsters are removed from the afflicted set on the way.
+     *
+     * @return The number of monsters in the batch
+     */
+    private int collectAfflicted() {
+        if (statusBatch.length < afflicted.cardinality()) {
+            statusBatch = new Monster[monsters.size()];
+            statusEnds = new boolean[monsters.size()];
         }
+        int count = 0;
+        for (int i = afflicted.nextSetBit(0); i >= 0; i = afflicted.nextSetBit(i + 1)) {
+            if (monsters.get(i).isDefeated()) {
+                afflicted.clear(i);
+            } else {
+                statusBatch[count++] = monsters.get(i);
+            }
+        }
+        return count;
     }
 
     /**
-     * Start a competition with the selected monsters.
+     * Finds the next monster with end of round work.
      *
-     * @return The winning monster or null if it's a draw
+     * @param expired The protections ending this round
+     * @param next The position of the next unprocessed protection
+     * @param fromIndex The contestant index to start searching from
+     * @return The contestant index of the next monster, or -1 if there is none
      */
-    public Monster startCombat() {
-        int roundCount = 1;
+    private int nextEndOfRoundIndex(int[] expired, int next, int fromIndex) {
+        int nextAfflicted = afflicted.nextSetBit(fromIndex);
+        if (next >= expired.length) {
+            return nextAfflicted;
+        }
+        int nextExpired = TimerWheel.contestantIndexOf(expired[next]);
+        return nextAfflicted < 0 ? nextExpired : Math.min(nextAfflicted, nextExpired);
+    }
 
-        while (true) {
-            System.out.println("\n=== Round " + roundCount + " ===");
+    /**
+     * Gets the chance of a critical hit of an attacker against a target.
+     *
+     * @param attacker The attacking monster
+     * @param target The target monster
+     * @return The critical hit chance in percent (0-100)
+     */
+    public double getCriticalHitChance(Monster attacker, Monster target) {
+        return criticalHitCache.getChance(attacker, target);
+    }
 
-            // Phase 0
-            List<Monster> activeFighters = getActiveFighters();
-            if (activeFighters.size() < 2) {
-                if (activeFighters.size() == 1) {
-                    Monster winner = activeFighters.get(0);
-                    System.out.println(winner.getName() + " has no opponents left and wins the competition!");
-                    return winner;
-                } else {
-                    System.out.println("No monsters left. It's a draw!");
-                    return null;
-                }
+    /**
+     * Runs the competition without human input until it is decided or ends in a draw.
+     * Actions are selected through the command interface at the start of every round.
+     * Besides all but one monster fainting, the competition ends after the round limit
+     * or when the same state was reached too often without progress.
+     *
+     * @return The result of the competition
+     */
+    public CombatResult startCombat() {
+        int rounds = 0;
+        EndReason reason = findEndReason();
+        while (reason == null) {
+            combatLog.println("\n=== Round " + roundNumber + " ===");
+            selectActions();
+            executeActionsPhase();
+            if (aliveSet.getAliveCount() >= 2) {
+                endOfRoundPhase();
             }
+            combatLog.endRound();
+            rounds++;
+            reason = findEndReason();
+        }
 
-            // Note to self, rest of the phasing is now in commandhandler
+        Monster winner = checkForWinner();
+        switch (reason) {
+            case LAST_STANDING:
+                combatLog.println(winner.getName() + " has no opponents left and wins the competition!");
+                break;
+            case ROUND_LIMIT:
+                combatLog.println("The round limit of " + roundLimit + " rounds is reached. It's a draw!");
+                break;
+            case STALEMATE:
+                combatLog.println("The same state was reached " + repetitionLimit
+                        + " times without progress. It's a draw!");
+                break;
+            case ALL_FAINTED:
+            default:
+                combatLog.println("No monsters left. It's a draw!");
+                break;
+        }
+        combatLog.endRound();
+        return new CombatResult(winner, reason, rounds, statistics);
+    }
 
-            roundCount++;
+    /**
+     * Checks whether a competition without human input has to end before the next round.
+     *
+     * @return The reason the competition ends, or null if it continues
+     */
+    private EndReason findEndReason() {
+        if (aliveSet.getAliveCount() < 2) {
+            return aliveSet.getAliveCount() == 1 ? EndReason.LAST_STANDING : EndReason.ALL_FAINTED;
+        }
+        if (isRepeatedWithoutProgress()) {
+            return EndReason.STALEMATE;
+        }
+        if (roundLimit != NO_ROUND_LIMIT && roundNumber > roundLimit) {
+            return EndReason.ROUND_LIMIT;
+        }
+        return null;
+    }
+
+    /**
+     * Counts the current state and checks whether it was reached too often since the last progress.
+     * Progress means that the HP of all monsters together fell below its lowest value so far,
+     * which starts the counting anew. States are told apart by getStateHash, which covers the rounds
+     * protections have left, so a monster that waits behind a long protection is no stalemate.
+     *
+     * @return True if the combat is a stalemate
+     */
+    private boolean isRepeatedWithoutProgress() {
+        long totalHp = 0;
+        for (Monster monster : monsters) {
+            totalHp += monster.getCurrentHp();
+        }
+        if (totalHp < lowestTotalHp) {
+            lowestTotalHp = totalHp;
+            repetitions.clear();
         }
+        return repetitions.merge(getStateHash(), 1, Integer::sum) >= repetitionLimit;
     }
 }
\ No newline at end of file
@@ -0,0 +1,170 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+
+/**
+ * Caches the critical hit chance for pairs of attacker and target within a round.
+ * The chance only depends on the effective speeds, which change with SPD stages and QUICKSAND,
+ * so every contestant has a speed version that is increased on such a change.
+ * A cached chance is only used while both versions still match.
+ * The cache is an open addressing table of primitive arrays. Clearing it at the end of a round
+ * only starts a new generation, old entries are overwritten as they are reached.
+ * @author uuifx
+ */
+public class CriticalHitCache {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int contestants;
+    private final int[] speedVersions;
+    private long[] keys;
+    private long[] versions;
+    private double[] chances;
+    private int[] generations;
+    private int generation;
+    private int size;
+
+    /**
+     * Creates a new cache for the given number of contestants.
+     * @param contestants The number of contestants
+     */
+    public CriticalHitCache(int contestants) {
+        this.contestants = contestants;
+        this.speedVersions = new int[contestants];
+        this.generation = 1;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Calculates the critical hit chance without any caching.
+     * @param attacker The attacking monster
+     * @param target The target monster
+     * @return The critical hit chance in percent (0-100)
+     */
+    public static double calculateChance(Monster attacker, Monster target) {
+        return calculateChance(attacker.getEffectiveStat(StatType.SPD), target.getEffectiveStat(StatType.SPD));
+    }
+
+    /**
+     * Calculates the critical hit chance from the effective speeds.
+     * @param attackerSpd The effective SPD of the attacker
+     * @param targetSpd The effective SPD of the target
+     * @return The critical hit chance in percent (0-100)
+     */
+    public static double calculateChance(double attackerSpd, double targetSpd) {
+        return Math.pow(10, -targetSpd / attackerSpd) * 100;
+    }
+
+    /**
+     * Gets the critical hit chance of an attacker against a target, calculating it if needed.
+     * Monsters that are not contestants of this cache are calculated directly.
+     * @param attacker The attacking monster
+     * @param target The target monster
+     * @return The critical hit chance in percent (0-100)
+     */
+    public double getChance(Monster attacker, Monster target) {
+        int attackerIndex = attacker.getContestantNumber() - 1;
+        int targetIndex = target.getContestantNumber() - 1;
+        if (attackerIndex < 0 || targetIndex < 0 || attackerIndex >= contestants || targetIndex >= contestants) {
+            return calculateChance(attacker, target);
+        }
+
+        long key = (long) attackerIndex * contestants + targetIndex;
+        long version = ((long) speedVersions[attackerIndex] << 32) | (speedVersions[targetIndex] & 0xFFFFFFFFL);
+        int mask = keys.length - 1;
+        int slot = slotOf(key, mask);
+        while (generations[slot] == generation) {
+            if (keys[slot] == key) {
+                if (versions[slot] != version) {
+                    versions[slot] = version;
+                    chances[slot] = calculateChance(attacker, target);
+                }
+                return chances[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        double chance = calculateChance(attacker, target);
+        keys[slot] = key;
+        versions[slot] = version;
+        chances[slot] = chance;
+        generations[slot] = generation;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return chance;
+    }
+
+    /**
+     * Invalidates all cached chances involving a monster, e.g. after its speed changed.
+     * @param monster The monster whose effective speed may have changed
+     */
+    public void invalidate(Monster monster) {
+        int index = monster.getContestantNumber() - 1;
+        if (index >= 0 && index < contestants) {
+            speedVersions[index]++;
+        }
+    }
+
+    /**
+     * Removes all cached chances, e.g. at the end of a round.
+     */
+    public void clear() {
+        generation++;
+        size = 0;
+    }
+
+    /**
+     * Computes the first slot of a key.
+     * @param key The pair key
+     * @param mask The capacity minus one
+     * @return The slot
+     */
+    private static int slotOf(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    /**
+     * Allocates empty arrays with the given capacity.
+     * @param capacity The capacity, a power of two
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        versions = new long[capacity];
+        chances = new double[capacity];
+        generations = new int[capacity];
+    }
+
+    /**
+     * Doubles the capacity, keeping the entries of the current generation.
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldVersions = versions;
+        double[] oldChances = chances;
+        int[] oldGenerations = generations;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldGenerations[i] == generation) {
+                int slot = slotOf(oldKeys[i], mask);
+                while (generations[slot] == generation) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                versions[slot] = oldVersions[i];
+                chances[slot] = oldChances[i];
+                generations[slot] = generation;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of cached chances of the current round.
+     * @return The number of entries
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -3,9 +3,11 @@ package edu.kit.kastel.monstergame.model.combat;
 import edu.kit.kastel.monstergame.model.Action;
 import edu.kit.kastel.monstergame.model.Monster;
 import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.enums.Effectiveness;
 import edu.kit.kastel.monstergame.model.enums.Element;
 import edu.kit.kastel.monstergame.model.enums.StatType;
 import edu.kit.kastel.monstergame.model.util.ElementEffectiveness;
+import edu.kit.kastel.monstergame.model.util.ElementTable;
 import edu.kit.kastel.monstergame.model.util.RandomUtil;
 
 /**
@@ -15,6 +17,9 @@ import edu.kit.kastel.monstergame.model.util.RandomUtil;
 public class DamageCalculator {
     private RandomUtil randomUtil;
     private boolean inDebugMode;
+    private CombatLog combatLog;
+    private CriticalHitCache criticalHitCache;
+    private boolean lastCriticalHit;
 
     /**
      * Creates a new damage calculator.
@@ -25,6 +30,7 @@ public class DamageCalculator {
     public DamageCalculator(RandomUtil randomUtil, boolean debugMode) {
         this.randomUtil = randomUtil;
         this.inDebugMode = debugMode;
+        this.combatLog = new CombatLog();
     }
 
     /**
@@ -36,6 +42,32 @@ public class DamageCalculator {
         this.randomUtil = randomUtil;
     }
 
+    /**
+     * Sets the log that combat events are printed to.
+     * @param combatLog The combat log
+     */
+    public void setCombatLog(CombatLog combatLog) {
+        this.combatLog = combatLog;
+    }
+
+    /**
+     * Sets the cache that critical hit chances are looked up in.
+     * Without a cache the chance is calculated for every hit.
+     * @param criticalHitCache The critical hit cache, or null
+     */
+    public void setCriticalHitCache(CriticalHitCache criticalHitCache) {
+        this.criticalHitCache = criticalHitCache;
+    }
+
+    /**
+     * Checks if the damage calculated last was a critical hit.
+     *
+     * @return True if the last calculated damage was a critical hit
+     */
+    public boolean wasLastCriticalHit() {
+        return lastCriticalHit;
+    }
+
     /**
      * Calculate base damage for an attack.
      *
@@ -48,38 +80,32 @@ public class DamageCalculator {
     public int calculateBaseDamage(Monster attacker, Monster target, DamageEffect effect, boolean isFirstDamage) {
         Action action = attacker.getSelectedAction();
         int baseValue = effect.getPower();
-        double totalDamage = baseValue;
         Element actionElement = action.getElement();
-        Element attackerElement = attacker.getElement();
         Element targetElement = target.getElement();
-        double elementFactor = ElementEffectiveness.getElementFactor(actionElement, targetElement);
-        totalDamage *= elementFactor;
+        ElementTable elementTable = ElementEffectiveness.getTable();
+        double elementFactor = elementTable.getElementFactor(actionElement, targetElement);
         if (isFirstDamage) {
-            if (elementFactor > 1.0) {
-                System.out.println("It is very effective!");
-            } else if (elementFactor < 1.0) {
-                System.out.println("It is not very effective...");
+            Effectiveness effectiveness = elementTable.getEffectiveness(actionElement, targetElement);
+            if (effectiveness.getMessage() != null) {
+                combatLog.println(effectiveness.getMessage());
             }
         }
-        double attackerAtk = attacker.getEffectiveStat(StatType.ATK);
-        double targetDef = target.getEffectiveStat(StatType.DEF);
-        double statusFactor = attackerAtk / targetDef;
-        totalDamage *= statusFactor;
-        double attackerSpd = attacker.getEffectiveStat(StatType.SPD);
-        double targetSpd = target.getEffectiveStat(StatType.SPD);
-        double criticalChance = Math.pow(10, -targetSpd / attackerSpd) * 100;
+        double statusFactor = attacker.getEffectiveStat(StatType.ATK) / target.getEffectiveStat(StatType.DEF);
+        double criticalChance = criticalHitCache != null
+                ? criticalHitCache.getChance(attacker, target)
+                : CriticalHitCache.calculateChance(attacker, target);
         boolean isCriticalHit = randomUtil.rollChance(criticalChance, "critical hit");
+        lastCriticalHit = isCriticalHit;
         double criticalFactor = isCriticalHit ? 2.0 : 1.0;
-        totalDamage *= criticalFactor;
         if (isCriticalHit) {
-            System.out.println("Critical hit!");
+            combatLog.println("Critical hit!");
         }
-        double sameElementFactor = (actionElement == attackerElement) ? 1.5 : 1.0;
-        totalDamage *= sameElementFactor;
+        double sameElementFactor = elementTable.getSameElementFactor(actionElement, attacker.getElement());
         double randomFactor = randomUtil.getRandomDouble(0.85, 1.0, "damage random factor");
-        totalDamage *= randomFactor;
         double normalizationFactor = 1.0 / 3.0;
-        totalDamage *= normalizationFactor;
+        // Multiplied in the order of the formula, so rounding up gives the same damage as always
+        double totalDamage = baseValue * elementFactor * statusFactor * criticalFactor * sameElementFactor
+                * randomFactor * normalizationFactor;
         int finalDamage = (int) Math.ceil(totalDamage);
         // Output damage calculation in debug mode
         if (inDebugMode) {
@@ -23,6 +23,8 @@ public class EffectProcessor {
     private RandomUtil randomUtil;
     private boolean inDebugMode;
     private DamageCalculator damageCalculator;
+    private CombatListener combatListener;
+    private CombatLog combatLog;
 
     /**
      * Creates a new effect processor.
@@ -34,6 +36,8 @@ public class EffectProcessor {
         this.randomUtil = randomUtil;
         this.inDebugMode = debugMode;
         this.damageCalculator = new DamageCalculator(randomUtil, debugMode);
+        this.combatListener = new CombatListener() { };
+        this.combatLog = new CombatLog();
     }
 
     /**
@@ -46,6 +50,31 @@ public class EffectProcessor {
         this.damageCalculator.setRandomUtil(randomUtil);
     }
 
+    /**
+     * Sets the log that combat events are printed to.
+     * @param combatLog The combat log
+     */
+    public void setCombatLog(CombatLog combatLog) {
+        this.combatLog = combatLog;
+        this.damageCalculator.setCombatLog(combatLog);
+    }
+
+    /**
+     * Sets the listener that is notified about state changes.
+     * @param combatListener The combat listener
+     */
+    public void setCombatListener(CombatListener combatListener) {
+        this.combatListener = combatListener;
+    }
+
+    /**
+     * Sets the cache that critical hit chances are looked up in.
+     * @param criticalHitCache The critical hit cache
+     */
+    public void setCriticalHitCache(CriticalHitCache criticalHitCache) {
+        this.damageCalculator.setCriticalHitCache(criticalHitCache);
+    }
+
     /**
      * Apply an effect to its target.
      * @author uuifx
@@ -81,6 +110,27 @@ public class EffectProcessor {
         }
     }
 
+    /**
+     * Calculates how much HP a healing effect restores, before it is limited by the max HP.
+     *
+     * @param attacker The monster performing the action
+     * @param target The monster being healed
+     * @param effect The healing effect
+     * @return The amount of HP healed
+     */
+    public static int calculateHealAmount(Monster attacker, Monster target, HealingEffect effect) {
+        switch (effect.getHealType()) {
+            case ABSOLUTE:
+                return effect.getPower();
+            case RELATIVE:
+                return (int) Math.ceil(target.getMaxHp() * (effect.getPower() / 100.0));
+            case BASE:
+                return (int) Math.ceil(effect.getPower() * (attacker.getEffectiveStat(StatType.ATK) / 100.0));
+            default:
+                return 0;
+        }
+    }
+
     /**
      * Apply a damage effect to the target.
      *
@@ -91,6 +141,7 @@ public class EffectProcessor {
      */
     private void applyDamageEffect(Monster attacker, Monster target, DamageEffect effect, boolean isFirstDamage) {
         int damage = 0;
+        boolean isCriticalHit = false;
         boolean isProtected = false;
         boolean isBurnDamage = false;
 
@@ -98,12 +149,12 @@ public class EffectProcessor {
         isBurnDamage = attacker == target && target.getStatusCondition() == StatusCondition.BURN;
 
         // Check if the target has protection against damage (but not for burn damage)
-        if (target.getProtection().get(ProtectionTarget.HEALTH) > 0 && attacker != target && !isBurnDamage) {
+        if (target.isProtected(ProtectionTarget.HEALTH) && attacker != target && !isBurnDamage) {
             isProtected = true;
         }
 
         if (isProtected) {
-            System.out.println(target.getName() + " is protected against damage!");
+            combatLog.println(target.getName() + " is protected against damage!");
             return;
         }
 
@@ -121,6 +172,7 @@ public class EffectProcessor {
 
             case BASE:
                 damage = damageCalculator.calculateBaseDamage(attacker, target, effect, isFirstDamage);
+                isCriticalHit = damageCalculator.wasLastCriticalHit();
                 break;
             default: break;
         }
@@ -128,10 +180,13 @@ public class EffectProcessor {
         // Apply damage to target
         int newHp = target.getCurrentHp() - damage;
         target.setCurrentHp(newHp);
+        combatListener.onHpChanged(target);
+        combatListener.onDamageTaken(attacker, target, damage, isCriticalHit);
 
-        System.out.println(target.getName() + " takes " + damage + " damage!" + (isBurnDamage ? " from burning!" : ""));
+        combatLog.println(target.getName() + " takes " + damage + " damage!" + (isBurnDamage ? " from burning!" : ""));
         if (target.isDefeated()) {
-            System.out.println(target.getName() + " faints!");
+            combatLog.println(target.getName() + " faints!");
+            combatListener.onMonsterFainted(target);
         }
     }
 
@@ -151,26 +206,27 @@ public class EffectProcessor {
 
         // If monster already has a condition, it can't get another
         if (affectedMonster.getStatusCondition() != null) {
-            System.out.println(affectedMonster.getName() + " is already affected by "
+            combatLog.println(affectedMonster.getName() + " is already affected by "
                     + affectedMonster.getStatusCondition() + "!");
             return;
         }
 
         affectedMonster.setStatusCondition(newCondition);
+        combatListener.onStatusChanged(affectedMonster);
 
         // Apply immediate effects of the condition
         switch (newCondition) {
             case BURN:
-                System.out.println(affectedMonster.getName() + " caught on fire!");
+                combatLog.println(affectedMonster.getName() + " caught on fire!");
                 break;
             case WET:
-                System.out.println(affectedMonster.getName() + " got soaked!");
+                combatLog.println(affectedMonster.getName() + " got soaked!");
                 break;
             case QUICKSAND:
-                System.out.println(affectedMonster.getName() + " is stuck in quicksand!");
+                combatLog.println(affectedMonster.getName() + " is stuck in quicksand!");
                 break;
             case SLEEP:
-                System.out.println(affectedMonster.getName() + " fell asleep!");
+                combatLog.println(affectedMonster.getName() + " fell asleep!");
                 break;
             default: break;
         }
@@ -187,43 +243,46 @@ public class EffectProcessor {
         StatType statType = effect.getStat();
         int stageChange = effect.getStages();
         boolean isProtected = false;
-        if (stageChange < 0 && target.getProtection().get(ProtectionTarget.STATS) > 0 && attacker != target) {
+        if (stageChange < 0 && target.isProtected(ProtectionTarget.STATS) && attacker != target) {
             isProtected = true;
         }
 
         if (isProtected) {
-            System.out.println(target.getName() + " is protected against stat reduction!");
+            combatLog.println(target.getName() + " is protected against stat reduction!");
             return;
         }
 
         // Get current stage values
-        int currentStage = target.getStatStages().get(statType);
+        int currentStage = target.getStatStage(statType);
 
         target.modifyStat(statType, stageChange);
 
-        int newStage = target.getStatStages().get(statType);
+        int newStage = target.getStatStage(statType);
+        if (newStage != currentStage) {
+            combatListener.onStatStageChanged(target, statType);
+        }
 
         // Output message based on change
         if (newStage > currentStage) {
             if (attacker == target) {
-                System.out.println(target.getName() + "'s " + statType + " rose"
+                combatLog.println(target.getName() + "'s " + statType + " rose"
                         + (Math.abs(stageChange) > 1 ? " sharply" : "") + "!");
             } else {
-                System.out.println(target.getName() + "'s " + statType
+                combatLog.println(target.getName() + "'s " + statType
                         + (Math.abs(stageChange) > 1 ? " sharply" : "") + " rose!");
             }
         } else if (newStage < currentStage) {
             if (attacker == target) {
-                System.out.println(target.getName() + "'s " + statType
+                combatLog.println(target.getName() + "'s " + statType
                         + " fell"
                         + (Math.abs(stageChange) > 1 ? " sharply" : "") + "!");
             } else {
-                System.out.println(target.getName() + "'s " + statType
+                combatLog.println(target.getName() + "'s " + statType
                         + (Math.abs(stageChange) > 1 ? " sharply" : "") + " fell!");
             }
         } else {
             // No change (already at max/min)
-            System.out.println(target.getName() + "'s " + statType + " cannot go "
+            combatLog.println(target.getName() + "'s " + statType + " cannot go "
                     + (stageChange > 0 ? "higher" : "lower") + "!");
         }
     }
@@ -248,7 +307,8 @@ public class EffectProcessor {
         }
 
         target.setProtection(protectionTarget, rounds);
-        System.out.println(target.getName() + " is protected from "
+        combatListener.onProtectionChanged(target, protectionTarget, rounds);
+        combatLog.println(target.getName() + " is protected from "
                 + (protectionTarget == ProtectionTarget.HEALTH ? "damage" : "stat reductions")
                 + " for " + rounds + " rounds!");
     }
@@ -261,26 +321,7 @@ public class EffectProcessor {
      * @param effect The healing effect to apply
      */
     private void applyHealingEffect(Monster attacker, Monster target, HealingEffect effect) {
-        int healAmount = 0;
-
-        switch (effect.getHealType()) {
-            case ABSOLUTE:
-                healAmount = effect.getPower();
-                break;
-
-            case RELATIVE:
-                int maxHp = target.getBaseStats().get(StatType.HP);
-                double percentage = effect.getPower() / 100.0;
-                healAmount = (int) Math.ceil(maxHp * percentage);
-                break;
-
-            case BASE:
-                double attackerAtk = attacker.getEffectiveStat(StatType.ATK);
-                double healBase = effect.getPower() * (attackerAtk / 100.0);
-                healAmount = (int) Math.ceil(healBase);
-                break;
-            default: break;
-        }
+        int healAmount = calculateHealAmount(attacker, target, effect);
 
         // Apply healing to target
         int maxHp = target.getBaseStats().get(StatType.HP);
@@ -289,7 +330,8 @@ public class EffectProcessor {
         int actualHeal = newHp - currentHp;
 
         target.setCurrentHp(newHp);
+        combatListener.onHpChanged(target);
 
-        System.out.println(target.getName() + " recovered " + actualHeal + " HP!");
+        combatLog.println(target.getName() + " recovered " + actualHeal + " HP!");
     }
 }
\ No newline at end of file
@@ -10,8 +10,15 @@ import edu.kit.kastel.monstergame.model.util.RandomUtil;
  * @author uuifx
  */
 public class StatusConditionHandler {
+    /**
+     * Chance in percent that a status condition ends when it is checked.
+     */
+    public static final double STATUS_END_CHANCE = 33.33;
+
     private RandomUtil randomUtil;
     private boolean inDebugMode;
+    private CombatListener combatListener;
+    private CombatLog combatLog;
 
     /**
      * Creates a new status condition handler.
@@ -22,6 +29,8 @@ public class StatusConditionHandler {
     public StatusConditionHandler(RandomUtil randomUtil, boolean debugMode) {
         this.randomUtil = randomUtil;
         this.inDebugMode = debugMode;
+        this.combatListener = new CombatListener() { };
+        this.combatLog = new CombatLog();
     }
 
     /**
@@ -33,6 +42,22 @@ public class StatusConditionHandler {
         this.randomUtil = randomUtil;
     }
 
+    /**
+     * Sets the log that combat events are printed to.
+     * @param combatLog The combat log
+     */
+    public void setCombatLog(CombatLog combatLog) {
+        this.combatLog = combatLog;
+    }
+
+    /**
+     * Sets the listener that is notified about state changes.
+     * @param combatListener The combat listener
+     */
+    public void setCombatListener(CombatListener combatListener) {
+        this.combatListener = combatListener;
+    }
+
     /**
      * Apply burn damage to a monster.
      * @author uuifx
@@ -44,12 +69,15 @@ public class StatusConditionHandler {
         int burnDamage = (int) Math.ceil(maxHp * 0.1); // 10% of max HP
         int newHp = monster.getCurrentHp() - burnDamage;
         monster.setCurrentHp(newHp);
+        combatListener.onHpChanged(monster);
+        combatListener.onDamageTaken(monster, monster, burnDamage, false);
 
-        System.out.println(monster.getName() + " takes " + burnDamage + " damage from burning!");
+        combatLog.println(monster.getName() + " takes " + burnDamage + " damage from burning!");
 
         // Check if monster is defeated by burn
         if (monster.isDefeated()) {
-            System.out.println(monster.getName() + " faints!");
+            combatLog.println(monster.getName() + " faints!");
+            combatListener.onMonsterFainted(monster);
         }
     }
 
@@ -64,30 +92,56 @@ public class StatusConditionHandler {
         StatusCondition condition = monster.getStatusCondition();
         if (condition != null) {
             // 1/3 chance to end the status condition
-            boolean conditionEnds = randomUtil.rollChance(33.33, "status condition end for " + monster.getName());
+            boolean conditionEnds = randomUtil.rollChance(STATUS_END_CHANCE,
+                    "status condition end for " + monster.getName());
 
             if (conditionEnds) {
-                String conditionName = "";
-                switch (condition) {
-                    case BURN:
-                        conditionName = "burning";
-                        break;
-                    case WET:
-                        conditionName = "soaked";
-                        break;
-                    case QUICKSAND:
-                        conditionName = "quicksand";
-                        break;
-                    case SLEEP:
-                        conditionName = "sleeping";
-                        break;
-                    default: break;
-                }
-                System.out.println(monster.getName() + "'s " + conditionName + " has faded!");
-                monster.setStatusCondition(null);
+                endStatusCondition(monster);
                 return true;
             }
         }
         return false;
     }
+
+    /**
+     * Decide for a batch of afflicted monsters whether their status conditions end.
+     * All outcomes are drawn in one block, in the order of the given monsters.
+     *
+     * @param afflicted The monsters with a status condition
+     * @param count The number of monsters in the batch
+     * @param results The array the outcomes are written to
+     * @author uuifx
+     */
+    public void rollStatusConditionEnds(Monster[] afflicted, int count, boolean[] results) {
+        randomUtil.rollChances(STATUS_END_CHANCE, results, count,
+                i -> "status condition end for " + afflicted[i].getName());
+    }
+
+    /**
+     * End the status condition of a monster.
+     *
+     * @param monster The monster whose status condition fades
+     * @author uuifx
+     */
+    public void endStatusCondition(Monster monster) {
+        String conditionName = "";
+        switch (monster.getStatusCondition()) {
+            case BURN:
+                conditionName = "burning";
+                break;
+            case WET:
+                conditionName = "soaked";
+                break;
+            case QUICKSAND:
+                conditionName = "quicksand";
+                break;
+            case SLEEP:
+                conditionName = "sleeping";
+                break;
+            default: break;
+        }
+        combatLog.println(monster.getName() + "'s " + conditionName + " has faded!");
+        monster.setStatusCondition(null);
+        combatListener.onStatusChanged(monster);
+    }
 }
\ No newline at end of file
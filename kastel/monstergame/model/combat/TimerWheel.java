@@ -0,0 +1,125 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+
+import java.util.Arrays;
+
+/**
+ * Round indexed timer wheel for protection durations.
+ * When a protection is applied, its expiry is scheduled in the slot of the round it ends in.
+ * At the end of a round only that slot is visited, so the work is proportional to the protections
+ * that actually expire and not to the number of monsters.
+ * Durations longer than the wheel stay in their slot until the wheel has turned far enough.
+ * @author uuifx
+ */
+public class TimerWheel {
+    private static final int SLOTS = 64;
+    private static final ProtectionTarget[] TARGET_VALUES = ProtectionTarget.values();
+    private static final int TARGETS = TARGET_VALUES.length;
+
+    private final int[] expiryRounds;
+    private final int[][] slots;
+    private final int[] slotSizes;
+
+    /**
+     * Creates a new timer wheel for the given number of contestants.
+     * @param contestants The number of contestants
+     */
+    public TimerWheel(int contestants) {
+        this.expiryRounds = new int[contestants * TARGETS];
+        this.slots = new int[SLOTS][4];
+        this.slotSizes = new int[SLOTS];
+    }
+
+    /**
+     * Schedules the end of a protection.
+     * A protection scheduled again before it ended replaces the earlier one.
+     * @param contestantIndex The index of the protected contestant
+     * @param target What the contestant is protected against
+     * @param lastRound The last round the protection is active in
+     */
+    public void schedule(int contestantIndex, ProtectionTarget target, int lastRound) {
+        int key = contestantIndex * TARGETS + target.ordinal();
+        expiryRounds[key] = lastRound;
+        int slot = lastRound % SLOTS;
+        if (slotSizes[slot] == slots[slot].length) {
+            slots[slot] = Arrays.copyOf(slots[slot], slots[slot].length * 2);
+        }
+        slots[slot][slotSizes[slot]++] = key;
+    }
+
+    /**
+     * Cancels a scheduled protection end, e.g. because the protection was removed.
+     * @param contestantIndex The index of the contestant
+     * @param target The protection target
+     */
+    public void cancel(int contestantIndex, ProtectionTarget target) {
+        expiryRounds[contestantIndex * TARGETS + target.ordinal()] = 0;
+    }
+
+    /**
+     * Cancels all scheduled protection ends.
+     */
+    public void clear() {
+        Arrays.fill(expiryRounds, 0);
+        Arrays.fill(slotSizes, 0);
+    }
+
+    /**
+     * Gets the number of rounds a protection is still active, including the given round.
+     * @param contestantIndex The index of the contestant
+     * @param target The protection target
+     * @param round The current round
+     * @return The remaining rounds, or 0 if the protection is not active
+     */
+    public int getRemainingRounds(int contestantIndex, ProtectionTarget target, int round) {
+        int lastRound = expiryRounds[contestantIndex * TARGETS + target.ordinal()];
+        return lastRound >= round ? lastRound - round + 1 : 0;
+    }
+
+    /**
+     * Removes all protections that end in the given round.
+     * @param round The round that is ending
+     * @return The expired entries, encoded as contestant index times the number of targets plus
+     *         the target ordinal, in ascending order
+     */
+    public int[] expire(int round) {
+        int slot = round % SLOTS;
+        int[] entries = slots[slot];
+        int[] expired = new int[slotSizes[slot]];
+        int expiredCount = 0;
+        int kept = 0;
+        for (int i = 0; i < slotSizes[slot]; i++) {
+            int key = entries[i];
+            if (expiryRounds[key] == round) {
+                expiryRounds[key] = 0;
+                expired[expiredCount++] = key;
+            } else if (expiryRounds[key] > round && expiryRounds[key] % SLOTS == slot) {
+                // Ends in a later turn of the wheel
+                entries[kept++] = key;
+            }
+        }
+        slotSizes[slot] = kept;
+        expired = Arrays.copyOf(expired, expiredCount);
+        Arrays.sort(expired);
+        return expired;
+    }
+
+    /**
+     * Gets the contestant index of an expired entry.
+     * @param entry The entry returned by expire
+     * @return The contestant index
+     */
+    public static int contestantIndexOf(int entry) {
+        return entry / TARGETS;
+    }
+
+    /**
+     * Gets the protection target of an expired entry.
+     * @param entry The entry returned by expire
+     * @return The protection target
+     */
+    public static ProtectionTarget targetOf(int entry) {
+        return TARGET_VALUES[entry % TARGETS];
+    }
+}
@@ -2,6 +2,9 @@ package edu.kit.kastel.monstergame.model.command;
 
 import edu.kit.kastel.monstergame.model.combat.CombatSystem;
 import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.ai.Tablebase;
+import edu.kit.kastel.monstergame.model.analysis.MatchupCache;
+import edu.kit.kastel.monstergame.model.analysis.SequentialTest;
 import edu.kit.kastel.monstergame.model.util.FileParser;
 import edu.kit.kastel.monstergame.model.util.RandomUtil;
 import edu.kit.kastel.monstergame.model.command.handlers.ActionHandler;
@@ -12,6 +15,11 @@ import edu.kit.kastel.monstergame.model.command.handlers.MonsterDisplayHandler;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Main command handler for the monster game.
@@ -106,6 +114,54 @@ public class CommandHandler {
                     competitionHandler.handleCompetition(monsterNames);
                 }
                 break;
+            case "royale":
+                handleRoyaleCommand(parts);
+                break;
+            case "simulate":
+            case "tournament":
+                handleSimulateCommand(parts);
+                break;
+            case "matrix":
+                if (parts.length < 2) {
+                    competitionHandler.handleWinMatrix();
+                } else {
+                    try {
+                        competitionHandler.handleWinMatrix(Integer.parseInt(parts[1]));
+                    } catch (NumberFormatException e) {
+                        System.out.println("Error: invalid number of battles: " + parts[1]);
+                    }
+                }
+                break;
+            case "cache":
+                handleCacheCommand(parts);
+                break;
+            case "precision":
+                if (parts.length < 2) {
+                    System.out.println("Error: precision command requires a percentage or off");
+                } else if (parts[1].equals("off")) {
+                    competitionHandler.handlePrecision(SequentialTest.FIXED);
+                } else {
+                    try {
+                        competitionHandler.handlePrecision(Double.parseDouble(parts[1]));
+                    } catch (NumberFormatException e) {
+                        System.out.println("Error: invalid precision: " + parts[1]);
+                    }
+                }
+                break;
+            case "policy":
+                if (parts.length < 2) {
+                    System.out.println("Error: policy command requires a policy name "
+                            + "(random, greedy, status, heal, search, mcts)");
+                } else {
+                    competitionHandler.handlePolicy(parts[1]);
+                }
+                break;
+            case "rounds":
+                handleRoundsCommand(parts);
+                break;
+            case "tablebase":
+                handleTablebaseCommand(parts);
+                break;
             case "show":
                 handleShowCommand(parts);
                 break;
@@ -123,6 +179,61 @@ public class CommandHandler {
                     actionHandler.selectAction(actionName, targetName);
                 }
                 break;
+            case "preview":
+                if (!inCompetition || currentMonster == null) {
+                    System.out.println("Error: preview command only available during competition in Phase I");
+                } else {
+                    displayHandler.showPreview();
+                }
+                break;
+            case "record":
+                if (parts.length < 2) {
+                    System.out.println("Error: record command requires a file path or off");
+                } else {
+                    try {
+                        competitionHandler.handleRecord(parts[1].equals("off") ? null : Path.of(parts[1]));
+                    } catch (InvalidPathException e) {
+                        System.out.println("Error: invalid file path: " + parts[1]);
+                    }
+                }
+                break;
+            case "replay":
+                handleReplayCommand(parts);
+                break;
+            case "store":
+                if (parts.length < 2) {
+                    System.out.println("Error: store command requires a directory or off");
+                } else {
+                    try {
+                        competitionHandler.handleStore(parts[1].equals("off") ? null : Path.of(parts[1]));
+                    } catch (InvalidPathException e) {
+                        System.out.println("Error: invalid directory: " + parts[1]);
+                    }
+                }
+                break;
+            case "query":
+                handleQueryCommand(parts);
+                break;
+            case "extract":
+                handleExtractCommand(parts);
+                break;
+            case "undo":
+                if (!inCompetition || currentMonster == null) {
+                    System.out.println("Error: undo command only available during competition in Phase I");
+                } else {
+                    competitionHandler.handleUndo();
+                }
+                break;
+            case "rewind":
+                handleRewindCommand(parts);
+                break;
+            case "fork":
+                if (!inCompetition || currentMonster == null) {
+                    System.out.println("Error: fork command only available during competition in Phase I");
+                } else {
+                    handleForkCommand(parts);
+                }
+                break;
             case "pass":
                 if (!inCompetition || currentMonster == null) {
                     System.out.println("Error: pass command only available during competition in Phase I");
@@ -136,6 +247,252 @@ public class CommandHandler {
         }
     }
 
+    /**
+     * Handles the royale command.
+     * @param parts The parts of the command
+     */
+    private void handleRoyaleCommand(String[] parts) {
+        if (parts.length < 3) {
+            System.out.println("Error: royale command requires the number of entrants and at least one monster name");
+            return;
+        }
+        int entrants;
+        try {
+            entrants = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            System.out.println("Error: invalid number of entrants: " + parts[1]);
+            return;
+        }
+        String[] monsterNames = new String[parts.length - 2];
+        System.arraycopy(parts, 2, monsterNames, 0, parts.length - 2);
+        competitionHandler.handleRoyale(entrants, monsterNames);
+    }
+
+    /**
+     * Handles the simulate and tournament commands. A simulation fights the given monsters against each other,
+     * a tournament fights every pair of them.
+     * @param parts The parts of the command
+     */
+    private void handleSimulateCommand(String[] parts) {
+        if (parts.length < 5) {
+            System.out.println("Error: " + parts[0] + " command requires the number of battles, a file path "
+                    + "and at least two monster names");
+            return;
+        }
+        int battles;
+        try {
+            battles = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            System.out.println("Error: invalid number of battles: " + parts[1]);
+            return;
+        }
+        Path path;
+        try {
+            path = Path.of(parts[2]);
+        } catch (InvalidPathException e) {
+            System.out.println("Error: invalid file path: " + parts[2]);
+            return;
+        }
+        String[] monsterNames = Arrays.copyOfRange(parts, 3, parts.length);
+        List<String[]> lineups = new ArrayList<>();
+        if (parts[0].equals("simulate")) {
+            lineups.add(monsterNames);
+        } else {
+            for (int i = 0; i < monsterNames.length; i++) {
+                for (int j = i + 1; j < monsterNames.length; j++) {
+                    lineups.add(new String[] {monsterNames[i], monsterNames[j]});
+                }
+            }
+        }
+        competitionHandler.handleSimulate(battles, path, lineups);
+    }
+
+    /**
+     * Handles the cache command.
+     * @param parts The parts of the command
+     */
+    private void handleCacheCommand(String[] parts) {
+        if (parts.length < 2) {
+            System.out.println("Error: cache command requires a file path or off and optionally a capacity");
+            return;
+        }
+        int capacity = MatchupCache.DEFAULT_CAPACITY;
+        if (parts.length > 2) {
+            try {
+                capacity = Integer.parseInt(parts[2]);
+            } catch (NumberFormatException e) {
+                System.out.println("Error: invalid capacity: " + parts[2]);
+                return;
+            }
+        }
+        try {
+            competitionHandler.handleCache(parts[1].equals("off") ? null : Path.of(parts[1]), capacity);
+        } catch (InvalidPathException e) {
+            System.out.println("Error: invalid file path: " + parts[1]);
+        }
+    }
+
+    /**
+     * Handles the replay command.
+     * @param parts The parts of the command
+     */
+    private void handleReplayCommand(String[] parts) {
+        if (!inCompetition || currentMonster == null) {
+            System.out.println("Error: replay command only available during competition in Phase I");
+            return;
+        }
+        if (parts.length < 3) {
+            System.out.println("Error: replay command requires a file path and a round number");
+            return;
+        }
+        try {
+            competitionHandler.handleReplay(Path.of(parts[1]), Integer.parseInt(parts[2]));
+        } catch (NumberFormatException e) {
+            System.out.println("Error: invalid round number: " + parts[2]);
+        } catch (InvalidPathException e) {
+            System.out.println("Error: invalid file path: " + parts[1]);
+        }
+    }
+
+    /**
+     * Handles the query command, e.g. "query Pyro by Aqua with Splash within 3".
+     * @param parts The parts of the command
+     */
+    private void handleQueryCommand(String[] parts) {
+        if (parts.length < 2 || parts.length % 2 != 0) {
+            System.out.println("Error: query command requires a monster name and optionally "
+                    + "by <monster>, with <action> and within <rounds>");
+            return;
+        }
+        String actor = null;
+        String action = null;
+        int withinRounds = Integer.MAX_VALUE;
+        for (int i = 2; i < parts.length; i += 2) {
+            switch (parts[i]) {
+                case "by":
+                    actor = parts[i + 1];
+                    break;
+                case "with":
+                    action = parts[i + 1];
+                    break;
+                case "within":
+                    try {
+                        withinRounds = Integer.parseInt(parts[i + 1]);
+                    } catch (NumberFormatException e) {
+                        System.out.println("Error: invalid number of rounds: " + parts[i + 1]);
+                        return;
+                    }
+                    break;
+                default:
+                    System.out.println("Error: unknown query condition: " + parts[i]);
+                    return;
+            }
+        }
+        competitionHandler.handleQuery(parts[1], actor, action, withinRounds);
+    }
+
+    /**
+     * Handles the extract command.
+     * @param parts The parts of the command
+     */
+    private void handleExtractCommand(String[] parts) {
+        if (parts.length < 3) {
+            System.out.println("Error: extract command requires a battle number and a file path");
+            return;
+        }
+        try {
+            competitionHandler.handleExtract(Integer.parseInt(parts[1]), Path.of(parts[2]));
+        } catch (NumberFormatException e) {
+            System.out.println("Error: invalid battle number: " + parts[1]);
+        } catch (InvalidPathException e) {
+            System.out.println("Error: invalid file path: " + parts[2]);
+        }
+    }
+
+    /**
+     * Handles the rewind command.
+     * @param parts The parts of the command
+     */
+    private void handleRewindCommand(String[] parts) {
+        if (!inCompetition || currentMonster == null) {
+            System.out.println("Error: rewind command only available during competition in Phase I");
+            return;
+        }
+        if (parts.length < 2) {
+            System.out.println("Error: rewind command requires a round number");
+            return;
+        }
+        try {
+            competitionHandler.handleRewind(Integer.parseInt(parts[1]));
+        } catch (NumberFormatException e) {
+            System.out.println("Error: invalid round number: " + parts[1]);
+        }
+    }
+
+    /**
+     * Handles the fork command.
+     * @param parts The parts of the command
+     */
+    private void handleForkCommand(String[] parts) {
+        if (parts.length < 2) {
+            System.out.println("Error: fork command requires the number of forks and optionally a number of rounds");
+            return;
+        }
+        int[] counts = {0, CompetitionHandler.DEFAULT_FORK_ROUNDS};
+        for (int i = 0; i < counts.length && i + 1 < parts.length; i++) {
+            try {
+                counts[i] = Integer.parseInt(parts[i + 1]);
+            } catch (NumberFormatException e) {
+                System.out.println("Error: invalid number: " + parts[i + 1]);
+                return;
+            }
+        }
+        competitionHandler.handleFork(counts[0], counts[1]);
+    }
+
+    /**
+     * Handles the rounds command.
+     * @param parts The parts of the command
+     */
+    private void handleRoundsCommand(String[] parts) {
+        if (parts.length < 2) {
+            System.out.println("Error: rounds command requires a round limit (0 for none) "
+                    + "and optionally a repetition limit");
+            return;
+        }
+        int[] limits = {0, CombatSystem.DEFAULT_REPETITION_LIMIT};
+        for (int i = 0; i < limits.length && i + 1 < parts.length; i++) {
+            try {
+                limits[i] = Integer.parseInt(parts[i + 1]);
+            } catch (NumberFormatException e) {
+                System.out.println("Error: invalid limit: " + parts[i + 1]);
+                return;
+            }
+        }
+        competitionHandler.handleRoundLimit(limits[0], limits[1]);
+    }
+
+    /**
+     * Handles the tablebase command.
+     * @param parts The parts of the command
+     */
+    private void handleTablebaseCommand(String[] parts) {
+        if (parts.length < 3) {
+            System.out.println("Error: tablebase command requires two monster names and optionally an HP threshold");
+            return;
+        }
+        int threshold = Tablebase.DEFAULT_THRESHOLD;
+        if (parts.length > 3) {
+            try {
+                threshold = Integer.parseInt(parts[3]);
+            } catch (NumberFormatException e) {
+                System.out.println("Error: invalid HP threshold: " + parts[3]);
+                return;
+            }
+        }
+        competitionHandler.handleTablebase(parts[1], parts[2], threshold);
+    }
+
     /**
      * Handles the show command.
      * @param parts The parts of the command
@@ -266,6 +623,14 @@ public class CommandHandler {
         this.combatSystem = combatSystem;
     }
 
+    /**
+     * Gets the display handler.
+     * @return The display handler
+     */
+    public MonsterDisplayHandler getDisplayHandler() {
+        return displayHandler;
+    }
+
     /**
      * Gets the competition handler.
      * @return The competition handler
@@ -17,4 +17,16 @@ public interface CommandInterface {
      * @return selected action
      */
     Action selectAction(Monster monster, List<Monster> opponents);
+
+    /**
+     * Target selection, asked right after the action was selected.
+     * The caller sets the target, so selecting an action has no side effects on the monster.
+     * @param monster monster
+     * @param action the selected action
+     * @param opponents opponent
+     * @return selected target, or null for the default target
+     */
+    default Monster selectTarget(Monster monster, Action action, List<Monster> opponents) {
+        return null;
+    }
 }
\ No newline at end of file
@@ -46,7 +46,21 @@ public class ActionHandler {
             return;
         }
 
+        Monster selectedTarget = null;
+        if (targetName != null) {
+            selectedTarget = commandHandler.getCombatSystem().findMonster(targetName);
+            if (selectedTarget == null) {
+                System.out.println("Error, there is no monster " + targetName + " in the competition.");
+                return;
+            }
+            if (selectedTarget == currentMonster || selectedTarget.isDefeated()) {
+                System.out.println("Error, " + targetName + " cannot be targeted.");
+                return;
+            }
+        }
+
         currentMonster.setSelectedAction(selectedAction);
+        currentMonster.setSelectedTarget(selectedTarget);
         commandHandler.getCompetitionHandler().nextMonsterOrPhase();
     }
 
@@ -62,6 +76,7 @@ public class ActionHandler {
 
         // Set the monster's selected action to null
         currentMonster.setSelectedAction(null);
+        currentMonster.setSelectedTarget(null);
         commandHandler.getCompetitionHandler().nextMonsterOrPhase();
     }
 
@@ -1,21 +1,96 @@
 package edu.kit.kastel.monstergame.model.command.handlers;
 
 import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.ai.Tablebase;
+import edu.kit.kastel.monstergame.model.analysis.ColumnarResultWriter;
+import edu.kit.kastel.monstergame.model.analysis.ForkProjection;
+import edu.kit.kastel.monstergame.model.analysis.MatchupCache;
+import edu.kit.kastel.monstergame.model.analysis.MatchupStatistics;
+import edu.kit.kastel.monstergame.model.analysis.SequentialTest;
+import edu.kit.kastel.monstergame.model.analysis.WinMatrix;
+import edu.kit.kastel.monstergame.model.combat.BattleLog;
+import edu.kit.kastel.monstergame.model.combat.BattleLogReader;
+import edu.kit.kastel.monstergame.model.combat.BattleLogStore;
+import edu.kit.kastel.monstergame.model.combat.CombatHistory;
+import edu.kit.kastel.monstergame.model.combat.CombatLog;
+import edu.kit.kastel.monstergame.model.combat.CombatResult;
 import edu.kit.kastel.monstergame.model.combat.CombatSystem;
 import edu.kit.kastel.monstergame.model.command.CommandHandler;
+import edu.kit.kastel.monstergame.model.command.CommandInterface;
 import edu.kit.kastel.monstergame.model.command.impl.ConsoleCommandInterface;
+import edu.kit.kastel.monstergame.model.command.impl.ExpectiminimaxCommandInterface;
+import edu.kit.kastel.monstergame.model.command.impl.GreedyDamageCommandInterface;
+import edu.kit.kastel.monstergame.model.command.impl.HealWhenLowCommandInterface;
+import edu.kit.kastel.monstergame.model.command.impl.MonteCarloCommandInterface;
+import edu.kit.kastel.monstergame.model.command.impl.RandomCommandInterface;
+import edu.kit.kastel.monstergame.model.command.impl.StatusFirstCommandInterface;
+import edu.kit.kastel.monstergame.model.enums.ActionPolicy;
+import edu.kit.kastel.monstergame.model.enums.TargetPolicy;
+import edu.kit.kastel.monstergame.model.util.Fingerprint;
+import edu.kit.kastel.monstergame.model.util.RandomUtil;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 /**
  * Handles competition related commands and competition phase management.
  * @author uuifx
  */
 public class CompetitionHandler {
+    /**
+     * Maximum number of events printed per round of a battle royale.
+     */
+    private static final int ROYALE_EVENT_LIMIT = 40;
+    /**
+     * Directory the tablebase files are stored in.
+     */
+    private static final Path TABLEBASE_DIRECTORY = Path.of("tablebases");
+    private static final double NANOS_PER_SECOND = 1e9;
+    /**
+     * Number of rounds after which a competition without human input ends in a draw, unless set otherwise.
+     */
+    private static final int DEFAULT_ROUND_LIMIT = 1000;
+    /**
+     * Number of rounds a fork of a competition is fought at most, unless given otherwise.
+     */
+    public static final int DEFAULT_FORK_ROUNDS = 100;
+    /**
+     * Maximum number of forks of a competition.
+     */
+    private static final int MAX_FORKS = 100000;
+    private static final double PERCENT = 100.0;
+    /**
+     * Number of combats of every pair of the win matrix, unless given otherwise.
+     */
+    private static final int DEFAULT_MATRIX_BATTLES = 100;
+    /**
+     * Maximum number of monsters whose win matrix is printed completely, larger rosters only print the best ones.
+     */
+    private static final int MAX_PRINTED_MATRIX = 8;
+    /**
+     * Largest precision of the win rate at which simulations stop, in percent.
+     */
+    private static final double MAX_PRECISION = 50.0;
+
     private final CommandHandler commandHandler;
+    private ActionPolicy actionPolicy;
+    private int roundLimit;
+    private int repetitionLimit;
+    private double precision;
+    private CombatHistory history;
+    private Path recordPath;
+    private BattleLog battleLog;
+    private BattleLogStore store;
+    private MatchupCache matchupCache;
+    private WinMatrix winMatrix;
 
     /**
      * Creates a new CompetitionHandler.
@@ -23,13 +98,110 @@ public class CompetitionHandler {
      */
     public CompetitionHandler(CommandHandler commandHandler) {
         this.commandHandler = commandHandler;
+        this.actionPolicy = ActionPolicy.RANDOM;
+        this.roundLimit = DEFAULT_ROUND_LIMIT;
+        this.repetitionLimit = CombatSystem.DEFAULT_REPETITION_LIMIT;
+        this.precision = SequentialTest.FIXED;
+    }
+
+    /**
+     * Handles the rounds command, which sets when competitions without human input end in a draw.
+     * @param roundLimit The number of rounds, or CombatSystem.NO_ROUND_LIMIT
+     * @param repetitionLimit How often the same state may be reached without progress
+     */
+    public void handleRoundLimit(int roundLimit, int repetitionLimit) {
+        if (roundLimit < 0) {
+            System.out.println("Error: round limit must not be negative");
+            return;
+        }
+        if (repetitionLimit < 2) {
+            System.out.println("Error: repetition limit must be at least 2");
+            return;
+        }
+        this.roundLimit = roundLimit;
+        this.repetitionLimit = repetitionLimit;
+        System.out.println("Competitions without human input now end in a draw "
+                + (roundLimit == CombatSystem.NO_ROUND_LIMIT ? "" : "after " + roundLimit + " rounds or ")
+                + "when a state is reached " + repetitionLimit + " times without progress.");
+    }
+
+    /**
+     * Handles the precision command, which lets simulations, tournaments and the win matrix stop fighting
+     * a matchup of two monsters early, once one of them is favored or its win rate is known precisely enough.
+     * The number of battles they are given is then the most combats of a matchup.
+     * @param percent The half width of the interval of the win rate in percent, or SequentialTest.FIXED
+     *                to always fight the given number of battles
+     */
+    public void handlePrecision(double percent) {
+        if (percent < 0 || percent >= MAX_PRECISION || Double.isNaN(percent)) {
+            System.out.println("Error: precision must be between 0 and " + MAX_PRECISION + " percent");
+            return;
+        }
+        if (percent == SequentialTest.FIXED) {
+            precision = SequentialTest.FIXED;
+            System.out.println("Simulations now fight the given number of battles of every matchup.");
+            return;
+        }
+        precision = percent / PERCENT;
+        System.out.printf("Simulations now stop a matchup once one monster is favored or its win rate is known "
+                + "within %.1f%%.%n", percent);
+    }
+
+    /**
+     * Handles the policy command, which sets how actions are selected in competitions without human input.
+     * @param policyName The name of the policy
+     */
+    public void handlePolicy(String policyName) {
+        ActionPolicy policy = ActionPolicy.fromString(policyName);
+        if (policy == null) {
+            System.out.println("Error: unknown policy: " + policyName);
+            return;
+        }
+        actionPolicy = policy;
+        System.out.println("Actions are now selected with the " + policy.getValue() + " policy.");
+    }
+
+    /**
+     * Creates the command interface for the current action policy.
+     * @return The command interface selecting actions without human input
+     */
+    public CommandInterface createPolicyInterface() {
+        return createPolicyInterface(commandHandler.getRandomUtil());
+    }
+
+    /**
+     * Creates the command interface for the current action policy with the given random numbers.
+     * @param randomUtil The random utility of the combat, which policies that choose randomly split their own from
+     * @return The command interface selecting actions without human input
+     */
+    private CommandInterface createPolicyInterface(RandomUtil randomUtil) {
+        switch (actionPolicy) {
+            case GREEDY:
+                return new GreedyDamageCommandInterface();
+            case STATUS_FIRST:
+                return new StatusFirstCommandInterface();
+            case HEAL_WHEN_LOW:
+                return new HealWhenLowCommandInterface();
+            case SEARCH:
+                return new ExpectiminimaxCommandInterface();
+            case MONTE_CARLO:
+                return new MonteCarloCommandInterface();
+            case RANDOM:
+            default:
+                return new RandomCommandInterface(randomUtil.split());
+        }
     }
 
     /**
      * Handles the competition command.
+     * It is rejected while a competition is running, since starting one would end the recording of the other.
      * @param monsterNames Array of monster names for the competition
      */
     public void handleCompetition(String[] monsterNames) {
+        if (commandHandler.isInCompetition()) {
+            System.out.println("Error: a competition is already running");
+            return;
+        }
         if (monsterNames.length < 2) {
             System.out.println("Error: competition requires at least two monsters");
             return;
@@ -66,6 +238,8 @@ public class CompetitionHandler {
                 commandHandler.getRandomUtil());
 
         commandHandler.setCombatSystem(combatSystem);
+        history = new CombatHistory();
+        startRecording(combatSystem);
 
         System.out.println("The " + competitionMonsters.size() + " monsters enter the competition!");
 
@@ -76,6 +250,423 @@ public class CompetitionHandler {
         startPhaseI();
     }
 
+    /**
+     * Handles the royale command.
+     * The entrants are filled up by cycling through the given monsters and fight automatically
+     * with randomly chosen actions until one is left. It is rejected while a competition is running.
+     * @param entrants The number of monsters entering the battle royale
+     * @param monsterNames Array of monster names the entrants are copied from
+     */
+    public void handleRoyale(int entrants, String[] monsterNames) {
+        if (commandHandler.isInCompetition()) {
+            System.out.println("Error: a competition is already running");
+            return;
+        }
+        if (entrants < 2) {
+            System.out.println("Error: battle royale requires at least two entrants");
+            return;
+        }
+
+        List<Monster> templates = new ArrayList<>();
+        for (String name : monsterNames) {
+            Monster template = findMonster(name);
+            if (template == null) {
+                System.out.println("Error: unknown monster: " + name);
+                return;
+            }
+            templates.add(template);
+        }
+
+        List<Monster> competitionMonsters = new ArrayList<>(entrants);
+        Map<String, Integer> monsterCounts = new HashMap<>();
+        for (int i = 0; i < entrants; i++) {
+            competitionMonsters.add(createCompetitionMonster(templates.get(i % templates.size()), monsterCounts));
+        }
+
+        CombatSystem combatSystem = new CombatSystem(
+                competitionMonsters,
+                createPolicyInterface(),
+                commandHandler.isInDebugMode(),
+                commandHandler.getRandomUtil());
+        combatSystem.setTargetPolicy(TargetPolicy.NEXT_ALIVE);
+        combatSystem.setCombatLog(new CombatLog(ROYALE_EVENT_LIMIT));
+        combatSystem.setRoundLimit(roundLimit);
+        combatSystem.setRepetitionLimit(repetitionLimit);
+        commandHandler.setCombatSystem(combatSystem);
+        startRecording(combatSystem);
+
+        System.out.println("The " + competitionMonsters.size() + " monsters enter the battle royale!");
+
+        CombatResult result = combatSystem.startCombat();
+        commandHandler.getDisplayHandler().showCompetitionSummary();
+        handleCompetitionEnd(result.getWinner());
+        System.out.println("Ended after " + result.getRounds() + " rounds: "
+                + result.getReason().name().toLowerCase().replace('_', ' '));
+    }
+
+    /**
+     * Handles the fork command, which fights several continuations of the running competition
+     * with the current action policy and prints how they ended. The competition itself is not changed.
+     * @param forks The number of continuations
+     * @param rounds The number of rounds every continuation is fought at most
+     */
+    public void handleFork(int forks, int rounds) {
+        if (forks < 1 || forks > MAX_FORKS) {
+            System.out.println("Error: number of forks must be between 1 and " + MAX_FORKS);
+            return;
+        }
+        if (rounds < 1) {
+            System.out.println("Error: number of rounds must be positive");
+            return;
+        }
+        CombatSystem combatSystem = commandHandler.getCombatSystem();
+        long start = System.nanoTime();
+        ForkProjection projection = ForkProjection.run(combatSystem, forks, rounds, this::createPolicyInterface,
+                Runtime.getRuntime().availableProcessors());
+        System.out.printf("%d forks of round %d with the %s policy, up to %d rounds each:%n", forks,
+                combatSystem.getRoundNumber(), actionPolicy.getValue(), rounds);
+        for (Entry<String, Integer> entry : projection.getWins().entrySet()) {
+            System.out.printf("%s wins: %d (%.1f%%)%n", entry.getKey(), entry.getValue(),
+                    PERCENT * entry.getValue() / forks);
+        }
+        if (projection.getDraws() > 0) {
+            System.out.printf("Draws: %d (%.1f%%)%n", projection.getDraws(), PERCENT * projection.getDraws() / forks);
+        }
+        if (projection.getUndecided() > 0) {
+            System.out.printf("Undecided: %d (%.1f%%)%n", projection.getUndecided(),
+                    PERCENT * projection.getUndecided() / forks);
+        }
+        System.out.printf("Average length: %.1f rounds, calculated in %.2f s.%n", projection.getAverageRounds(),
+                (System.nanoTime() - start) / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Handles the simulate and tournament commands, which fight several combats of every lineup without human input
+     * and stream their results to a columnar result file. Running competitions are not changed.
+     * Lineups of two monsters found in the matchup cache are not fought again, the others stop early
+     * as decided by a SequentialTest if a precision is set.
+     * @param battles The most combats of every lineup
+     * @param path The path of the result file
+     * @param lineups The names of the monsters of every lineup
+     */
+    public void handleSimulate(int battles, Path path, List<String[]> lineups) {
+        if (battles < 1) {
+            System.out.println("Error: number of battles must be positive");
+            return;
+        }
+        List<List<Monster>> templates = new ArrayList<>(lineups.size());
+        for (String[] lineup : lineups) {
+            List<Monster> lineupTemplates = new ArrayList<>(lineup.length);
+            for (String name : lineup) {
+                Monster template = findMonster(name);
+                if (template == null) {
+                    System.out.println("Error: unknown monster: " + name);
+                    return;
+                }
+                lineupTemplates.add(template);
+            }
+            templates.add(lineupTemplates);
+        }
+
+        long start = System.nanoTime();
+        Map<String, Integer> wins = new LinkedHashMap<>();
+        int draws = 0;
+        long rounds = 0;
+        ColumnarResultWriter writer;
+        try {
+            writer = new ColumnarResultWriter(path);
+        } catch (IOException e) {
+            System.out.println("Error: could not create result file: " + e.getMessage());
+            return;
+        }
+        int cachedLineups = 0;
+        int cachedBattles = 0;
+        Map<SequentialTest.Outcome, Integer> outcomes = new EnumMap<>(SequentialTest.Outcome.class);
+        try (writer) {
+            for (List<Monster> lineup : templates) {
+                List<Monster> entrants = createLineup(lineup);
+                long key = 0L;
+                if (matchupCache != null && lineup.size() == MatchupStatistics.SIDES) {
+                    key = MatchupCache.key(lineup.get(0), lineup.get(1), actionPolicy.getValue(), roundLimit,
+                            repetitionLimit, battles, precision);
+                    MatchupStatistics cached = matchupCache.get(key);
+                    if (cached != null) {
+                        cachedLineups++;
+                        cachedBattles += cached.getBattles();
+                        rounds += cached.getRounds();
+                        draws += cached.getDraws();
+                        for (int side = 0; side < MatchupStatistics.SIDES; side++) {
+                            if (cached.getWins(side) > 0) {
+                                wins.merge(entrants.get(side).getName(), cached.getWins(side), Integer::sum);
+                            }
+                        }
+                        continue;
+                    }
+                }
+                MatchupStatistics matchup = new MatchupStatistics();
+                SequentialTest test = new SequentialTest(lineup.size() == MatchupStatistics.SIDES ? precision
+                        : SequentialTest.FIXED, battles);
+                RandomUtil randomUtil = createLineupRandom(lineup, battles);
+                while (!test.isFinished()) {
+                    List<Monster> monsters = createLineup(lineup);
+                    CombatResult result = createSimulation(monsters, randomUtil).startCombat();
+                    writer.write(result, monsters);
+                    rounds += result.getRounds();
+                    if (result.isDraw()) {
+                        draws++;
+                    } else {
+                        wins.merge(result.getWinner().getName(), 1, Integer::sum);
+                    }
+                    if (key != 0L) {
+                        matchup.add(result);
+                    }
+                    if (result.isDraw()) {
+                        test.addDraw();
+                    } else if (result.getWinner() == monsters.get(0)) {
+                        test.addWin();
+                    } else {
+                        test.addLoss();
+                    }
+                }
+                outcomes.merge(test.getOutcome(), 1, Integer::sum);
+                if (key != 0L) {
+                    matchupCache.put(key, matchup);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error: could not write results: " + e.getMessage());
+            return;
+        } finally {
+            if (matchupCache != null) {
+                matchupCache.flush();
+            }
+        }
+
+        int total = writer.getBattleCount() + cachedBattles;
+        System.out.printf("%d battles of %d lineups with the %s policy:%n", total, lineups.size(),
+                actionPolicy.getValue());
+        for (Entry<String, Integer> entry : wins.entrySet()) {
+            System.out.printf("%s wins: %d (%.1f%%)%n", entry.getKey(), entry.getValue(),
+                    PERCENT * entry.getValue() / total);
+        }
+        if (draws > 0) {
+            System.out.printf("Draws: %d (%.1f%%)%n", draws, PERCENT * draws / total);
+        }
+        System.out.printf("Average length: %.1f rounds, simulated in %.2f s.%n", (double) rounds / total,
+                (System.nanoTime() - start) / NANOS_PER_SECOND);
+        System.out.println("Wrote " + writer.getRowCount() + " rows in " + writer.getSize() + " bytes to " + path
+                + ".");
+        if (precision != SequentialTest.FIXED) {
+            int decided = outcomes.getOrDefault(SequentialTest.Outcome.FIRST_FAVORED, 0)
+                    + outcomes.getOrDefault(SequentialTest.Outcome.SECOND_FAVORED, 0);
+            System.out.printf("%d lineups stopped when one monster was favored, %d when the win rate was known "
+                    + "within %.1f%%, %d after %d battles.%n", decided,
+                    outcomes.getOrDefault(SequentialTest.Outcome.PRECISE, 0), PERCENT * precision,
+                    outcomes.getOrDefault(SequentialTest.Outcome.LIMIT_REACHED, 0), battles);
+        }
+        if (matchupCache != null) {
+            System.out.println(cachedLineups + " of " + lineups.size() + " lineups were taken from the matchup cache, "
+                    + "their battles are not written.");
+        }
+    }
+
+    /**
+     * Handles the cache command, which opens the matchup cache that simulations and tournaments consult
+     * before fighting a lineup of two monsters.
+     * @param path The path of the cache file, or null to close the cache
+     * @param capacity The number of matchups a new cache file can hold
+     */
+    public void handleCache(Path path, int capacity) {
+        if (capacity < 1 || capacity > MatchupCache.MAX_CAPACITY) {
+            System.out.println("Error: capacity must be between 1 and " + MatchupCache.MAX_CAPACITY);
+            return;
+        }
+        if (matchupCache != null) {
+            matchupCache.close();
+            matchupCache = null;
+        }
+        if (path == null) {
+            System.out.println("Simulations no longer use a matchup cache.");
+            return;
+        }
+        try {
+            matchupCache = MatchupCache.open(path, capacity);
+        } catch (IOException e) {
+            System.out.println("Error: could not open matchup cache: " + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            return;
+        }
+        System.out.println("Simulations now use the matchup cache " + path + " (" + matchupCache.size() + " of "
+                + matchupCache.getCapacity() + " matchups stored).");
+    }
+
+    /**
+     * Creates the random numbers of the simulated combats of a lineup. They are derived from the definitions
+     * of its monsters and the number of combats, so simulating a lineup again gives the same results,
+     * and the random numbers of a running competition, which may be recorded, are not touched.
+     * @param templates The loaded monsters of the lineup
+     * @param battles The most combats of the lineup
+     * @return The random utility, never in debug mode
+     */
+    private static RandomUtil createLineupRandom(List<Monster> templates, int battles) {
+        StringBuilder description = new StringBuilder();
+        for (Monster template : templates) {
+            Fingerprint.describe(template, description);
+        }
+        return new RandomUtil(Fingerprint.hash(description.append(battles)), false);
+    }
+
+    /**
+     * Creates the monsters of a lineup for a combat, numbering duplicate names.
+     * @param templates The loaded monsters of the lineup
+     * @return The monsters in contestant order
+     */
+    private List<Monster> createLineup(List<Monster> templates) {
+        List<Monster> monsters = new ArrayList<>(templates.size());
+        Map<String, Integer> monsterCounts = new HashMap<>();
+        for (Monster template : templates) {
+            monsters.add(createCompetitionMonster(template, monsterCounts));
+        }
+        return monsters;
+    }
+
+    /**
+     * Handles the matrix command without a number of battles, which uses the one of the last matrix.
+     * Loading a configuration does not simulate anything, so this brings the last matrix up to date
+     * by simulating only the pairs of monsters that changed since.
+     */
+    public void handleWinMatrix() {
+        handleWinMatrix(winMatrix != null ? winMatrix.getBattles() : DEFAULT_MATRIX_BATTLES);
+    }
+
+    /**
+     * Handles the matrix command, which simulates the win probability of every monster against every other one.
+     * Pairs that were simulated with the same settings before are carried over, also from the matrix of
+     * a configuration that was loaded before the current one.
+     * @param battles The most combats of every pair
+     */
+    public void handleWinMatrix(int battles) {
+        if (battles < 1) {
+            System.out.println("Error: number of battles must be positive");
+            return;
+        }
+        calculateWinMatrix(battles);
+    }
+
+    /**
+     * Calculates the win matrix of the loaded configuration from the previous one and prints it.
+     * @param battles The most combats of every pair
+     */
+    private void calculateWinMatrix(int battles) {
+        long start = System.nanoTime();
+        String settings = actionPolicy.getValue() + ";" + roundLimit + ";" + repetitionLimit;
+        winMatrix = WinMatrix.calculate(commandHandler.getGameData(), winMatrix, settings, battles, precision,
+                this::createSimulation, Runtime.getRuntime().availableProcessors());
+
+        List<String> names = winMatrix.getNames();
+        if (names.size() <= MAX_PRINTED_MATRIX) {
+            StringBuilder header = new StringBuilder(String.format("%-10s", ""));
+            for (String name : names) {
+                header.append(String.format(" %8.8s", name));
+            }
+            System.out.println(header);
+            for (String row : names) {
+                StringBuilder line = new StringBuilder(String.format("%-10.10s", row));
+                for (String column : names) {
+                    double probability = winMatrix.get(row, column);
+                    line.append(probability == WinMatrix.NOT_SIMULATED ? String.format(" %8s", "-")
+                            : String.format(" %7.1f%%", PERCENT * probability));
+                }
+                System.out.println(line);
+            }
+        } else {
+            List<String> ranking = new ArrayList<>(names);
+            ranking.sort((first, second) -> Double.compare(winMatrix.getAverage(second),
+                    winMatrix.getAverage(first)));
+            for (String name : ranking.subList(0, MAX_PRINTED_MATRIX)) {
+                System.out.printf("%s wins %.1f%% on average%n", name, PERCENT * winMatrix.getAverage(name));
+            }
+        }
+        System.out.printf("Simulated %d of %d pairs with %d battles (at most %d each) in %.2f s.%n",
+                winMatrix.getSimulatedPairs(), winMatrix.getPairCount(), winMatrix.getSimulatedBattles(), battles,
+                (System.nanoTime() - start) / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Creates a combat that runs without human input and prints nothing, with the current settings.
+     * @param monsters The monsters of the combat
+     * @param randomUtil The random numbers of the combat and its action policy
+     * @return The combat
+     */
+    private CombatSystem createSimulation(List<Monster> monsters, RandomUtil randomUtil) {
+        CombatSystem combatSystem = new CombatSystem(monsters, createPolicyInterface(randomUtil), false, randomUtil);
+        combatSystem.setCombatLog(new CombatLog(0));
+        combatSystem.setRoundLimit(roundLimit);
+        combatSystem.setRepetitionLimit(repetitionLimit);
+        return combatSystem;
+    }
+
+    /**
+     * Handles the tablebase command, which loads the endgame tablebases of both monsters of a competition
+     * in the given order, calculating them first if they were not stored before.
+     * @param firstName The name of the first monster
+     * @param secondName The name of the second monster
+     * @param threshold The highest HP of the states that are covered
+     */
+    public void handleTablebase(String firstName, String secondName, int threshold) {
+        if (threshold < 1) {
+            System.out.println("Error: HP threshold must be positive");
+            return;
+        }
+        Monster first = findMonster(firstName);
+        Monster second = findMonster(secondName);
+        if (first == null || second == null) {
+            System.out.println("Error: unknown monster: " + (first == null ? firstName : secondName));
+            return;
+        }
+        List<Monster> contestants = new ArrayList<>();
+        for (Monster template : List.of(first, second)) {
+            Monster contestant = new Monster(template.getName(), template.getElement(), template.getBaseStats(),
+                    template.getActions());
+            contestant.setContestantNumber(contestants.size() + 1);
+            contestants.add(contestant);
+        }
+        for (int own = 0; own < 2; own++) {
+            long start = System.nanoTime();
+            Tablebase tablebase;
+            try {
+                tablebase = Tablebase.load(contestants.get(own), contestants.get(1 - own), threshold,
+                        TABLEBASE_DIRECTORY);
+            } catch (IOException e) {
+                System.out.println("Error: could not store tablebase: " + e.getMessage());
+                return;
+            } catch (IllegalArgumentException e) {
+                System.out.println("Error: " + e.getMessage());
+                return;
+            }
+            System.out.printf("Tablebase of %s against %s: %d states up to %d HP, %s in %.1f s.%n",
+                    contestants.get(own).getName(), contestants.get(1 - own).getName(), tablebase.getStateCount(),
+                    threshold, tablebase.wasBuilt() ? "calculated" : "loaded",
+                    (System.nanoTime() - start) / NANOS_PER_SECOND);
+        }
+    }
+
+    /**
+     * Finds a loaded monster by its name.
+     * @param name The name of the monster
+     * @return The monster, or null if no monster with that name is loaded
+     */
+    private Monster findMonster(String name) {
+        for (Monster monster : commandHandler.getGameData().getMonsters()) {
+            if (monster.getName().equals(name)) {
+                return monster;
+            }
+        }
+        return null;
+    }
+
     /**
      * Creates a copy of a monster for competition, handling duplicate names.
      * @param monster The original monster
@@ -112,11 +703,54 @@ public class CompetitionHandler {
         // Set current monster to active monster
         CombatSystem combatSystem = commandHandler.getCombatSystem();
         if (combatSystem != null) {
+            if (history != null) {
+                history.record(combatSystem);
+            }
             Monster nextMonster = combatSystem.getNextMonsterForActionSelection();
             commandHandler.setCurrentMonster(nextMonster);
         }
     }
 
+    /**
+     * Handles the undo command, which lets the monster that selected last select its action again.
+     * If no monster has selected in this round yet, the competition is set back to the previous round
+     * with all selections of that round but the last one.
+     */
+    public void handleUndo() {
+        CombatSystem combatSystem = commandHandler.getCombatSystem();
+        Monster previous = combatSystem.getPreviousMonsterForActionSelection();
+        if (previous == null) {
+            int round = combatSystem.getRoundNumber() - 1;
+            if (history == null || !history.rewind(combatSystem, round)) {
+                System.out.println("Error: nothing to undo");
+                return;
+            }
+            previous = history.replayAllButLastSelection(combatSystem);
+            System.out.println("Rewound to round " + round + ".");
+            if (previous == null) {
+                startPhaseI();
+                return;
+            }
+        }
+        commandHandler.setCurrentMonster(previous);
+        System.out.println("Undid the action selection of " + previous.getName() + ".");
+    }
+
+    /**
+     * Handles the rewind command, which sets the competition back to the start of an earlier round.
+     * The random numbers are not set back, so the rounds after it can turn out differently.
+     * @param round The number of the round
+     */
+    public void handleRewind(int round) {
+        CombatSystem combatSystem = commandHandler.getCombatSystem();
+        if (history == null || round > combatSystem.getRoundNumber() || !history.rewind(combatSystem, round)) {
+            System.out.println("Error: cannot rewind to round " + round);
+            return;
+        }
+        System.out.println("Rewound to the start of round " + round + ".");
+        startPhaseI();
+    }
+
     /**
      * Moves to the next monster or phase after action selection.
      */
@@ -143,6 +777,9 @@ public class CompetitionHandler {
             return;
         }
 
+        if (history != null) {
+            history.recordSelections(combatSystem);
+        }
         // Execute all actions
         combatSystem.executeActionsPhase();
 
@@ -171,5 +808,175 @@ public class CompetitionHandler {
 
         commandHandler.setInCompetition(false);
         commandHandler.setCurrentMonster(null);
+        stopRecording();
+    }
+
+    /**
+     * Handles the record command, which sets the file the following competitions are recorded in.
+     * @param path The path of the battle log, or null to stop recording
+     */
+    public void handleRecord(Path path) {
+        recordPath = path;
+        if (path == null) {
+            stopRecording();
+            System.out.println("Competitions are no longer recorded.");
+        } else {
+            System.out.println("Competitions are now recorded to " + path + ".");
+        }
+    }
+
+    /**
+     * Handles the replay command, which sets the running competition to the start of a round
+     * recorded in a battle log.
+     * @param path The path of the battle log
+     * @param round The number of the round
+     */
+    public void handleReplay(Path path, int round) {
+        if (battleLog != null) {
+            battleLog.flush();
+        }
+        try {
+            long events = BattleLogReader.replay(path, commandHandler.getCombatSystem(), round);
+            System.out.println("Replayed " + events + " events, the competition is at the start of round "
+                    + round + ".");
+        } catch (IOException e) {
+            System.out.println("Error: could not read battle log: " + e.getMessage());
+            return;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            return;
+        }
+        startPhaseI();
+    }
+
+    /**
+     * Handles the store command, which opens the battle log store the following competitions are appended to.
+     * @param directory The directory of the store, or null to stop storing
+     */
+    public void handleStore(Path directory) {
+        if (recordPath == null) {
+            // A competition recorded for the current store is appended to it
+            stopRecording();
+        }
+        if (directory == null) {
+            store = null;
+            System.out.println("Competitions are no longer stored.");
+            return;
+        }
+        try {
+            store = BattleLogStore.open(directory);
+        } catch (IOException e) {
+            System.out.println("Error: could not open battle log store: " + e.getMessage());
+            return;
+        }
+        System.out.println("Competitions are now stored in " + directory + " (" + store.getBattleCount()
+                + " battles in " + store.getSegmentCount() + " segments).");
+    }
+
+    /**
+     * Handles the query command, which prints the stored battles in which a monster fainted.
+     * @param fainted The name of the fainted monster
+     * @param actor The name of the monster whose turn it was, or null for any
+     * @param action The name of the action used in that turn, or null for any
+     * @param withinRounds The number of rounds from the start of the battle the monster fainted within
+     */
+    public void handleQuery(String fainted, String actor, String action, int withinRounds) {
+        if (store == null) {
+            System.out.println("Error: no battle log store is open");
+            return;
+        }
+        if (withinRounds < 1) {
+            System.out.println("Error: number of rounds must be positive");
+            return;
+        }
+        List<BattleLogStore.Match> matches;
+        try {
+            matches = store.query(fainted, actor, action, withinRounds);
+        } catch (IOException e) {
+            System.out.println("Error: could not read battle log store: " + e.getMessage());
+            return;
+        }
+        for (BattleLogStore.Match match : matches) {
+            String cause = match.getActor() == null ? "before any turn"
+                    : match.getActor().equals(fainted) ? "in its own turn"
+                    : match.getAction() == null ? "while " + match.getActor() + " passed"
+                    : "to " + match.getActor() + "'s " + match.getAction();
+            System.out.println("Battle " + match.getBattle() + ": " + fainted + " fainted " + cause + " in round "
+                    + match.getRound() + " (segment " + match.getSegment() + ", offset " + match.getOffset() + ")");
+        }
+        System.out.println(matches.size() + " of " + store.getBattleCount() + " battles found.");
+    }
+
+    /**
+     * Handles the extract command, which copies a stored battle into a battle log file of its own.
+     * @param battle The number of the battle
+     * @param path The path of the file
+     */
+    public void handleExtract(int battle, Path path) {
+        if (store == null) {
+            System.out.println("Error: no battle log store is open");
+            return;
+        }
+        try {
+            if (store.extract(battle, path)) {
+                System.out.println("Battle " + battle + " extracted to " + path + ".");
+            } else {
+                System.out.println("Error: no battle " + battle + " in the store");
+            }
+        } catch (IOException e) {
+            System.out.println("Error: could not extract battle: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts recording a new competition if a battle log file was set or a store is open.
+     * A running recording is stopped first.
+     * @param combatSystem The combat of the competition
+     */
+    private void startRecording(CombatSystem combatSystem) {
+        stopRecording();
+        Path path = recordPath != null ? recordPath : store != null ? store.getPendingPath() : null;
+        if (path == null) {
+            return;
+        }
+        try {
+            battleLog = new BattleLog(path, combatSystem.getMonsters());
+        } catch (IOException e) {
+            System.out.println("Error: could not create battle log: " + e.getMessage());
+            return;
+        }
+        combatSystem.setBattleLog(battleLog);
+    }
+
+    /**
+     * Stops a running recording, closes its file and appends it to the store if one is open.
+     */
+    private void stopRecording() {
+        if (battleLog == null) {
+            return;
+        }
+        CombatSystem combatSystem = commandHandler.getCombatSystem();
+        if (combatSystem != null) {
+            combatSystem.setBattleLog(null);
+        }
+        try {
+            battleLog.close();
+            boolean pending = store != null && battleLog.getPath().equals(store.getPendingPath());
+            if (!pending) {
+                System.out.println("Recorded " + battleLog.getEventCount() + " events in "
+                        + Files.size(battleLog.getPath()) + " bytes.");
+            }
+            if (store != null) {
+                System.out.println("Stored as battle " + store.append(battleLog) + ".");
+                if (pending) {
+                    Files.delete(battleLog.getPath());
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error: could not write battle log: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: could not store battle log: " + e.getMessage());
+        }
+        battleLog = null;
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package edu.kit.kastel.monstergame.model.command.handlers;
+import edu.kit.kastel.monstergame.model.ai.Tablebase;
 import edu.kit.kastel.monstergame.model.command.CommandHandler;
+import edu.kit.kastel.monstergame.model.util.ElementEffectiveness;
 import edu.kit.kastel.monstergame.model.util.FileParser;
 
 import java.io.IOException;
@@ -58,6 +60,8 @@ public class ConfigurationHandler {
 
             // Updates game data
             commandHandler.setGameData(newGameData);
+            ElementEffectiveness.setTable(newGameData.getElementTable());
+            Tablebase.clearLoaded();
 
             System.out.println("\nLoaded " + newGameData.getActions().size() + " actions, "
                     + newGameData.getMonsters().size() + " monsters.");
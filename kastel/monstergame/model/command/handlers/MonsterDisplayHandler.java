@@ -2,23 +2,43 @@ package edu.kit.kastel.monstergame.model.command.handlers;
 
 import edu.kit.kastel.monstergame.model.Action;
 import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.MonsterState;
+import edu.kit.kastel.monstergame.model.ai.Tablebase;
+import edu.kit.kastel.monstergame.model.analysis.ActionPreview;
+import edu.kit.kastel.monstergame.model.analysis.OutcomeEstimate;
+import edu.kit.kastel.monstergame.model.analysis.StatusConditionModel;
+import edu.kit.kastel.monstergame.model.combat.CombatSystem;
 import edu.kit.kastel.monstergame.model.command.CommandHandler;
 import edu.kit.kastel.monstergame.model.effect.DamageEffect;
 import edu.kit.kastel.monstergame.model.effect.Effect;
 import edu.kit.kastel.monstergame.model.effect.RepeatEffect;
 import edu.kit.kastel.monstergame.model.enums.EffectType;
 import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Handles display-related commands for showing monster information.
  * @author uuifx
  */
 public class MonsterDisplayHandler {
+    /**
+     * Competitions with more monsters than this are shown as a summary.
+     */
+    private static final int SUMMARY_THRESHOLD = 20;
+
     private final CommandHandler commandHandler;
 
+    // The estimates of every previewed action, valid while the combat state version is unchanged
+    private final Map<PreviewKey, List<OutcomeEstimate>> previewCache = new HashMap<>();
+    private CombatSystem previewCombat;
+    private int previewVersion;
+
     /**
      * Creates a new MonsterDisplayHandler.
      * @param commandHandler The main command handler
@@ -37,12 +57,46 @@ public class MonsterDisplayHandler {
         }
 
         List<Monster> monsters = commandHandler.getCombatSystem().getMonsters();
+        if (monsters.size() > SUMMARY_THRESHOLD) {
+            showCompetitionSummary();
+            return;
+        }
 
         for (Monster monster : monsters) {
             displayMonsterStatus(monster);
         }
     }
 
+    /**
+     * Shows a summary of the current competition instead of one line per monster.
+     */
+    public void showCompetitionSummary() {
+        List<Monster> monsters = commandHandler.getCombatSystem().getMonsters();
+        int fighting = commandHandler.getCombatSystem().getActiveCount();
+        int[] statusCounts = new int[StatusCondition.values().length];
+        for (Monster monster : monsters) {
+            if (!monster.isDefeated() && monster.getStatusCondition() != null) {
+                statusCounts[monster.getStatusCondition().ordinal()]++;
+            }
+        }
+
+        System.out.println(fighting + " of " + monsters.size() + " monsters fighting, "
+                + (monsters.size() - fighting) + " fainted");
+        StringBuilder statuses = new StringBuilder("Status:");
+        for (StatusCondition condition : StatusCondition.values()) {
+            statuses.append(" ").append(condition.name()).append(" ").append(statusCounts[condition.ordinal()]);
+            if (condition.ordinal() < statusCounts.length - 1) {
+                statuses.append(",");
+            }
+        }
+        System.out.println(statuses.toString());
+
+        Monster currentMonster = commandHandler.getCurrentMonster();
+        if (currentMonster != null) {
+            displayMonsterStatus(currentMonster);
+        }
+    }
+
     /**
      * Displays a monsters status with health bars.
      * @param monster The monster to display status for
@@ -104,6 +158,103 @@ public class MonsterDisplayHandler {
         }
     }
 
+    /**
+     * Shows the estimated outcome of every action of the current monster against every opponent.
+     * The estimates of every monster and action of a round are reused until the HP, stats, status conditions
+     * or protections change, so switching between the monsters of a round does not calculate them again.
+     */
+    public void showPreview() {
+        if (!commandHandler.isInCompetition() || commandHandler.getCurrentMonster() == null) {
+            System.out.println("Error: preview command only available during competition in Phase I");
+            return;
+        }
+
+        CombatSystem combatSystem = commandHandler.getCombatSystem();
+        Monster currentMonster = commandHandler.getCurrentMonster();
+        if (previewCombat != combatSystem || previewVersion != combatSystem.getStateVersion()) {
+            // Undo and rewind change the state within a round as well, so no entry is valid anymore
+            previewCache.clear();
+            previewCombat = combatSystem;
+            previewVersion = combatSystem.getStateVersion();
+        }
+        int round = combatSystem.getRoundNumber();
+        List<Action> missing = new ArrayList<>();
+        for (Action action : currentMonster.getActions()) {
+            if (!previewCache.containsKey(new PreviewKey(round, currentMonster, action))) {
+                missing.add(action);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Monster> opponents = combatSystem.getActiveFighters();
+            opponents.remove(currentMonster);
+            List<OutcomeEstimate> estimates = ActionPreview.estimate(combatSystem, currentMonster, missing, opponents);
+            for (int i = 0; i < missing.size(); i++) {
+                previewCache.put(new PreviewKey(round, currentMonster, missing.get(i)),
+                        estimates.subList(i * opponents.size(), (i + 1) * opponents.size()));
+            }
+        }
+
+        System.out.println("PREVIEW OF " + currentMonster.getName());
+        for (Action action : currentMonster.getActions()) {
+            for (OutcomeEstimate estimate : previewCache.get(new PreviewKey(round, currentMonster, action))) {
+                System.out.println(estimate);
+            }
+        }
+        showStatusConditionOutlook(combatSystem);
+        showTablebaseWinChance(combatSystem, currentMonster);
+    }
+
+    /**
+     * Displays the expected remaining rounds, skipped turns and burn damage of the status condition of every monster.
+     * The preview is shown before the turns of the round, so every condition is checked at the next turn first.
+     * @param combatSystem The combat system
+     */
+    private void showStatusConditionOutlook(CombatSystem combatSystem) {
+        for (Monster monster : combatSystem.getActiveFighters()) {
+            StatusCondition condition = monster.getStatusCondition();
+            if (condition == null) {
+                continue;
+            }
+            StatusConditionModel model = new StatusConditionModel(condition, true);
+            System.out.printf("%s %s: Rounds %.2f, SkippedTurns %.2f, BurnDamage %.1f%n",
+                    monster.getName(), condition.name(), model.getExpectedDuration(), model.getExpectedSkippedTurns(),
+                    model.getExpectedBurnDamage(monster.getMaxHp(), monster.getCurrentHp()));
+        }
+    }
+
+    /**
+     * Displays the win chance from the tablebase if only one opponent is left and its state is covered.
+     * @param combatSystem The combat system
+     * @param currentMonster The monster whose turn it is
+     */
+    private void showTablebaseWinChance(CombatSystem combatSystem, Monster currentMonster) {
+        List<Monster> opponents = combatSystem.getActiveFighters();
+        opponents.remove(currentMonster);
+        if (opponents.size() != 1) {
+            return;
+        }
+        Monster opponent = opponents.get(0);
+        Tablebase tablebase = Tablebase.find(currentMonster, opponent);
+        if (tablebase == null) {
+            return;
+        }
+        double winChance = tablebase.winProbability(pack(currentMonster), pack(opponent));
+        if (winChance != Tablebase.NOT_COVERED) {
+            System.out.printf("Win chance against %s: %.1f%% (tablebase)%n", opponent.getName(), winChance * 100);
+        }
+    }
+
+    /**
+     * Packs the state of a monster, including the rounds its protections are still active.
+     * @param monster The monster
+     * @return The packed state
+     */
+    private static long[] pack(Monster monster) {
+        long[] state = new long[MonsterState.WORDS];
+        monster.snapshot(state, 0);
+        return state;
+    }
+
     /**
      * Displays information of an action.
      * @param action The action to display information for
@@ -181,4 +332,39 @@ public class MonsterDisplayHandler {
 
         System.out.println(stats.toString());
     }
+
+    /**
+     * Identifies the estimates of one action of a monster in a round of the preview.
+     */
+    private static final class PreviewKey {
+        private final int round;
+        private final Monster monster;
+        private final Action action;
+
+        /**
+         * Creates a new preview key.
+         * @param round The round number
+         * @param monster The monster using the action
+         * @param action The action
+         */
+        private PreviewKey(int round, Monster monster, Action action) {
+            this.round = round;
+            this.monster = monster;
+            this.action = action;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof PreviewKey)) {
+                return false;
+            }
+            PreviewKey key = (PreviewKey) other;
+            return round == key.round && monster == key.monster && action == key.action;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(round, monster, action);
+        }
+    }
 }
\ No newline at end of file
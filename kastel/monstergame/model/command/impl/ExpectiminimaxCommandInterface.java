@@ -0,0 +1,92 @@
+package edu.kit.kastel.monstergame.model.command.impl;
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.ai.ExpectiminimaxSearch;
+import edu.kit.kastel.monstergame.model.ai.TranspositionTable;
+import edu.kit.kastel.monstergame.model.analysis.DamageDistribution;
+import edu.kit.kastel.monstergame.model.command.CommandInterface;
+import java.util.List;
+
+
+/**
+ * Command interface that picks actions by an expectiminimax search.
+ * The target is the opponent the greedy policy would attack, and the search only looks at the fight against it.
+ * Every thread keeps one transposition table, which the searches of consecutive decisions of the same interface
+ * share, so positions searched for an earlier decision are not searched again. When another interface searches
+ * on the thread, the table is cleared, since the positions of different combats can have the same hash.
+ * Since the search depth depends on the time it gets, results are not reproducible with a seed.
+ * @author uuifx
+ */
+public class ExpectiminimaxCommandInterface implements CommandInterface {
+    private static final long DEFAULT_BUDGET_MILLIS = 5;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final int TABLE_SIZE = 1 << 18;
+    private static final ThreadLocal<TranspositionTable> TABLES =
+            ThreadLocal.withInitial(() -> new TranspositionTable(TABLE_SIZE));
+    private static final ThreadLocal<ExpectiminimaxCommandInterface> TABLE_OWNERS = new ThreadLocal<>();
+
+    private final long budgetNanos;
+
+    /**
+     * Creates a new search command interface with the default time budget.
+     */
+    public ExpectiminimaxCommandInterface() {
+        this(DEFAULT_BUDGET_MILLIS);
+    }
+
+    /**
+     * Creates a new search command interface.
+     * @param budgetMillis The time budget per decision in milliseconds
+     */
+    public ExpectiminimaxCommandInterface(long budgetMillis) {
+        this.budgetNanos = budgetMillis * NANOS_PER_MILLI;
+    }
+
+    @Override
+    public Action selectAction(Monster monster, List<Monster> opponents) {
+        if (monster.getActionCount() == 0 || opponents.isEmpty()) {
+            return null;
+        }
+        return new ExpectiminimaxSearch(monster, chooseTarget(monster, opponents), table()).search(budgetNanos);
+    }
+
+    @Override
+    public Monster selectTarget(Monster monster, Action action, List<Monster> opponents) {
+        return opponents.isEmpty() ? null : chooseTarget(monster, opponents);
+    }
+
+    /**
+     * Gets the transposition table of the current thread, cleared if another interface used it last.
+     * @return The table
+     */
+    private TranspositionTable table() {
+        TranspositionTable table = TABLES.get();
+        if (TABLE_OWNERS.get() != this) {
+            table.clear();
+            TABLE_OWNERS.set(this);
+        }
+        return table;
+    }
+
+    /**
+     * Chooses the opponent the greedy policy would attack, the one the search looks at.
+     * @param monster The monster the search decides for
+     * @param opponents The opponents, at least one
+     * @return The opponent with the highest expected damage of any action
+     */
+    private static Monster chooseTarget(Monster monster, List<Monster> opponents) {
+        Monster target = opponents.get(0);
+        double bestDamage = -1;
+        for (int i = 0; i < monster.getActionCount(); i++) {
+            Action action = monster.getAction(i);
+            for (int j = 0; j < opponents.size(); j++) {
+                double damage = DamageDistribution.expectedActionDamage(monster, opponents.get(j), action);
+                if (damage > bestDamage) {
+                    bestDamage = damage;
+                    target = opponents.get(j);
+                }
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,48 @@
+package edu.kit.kastel.monstergame.model.command.impl;
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.analysis.DamageDistribution;
+import edu.kit.kastel.monstergame.model.command.CommandInterface;
+import java.util.List;
+
+
+/**
+ * Command interface that picks the action and opponent with the highest expected damage.
+ * The chosen opponent is returned as target of the action.
+ * It keeps no state and does not allocate, so one instance can be shared by any number of combats.
+ * @author uuifx
+ */
+public class GreedyDamageCommandInterface implements CommandInterface {
+
+    @Override
+    public Action selectAction(Monster monster, List<Monster> opponents) {
+        Action bestAction = null;
+        double bestDamage = -1;
+        for (int i = 0; i < monster.getActionCount(); i++) {
+            Action action = monster.getAction(i);
+            for (int j = 0; j < opponents.size(); j++) {
+                double damage = DamageDistribution.expectedActionDamage(monster, opponents.get(j), action);
+                if (damage > bestDamage) {
+                    bestDamage = damage;
+                    bestAction = action;
+                }
+            }
+        }
+        return bestAction;
+    }
+
+    @Override
+    public Monster selectTarget(Monster monster, Action action, List<Monster> opponents) {
+        Monster bestTarget = null;
+        double bestDamage = -1;
+        for (int j = 0; j < opponents.size(); j++) {
+            Monster opponent = opponents.get(j);
+            double damage = DamageDistribution.expectedActionDamage(monster, opponent, action);
+            if (damage > bestDamage) {
+                bestDamage = damage;
+                bestTarget = opponent;
+            }
+        }
+        return bestTarget;
+    }
+}
@@ -0,0 +1,99 @@
+package edu.kit.kastel.monstergame.model.command.impl;
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.combat.ActionExecutor;
+import edu.kit.kastel.monstergame.model.combat.EffectProcessor;
+import edu.kit.kastel.monstergame.model.command.CommandInterface;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.HealingEffect;
+import edu.kit.kastel.monstergame.model.effect.RepeatEffect;
+import edu.kit.kastel.monstergame.model.enums.EffectTarget;
+import edu.kit.kastel.monstergame.model.enums.EffectType;
+import java.util.List;
+
+
+/**
+ * Command interface that heals when the HP of the monster is low.
+ * Below the threshold it picks the action that is expected to heal the most HP,
+ * otherwise, or without a healing action, it acts greedy.
+ * It keeps no state and does not allocate, so one instance can be shared by any number of combats.
+ * @author uuifx
+ */
+public class HealWhenLowCommandInterface implements CommandInterface {
+    /**
+     * Fraction of the max HP at or below which the monster heals.
+     */
+    private static final double LOW_HP_FRACTION = 1.0 / 3.0;
+
+    private final CommandInterface fallback = new GreedyDamageCommandInterface();
+
+    @Override
+    public Action selectAction(Monster monster, List<Monster> opponents) {
+        Action healingAction = selectHealingAction(monster);
+        return healingAction != null ? healingAction : fallback.selectAction(monster, opponents);
+    }
+
+    @Override
+    public Monster selectTarget(Monster monster, Action action, List<Monster> opponents) {
+        return selectHealingAction(monster) != null ? null : fallback.selectTarget(monster, action, opponents);
+    }
+
+    /**
+     * Picks the action that is expected to heal the most HP if the HP of the monster is low.
+     * @param monster The monster
+     * @return The healing action, or null if the HP are not low or no action heals
+     */
+    private static Action selectHealingAction(Monster monster) {
+        int maxHp = monster.getMaxHp();
+        if (monster.getCurrentHp() > maxHp * LOW_HP_FRACTION) {
+            return null;
+        }
+        Action bestAction = null;
+        double bestHeal = 0;
+        for (int i = 0; i < monster.getActionCount(); i++) {
+            Action action = monster.getAction(i);
+            double heal = Math.min(expectedSelfHeal(monster, action), maxHp - monster.getCurrentHp());
+            if (heal > bestHeal) {
+                bestHeal = heal;
+                bestAction = action;
+            }
+        }
+        return bestAction;
+    }
+
+    /**
+     * Calculates how much an action is expected to heal its user.
+     * @param monster The monster using the action
+     * @param action The action
+     * @return The expected amount of HP healed, not limited by the max HP
+     */
+    private static double expectedSelfHeal(Monster monster, Action action) {
+        double heal = 0;
+        for (int i = 0; i < action.getEffectCount(); i++) {
+            Effect effect = action.getEffect(i);
+            if (effect.getEffectType() == EffectType.REPEAT) {
+                RepeatEffect repeatEffect = (RepeatEffect) effect;
+                for (int j = 0; j < repeatEffect.getEffectCount(); j++) {
+                    heal += repeatEffect.getAverageCount() * expectedSelfHeal(monster, repeatEffect.getEffect(j));
+                }
+            } else {
+                heal += expectedSelfHeal(monster, effect);
+            }
+        }
+        return heal;
+    }
+
+    /**
+     * Calculates how much an effect is expected to heal its user.
+     * @param monster The monster using the action
+     * @param effect The effect
+     * @return The expected amount of HP healed, 0 if the effect does not heal the user
+     */
+    private static double expectedSelfHeal(Monster monster, Effect effect) {
+        if (effect.getEffectType() != EffectType.HEALING || effect.getTarget() != EffectTarget.SELF) {
+            return 0.0;
+        }
+        return ActionExecutor.getHitProbability(monster, monster, effect)
+                * EffectProcessor.calculateHealAmount(monster, monster, (HealingEffect) effect);
+    }
+}
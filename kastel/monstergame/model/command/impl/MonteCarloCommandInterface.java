@@ -0,0 +1,68 @@
+package edu.kit.kastel.monstergame.model.command.impl;
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.ai.MonteCarloTreeSearch;
+import edu.kit.kastel.monstergame.model.command.CommandInterface;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Command interface that picks actions and targets by a parallel Monte Carlo tree search.
+ * Every monster keeps its search tree between rounds, so the time spent on the last decision is not lost.
+ * The tree is started over when the opponents change, e.g. after one of them fainted.
+ * Since the number of iterations depends on the time and threads available, results are not reproducible with a seed.
+ * @author uuifx
+ */
+public class MonteCarloCommandInterface implements CommandInterface {
+    private static final long DEFAULT_BUDGET_MILLIS = 20;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final long budgetNanos;
+    private final int threads;
+    private final Map<Monster, MonteCarloTreeSearch> searches;
+    private final Map<Monster, Monster> targets;
+
+    /**
+     * Creates a new Monte Carlo command interface with the default time budget, using all processors.
+     */
+    public MonteCarloCommandInterface() {
+        this(DEFAULT_BUDGET_MILLIS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new Monte Carlo command interface.
+     * @param budgetMillis The time budget per decision in milliseconds
+     * @param threads The number of threads searching in parallel
+     */
+    public MonteCarloCommandInterface(long budgetMillis, int threads) {
+        this.budgetNanos = budgetMillis * NANOS_PER_MILLI;
+        this.threads = Math.max(1, threads);
+        this.searches = new IdentityHashMap<>();
+        this.targets = new IdentityHashMap<>();
+    }
+
+    @Override
+    public Action selectAction(Monster monster, List<Monster> opponents) {
+        if (monster.getActionCount() == 0 || opponents.isEmpty()) {
+            return null;
+        }
+        MonteCarloTreeSearch search = searches.get(monster);
+        if (search == null || !search.isFor(monster, opponents)) {
+            search = new MonteCarloTreeSearch(monster, opponents);
+            searches.put(monster, search);
+        }
+        int move = search.search(budgetNanos, threads);
+        Action action = search.getAction(move);
+        targets.put(monster, search.getTarget(move));
+        search.advance(move);
+        return action;
+    }
+
+    @Override
+    public Monster selectTarget(Monster monster, Action action, List<Monster> opponents) {
+        // The search chose the target together with the action
+        return targets.remove(monster);
+    }
+}
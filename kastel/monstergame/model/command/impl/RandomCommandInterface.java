@@ -0,0 +1,36 @@
+package edu.kit.kastel.monstergame.model.command.impl;
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.command.CommandInterface;
+import edu.kit.kastel.monstergame.model.util.RandomUtil;
+import java.util.List;
+
+
+/**
+ * Command interface that picks a random action for every monster.
+ * Used for competitions that run without human input.
+ * It keeps no state besides its own random utility, which is split from the one of the combat, so choosing
+ * an action takes no numbers from the combat and results stay reproducible.
+ * @author uuifx
+ */
+public class RandomCommandInterface implements CommandInterface {
+    private final RandomUtil randomUtil;
+
+    /**
+     * Creates a new random command interface.
+     * @param randomUtil The random utility to use, not shared with the combat
+     */
+    public RandomCommandInterface(RandomUtil randomUtil) {
+        this.randomUtil = randomUtil;
+    }
+
+    @Override
+    public Action selectAction(Monster monster, List<Monster> opponents) {
+        if (monster.getActionCount() == 0) {
+            return null;
+        }
+        String description = randomUtil.isInDebugMode() ? "action of " + monster.getName() : null;
+        int index = randomUtil.getRandomInt(0, monster.getActionCount() - 1, description);
+        return monster.getAction(index);
+    }
+}
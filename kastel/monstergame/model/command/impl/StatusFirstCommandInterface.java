@@ -0,0 +1,110 @@
+package edu.kit.kastel.monstergame.model.command.impl;
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.combat.ActionExecutor;
+import edu.kit.kastel.monstergame.model.command.CommandInterface;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.RepeatEffect;
+import edu.kit.kastel.monstergame.model.enums.EffectTarget;
+import edu.kit.kastel.monstergame.model.enums.EffectType;
+import java.util.List;
+
+
+/**
+ * Command interface that first tries to inflict status conditions on opponents.
+ * It picks the action and opponent without a status condition with the highest chance
+ * to inflict one, and acts greedy when no opponent can receive a status condition.
+ * It keeps no state and does not allocate, so one instance can be shared by any number of combats.
+ * @author uuifx
+ */
+public class StatusFirstCommandInterface implements CommandInterface {
+    private final CommandInterface fallback = new GreedyDamageCommandInterface();
+
+    @Override
+    public Action selectAction(Monster monster, List<Monster> opponents) {
+        Action bestAction = null;
+        double bestChance = 0;
+        for (int i = 0; i < monster.getActionCount(); i++) {
+            Action action = monster.getAction(i);
+            Effect statusEffect = findStatusEffect(action);
+            if (statusEffect == null) {
+                continue;
+            }
+            Monster target = bestStatusTarget(monster, statusEffect, opponents);
+            if (target == null) {
+                continue;
+            }
+            double chance = ActionExecutor.getHitProbability(monster, target, statusEffect);
+            if (chance > bestChance) {
+                bestChance = chance;
+                bestAction = action;
+            }
+        }
+        if (bestAction == null) {
+            return fallback.selectAction(monster, opponents);
+        }
+        return bestAction;
+    }
+
+    @Override
+    public Monster selectTarget(Monster monster, Action action, List<Monster> opponents) {
+        Effect statusEffect = findStatusEffect(action);
+        Monster target = statusEffect == null ? null : bestStatusTarget(monster, statusEffect, opponents);
+        return target == null ? fallback.selectTarget(monster, action, opponents) : target;
+    }
+
+    /**
+     * Finds the opponent without a status condition that a status effect is most likely to hit.
+     * @param monster The monster using the effect
+     * @param statusEffect The status condition effect
+     * @param opponents The opponents
+     * @return The first opponent with the highest hit chance, or null if no opponent can be hit
+     */
+    private static Monster bestStatusTarget(Monster monster, Effect statusEffect, List<Monster> opponents) {
+        Monster bestTarget = null;
+        double bestChance = 0;
+        for (int j = 0; j < opponents.size(); j++) {
+            Monster opponent = opponents.get(j);
+            if (opponent.getStatusCondition() != null) {
+                continue;
+            }
+            double chance = ActionExecutor.getHitProbability(monster, opponent, statusEffect);
+            if (chance > bestChance) {
+                bestChance = chance;
+                bestTarget = opponent;
+            }
+        }
+        return bestTarget;
+    }
+
+    /**
+     * Finds the first effect of an action that inflicts a status condition on an opponent.
+     * @param action The action
+     * @return The status condition effect, or null if there is none
+     */
+    private static Effect findStatusEffect(Action action) {
+        for (int i = 0; i < action.getEffectCount(); i++) {
+            Effect effect = action.getEffect(i);
+            if (effect.getEffectType() == EffectType.REPEAT) {
+                RepeatEffect repeatEffect = (RepeatEffect) effect;
+                for (int j = 0; j < repeatEffect.getEffectCount(); j++) {
+                    if (isStatusOnOpponent(repeatEffect.getEffect(j))) {
+                        return repeatEffect.getEffect(j);
+                    }
+                }
+            } else if (isStatusOnOpponent(effect)) {
+                return effect;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if an effect inflicts a status condition on an opponent.
+     * @param effect The effect
+     * @return true if it does, false otherwise
+     */
+    private static boolean isStatusOnOpponent(Effect effect) {
+        return effect.getEffectType() == EffectType.STATUS_CONDITION && effect.getTarget() != EffectTarget.SELF;
+    }
+}
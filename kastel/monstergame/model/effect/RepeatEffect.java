@@ -84,6 +84,28 @@ public class RepeatEffect extends Effect {
     public List<Effect> getEffects() {
         return new ArrayList<>(effects);
     }
+    /**
+     * Gets the number of repeated effects.
+     * @return The number of effects
+     */
+    public int getEffectCount() {
+        return effects.size();
+    }
+    /**
+     * Gets a repeated effect without copying the effect list.
+     * @param index The position of the effect
+     * @return The effect
+     */
+    public Effect getEffect(int index) {
+        return effects.get(index);
+    }
+    /**
+     * Gets the average number of repetitions, which is the count itself for a fixed count.
+     * @return The average repetition count
+     */
+    public double getAverageCount() {
+        return randomCount ? (minCount + maxCount) / 2.0 : count;
+    }
     /**
      * Returns a string of the repeat effect.
      * @return A string containing the effect type, repetition count, and contained effects
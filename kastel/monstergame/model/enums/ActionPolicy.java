@@ -0,0 +1,65 @@
+package edu.kit.kastel.monstergame.model.enums;
+
+/**
+ * Represents the built-in policies for selecting actions in competitions that run without human input.
+ * @author uuifx
+ */
+public enum ActionPolicy {
+    /**
+     * Picks a random action.
+     */
+    RANDOM("random"),
+    /**
+     * Picks the action and opponent with the highest expected damage.
+     */
+    GREEDY("greedy"),
+    /**
+     * Inflicts a status condition on an opponent without one if possible, otherwise acts greedy.
+     */
+    STATUS_FIRST("status"),
+    /**
+     * Heals when the HP is low if possible, otherwise acts greedy.
+     */
+    HEAL_WHEN_LOW("heal"),
+    /**
+     * Searches ahead with expectiminimax under a time budget.
+     */
+    SEARCH("search"),
+    /**
+     * Runs a parallel Monte Carlo tree search under a time budget, meant for combats with many monsters.
+     */
+    MONTE_CARLO("mcts");
+
+    private final String value;
+
+    /**
+     * Creates a new action policy.
+     * @param value The name of the policy in commands
+     */
+    ActionPolicy(String value) {
+        this.value = value;
+    }
+
+    /**
+     * Gets the name of the policy in commands.
+     * @return The name
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Converts a string to the ActionPolicy.
+     *
+     * @param text The string to convert
+     * @return The corresponding ActionPolicy, or null if there is none
+     */
+    public static ActionPolicy fromString(String text) {
+        for (ActionPolicy policy : ActionPolicy.values()) {
+            if (policy.value.equalsIgnoreCase(text)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+}
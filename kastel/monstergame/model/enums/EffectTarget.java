@@ -1,7 +1,7 @@
 package edu.kit.kastel.monstergame.model.enums;
 /**
  * Represents the target of an effect during combat.
- * Determines whether the effect applies to the user or an enemy.
+ * Determines whether the effect applies to the user, an enemy or all enemies.
  * @author uuifx
  */
 public enum EffectTarget {
@@ -12,5 +12,9 @@ public enum EffectTarget {
     /**
      * The effect targets an enemy.
      */
-    TARGET
+    TARGET,
+    /**
+     * The effect targets every enemy that is still in the fight.
+     */
+    ALL
 }
\ No newline at end of file
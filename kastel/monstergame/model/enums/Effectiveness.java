@@ -0,0 +1,54 @@
+package edu.kit.kastel.monstergame.model.enums;
+
+/**
+ * Represents how effective an attacking element is against a defending element.
+ * @author uuifx
+ */
+public enum Effectiveness {
+    /**
+     * The attack deals more damage than usual.
+     */
+    SUPER_EFFECTIVE("It is very effective!"),
+
+    /**
+     * The attack deals the usual damage.
+     */
+    NORMAL(null),
+
+    /**
+     * The attack deals less damage than usual.
+     */
+    NOT_VERY_EFFECTIVE("It is not very effective...");
+
+    private final String message;
+
+    /**
+     * Constructs an Effectiveness.
+     * @param message The message shown when a damage calculation has this effectiveness
+     */
+    Effectiveness(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Gets the message shown when a damage calculation has this effectiveness.
+     * @return The message, or null if nothing is shown
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Classifies an element factor.
+     * @param elementFactor The element factor of an attack
+     * @return The corresponding effectiveness
+     */
+    public static Effectiveness fromFactor(double elementFactor) {
+        if (elementFactor > 1.0) {
+            return SUPER_EFFECTIVE;
+        } else if (elementFactor < 1.0) {
+            return NOT_VERY_EFFECTIVE;
+        }
+        return NORMAL;
+    }
+}
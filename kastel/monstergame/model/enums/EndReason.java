@@ -0,0 +1,24 @@
+package edu.kit.kastel.monstergame.model.enums;
+
+/**
+ * Represents the reasons why a combat without human input ended.
+ * @author uuifx
+ */
+public enum EndReason {
+    /**
+     * A single monster has not fainted and wins.
+     */
+    LAST_STANDING,
+    /**
+     * All remaining monsters fainted in the same round, so the combat is a draw.
+     */
+    ALL_FAINTED,
+    /**
+     * The round limit was reached before a winner was found, so the combat is a draw.
+     */
+    ROUND_LIMIT,
+    /**
+     * The same state was reached repeatedly without any monster losing HP in between, so the combat is a draw.
+     */
+    STALEMATE
+}
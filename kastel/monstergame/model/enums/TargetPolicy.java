@@ -0,0 +1,18 @@
+package edu.kit.kastel.monstergame.model.enums;
+
+/**
+ * Represents the policies for choosing the opponent an effect is aimed at
+ * when no explicit target was selected or the selected target is no longer available.
+ * @author uuifx
+ */
+public enum TargetPolicy {
+    /**
+     * Targets the first opponent in contestant order that has not fainted.
+     */
+    FIRST_ALIVE,
+    /**
+     * Targets the next opponent after the attacker in contestant order that has not fainted,
+     * continuing from the first contestant if needed.
+     */
+    NEXT_ALIVE
+}
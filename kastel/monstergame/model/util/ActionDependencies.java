@@ -0,0 +1,41 @@
+package edu.kit.kastel.monstergame.model.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The dependency graph from actions to the monsters that use them, built while the monsters of a configuration
+ * are parsed. It tells which monsters are affected when an action changes.
+ * @author uuifx
+ */
+public final class ActionDependencies {
+    private final Map<String, Set<String>> monstersByAction;
+
+    /**
+     * Creates an empty dependency graph.
+     */
+    public ActionDependencies() {
+        this.monstersByAction = new HashMap<>();
+    }
+
+    /**
+     * Records that a monster uses an action.
+     * @param actionName The name of the action
+     * @param monsterName The name of the monster
+     */
+    public void add(String actionName, String monsterName) {
+        monstersByAction.computeIfAbsent(actionName, name -> new LinkedHashSet<>()).add(monsterName);
+    }
+
+    /**
+     * Gets the monsters that use an action.
+     * @param actionName The name of the action
+     * @return The names of the monsters in the order they were parsed, empty if no monster uses the action
+     */
+    public Set<String> getMonsters(String actionName) {
+        return Collections.unmodifiableSet(monstersByAction.getOrDefault(actionName, Collections.emptySet()));
+    }
+}
@@ -224,6 +224,8 @@ public final class EffectParser {
             return EffectTarget.TARGET;
         } else if (targetStr.equalsIgnoreCase("user") || targetStr.equalsIgnoreCase("self")) {
             return EffectTarget.SELF;
+        } else if (targetStr.equalsIgnoreCase("all")) {
+            return EffectTarget.ALL;
         } else {
             System.err.println("Unknown target: " + targetStr);
             return null;
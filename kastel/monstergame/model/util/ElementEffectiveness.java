@@ -1,13 +1,16 @@
 package edu.kit.kastel.monstergame.model.util;
 
+import edu.kit.kastel.monstergame.model.enums.Effectiveness;
 import edu.kit.kastel.monstergame.model.enums.Element;
 
 /**
  * Utility class to calculate element effectiveness between different elements.
+ * The factors are read from the active element table, which starts with the default rules
+ * and can be replaced by a loaded configuration.
  * @author uuifx
  */
 public final class ElementEffectiveness {
-
+    private static volatile ElementTable table = createDefaultTable();
 
     /**
      * Private constructor to prevent instantiation.
@@ -27,9 +30,7 @@ public final class ElementEffectiveness {
      * @return true if super effective, false otherwise
      */
     public static boolean isSuperEffective(Element attackingElement, Element defendingElement) {
-        return (attackingElement == Element.WATER && defendingElement == Element.FIRE)
-                || (attackingElement == Element.FIRE && defendingElement == Element.EARTH)
-                || (attackingElement == Element.EARTH && defendingElement == Element.WATER);
+        return table.getEffectiveness(attackingElement, defendingElement) == Effectiveness.SUPER_EFFECTIVE;
     }
 
     /**
@@ -40,21 +41,19 @@ public final class ElementEffectiveness {
      * @author uuifx
      */
     public static boolean isNotVeryEffective(Element attackingElement, Element defendingElement) {
-        return isSuperEffective(defendingElement, attackingElement);
+        return table.getEffectiveness(attackingElement, defendingElement) == Effectiveness.NOT_VERY_EFFECTIVE;
     }
 
     /**
      * Determines if the attacking element has normal effectiveness against the defending element.
-     * (when either element is NORMAL or both elements are the same)
+     * (by default when either element is NORMAL or both elements are the same)
      * @param attackingElement The element of the attacking action
      * @param defendingElement The element of the defending monster
      * @return true if normal effectiveness false otherwise
      * @author uuifx
      */
     public static boolean isNormalEffective(Element attackingElement, Element defendingElement) {
-        return attackingElement == Element.NORMAL
-                || defendingElement == Element.NORMAL
-                || attackingElement == defendingElement;
+        return table.getEffectiveness(attackingElement, defendingElement) == Effectiveness.NORMAL;
     }
 
     /**
@@ -65,12 +64,60 @@ public final class ElementEffectiveness {
      * @author uuifx
      */
     public static double getElementFactor(Element attackingElement, Element defendingElement) {
-        if (isSuperEffective(attackingElement, defendingElement)) {
-            return 2.0;
-        } else if (isNotVeryEffective(attackingElement, defendingElement)) {
-            return 0.5;
-        } else {
-            return 1.0;
+        return table.getElementFactor(attackingElement, defendingElement);
+    }
+
+    /**
+     * Gets the active element table.
+     * @return The element table used for damage calculations
+     */
+    public static ElementTable getTable() {
+        return table;
+    }
+
+    /**
+     * Replaces the active element table, e.g. after loading a configuration.
+     * @param elementTable The new element table
+     */
+    public static void setTable(ElementTable elementTable) {
+        table = elementTable;
+    }
+
+    /**
+     * Creates the element table with the default rules.
+     *
+     * WATER is super effective against FIRE
+     * FIRE is super effective against EARTH
+     * EARTH is super effective against WATER
+     *
+     * @return The default element table
+     */
+    public static ElementTable createDefaultTable() {
+        Element[] elements = Element.values();
+        double[][] factors = new double[elements.length][elements.length];
+        for (Element attacking : elements) {
+            for (Element defending : elements) {
+                double factor = 1.0;
+                if (beats(attacking, defending)) {
+                    factor = 2.0;
+                } else if (beats(defending, attacking)) {
+                    factor = 0.5;
+                }
+                factors[attacking.ordinal()][defending.ordinal()] = factor;
+            }
         }
+        return new ElementTable(factors);
+    }
+
+    /**
+     * Checks the default rules for an attacking element beating a defending element.
+     * @param attackingElement The attacking element
+     * @param defendingElement The defending element
+     * @return true if the attacking element is super effective by default
+     */
+    private static boolean beats(Element attackingElement, Element defendingElement) {
+        return (attackingElement == Element.WATER && defendingElement == Element.FIRE)
+                || (attackingElement == Element.FIRE && defendingElement == Element.EARTH)
+                || (attackingElement == Element.EARTH && defendingElement == Element.WATER);
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package edu.kit.kastel.monstergame.model.util;
+
+import edu.kit.kastel.monstergame.model.enums.Effectiveness;
+import edu.kit.kastel.monstergame.model.enums.Element;
+
+/**
+ * Precomputed element factors for every combination of action and defender element, read with a single
+ * array access. The element factor and the same element factor are kept separate, so damage estimates can
+ * multiply them in the order of the damage formula and round like combat does.
+ * The effectiveness classification is stored alongside for the messages shown on a hit.
+ * Only the factors between the elements of the Element enum are configurable, a new element needs a code change.
+ * Tables are immutable, changed factors create a new table.
+ * @author uuifx
+ */
+public final class ElementTable {
+    /**
+     * Damage factor applied when the action has the same element as the attacker.
+     */
+    public static final double SAME_ELEMENT_FACTOR = 1.5;
+
+    private static final Element[] ELEMENTS = Element.values();
+    private static final int SIZE = ELEMENTS.length;
+
+    private final double[] elementFactors;
+    private final Effectiveness[] effectiveness;
+
+    /**
+     * Creates a new element table.
+     * @param elementFactors The element factors, indexed by attacking and defending element ordinal
+     */
+    public ElementTable(double[][] elementFactors) {
+        this.elementFactors = new double[SIZE * SIZE];
+        this.effectiveness = new Effectiveness[SIZE * SIZE];
+        for (int action = 0; action < SIZE; action++) {
+            for (int defender = 0; defender < SIZE; defender++) {
+                double factor = elementFactors[action][defender];
+                this.elementFactors[action * SIZE + defender] = factor;
+                this.effectiveness[action * SIZE + defender] = Effectiveness.fromFactor(factor);
+            }
+        }
+    }
+
+    /**
+     * Gets the element factor of an action against a defending monster.
+     * @param action The element of the action
+     * @param defender The element of the defending monster
+     * @return The element factor
+     */
+    public double getElementFactor(Element action, Element defender) {
+        return elementFactors[action.ordinal() * SIZE + defender.ordinal()];
+    }
+
+    /**
+     * Gets the same element factor of an action used by an attacker.
+     * @param action The element of the action
+     * @param attacker The element of the attacking monster
+     * @return SAME_ELEMENT_FACTOR if the elements match, 1.0 otherwise
+     */
+    public double getSameElementFactor(Element action, Element attacker) {
+        return action == attacker ? SAME_ELEMENT_FACTOR : 1.0;
+    }
+
+    /**
+     * Gets the effectiveness of an action against a defending monster.
+     * @param action The element of the action
+     * @param defender The element of the defending monster
+     * @return The effectiveness
+     */
+    public Effectiveness getEffectiveness(Element action, Element defender) {
+        return effectiveness[action.ordinal() * SIZE + defender.ordinal()];
+    }
+
+    /**
+     * Creates a copy of this table with a changed element factor.
+     * @param action The attacking element
+     * @param defender The defending element
+     * @param factor The new element factor
+     * @return The new table
+     * @throws IllegalArgumentException If the factor is negative, NaN or infinite
+     */
+    public ElementTable withElementFactor(Element action, Element defender, double factor) {
+        if (!Double.isFinite(factor) || factor < 0) {
+            throw new IllegalArgumentException("element factor must be a finite number of at least 0: " + factor);
+        }
+        double[][] factors = new double[SIZE][SIZE];
+        for (Element attacking : ELEMENTS) {
+            for (Element defending : ELEMENTS) {
+                factors[attacking.ordinal()][defending.ordinal()] = getElementFactor(attacking, defending);
+            }
+        }
+        factors[action.ordinal()][defender.ordinal()] = factor;
+        return new ElementTable(factors);
+    }
+}
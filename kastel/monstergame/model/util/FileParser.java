@@ -2,6 +2,7 @@ package edu.kit.kastel.monstergame.model.util;
 
 import edu.kit.kastel.monstergame.model.Action;
 import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.enums.Element;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
@@ -108,22 +109,40 @@ public final class FileParser {
 
     /**
      * Container class for game data loaded from a configuration file.
-     * Stores lists of monsters and actions.
+     * Stores lists of monsters and actions and the element table.
      */
     public static class GameData {
         private final List<Monster> monsters;
         private final List<Action> actions;
         private final Map<String, Action> actionMap;
+        private final ElementTable elementTable;
+        private final ActionDependencies actionDependencies;
 
         /**
-         * Creates a new GameData object with the specified monsters and actions.
+         * Creates a new GameData object with the specified monsters and actions and the default element table.
          *
          * @param monsters The list of monsters
          * @param actions The list of actions
          */
         public GameData(List<Monster> monsters, List<Action> actions) {
+            this(monsters, actions, ElementEffectiveness.createDefaultTable(), new ActionDependencies());
+        }
+
+        /**
+         * Creates a new GameData object with the specified monsters, actions, element table and the dependencies
+         * of the monsters on the actions.
+         *
+         * @param monsters The list of monsters
+         * @param actions The list of actions
+         * @param elementTable The element table of the configuration
+         * @param actionDependencies The monsters using each action
+         */
+        public GameData(List<Monster> monsters, List<Action> actions, ElementTable elementTable,
+                        ActionDependencies actionDependencies) {
             this.monsters = monsters;
             this.actions = actions;
+            this.elementTable = elementTable;
+            this.actionDependencies = actionDependencies;
             this.actionMap = new HashMap<>();
             for (Action action : actions) {
                 actionMap.put(action.getName(), action);
@@ -157,6 +176,24 @@ public final class FileParser {
         public Action getActionByName(String name) {
             return actionMap.get(name);
         }
+
+        /**
+         * Gets the element table of the configuration.
+         *
+         * @return The element table
+         */
+        public ElementTable getElementTable() {
+            return elementTable;
+        }
+
+        /**
+         * Gets the dependency graph from the actions to the monsters that use them.
+         *
+         * @return The action dependencies
+         */
+        public ActionDependencies getActionDependencies() {
+            return actionDependencies;
+        }
     }
 
     /**
@@ -168,11 +205,13 @@ public final class FileParser {
     public static GameData parseFile(String filename) {
         Map<String, Action> actionsMap = new HashMap<>();
         List<Monster> monsters = new ArrayList<>();
+        ActionDependencies dependencies = new ActionDependencies();
 
         BufferedReader reader = null;
+        ElementTable elementTable;
         try {
             reader = new BufferedReader(new FileReader(filename));
-            parseFileContent(reader, actionsMap, monsters);
+            elementTable = parseFileContent(reader, actionsMap, monsters, dependencies);
         } catch (IOException e) {
             System.err.println("Error reading file: " + e.getMessage());
             return new GameData(new ArrayList<>(), new ArrayList<>());
@@ -181,7 +220,7 @@ public final class FileParser {
         }
 
         List<Action> actions = new ArrayList<>(actionsMap.values());
-        return new GameData(monsters, actions);
+        return new GameData(monsters, actions, elementTable, dependencies);
     }
 
     /**
@@ -190,10 +229,14 @@ public final class FileParser {
      * @param reader The reader to read from
      * @param actionsMap The map to store parsed actions
      * @param monsters The list to store parsed monsters
+     * @param dependencies The dependency graph the actions of the parsed monsters are added to
+     * @return The element table with the default rules and all effectiveness lines applied
      * @throws IOException If an I/O error occurs
      */
-    private static void parseFileContent(BufferedReader reader, Map<String, Action> actionsMap,
-                                         List<Monster> monsters) throws IOException {
+    private static ElementTable parseFileContent(BufferedReader reader, Map<String, Action> actionsMap,
+                                                 List<Monster> monsters, ActionDependencies dependencies)
+            throws IOException {
+        ElementTable elementTable = ElementEffectiveness.createDefaultTable();
         String line;
         while ((line = reader.readLine()) != null) {
             line = line.trim();
@@ -208,12 +251,41 @@ public final class FileParser {
                     actionsMap.put(action.getName(), action);
                 }
             } else if (line.startsWith("monster ")) {
-                Monster monster = MonsterParser.parseMonster(line, actionsMap);
+                Monster monster = MonsterParser.parseMonster(line, actionsMap, dependencies);
                 if (monster != null) {
                     monsters.add(monster);
                 }
+            } else if (line.startsWith("effectiveness ")) {
+                elementTable = parseEffectiveness(line, elementTable);
             }
         }
+        return elementTable;
+    }
+
+    /**
+     * Parses an effectiveness line of the form "effectiveness ATTACKING DEFENDING factor".
+     * Both elements must be ones of the Element enum, the line only changes the factor between them.
+     * The factor must be a finite number of at least 0, since the damage formula multiplies with it.
+     *
+     * @param line The line to parse
+     * @param elementTable The element table so far
+     * @return The element table with the factor applied, or the unchanged table if the line is invalid
+     */
+    private static ElementTable parseEffectiveness(String line, ElementTable elementTable) {
+        String[] parts = line.split("\\s+");
+        if (parts.length < 4) {
+            System.err.println("Invalid effectiveness format: " + line);
+            return elementTable;
+        }
+        try {
+            Element attacking = Element.valueOf(parts[1]);
+            Element defending = Element.valueOf(parts[2]);
+            double factor = Double.parseDouble(parts[3]);
+            return elementTable.withElementFactor(attacking, defending, factor);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid effectiveness format: " + line);
+            return elementTable;
+        }
     }
 
     /**
@@ -0,0 +1,126 @@
+package edu.kit.kastel.monstergame.model.util;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.Effect;
+import edu.kit.kastel.monstergame.model.effect.HealingEffect;
+import edu.kit.kastel.monstergame.model.effect.ProtectionEffect;
+import edu.kit.kastel.monstergame.model.effect.RepeatEffect;
+import edu.kit.kastel.monstergame.model.effect.StatChangeEffect;
+import edu.kit.kastel.monstergame.model.effect.StatusConditionEffect;
+import edu.kit.kastel.monstergame.model.enums.Element;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+
+/**
+ * Utility class to identify the definitions of monsters by a hash of their contents, e.g. to find stored results
+ * that were calculated for monsters with the same element, stats, actions and effects, whatever their names are.
+ * Descriptions are built from the raw values, enum names, integers and the bits of doubles,
+ * so they do not depend on how values are displayed or on the locale.
+ * @author uuifx
+ */
+public final class Fingerprint {
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private Fingerprint() {
+    }
+
+    /**
+     * Appends the element, the base stats and the actions with all their effects of a monster to a description.
+     * @param monster The monster
+     * @param description The description
+     * @return The description
+     */
+    public static StringBuilder describe(Monster monster, StringBuilder description) {
+        description.append(monster.getElement().name()).append(';');
+        for (StatType statType : StatType.values()) {
+            description.append(monster.getBaseStats().getOrDefault(statType, 0)).append(',');
+        }
+        for (Action action : monster.getActions()) {
+            describe(action, description).append(';');
+        }
+        return description.append('|');
+    }
+
+    /**
+     * Appends the element and the effects of an action to a description, but not its name.
+     * @param action The action
+     * @param description The description
+     * @return The description
+     */
+    public static StringBuilder describe(Action action, StringBuilder description) {
+        description.append(action.getElement().name()).append('[');
+        for (Effect effect : action.getEffects()) {
+            describe(effect, description);
+        }
+        return description.append(']');
+    }
+
+    /**
+     * Appends the factors of an element table to a description.
+     * @param table The element table
+     * @param description The description
+     * @return The description
+     */
+    public static StringBuilder describe(ElementTable table, StringBuilder description) {
+        for (Element action : Element.values()) {
+            for (Element defender : Element.values()) {
+                description.append(Double.doubleToLongBits(table.getElementFactor(action, defender))).append(',');
+            }
+        }
+        return description.append('|');
+    }
+
+    /**
+     * Appends the type, the target, the hit rate and the values of an effect to a description.
+     * @param effect The effect
+     * @param description The description
+     */
+    private static void describe(Effect effect, StringBuilder description) {
+        description.append(effect.getEffectType().name()).append(',').append(effect.getTarget().name()).append(',')
+                .append(Double.doubleToLongBits(effect.getHitRate()));
+        if (effect instanceof DamageEffect) {
+            DamageEffect damage = (DamageEffect) effect;
+            description.append(',').append(damage.getDamageType().name()).append(',').append(damage.getPower());
+        } else if (effect instanceof HealingEffect) {
+            HealingEffect healing = (HealingEffect) effect;
+            description.append(',').append(healing.getHealType().name()).append(',').append(healing.getPower());
+        } else if (effect instanceof StatChangeEffect) {
+            StatChangeEffect statChange = (StatChangeEffect) effect;
+            description.append(',').append(statChange.getStat().name()).append(',').append(statChange.getStages());
+        } else if (effect instanceof StatusConditionEffect) {
+            description.append(',').append(((StatusConditionEffect) effect).getCondition().name());
+        } else if (effect instanceof ProtectionEffect) {
+            ProtectionEffect protection = (ProtectionEffect) effect;
+            description.append(',').append(protection.getProtectionTarget().name()).append(',')
+                    .append(protection.isRandomRounds()).append(',').append(protection.getRounds()).append(',')
+                    .append(protection.getMinRounds()).append(',').append(protection.getMaxRounds());
+        } else if (effect instanceof RepeatEffect) {
+            RepeatEffect repeat = (RepeatEffect) effect;
+            description.append(',').append(repeat.isRandomCount()).append(',').append(repeat.getCount()).append(',')
+                    .append(repeat.getMinCount()).append(',').append(repeat.getMaxCount()).append('[');
+            for (Effect repeated : repeat.getEffects()) {
+                describe(repeated, description);
+            }
+            description.append(']');
+        }
+        description.append(';');
+    }
+
+    /**
+     * Calculates the 64 bit FNV-1a hash of a description.
+     * @param description The description
+     * @return The hash
+     */
+    public static long hash(CharSequence description) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < description.length(); i++) {
+            hash = (hash ^ description.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -1,6 +1,7 @@
 package edu.kit.kastel.monstergame.model.util;
 import edu.kit.kastel.monstergame.model.Action;
 import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.MonsterState;
 import edu.kit.kastel.monstergame.model.enums.Element;
 import edu.kit.kastel.monstergame.model.enums.StatType;
 import java.util.ArrayList;
@@ -23,9 +24,11 @@ public final class MonsterParser {
      * Parses a monster from a line in the configuration file.
      * @param line The line containing the monster definition
      * @param actionsMap The map of available actions
+     * @param dependencies The dependency graph the actions of the monster are added to
      * @return Parsed Monster
      */
-    public static Monster parseMonster(String line, Map<String, Action> actionsMap) {
+    public static Monster parseMonster(String line, Map<String, Action> actionsMap,
+                                       ActionDependencies dependencies) {
         String[] parts = line.split("\\s+");
         if (parts.length < 7) {
             System.err.println("Invalid monster format: " + line);
@@ -40,7 +43,12 @@ public final class MonsterParser {
             return null;
         }
         // Parse actions
-        List<Action> monsterActions = parseMonsterActions(parts, actionsMap, monsterName);
+        List<Action> monsterActions = parseMonsterActions(parts, actionsMap, monsterName, dependencies);
+        if (monsterActions.size() > MonsterState.MAX_ACTIONS) {
+            System.err.println("Too many actions for monster " + monsterName + ": at most "
+                    + MonsterState.MAX_ACTIONS + " are allowed");
+            return null;
+        }
         return new Monster(monsterName, element, stats, monsterActions);
     }
 
@@ -65,16 +73,18 @@ public final class MonsterParser {
      * @param parts Parts of the line
      * @param actionsMap  The map of available actions
      * @param monsterName The name of the monster
+     * @param dependencies The dependency graph the actions of the monster are added to
      * @return A list of parsed actions
      */
     public static List<Action> parseMonsterActions(String[] parts, Map<String, Action> actionsMap,
-                                                   String monsterName) {
+                                                   String monsterName, ActionDependencies dependencies) {
         List<Action> monsterActions = new ArrayList<>();
         for (int i = 7; i < parts.length; i++) {
             String actionName = parts[i];
             Action action = actionsMap.get(actionName);
             if (action != null) {
                 monsterActions.add(action);
+                dependencies.add(actionName, monsterName);
             } else {
                 System.err.println("Unknown action for monster " + monsterName + ": " + actionName);
             }
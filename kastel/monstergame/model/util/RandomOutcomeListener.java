@@ -0,0 +1,27 @@
+package edu.kit.kastel.monstergame.model.util;
+
+/**
+ * Listener that is told the outcome of every random decision of a RandomUtil.
+ * @author uuifx
+ */
+public interface RandomOutcomeListener {
+    /**
+     * Called after a chance was decided.
+     * @param outcome The outcome
+     */
+    void onChance(boolean outcome);
+
+    /**
+     * Called after a random integer was decided.
+     * @param outcome The outcome
+     */
+    void onInt(int outcome);
+
+    /**
+     * Called after a random double was decided.
+     * @param min The minimum value
+     * @param max The maximum value
+     * @param outcome The outcome
+     */
+    void onDouble(double min, double max, double outcome);
+}
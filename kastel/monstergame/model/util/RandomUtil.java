@@ -2,15 +2,21 @@ package edu.kit.kastel.monstergame.model.util;
 
 import java.util.Random;
 import java.util.Scanner;
+import java.util.function.IntFunction;
 
 /**
  * Utility class for generating random numbers.
  * @author uuifx
  */
 public class RandomUtil {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
     private final Random random;
     private final boolean inDebugMode;
     private final Scanner scanner;
+    private final long seed;
+    private long splits;
+    private RandomOutcomeListener outcomeListener;
 
     /**
      * Creates a new RandomUtil instance.
@@ -20,9 +26,51 @@ public class RandomUtil {
      * @author uuifx
      */
     public RandomUtil(long seed, boolean debugMode) {
+        this(seed, debugMode, debugMode ? new Scanner(System.in) : null);
+    }
+
+    /**
+     * Creates a new RandomUtil instance that reads decisions in debug mode from a given scanner.
+     * @param seed The seed for the random number generator
+     * @param debugMode Whether to run in debug mode with interactive prompts
+     * @param scanner The scanner reading decisions, or null outside of debug mode
+     */
+    private RandomUtil(long seed, boolean debugMode, Scanner scanner) {
         this.random = new Random(seed);
         this.inDebugMode = debugMode;
-        this.scanner = debugMode ? new Scanner(System.in) : null;
+        this.scanner = scanner;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates an independent random utility, e.g. for a policy that chooses randomly.
+     * Its seed is derived from the seed of this one and the number of earlier splits, so it takes no numbers
+     * from this one and the outcomes of both stay reproducible. Outcomes of the split are not told
+     * to the listener of this one. In debug mode, it asks for its decisions on the same input.
+     * @return The new random utility
+     */
+    public RandomUtil split() {
+        splits++;
+        return new RandomUtil(mix(seed + splits * GOLDEN_GAMMA), inDebugMode, scanner);
+    }
+
+    /**
+     * Sets the listener that is told every random outcome, e.g. to record it.
+     *
+     * @param outcomeListener The listener, or null to stop telling outcomes
+     */
+    public void setOutcomeListener(RandomOutcomeListener outcomeListener) {
+        this.outcomeListener = outcomeListener;
+    }
+
+    /**
+     * Checks if decisions are asked for interactively.
+     * Callers can use this to skip building descriptions that are only shown in debug mode.
+     *
+     * @return true in debug mode, false otherwise
+     */
+    public boolean isInDebugMode() {
+        return inDebugMode;
     }
 
     /**
@@ -35,6 +83,21 @@ public class RandomUtil {
      * @author uuifx
      */
     public boolean rollChance(double probability, String decisionDescription) {
+        boolean outcome = decideChance(probability, decisionDescription);
+        if (outcomeListener != null) {
+            outcomeListener.onChance(outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * Decides a chance, asking for it in debug mode.
+     *
+     * @param probability The probability of returning true (0-100)
+     * @param decisionDescription Description for debug mode
+     * @return true with the given probability
+     */
+    private boolean decideChance(double probability, String decisionDescription) {
         if (inDebugMode) {
             System.out.printf("Decide %s: yes or no (y/n)? ", decisionDescription);
             String input = scanner.nextLine().trim().toLowerCase();
@@ -50,6 +113,33 @@ public class RandomUtil {
         }
     }
 
+    /**
+     * Decides a batch of independent chances with the same probability in one block.
+     * The outcomes are the same as calling rollChance once for each decision in order.
+     * Descriptions are only built in debug mode, where every decision is asked for separately.
+     *
+     * @param probability The probability of each outcome being true (0-100)
+     * @param results The array the outcomes are written to, starting at index 0
+     * @param count The number of decisions
+     * @param decisionDescriptions Creates the description of the decision at an index for debug mode
+     * @author uuifx
+     */
+    public void rollChances(double probability, boolean[] results, int count,
+                            IntFunction<String> decisionDescriptions) {
+        if (inDebugMode) {
+            for (int i = 0; i < count; i++) {
+                results[i] = rollChance(probability, decisionDescriptions.apply(i));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                results[i] = random.nextDouble() * 100 <= probability;
+                if (outcomeListener != null) {
+                    outcomeListener.onChance(results[i]);
+                }
+            }
+        }
+    }
+
     /**
      * Generates a random double in the range.
      * Used for damage calculations with random factor.
@@ -60,6 +150,21 @@ public class RandomUtil {
      * @author uuifx
      */
     public double getRandomDouble(double min, double max, String decisionDescription) {
+        double outcome = decideDouble(min, max, decisionDescription);
+        if (outcomeListener != null) {
+            outcomeListener.onDouble(min, max, outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * Decides a random double, asking for it in debug mode.
+     * @param min The minimum value
+     * @param max The maximum value
+     * @param decisionDescription Description for debug mode
+     * @return A random double in the range
+     */
+    private double decideDouble(double min, double max, String decisionDescription) {
         if (inDebugMode) {
             System.out.printf("Decide %s: a double between %.2f and %.2f? ",
                     decisionDescription, min, max);
@@ -67,12 +172,12 @@ public class RandomUtil {
                 double value = Double.parseDouble(scanner.nextLine().trim());
                 if (value < min || value >= max) {
                     System.out.println("Error, out of range.");
-                    return getRandomDouble(min, max, decisionDescription);
+                    return decideDouble(min, max, decisionDescription);
                 }
                 return value;
             } catch (NumberFormatException e) {
                 System.out.println("Error, invalid number format.");
-                return getRandomDouble(min, max, decisionDescription);
+                return decideDouble(min, max, decisionDescription);
             }
         } else {
             return random.nextDouble(min, max);
@@ -89,6 +194,21 @@ public class RandomUtil {
      * @author uuifx
      */
     public int getRandomInt(int min, int max, String decisionDescription) {
+        int outcome = decideInt(min, max, decisionDescription);
+        if (outcomeListener != null) {
+            outcomeListener.onInt(outcome);
+        }
+        return outcome;
+    }
+
+    /**
+     * Decides a random integer, asking for it in debug mode.
+     * @param min The minimum value
+     * @param max The maximum value
+     * @param decisionDescription Description for debug mode
+     * @return A random integer in the range [min, max]
+     */
+    private int decideInt(int min, int max, String decisionDescription) {
         if (inDebugMode) {
             System.out.printf("Decide %s: an integer between %d and %d? ",
                     decisionDescription, min, max);
@@ -96,15 +216,26 @@ public class RandomUtil {
                 int value = Integer.parseInt(scanner.nextLine().trim());
                 if (value < min || value > max) {
                     System.out.println("Error, out of range.");
-                    return getRandomInt(min, max, decisionDescription);
+                    return decideInt(min, max, decisionDescription);
                 }
                 return value;
             } catch (NumberFormatException e) {
                 System.out.println("Error, invalid number format.");
-                return getRandomInt(min, max, decisionDescription);
+                return decideInt(min, max, decisionDescription);
             }
         } else {
             return random.nextInt(min, max + 1);
         }
     }
+
+    /**
+     * Scrambles a seed with the SplitMix64 finalizer, so seeds that are close give unrelated sequences.
+     * @param value The value
+     * @return The scrambled value
+     */
+    private static long mix(long value) {
+        long z = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package edu.kit.kastel.monstergame.model.util;
+
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+
+/**
+ * Zobrist keys for hashing combat states.
+ * The hash of a state is the XOR of one key per value, so changing a value updates the hash in constant time
+ * by XORing out the key of the old value and XORing in the key of the new one.
+ * Keys are not kept in tables but mixed from the slot, the field and the value with the SplitMix64 finalizer,
+ * so any HP value or number of remaining protection rounds has a key without a table sized for it.
+ * The fields are numbered like the side fields of a combat state: HP, the stages of ATK to AGL,
+ * the status condition and both protections.
+ * @author uuifx
+ */
+public final class Zobrist {
+    /**
+     * The field of the current HP.
+     */
+    public static final int HP = 0;
+    /**
+     * The field of the status condition, whose value is 0 for none and the ordinal plus 1 otherwise.
+     */
+    public static final int CONDITION = 6;
+    /**
+     * The key XORed into the hash of a combat in odd rounds.
+     */
+    public static final long ROUND_PARITY = mix(0x5DEECE66DL);
+
+    private static final int PROTECTION = 7;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Gets the key of a value.
+     * @param slot The slot the value belongs to, e.g. the contestant number of a monster
+     * @param field The field, e.g. HP
+     * @param value The value
+     * @return The key
+     */
+    public static long key(int slot, int field, int value) {
+        long packed = ((long) slot << 40) ^ ((long) field << 32) ^ (value & 0xFFFFFFFFL);
+        return mix(packed * GOLDEN_GAMMA + GOLDEN_GAMMA);
+    }
+
+    /**
+     * Gets the field of the stage of a stat.
+     * @param statType The stat, not HP
+     * @return The field
+     */
+    public static int stageField(StatType statType) {
+        return statType.ordinal();
+    }
+
+    /**
+     * Gets the field of a protection.
+     * @param target The protection target
+     * @return The field
+     */
+    public static int protectionField(ProtectionTarget target) {
+        return PROTECTION + target.ordinal();
+    }
+
+    /**
+     * Gets the value a status condition is hashed with.
+     * @param condition The status condition, or null
+     * @return 0 for none, the ordinal plus 1 otherwise
+     */
+    public static int conditionValue(StatusCondition condition) {
+        return condition == null ? 0 : condition.ordinal() + 1;
+    }
+
+    /**
+     * Mixes the bits of a value, the finalizer of SplitMix64.
+     * @param value The value
+     * @return The mixed value
+     */
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,220 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.MonsterState;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.HealingEffect;
+import edu.kit.kastel.monstergame.model.effect.ProtectionEffect;
+import edu.kit.kastel.monstergame.model.effect.StatChangeEffect;
+import edu.kit.kastel.monstergame.model.effect.StatusConditionEffect;
+import edu.kit.kastel.monstergame.model.enums.DamageType;
+import edu.kit.kastel.monstergame.model.enums.EffectTarget;
+import edu.kit.kastel.monstergame.model.enums.Element;
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.enums.StatusCondition;
+import edu.kit.kastel.monstergame.model.util.RandomUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks that a battle log reads back exactly what was recorded.
+ * The tree has no test framework, so main runs all checks and throws an AssertionError on the first failure.
+ * @author uuifx
+ */
+public final class BattleLogTest {
+    private static final long SEED = 11;
+    private static final int ROUND_LIMIT = 200;
+    private static final int ESCAPED_ACTION = 40;
+    private static final int ESCAPED_INT = 1000;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private BattleLogTest() {
+    }
+
+    /**
+     * Runs all checks.
+     * @param args Unused
+     * @throws IOException If the temporary battle log cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        eventsReadBackAsWritten();
+        replayRebuildsEveryRound();
+        System.out.println("BattleLogTest passed");
+    }
+
+    /**
+     * Writes every kind of event, including differences of HP and stages, escaped values and two chances
+     * sharing a tag, and compares the decoded events with the ones written.
+     * @throws IOException If the battle log cannot be written or read
+     */
+    private static void eventsReadBackAsWritten() throws IOException {
+        List<Monster> monsters = createMonsters();
+        Monster first = monsters.get(0);
+        Monster second = monsters.get(1);
+        CombatSystem combatSystem = new CombatSystem(monsters, (monster, opponents) -> null, false,
+                new RandomUtil(SEED, false));
+        Path path = Files.createTempFile("battle", ".log");
+        List<String> expected = new ArrayList<>();
+        try (BattleLog battleLog = new BattleLog(path, combatSystem.getMonsters())) {
+            battleLog.keyframe(combatSystem);
+            expected.add("KEYFRAME " + combatSystem.getRoundNumber());
+            battleLog.action(first, 0, second);
+            expected.add("ACTION 0 0 1");
+            battleLog.onChance(true);
+            battleLog.onChance(false);
+            battleLog.onChance(true);
+            expected.addAll(List.of("CHANCE true", "CHANCE false", "CHANCE true"));
+            battleLog.onDouble(0.85, 1.0, 0.9);
+            expected.add("DOUBLE " + Math.round((0.9 - 0.85) / (1.0 - 0.85) * BattleLog.DOUBLE_STEPS));
+            second.setCurrentHp(second.getCurrentHp() - 12);
+            battleLog.hpChanged(second);
+            expected.add("HP 1 -12");
+            second.modifyStat(StatType.DEF, -2);
+            battleLog.stageChanged(second, StatType.DEF);
+            expected.add("STAGE 1 DEF -2");
+            second.modifyStat(StatType.DEF, 1);
+            battleLog.stageChanged(second, StatType.DEF);
+            expected.add("STAGE 1 DEF 1");
+            second.setStatusCondition(StatusCondition.BURN);
+            battleLog.statusChanged(second);
+            expected.add("STATUS 1 BURN");
+            battleLog.protectionChanged(first, ProtectionTarget.STATS, 3);
+            expected.add("PROTECTION 0 STATS 3");
+            battleLog.onInt(4);
+            battleLog.onInt(ESCAPED_INT);
+            battleLog.onInt(-3);
+            expected.addAll(List.of("INT 4", "INT " + ESCAPED_INT, "INT -3"));
+            battleLog.action(second, -1, null);
+            expected.add("ACTION 1 -1 -1");
+            battleLog.action(first, ESCAPED_ACTION, second);
+            expected.add("ACTION 0 " + ESCAPED_ACTION + " 1");
+            battleLog.round(2);
+            expected.add("ROUND 2");
+            int hp = first.getCurrentHp();
+            first.setCurrentHp(0);
+            battleLog.hpChanged(first);
+            expected.add("HP 0 " + -hp);
+            battleLog.fainted(first);
+            expected.add("FAINT 0");
+            battleLog.round(7);
+            expected.add("ROUND 7");
+        }
+        List<String> actual = read(path, monsters);
+        check(actual.equals(expected), "expected the events " + expected + ", but read " + actual);
+    }
+
+    /**
+     * Records a whole combat and rebuilds the start of every round from the log, which has to give the packed
+     * states the monsters had at that time, including the rounds their protections have left.
+     * @throws IOException If the battle log cannot be written or read
+     */
+    private static void replayRebuildsEveryRound() throws IOException {
+        List<Monster> monsters = createMonsters();
+        Map<Integer, long[]> roundStarts = new TreeMap<>();
+        CombatSystem[] combat = new CombatSystem[1];
+        combat[0] = new CombatSystem(monsters, (monster, opponents) -> {
+            int round = combat[0].getRoundNumber();
+            roundStarts.putIfAbsent(round, MonsterState.snapshot(monsters));
+            return monster.getAction((round + monster.getContestantNumber()) % monster.getActionCount());
+        }, false, new RandomUtil(SEED, false));
+        combat[0].setCombatLog(new CombatLog(0));
+        combat[0].setRoundLimit(ROUND_LIMIT);
+        Path path = Files.createTempFile("battle", ".log");
+        try (BattleLog battleLog = new BattleLog(path, combat[0].getMonsters())) {
+            combat[0].setBattleLog(battleLog);
+            combat[0].startCombat();
+        }
+        check(roundStarts.size() > 1, "expected a combat of several rounds");
+
+        for (Map.Entry<Integer, long[]> roundStart : roundStarts.entrySet()) {
+            List<Monster> replayed = createMonsters();
+            CombatSystem combatSystem = new CombatSystem(replayed, (monster, opponents) -> null, false,
+                    new RandomUtil(SEED, false));
+            combatSystem.setCombatLog(new CombatLog(0));
+            BattleLogReader.replay(path, combatSystem, roundStart.getKey());
+            check(Arrays.equals(MonsterState.snapshot(replayed), roundStart.getValue()),
+                    "expected the states of round " + roundStart.getKey() + " to be rebuilt");
+        }
+        check(!read(path, monsters).isEmpty(), "expected the recorded combat to have events");
+    }
+
+    /**
+     * Reads the events of a battle log.
+     * @param path The path of the log
+     * @param monsters The monsters it was recorded with
+     * @return The descriptions of the events
+     * @throws IOException If the file cannot be read
+     */
+    private static List<String> read(Path path, List<Monster> monsters) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (Monster monster : monsters) {
+            names.add(monster.getName());
+        }
+        try {
+            return BattleLogReader.describe(ByteBuffer.wrap(Files.readAllBytes(path)), path.toString(), names);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Creates two monsters whose actions cause every kind of event.
+     * @return The monsters
+     */
+    private static List<Monster> createMonsters() {
+        Action strike = new Action("Strike", Element.FIRE, List.of(
+                new DamageEffect(EffectTarget.TARGET, DamageType.BASE, 30, 0.9),
+                new StatusConditionEffect(EffectTarget.TARGET, StatusCondition.BURN, 0.3)));
+        Action guard = new Action("Guard", Element.NORMAL, List.of(
+                new ProtectionEffect(ProtectionTarget.HEALTH, 1, 3, 1.0),
+                new StatChangeEffect(EffectTarget.SELF, StatType.ATK, 1, 1.0)));
+        Action soak = new Action("Soak", Element.WATER, List.of(
+                new StatusConditionEffect(EffectTarget.TARGET, StatusCondition.WET, 0.8),
+                new StatChangeEffect(EffectTarget.TARGET, StatType.DEF, -1, 1.0)));
+        Action mend = new Action("Mend", Element.NORMAL, List.of(
+                new HealingEffect(EffectTarget.SELF, DamageType.RELATIVE, 20, 1.0),
+                new ProtectionEffect(ProtectionTarget.STATS, 2, 1.0)));
+        return List.of(createMonster("Blaze", Element.FIRE, List.of(strike, guard, mend)),
+                createMonster("Tide", Element.WATER, List.of(soak, strike, guard, mend)));
+    }
+
+    /**
+     * Creates a monster.
+     * @param name The name
+     * @param element The element
+     * @param actions The actions
+     * @return The monster
+     */
+    private static Monster createMonster(String name, Element element, List<Action> actions) {
+        Map<StatType, Integer> stats = new EnumMap<>(StatType.class);
+        stats.put(StatType.HP, 120);
+        stats.put(StatType.ATK, 50);
+        stats.put(StatType.DEF, 45);
+        stats.put(StatType.SPD, 40);
+        return new Monster(name, element, stats, actions);
+    }
+
+    /**
+     * Fails if a condition does not hold.
+     * @param condition The condition
+     * @param message The message of the failure
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
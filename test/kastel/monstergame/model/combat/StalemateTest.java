@@ -0,0 +1,134 @@
+package edu.kit.kastel.monstergame.model.combat;
+
+import edu.kit.kastel.monstergame.model.Action;
+import edu.kit.kastel.monstergame.model.Monster;
+import edu.kit.kastel.monstergame.model.command.CommandInterface;
+import edu.kit.kastel.monstergame.model.effect.DamageEffect;
+import edu.kit.kastel.monstergame.model.effect.ProtectionEffect;
+import edu.kit.kastel.monstergame.model.enums.DamageType;
+import edu.kit.kastel.monstergame.model.enums.EffectTarget;
+import edu.kit.kastel.monstergame.model.enums.Element;
+import edu.kit.kastel.monstergame.model.enums.EndReason;
+import edu.kit.kastel.monstergame.model.enums.ProtectionTarget;
+import edu.kit.kastel.monstergame.model.enums.StatType;
+import edu.kit.kastel.monstergame.model.util.RandomUtil;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks the stalemate detection of automated combats.
+ * The tree has no test framework, so main runs all checks and throws an AssertionError on the first failure.
+ * @author uuifx
+ */
+public final class StalemateTest {
+    private static final int PROTECTION_ROUNDS = 100;
+    private static final int ROUND_LIMIT = 1000;
+    private static final long SEED = 7;
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private StalemateTest() {
+    }
+
+    /**
+     * Runs all checks.
+     * @param args Unused
+     */
+    public static void main(String[] args) {
+        longProtectionAttackedIntoIsNoStalemate();
+        waitingWithoutProtectionIsStalemate();
+        System.out.println("StalemateTest passed");
+    }
+
+    /**
+     * A monster protects itself once for 100 rounds and then only passes, while the other one attacks it every
+     * round. The states repeat except for the rounds the protection has left, so the combat must go on until
+     * the protection ends and the attacker wins.
+     */
+    private static void longProtectionAttackedIntoIsNoStalemate() {
+        Action shield = new Action("Shield", Element.NORMAL,
+                List.of(new ProtectionEffect(ProtectionTarget.HEALTH, PROTECTION_ROUNDS, 100)));
+        Action poke = new Action("Poke", Element.NORMAL,
+                List.of(new DamageEffect(EffectTarget.TARGET, DamageType.BASE, 5, 100)));
+        Monster wall = createMonster("Wall", shield);
+        Monster poker = createMonster("Poker", poke);
+
+        boolean[] shielded = new boolean[1];
+        CombatResult result = fight(wall, poker, (monster, opponents) -> {
+            if (monster == poker) {
+                return poke;
+            }
+            if (shielded[0]) {
+                return null;
+            }
+            shielded[0] = true;
+            return shield;
+        });
+
+        check(result.getReason() == EndReason.LAST_STANDING,
+                "expected the attacker to win after the protection, but the combat ended by " + result.getReason()
+                        + " after " + result.getRounds() + " rounds");
+        check(result.getWinner() == poker, "expected Poker to win");
+        check(result.getRounds() > PROTECTION_ROUNDS,
+                "expected the combat to outlast the protection, but it took " + result.getRounds() + " rounds");
+    }
+
+    /**
+     * Two monsters that only pass reach the same state every other round, which is a stalemate.
+     */
+    private static void waitingWithoutProtectionIsStalemate() {
+        Action poke = new Action("Poke", Element.NORMAL,
+                List.of(new DamageEffect(EffectTarget.TARGET, DamageType.BASE, 5, 100)));
+        CombatResult result = fight(createMonster("First", poke), createMonster("Second", poke),
+                (monster, opponents) -> null);
+
+        check(result.getReason() == EndReason.STALEMATE,
+                "expected a stalemate, but the combat ended by " + result.getReason());
+        check(result.getRounds() < CombatSystem.DEFAULT_REPETITION_LIMIT * 2 + 1,
+                "expected the stalemate to be found early, but it took " + result.getRounds() + " rounds");
+    }
+
+    /**
+     * Lets two monsters fight without output.
+     * @param first The first monster
+     * @param second The second monster
+     * @param commandInterface The policy of both monsters
+     * @return The result
+     */
+    private static CombatResult fight(Monster first, Monster second, CommandInterface commandInterface) {
+        CombatSystem combatSystem = new CombatSystem(List.of(first, second), commandInterface, false,
+                new RandomUtil(SEED, false));
+        combatSystem.setCombatLog(new CombatLog(0));
+        combatSystem.setRoundLimit(ROUND_LIMIT);
+        return combatSystem.startCombat();
+    }
+
+    /**
+     * Creates a monster with equal stats.
+     * @param name The name
+     * @param action The only action
+     * @return The monster
+     */
+    private static Monster createMonster(String name, Action action) {
+        Map<StatType, Integer> stats = new EnumMap<>(StatType.class);
+        stats.put(StatType.HP, 100);
+        stats.put(StatType.ATK, 50);
+        stats.put(StatType.DEF, 50);
+        stats.put(StatType.SPD, 50);
+        return new Monster(name, Element.NORMAL, stats, List.of(action));
+    }
+
+    /**
+     * Fails if a condition does not hold.
+     * @param condition The condition
+     * @param message The message of the failure
+     */
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}